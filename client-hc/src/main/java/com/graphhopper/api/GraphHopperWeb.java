@@ -28,6 +28,7 @@ import com.graphhopper.util.*;
 import com.graphhopper.util.details.PathDetail;
 import com.graphhopper.util.exceptions.*;
 import com.graphhopper.util.shapes.GHPoint;
+import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.ResponseBody;
@@ -55,6 +56,7 @@ public class GraphHopperWeb implements GraphHopperAPI {
     private boolean calcPoints = true;
     private boolean elevation = false;
     private boolean turnDescription = true;
+    private boolean binary = false;
     private String optimize = "false";
     private final Set<String> ignoreSet;
 
@@ -80,6 +82,7 @@ public class GraphHopperWeb implements GraphHopperAPI {
         ignoreSet.add("elevation");
         ignoreSet.add("key");
         ignoreSet.add("optimize");
+        ignoreSet.add("binary");
 
         // some parameters are in the request:
         ignoreSet.add("algorithm");
@@ -168,41 +171,20 @@ public class GraphHopperWeb implements GraphHopperAPI {
                         ia = new InstructionAnnotation(jsonObj.get("annotation_importance").asInt(), jsonObj.get("annotation_text").asText());
                     }
 
-                    Instruction instr;
-                    if (sign == Instruction.USE_ROUNDABOUT || sign == Instruction.LEAVE_ROUNDABOUT) {
-                        RoundaboutInstruction ri = new RoundaboutInstruction(sign, text, ia, instPL);
-
-                        if (jsonObj.has("exit_number")) {
-                            ri.setExitNumber(jsonObj.get("exit_number").asInt());
-                        }
-
-                        if (jsonObj.has("exited")) {
-                            if (jsonObj.get("exited").asBoolean())
-                                ri.setExited();
-                        }
-
-                        if (jsonObj.has("turn_angle")) {
-                            // TODO provide setTurnAngle setter
-                            double angle = jsonObj.get("turn_angle").asDouble();
-                            ri.setDirOfRotation(angle);
-                            ri.setRadian((angle < 0 ? -Math.PI : Math.PI) - angle);
-                        }
-
-                        instr = ri;
-                    } else if (sign == Instruction.REACHED_VIA) {
-                        ViaInstruction tmpInstr = new ViaInstruction(text, ia, instPL);
-                        tmpInstr.setViaCount(viaCount);
+                    Map<String, Object> extraInfo = new HashMap<>(3);
+                    if (jsonObj.has("exit_number"))
+                        extraInfo.put("exit_number", jsonObj.get("exit_number").asInt());
+                    if (jsonObj.has("exited"))
+                        extraInfo.put("exited", jsonObj.get("exited").asBoolean());
+                    if (jsonObj.has("turn_angle"))
+                        extraInfo.put("turn_angle", jsonObj.get("turn_angle").asDouble());
+                    if (jsonObj.has("heading"))
+                        extraInfo.put("heading", jsonObj.get("heading").asDouble());
+
+                    Instruction instr = createInstruction(sign, text, ia, instPL, extraInfo);
+                    if (instr instanceof ViaInstruction) {
+                        ((ViaInstruction) instr).setViaCount(viaCount);
                         viaCount++;
-                        instr = tmpInstr;
-                    } else if (sign == Instruction.FINISH) {
-                        instr = new FinishInstruction(text, instPL, 0);
-                    } else {
-                        instr = new Instruction(sign, text, ia, instPL);
-                        if (sign == Instruction.CONTINUE_ON_STREET) {
-                            if (jsonObj.has("heading")) {
-                                instr.setExtraInfo("heading", jsonObj.get("heading").asDouble());
-                            }
-                        }
                     }
 
                     // Usually, the translation is done from the routing service so just use the provided string
@@ -266,6 +248,46 @@ public class GraphHopperWeb implements GraphHopperAPI {
         return pathWrapper;
     }
 
+    /**
+     * Creates the instruction for the specified sign from the values of the response. The extra
+     * info contains the optional entries exit_number, exited, turn_angle and heading.
+     */
+    static Instruction createInstruction(int sign, String text, InstructionAnnotation ia, PointList instPL,
+                                         Map<String, Object> extraInfo) {
+        if (sign == Instruction.USE_ROUNDABOUT || sign == Instruction.LEAVE_ROUNDABOUT) {
+            RoundaboutInstruction ri = new RoundaboutInstruction(sign, text, ia, instPL);
+
+            if (extraInfo.containsKey("exit_number")) {
+                ri.setExitNumber(((Number) extraInfo.get("exit_number")).intValue());
+            }
+
+            if (Boolean.TRUE.equals(extraInfo.get("exited"))) {
+                ri.setExited();
+            }
+
+            if (extraInfo.containsKey("turn_angle")) {
+                // TODO provide setTurnAngle setter
+                double angle = ((Number) extraInfo.get("turn_angle")).doubleValue();
+                ri.setDirOfRotation(angle);
+                ri.setRadian((angle < 0 ? -Math.PI : Math.PI) - angle);
+            }
+
+            return ri;
+        } else if (sign == Instruction.REACHED_VIA) {
+            return new ViaInstruction(text, ia, instPL);
+        } else if (sign == Instruction.FINISH) {
+            return new FinishInstruction(text, instPL, 0);
+        } else {
+            Instruction instr = new Instruction(sign, text, ia, instPL);
+            if (sign == Instruction.CONTINUE_ON_STREET) {
+                if (extraInfo.containsKey("heading")) {
+                    instr.setExtraInfo("heading", ((Number) extraInfo.get("heading")).doubleValue());
+                }
+            }
+            return instr;
+        }
+    }
+
     // Credits to: http://stackoverflow.com/a/24012023/194609
     private Map<String, Object> toMap(JsonNode object) {
         return objectMapper.convertValue(object, new TypeReference<Map<String, Object>>() {
@@ -362,6 +384,15 @@ public class GraphHopperWeb implements GraphHopperAPI {
         return this;
     }
 
+    /**
+     * Enable or disable the compact binary response format. It is faster to parse than JSON, but
+     * is only supported from the self hosted GraphHopper server. The default is false.
+     */
+    public GraphHopperWeb setBinary(boolean binary) {
+        this.binary = binary;
+        return this;
+    }
+
     /**
      * @param optimize "false" if the order of the locations should be left
      *                 unchanged, this is the default. Or if "true" then the order of the
@@ -382,6 +413,17 @@ public class GraphHopperWeb implements GraphHopperAPI {
         try {
             Request okRequest = createRequest(request);
             ResponseBody rspBody = getClientForRequest(request).newCall(okRequest).execute().body();
+            boolean tmpTurnDescription = request.getHints().getBool("turn_description", turnDescription);
+            MediaType contentType = rspBody.contentType();
+            if (contentType != null && RouteBinaryReader.MEDIA_TYPE.equals(contentType.type() + "/" + contentType.subtype())) {
+                try {
+                    return new RouteBinaryReader(tmpTurnDescription).read(rspBody.byteStream());
+                } finally {
+                    rspBody.close();
+                }
+            }
+
+            // errors are always returned as JSON
             JsonNode json = objectMapper.reader().readTree(rspBody.byteStream());
             rspBody.close();
 
@@ -395,7 +437,6 @@ public class GraphHopperWeb implements GraphHopperAPI {
             boolean tmpInstructions = request.getHints().getBool("instructions", instructions);
             boolean tmpCalcPoints = request.getHints().getBool("calc_points", calcPoints);
             boolean tmpElevation = request.getHints().getBool("elevation", elevation);
-            boolean tmpTurnDescription = request.getHints().getBool("turn_description", turnDescription);
 
             for (JsonNode path : paths) {
                 PathWrapper altRsp = createPathWrapper(path, tmpCalcPoints, tmpInstructions, tmpElevation, tmpTurnDescription, !request.getPathDetails().isEmpty());
@@ -479,7 +520,11 @@ public class GraphHopperWeb implements GraphHopperAPI {
             }
         }
 
-        return new Request.Builder().url(url).build();
+        Request.Builder builder = new Request.Builder().url(url);
+        if (request.getHints().getBool("binary", binary) && "json".equals(type))
+            // older servers do not know the binary format and still return JSON
+            builder.header("Accept", RouteBinaryReader.MEDIA_TYPE + ", application/json;q=0.9");
+        return builder.build();
     }
 
     public String export(GHRequest ghRequest) {
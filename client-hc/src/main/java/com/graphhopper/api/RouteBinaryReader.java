@@ -0,0 +1,286 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.api;
+
+import com.graphhopper.GHResponse;
+import com.graphhopper.PathWrapper;
+import com.graphhopper.util.*;
+import com.graphhopper.util.details.PathDetail;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Reads a route response in the compact binary format 'application/x-gh-route' as written from
+ * the RouteBinaryWriter of the web module. The PathWrapper objects are created like from the JSON
+ * response, see GraphHopperWeb.createPathWrapper.
+ * <p>
+ * Instances must not be shared between threads as they hold the table of already read strings.
+ */
+public class RouteBinaryReader {
+    public static final String MEDIA_TYPE = "application/x-gh-route";
+    private static final byte[] MAGIC = {'G', 'H', 'R'};
+    private static final int VERSION = 2;
+
+    private static final int FLAG_INSTRUCTIONS = 1;
+    private static final int FLAG_CALC_POINTS = 2;
+    private static final int FLAG_ELEVATION = 4;
+
+    private static final int TYPE_BOOLEAN = 0;
+    private static final int TYPE_INT = 1;
+    private static final int TYPE_LONG = 2;
+    private static final int TYPE_DOUBLE = 3;
+    private static final int TYPE_STRING = 4;
+
+    private final boolean turnDescription;
+    private final List<String> stringTable = new ArrayList<>();
+    private DataInputStream in;
+    private boolean instructions;
+    private boolean calcPoints;
+    private boolean elevation;
+
+    /**
+     * @param turnDescription if true the translated text of the instructions is used as name,
+     *                        otherwise the street name
+     */
+    public RouteBinaryReader(boolean turnDescription) {
+        this.turnDescription = turnDescription;
+    }
+
+    public GHResponse read(InputStream inputStream) throws IOException {
+        in = new DataInputStream(inputStream);
+        stringTable.clear();
+        for (byte b : MAGIC) {
+            if (in.readByte() != b)
+                throw new IllegalStateException("Not a route in binary format");
+        }
+        int version = in.readUnsignedByte();
+        if (version != VERSION)
+            throw new IllegalStateException("Unsupported version " + version + " of binary route format, supported is " + VERSION);
+
+        int flags = in.readUnsignedByte();
+        instructions = (flags & FLAG_INSTRUCTIONS) != 0;
+        calcPoints = (flags & FLAG_CALC_POINTS) != 0;
+        elevation = (flags & FLAG_ELEVATION) != 0;
+
+        GHResponse rsp = new GHResponse();
+        int hints = readCount();
+        for (int i = 0; i < hints; i++) {
+            rsp.getHints().put(readString(), readString());
+        }
+        // took
+        readVarLong();
+
+        int paths = readCount();
+        for (int i = 0; i < paths; i++) {
+            rsp.add(readPath());
+        }
+        return rsp;
+    }
+
+    private PathWrapper readPath() throws IOException {
+        PathWrapper pathWrapper = new PathWrapper();
+        pathWrapper.setDistance(in.readDouble());
+        pathWrapper.setRouteWeight(in.readDouble());
+        pathWrapper.setTime(readVarLong());
+        pathWrapper.setNumChanges(readCount());
+        int descriptionCount = readCount();
+        if (descriptionCount > 0) {
+            List<String> description = new ArrayList<>(descriptionCount);
+            for (int i = 0; i < descriptionCount; i++) {
+                description.add(readString());
+            }
+            pathWrapper.setDescription(description);
+        }
+        pathWrapper.setAscend(in.readDouble());
+        pathWrapper.setDescend(in.readDouble());
+        if (calcPoints) {
+            PointList pointList = readPoints();
+            pathWrapper.setPoints(pointList);
+            if (instructions)
+                pathWrapper.setInstructions(readInstructions(pointList));
+            pathWrapper.addPathDetails(readPathDetails());
+        }
+        pathWrapper.setWaypoints(readPoints());
+        String fare = readString();
+        if (!fare.isEmpty())
+            pathWrapper.setFare(new BigDecimal(fare));
+        return pathWrapper;
+    }
+
+    private PointList readPoints() throws IOException {
+        int size = readCount();
+        PointList pointList = new PointList(size, elevation);
+        long lat = 0, lon = 0, ele = 0;
+        for (int i = 0; i < size; i++) {
+            lat += readSignedVarLong();
+            lon += readSignedVarLong();
+            if (elevation) {
+                // 0 is a missing elevation, otherwise the zig zag difference plus 1
+                long value = readVarLong();
+                if (value == 0) {
+                    pointList.add(lat / 1e6, lon / 1e6, Double.NaN);
+                } else {
+                    ele += unZigZag(value - 1);
+                    pointList.add(lat / 1e6, lon / 1e6, ele / 100.0);
+                }
+            } else {
+                pointList.add(lat / 1e6, lon / 1e6);
+            }
+        }
+        return pointList;
+    }
+
+    private InstructionList readInstructions(PointList pointList) throws IOException {
+        int count = readCount();
+        InstructionList il = new InstructionList(count, null);
+        int viaCount = 1;
+        int from = 0;
+        for (int i = 0; i < count; i++) {
+            int sign = (int) readSignedVarLong();
+            String text = readString();
+            String streetName = readString();
+            InstructionAnnotation ia = InstructionAnnotation.EMPTY;
+            if (in.readBoolean())
+                ia = new InstructionAnnotation((int) readSignedVarLong(), readString());
+            long time = readVarLong();
+            double distance = in.readDouble();
+            int to = from + readCount();
+            PointList instPL = new PointList(to - from, elevation);
+            for (int j = from; j <= to && j < pointList.getSize(); j++) {
+                instPL.add(pointList, j);
+            }
+            from = to;
+
+            int extraCount = readCount();
+            Map<String, Object> extraInfo = new HashMap<>(extraCount);
+            for (int j = 0; j < extraCount; j++) {
+                extraInfo.put(readString(), readValue());
+            }
+
+            Instruction instr = GraphHopperWeb.createInstruction(sign, turnDescription ? text : streetName, ia, instPL, extraInfo);
+            if (instr instanceof ViaInstruction) {
+                ((ViaInstruction) instr).setViaCount(viaCount);
+                viaCount++;
+            }
+            if (turnDescription)
+                instr.setUseRawName();
+
+            instr.setDistance(distance).setTime(time);
+            il.add(instr);
+        }
+        return il;
+    }
+
+    private Map<String, List<PathDetail>> readPathDetails() throws IOException {
+        int keys = readCount();
+        Map<String, List<PathDetail>> pathDetails = new HashMap<>(keys);
+        for (int i = 0; i < keys; i++) {
+            String key = readString();
+            int count = readCount();
+            List<PathDetail> list = new ArrayList<>(count);
+            int prevLast = 0;
+            for (int j = 0; j < count; j++) {
+                int first = prevLast + (int) readSignedVarLong();
+                int last = first + readCount();
+                Object value = readValue();
+                PathDetail pd;
+                if (value instanceof Boolean)
+                    pd = new PathDetail((Boolean) value);
+                else if (value instanceof Integer)
+                    pd = new PathDetail((Integer) value);
+                else if (value instanceof Long)
+                    pd = new PathDetail((Long) value);
+                else if (value instanceof Double)
+                    pd = new PathDetail((Double) value);
+                else
+                    pd = new PathDetail((String) value);
+
+                pd.setFirst(first);
+                pd.setLast(last);
+                prevLast = last;
+                list.add(pd);
+            }
+            pathDetails.put(key, list);
+        }
+        return pathDetails;
+    }
+
+    private Object readValue() throws IOException {
+        int type = in.readUnsignedByte();
+        switch (type) {
+            case TYPE_BOOLEAN:
+                return in.readBoolean();
+            case TYPE_INT:
+                return (int) readSignedVarLong();
+            case TYPE_LONG:
+                return readSignedVarLong();
+            case TYPE_DOUBLE:
+                return in.readDouble();
+            case TYPE_STRING:
+                return readString();
+            default:
+                throw new IllegalStateException("Unknown value type " + type);
+        }
+    }
+
+    private String readString() throws IOException {
+        int ref = readCount();
+        if (ref > 0) {
+            if (ref > stringTable.size())
+                throw new IllegalStateException("Invalid string reference " + ref + ", table size " + stringTable.size());
+            return stringTable.get(ref - 1);
+        }
+
+        byte[] bytes = new byte[readCount()];
+        in.readFully(bytes);
+        String str = new String(bytes, StandardCharsets.UTF_8);
+        stringTable.add(str);
+        return str;
+    }
+
+    private int readCount() throws IOException {
+        long value = readVarLong();
+        if (value < 0 || value > Integer.MAX_VALUE)
+            throw new IllegalStateException("Invalid count " + value);
+        return (int) value;
+    }
+
+    private long readSignedVarLong() throws IOException {
+        return unZigZag(readVarLong());
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IllegalStateException("Malformed variable length integer");
+    }
+}
@@ -34,6 +34,7 @@ import com.graphhopper.routing.weighting.*;
 import com.graphhopper.storage.*;
 import com.graphhopper.storage.change.ChangeGraphHelper;
 import com.graphhopper.storage.change.ChangeGraphResponse;
+import com.graphhopper.storage.index.CachingLocationIndex;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.LocationIndexTree;
 import com.graphhopper.storage.index.QueryResult;
@@ -67,6 +68,9 @@ import static com.graphhopper.util.Parameters.Algorithms.*;
  * @see GraphHopperAPI
  */
 public class GraphHopper implements GraphHopperAPI {
+    // the stages of an import in the order they are finished, see setCheckpoints
+    private static final String IMPORT_STAGE = "datareader.import.stage";
+    private static final List<String> IMPORT_STAGES = Arrays.asList("imported", "cleaned", "post_processed", "indexed", "frozen");
     private final Logger logger = LoggerFactory.getLogger(getClass());
     private final String fileLockName = "gh.lock";
     private final Set<RoutingAlgorithmFactoryDecorator> algoDecorators = new LinkedHashSet<>();
@@ -87,6 +91,8 @@ public class GraphHopper implements GraphHopperAPI {
     private String preferredLanguage = "";
     private boolean fullyLoaded = false;
     private boolean smoothElevation = false;
+    private boolean checkpoints = false;
+    private boolean importing = false;
     // for routing
     private int maxRoundTripRetries = 3;
     private boolean simplifyResponse = true;
@@ -94,13 +100,21 @@ public class GraphHopper implements GraphHopperAPI {
     private int maxVisitedNodes = Integer.MAX_VALUE;
 
     private int nonChMaxWaypointDistance = Integer.MAX_VALUE;
+    private RouteCache routeCache;
     // for index
     private LocationIndex locationIndex;
+    // optional cache in front of the location index for the routing requests
+    private CachingLocationIndex snapCache;
+    private int snapCacheSize = 0;
     private int preciseIndexResolution = 300;
     private int maxRegionSearch = 4;
+    private int indexThreads = 1;
+    private boolean indexAccessFilter = false;
+    private boolean indexCompactLeafs = false;
     // for prepare
     private int minNetworkSize = 200;
     private int minOneWayNetworkSize = 0;
+    private int subnetworkThreads = 1;
 
     // for LM prepare
     private final LMAlgoFactoryDecorator lmFactoryDecorator = new LMAlgoFactoryDecorator();
@@ -221,6 +235,22 @@ public class GraphHopper implements GraphHopperAPI {
         return pathBuilderFactory;
     }
 
+    /**
+     * Enables caching of route responses. Only requests via the route method use the cache. Specify
+     * null to disable it.
+     */
+    public GraphHopper setRouteCache(RouteCache routeCache) {
+        this.routeCache = routeCache;
+        return this;
+    }
+
+    /**
+     * @return the route cache or null if disabled
+     */
+    public RouteCache getRouteCache() {
+        return routeCache;
+    }
+
     /**
      * Configures the underlying storage and response to be used on a well equipped server. Result
      * also optimized for usage in the web module i.e. try reduce network IO.
@@ -476,6 +506,25 @@ public class GraphHopper implements GraphHopperAPI {
 
     protected void setLocationIndex(LocationIndex locationIndex) {
         this.locationIndex = locationIndex;
+        this.snapCache = snapCacheSize > 0 ? new CachingLocationIndex(locationIndex, snapCacheSize) : null;
+    }
+
+    /**
+     * Sets the maximum number of cached snapping results for routing requests. The cache is
+     * created with the location index, so call this before load or importOrLoad. Default is 0
+     * which disables the cache.
+     */
+    public GraphHopper setSnapCacheSize(int snapCacheSize) {
+        ensureNotLoaded();
+        this.snapCacheSize = snapCacheSize;
+        return this;
+    }
+
+    /**
+     * @return the cache of the snapping results or null if disabled
+     */
+    public CachingLocationIndex getSnapCache() {
+        return snapCache;
     }
 
     /**
@@ -487,6 +536,22 @@ public class GraphHopper implements GraphHopperAPI {
         return this;
     }
 
+    public boolean isSortGraph() {
+        return sortGraph;
+    }
+
+    /**
+     * Stores the graph after every stage of the import, i.e. after reading the data, removing the
+     * subnetworks, creating the location index and after every CH and LM preparation. An interrupted
+     * importOrLoad then continues at the first unfinished stage instead of reading the data again.
+     * Only possible for a storing RAM DataAccess, default is false.
+     */
+    public GraphHopper setCheckpoints(boolean checkpoints) {
+        ensureNotLoaded();
+        this.checkpoints = checkpoints;
+        return this;
+    }
+
     public boolean isAllowWrites() {
         return allowWrites;
     }
@@ -543,6 +608,7 @@ public class GraphHopper implements GraphHopperAPI {
         dataAccessType = DAType.fromString(graphDATypeStr);
 
         sortGraph = args.getBool("graph.do_sort", sortGraph);
+        checkpoints = args.getBool("graph.checkpoints", checkpoints);
         removeZipped = args.getBool("graph.remove_zipped", removeZipped);
         int bytesForFlags = args.getInt("graph.bytes_for_flags", 4);
         String flagEncodersStr = args.get("graph.flag_encoders", "");
@@ -586,18 +652,24 @@ public class GraphHopper implements GraphHopperAPI {
             tmpProvider = new SRTMGL1Provider(cacheDirStr);
         } else if (eleProviderStr.equalsIgnoreCase("multi")) {
             tmpProvider = new MultiSourceElevationProvider(cacheDirStr);
+        } else if (eleProviderStr.equalsIgnoreCase("dem_store")) {
+            tmpProvider = new DEMStoreProvider(cacheDirStr);
         }
 
         tmpProvider.setAutoRemoveTemporaryFiles(removeTempElevationFiles);
         tmpProvider.setCalcMean(eleCalcMean);
+        tmpProvider.setInterpolate(args.getBool("graph.elevation.interpolate", false));
         if (!baseURL.isEmpty())
             tmpProvider.setBaseURL(baseURL);
         tmpProvider.setDAType(elevationDAType);
+        if (args.has("graph.elevation.max_cached_tiles"))
+            tmpProvider.setMaxCachedTiles(args.getInt("graph.elevation.max_cached_tiles", 64));
         setElevationProvider(tmpProvider);
 
         // optimizable prepare
         minNetworkSize = args.getInt("prepare.min_network_size", minNetworkSize);
         minOneWayNetworkSize = args.getInt("prepare.min_one_way_network_size", minOneWayNetworkSize);
+        subnetworkThreads = args.getInt("prepare.subnetworks.threads", subnetworkThreads);
 
         // prepare CH, LM, ...
         for (RoutingAlgorithmFactoryDecorator decorator : algoDecorators) {
@@ -614,11 +686,20 @@ public class GraphHopper implements GraphHopperAPI {
         // index
         preciseIndexResolution = args.getInt("index.high_resolution", preciseIndexResolution);
         maxRegionSearch = args.getInt("index.max_region_search", maxRegionSearch);
+        indexThreads = args.getInt("index.threads", indexThreads);
+        indexAccessFilter = args.getBool("index.access_filter", indexAccessFilter);
+        indexCompactLeafs = args.getBool("index.compact_leafs", indexCompactLeafs);
+        snapCacheSize = args.getInt("index.snap_cache.size", snapCacheSize);
 
         // routing
         maxVisitedNodes = args.getInt(Routing.INIT_MAX_VISITED_NODES, Integer.MAX_VALUE);
         maxRoundTripRetries = args.getInt(RoundTrip.INIT_MAX_RETRIES, maxRoundTripRetries);
         nonChMaxWaypointDistance = args.getInt(Parameters.NON_CH.MAX_NON_CH_POINT_DISTANCE, Integer.MAX_VALUE);
+        int routeCacheSize = args.getInt(Routing.INIT_CACHE_SIZE, 0);
+        if (routeCacheSize > 0) {
+            long expireSeconds = args.getLong(Routing.INIT_CACHE_EXPIRE_SECONDS, 600);
+            setRouteCache(new RouteCache(routeCacheSize, expireSeconds * 1000));
+        }
 
         return this;
     }
@@ -658,19 +739,34 @@ public class GraphHopper implements GraphHopperAPI {
                     throw new RuntimeException("To avoid multiple writers we need to obtain a write lock but it failed. In " + graphHopperLocation, lock.getObtainFailedReason());
             }
 
-            try {
-                DataReader reader = importData();
-                DateFormat f = createFormatter();
-                ghStorage.getProperties().put("datareader.import.date", f.format(new Date()));
-                if (reader.getDataDate() != null)
-                    ghStorage.getProperties().put("datareader.data.date", f.format(reader.getDataDate()));
-            } catch (IOException ex) {
-                throw new RuntimeException("Cannot read file " + getDataReaderFile(), ex);
+            // the graph of an interrupted import is already loaded
+            int stage = getImportStage();
+            importing = true;
+            if (stage < 0) {
+                try {
+                    DataReader reader = importData();
+                    DateFormat f = createFormatter();
+                    ghStorage.getProperties().put("datareader.import.date", f.format(new Date()));
+                    if (reader.getDataDate() != null)
+                        ghStorage.getProperties().put("datareader.data.date", f.format(reader.getDataDate()));
+                } catch (IOException ex) {
+                    throw new RuntimeException("Cannot read file " + getDataReaderFile(), ex);
+                }
+                checkpoint("imported", true);
+            } else {
+                ensureWriteAccess();
+                logger.info("continue interrupted import after stage " + IMPORT_STAGES.get(stage));
+            }
+
+            if (stage < IMPORT_STAGES.indexOf("cleaned")) {
+                cleanUp();
+                checkpoint("cleaned", true);
             }
-            cleanUp();
             postProcessing();
+            ghStorage.getProperties().remove(IMPORT_STAGE);
             flush();
         } finally {
+            importing = false;
             if (lock != null)
                 lock.release();
         }
@@ -782,6 +878,10 @@ public class GraphHopper implements GraphHopperAPI {
             if (!ghStorage.loadExisting())
                 return false;
 
+            // the import was interrupted and is continued in process
+            if (getImportStage() >= 0)
+                return false;
+
             postProcessing();
             fullyLoaded = true;
             return true;
@@ -847,21 +947,27 @@ public class GraphHopper implements GraphHopperAPI {
         // Later: move this into the GraphStorage.optimize method
         // Or: Doing it after preparation to optimize shortcuts too. But not possible yet #12
 
-        if (sortGraph) {
-            if (ghStorage.isCHPossible() && isCHPrepared())
-                throw new IllegalArgumentException("Sorting a prepared CHGraph is not possible yet. See #12");
+        // the graph of an interrupted import is already sorted and interpolated
+        if (getImportStage() < IMPORT_STAGES.indexOf("post_processed")) {
+            if (sortGraph) {
+                if (ghStorage.isCHPossible() && isCHPrepared())
+                    throw new IllegalArgumentException("Sorting a prepared CHGraph is not possible yet. See #12");
 
-            GraphHopperStorage newGraph = GHUtility.newStorage(ghStorage);
-            GHUtility.sortDFS(ghStorage, newGraph);
-            logger.info("graph sorted (" + getMemInfo() + ")");
-            ghStorage = newGraph;
-        }
+                GraphHopperStorage newGraph = GHUtility.newStorage(ghStorage);
+                GHUtility.sortDFS(ghStorage, newGraph);
+                logger.info("graph sorted (" + getMemInfo() + ")");
+                ghStorage = newGraph;
+            }
 
-        if (hasElevation()) {
-            interpolateBridgesAndOrTunnels();
+            if (hasElevation()) {
+                interpolateBridgesAndOrTunnels();
+            }
+            checkpoint("post_processed", true);
         }
 
         initLocationIndex();
+        // the index stores itself after it is prepared
+        checkpoint("indexed", false);
 
         if (chFactoryDecorator.isEnabled())
             chFactoryDecorator.createPreparations(ghStorage, traversalMode);
@@ -952,7 +1058,7 @@ public class GraphHopper implements GraphHopperAPI {
     @Override
     public GHResponse route(GHRequest request) {
         GHResponse response = new GHResponse();
-        calcPaths(request, response);
+        calcPaths(request, response, routeCache);
         return response;
     }
 
@@ -960,6 +1066,14 @@ public class GraphHopper implements GraphHopperAPI {
      * This method calculates the alternative path list using the low level Path objects.
      */
     public List<Path> calcPaths(GHRequest request, GHResponse ghRsp) {
+        return calcPaths(request, ghRsp, null);
+    }
+
+    /**
+     * @param cache if not null the response is filled from and stored in this cache. On a cache hit
+     *              no Path objects are created and an empty list is returned.
+     */
+    protected List<Path> calcPaths(GHRequest request, GHResponse ghRsp, RouteCache cache) {
         if (ghStorage == null || !fullyLoaded)
             throw new IllegalStateException("Do a successful call to load or importOrLoad before routing");
 
@@ -1005,15 +1119,17 @@ public class GraphHopper implements GraphHopperAPI {
             // For example see #734
             checkIfPointsAreInBounds(points);
 
+            LocationIndex routingIndex = snapCache == null ? locationIndex : snapCache;
             RoutingTemplate routingTemplate;
             if (ROUND_TRIP.equalsIgnoreCase(algoStr))
-                routingTemplate = new RoundTripRoutingTemplate(request, ghRsp, locationIndex, maxRoundTripRetries);
+                routingTemplate = new RoundTripRoutingTemplate(request, ghRsp, routingIndex, maxRoundTripRetries);
             else if (ALT_ROUTE.equalsIgnoreCase(algoStr))
-                routingTemplate = new AlternativeRoutingTemplate(request, ghRsp, locationIndex);
+                routingTemplate = new AlternativeRoutingTemplate(request, ghRsp, routingIndex);
             else
-                routingTemplate = new ViaRoutingTemplate(request, ghRsp, locationIndex);
+                routingTemplate = new ViaRoutingTemplate(request, ghRsp, routingIndex);
 
             List<Path> altPaths = null;
+            String cacheKey = null;
             int maxRetries = routingTemplate.getMaxRetries();
             Locale locale = request.getLocale();
             Translation tr = trMap.getWithFallBack(locale);
@@ -1024,6 +1140,14 @@ public class GraphHopper implements GraphHopperAPI {
                 if (ghRsp.hasErrors())
                     return Collections.emptyList();
 
+                if (cache != null) {
+                    cacheKey = cache.createKey(request, qResults);
+                    if (cache.fill(cacheKey, ghRsp)) {
+                        ghRsp.addDebugInfo("route_cache:hit");
+                        return Collections.emptyList();
+                    }
+                }
+
                 RoutingAlgorithmFactory tmpAlgoFactory = getAlgorithmFactory(hints);
                 Weighting weighting;
                 QueryGraph queryGraph;
@@ -1087,6 +1211,9 @@ public class GraphHopper implements GraphHopperAPI {
                     break;
             }
 
+            if (cacheKey != null)
+                cache.put(cacheKey, ghRsp);
+
             return altPaths;
 
         } catch (IllegalArgumentException ex) {
@@ -1112,12 +1239,41 @@ public class GraphHopper implements GraphHopperAPI {
         try {
             ChangeGraphHelper overlay = createChangeGraphHelper(ghStorage, locationIndex);
             long updateCount = overlay.applyChanges(encodingManager, collection);
+            if (updateCount > 0)
+                clearCaches();
             return new ChangeGraphResponse(updateCount);
         } finally {
             writeLock.unlock();
         }
     }
 
+    /**
+     * @return the lock which has to be held while the graph is changed, no route is calculated
+     * while it is held
+     */
+    protected Lock getGraphWriteLock() {
+        return readWriteLock.writeLock();
+    }
+
+    /**
+     * @return the lock which has to be held while the graph is read, e.g. while a route is
+     * calculated, so that the graph is not changed in the meantime
+     */
+    public Lock getGraphReadLock() {
+        return readWriteLock.readLock();
+    }
+
+    /**
+     * Removes all entries of the caches which depend on the graph. Call this after the graph was
+     * changed.
+     */
+    protected void clearCaches() {
+        if (routeCache != null)
+            routeCache.clear();
+        if (snapCache != null)
+            snapCache.clear();
+    }
+
     protected ChangeGraphHelper createChangeGraphHelper(Graph graph, LocationIndex locationIndex) {
         return new ChangeGraphHelper(graph, locationIndex);
     }
@@ -1157,6 +1313,10 @@ public class GraphHopper implements GraphHopperAPI {
         LocationIndexTree tmpIndex = new LocationIndexTree(ghStorage, dir);
         tmpIndex.setResolution(preciseIndexResolution);
         tmpIndex.setMaxRegionSearch(maxRegionSearch);
+        tmpIndex.setPrepareThreads(indexThreads);
+        if (indexAccessFilter)
+            tmpIndex.setAccessFilterEncoders(encodingManager.fetchEdgeEncoders());
+        tmpIndex.setCompactLeafs(indexCompactLeafs);
         if (!tmpIndex.loadExisting()) {
             ensureWriteAccess();
             tmpIndex.prepareIndex();
@@ -1172,7 +1332,7 @@ public class GraphHopper implements GraphHopperAPI {
         if (locationIndex != null)
             throw new IllegalStateException("Cannot initialize locationIndex twice!");
 
-        locationIndex = createLocationIndex(ghStorage.getDirectory());
+        setLocationIndex(createLocationIndex(ghStorage.getDirectory()));
     }
 
     private boolean isCHPrepared() {
@@ -1191,7 +1351,9 @@ public class GraphHopper implements GraphHopperAPI {
             ensureWriteAccess();
 
             ghStorage.freeze();
-            chFactoryDecorator.prepare(ghStorage.getProperties());
+            // the edge references are copied into the CHGraphs while freezing
+            checkpoint("frozen", true);
+            chFactoryDecorator.prepare(ghStorage.getProperties(), isCheckpointing());
             ghStorage.getProperties().put(CH.PREPARE + "done", true);
         }
     }
@@ -1204,7 +1366,9 @@ public class GraphHopper implements GraphHopperAPI {
         if (tmpPrepare) {
             ensureWriteAccess();
             ghStorage.freeze();
-            if (lmFactoryDecorator.loadOrDoWork(ghStorage.getProperties()))
+            // every landmark storage is stored after its preparation
+            checkpoint("frozen", true);
+            if (lmFactoryDecorator.loadOrDoWork(ghStorage.getProperties(), isCheckpointing()))
                 ghStorage.getProperties().put(Landmark.PREPARE + "done", true);
         }
     }
@@ -1217,6 +1381,7 @@ public class GraphHopper implements GraphHopperAPI {
         PrepareRoutingSubnetworks preparation = new PrepareRoutingSubnetworks(ghStorage, encodingManager.fetchEdgeEncoders());
         preparation.setMinNetworkSize(minNetworkSize);
         preparation.setMinOneWayNetworkSize(minOneWayNetworkSize);
+        preparation.setThreads(subnetworkThreads);
         preparation.doWork();
         int currNodeCount = ghStorage.getNodes();
         logger.info("edges: " + ghStorage.getAllEdges().length() + ", nodes " + currNodeCount
@@ -1225,6 +1390,35 @@ public class GraphHopper implements GraphHopperAPI {
                 + " less nodes");
     }
 
+    /**
+     * @return the index of the last finished stage of an interrupted import or -1
+     */
+    private int getImportStage() {
+        return IMPORT_STAGES.indexOf(ghStorage.getProperties().get(IMPORT_STAGE));
+    }
+
+    private boolean isCheckpointing() {
+        DAType type = ghStorage.getDirectory().getDefaultType();
+        // MMAP changes the files in place so they would be inconsistent after an interruption
+        return checkpoints && importing && type.isStoring() && !type.isMMap();
+    }
+
+    /**
+     * Records the finished stage of the import and stores the graph if checkpoints are enabled.
+     */
+    private void checkpoint(String stage, boolean flushGraph) {
+        if (!isCheckpointing() || getImportStage() >= IMPORT_STAGES.indexOf(stage))
+            return;
+
+        StopWatch sw = new StopWatch().start();
+        ghStorage.getProperties().put(IMPORT_STAGE, stage);
+        if (flushGraph)
+            ghStorage.flush();
+        else
+            ghStorage.getProperties().flush();
+        logger.info("stored checkpoint " + stage + " in " + sw.stop().getSeconds() + "s, " + getMemInfo());
+    }
+
     protected void flush() {
         logger.info("flushing graph " + ghStorage.toString() + ", details:" + ghStorage.toDetailsString() + ", "
                 + getMemInfo() + ")");
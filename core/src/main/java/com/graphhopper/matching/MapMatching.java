@@ -0,0 +1,428 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for 
+ *  additional information regarding copyright ownership.
+ * 
+ *  GraphHopper GmbH licenses this file to you under the Apache License, 
+ *  Version 2.0 (the "License"); you may not use this file except in 
+ *  compliance with the License. You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.matching;
+
+import com.graphhopper.PathWrapper;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.QueryGraph;
+import com.graphhopper.routing.VirtualEdgeIteratorState;
+import com.graphhopper.routing.util.DefaultEdgeFilter;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.index.LocationIndex;
+import com.graphhopper.storage.index.QueryResult;
+import com.graphhopper.util.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Matches GPX traces to the road network with a hidden Markov model, see Newson and Krumm, "Hidden
+ * Markov Map Matching Through Noise and Sparseness". The candidates of every GPX entry are the
+ * closest edges within the search radius found via LocationIndex.findKNearest. The emission
+ * probability of a candidate depends on its distance to the entry and the transition probability
+ * on the difference between the route distance and the beeline distance of two consecutive
+ * entries. The most likely sequence of candidates is calculated with the Viterbi algorithm.
+ * <p>
+ * The route distances from one candidate to all candidates of the next entry are calculated with
+ * one bounded search, see TransitionSearch. If no candidate of an entry can be reached from the
+ * previous entry a new sequence is started, i.e. the matched route has a gap there.
+ * <p>
+ * Instances are thread safe if the location index and the weighting are. Use match(List, int) to
+ * process many traces in parallel.
+ */
+public class MapMatching {
+    private final Graph graph;
+    private final LocationIndex locationIndex;
+    private final Weighting weighting;
+    private final EdgeFilter edgeFilter;
+    private final DistanceCalc distCalc = Helper.DIST_PLANE;
+    private double measurementErrorSigma = 50;
+    private double transitionProbabilityBeta = 2;
+    private double searchRadius = 50;
+    private int maxCandidates = 8;
+    private double minPointDistance = 0;
+    private double maxDetourFactor = 3;
+    private PathMerger pathMerger = new PathMerger().setEnableInstructions(false);
+    private Translation translation;
+
+    /**
+     * @param graph         the base graph, the CH shortcuts are not used
+     * @param locationIndex the location index of the graph to find the candidates
+     * @param weighting     edges with an infinite weight are not used, the route distances are
+     *                      calculated on the shortest path
+     */
+    public MapMatching(Graph graph, LocationIndex locationIndex, Weighting weighting) {
+        this.graph = graph;
+        this.locationIndex = locationIndex;
+        this.weighting = weighting;
+        this.edgeFilter = new DefaultEdgeFilter(weighting.getFlagEncoder());
+    }
+
+    /**
+     * The standard deviation of the GPS error in meter. Default is 50.
+     */
+    public MapMatching setMeasurementErrorSigma(double measurementErrorSigma) {
+        this.measurementErrorSigma = measurementErrorSigma;
+        return this;
+    }
+
+    /**
+     * The higher this value the more route distances that differ from the beeline distance are
+     * accepted, e.g. for sparse traces. Default is 2.
+     */
+    public MapMatching setTransitionProbabilityBeta(double transitionProbabilityBeta) {
+        this.transitionProbabilityBeta = transitionProbabilityBeta;
+        return this;
+    }
+
+    /**
+     * Only edges within this distance in meter of an entry are candidates. Default is 50.
+     */
+    public MapMatching setSearchRadius(double searchRadius) {
+        this.searchRadius = searchRadius;
+        return this;
+    }
+
+    /**
+     * The maximum number of candidates per entry. Default is 8.
+     */
+    public MapMatching setMaxCandidates(int maxCandidates) {
+        if (maxCandidates < 1)
+            throw new IllegalArgumentException("At least one candidate is necessary but was " + maxCandidates);
+
+        this.maxCandidates = maxCandidates;
+        return this;
+    }
+
+    /**
+     * Entries that are closer than this distance in meter to the previous used entry are ignored.
+     * This reduces the number of searches for dense traces a lot, e.g. use the measurement error
+     * sigma. Default is 0.
+     */
+    public MapMatching setMinPointDistance(double minPointDistance) {
+        this.minPointDistance = minPointDistance;
+        return this;
+    }
+
+    /**
+     * The search for the route distance to the next entry stops at the beeline distance times this
+     * factor plus twice the search radius. Default is 3.
+     */
+    public MapMatching setMaxDetourFactor(double maxDetourFactor) {
+        this.maxDetourFactor = maxDetourFactor;
+        return this;
+    }
+
+    /**
+     * Configures how the PathWrapper of the result is created. Default is without instructions.
+     *
+     * @param translation the language of the instructions or null if they are disabled
+     */
+    public MapMatching setPathMerger(PathMerger pathMerger, Translation translation) {
+        this.pathMerger = pathMerger;
+        this.translation = translation;
+        return this;
+    }
+
+    public MatchResult match(List<GPXEntry> entries) {
+        return match(entries, new TransitionSearch(graph.getNodes()));
+    }
+
+    /**
+     * Matches the specified traces with the specified number of threads. Every thread reuses the
+     * arrays of its transition search for all traces it processes.
+     *
+     * @return the result for every trace in the order of the traces
+     */
+    public List<MatchResult> match(final List<List<GPXEntry>> traces, int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("Threads for map matching must be at least 1 but was " + threads);
+
+        final MatchResult[] results = new MatchResult[traces.size()];
+        final AtomicInteger nextTrace = new AtomicInteger();
+        threads = Math.min(threads, traces.size());
+        if (threads <= 1) {
+            TransitionSearch search = new TransitionSearch(graph.getNodes());
+            for (int i = 0; i < traces.size(); i++) {
+                results[i] = match(traces.get(i), search);
+            }
+            return Arrays.asList(results);
+        }
+
+        ExecutorService threadPool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Callable<Object>> tasks = new ArrayList<>(threads);
+            for (int thread = 0; thread < threads; thread++) {
+                tasks.add(new Callable<Object>() {
+                    @Override
+                    public Object call() {
+                        TransitionSearch search = new TransitionSearch(graph.getNodes());
+                        int trace;
+                        // traces differ a lot in size, so every thread fetches the next free one
+                        while ((trace = nextTrace.getAndIncrement()) < traces.size()) {
+                            results[trace] = match(traces.get(trace), search);
+                        }
+                        return null;
+                    }
+                });
+            }
+            for (Future<Object> future : threadPool.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Map matching was interrupted", ex);
+        } catch (ExecutionException ex) {
+            throw new RuntimeException("Map matching failed", ex.getCause());
+        } finally {
+            threadPool.shutdown();
+        }
+        return Arrays.asList(results);
+    }
+
+    MatchResult match(List<GPXEntry> entries, TransitionSearch search) {
+        List<PointMatch> pointMatches = new ArrayList<>(entries.size());
+        List<Step> steps = new ArrayList<>(entries.size());
+        List<QueryResult> allCandidates = new ArrayList<>();
+        double gpxDistance = 0;
+        GPXEntry prevEntry = null;
+        GPXEntry prevUsedEntry = null;
+        for (GPXEntry entry : entries) {
+            PointMatch pointMatch = new PointMatch(entry);
+            pointMatches.add(pointMatch);
+            if (prevEntry != null)
+                gpxDistance += distCalc.calcDist(prevEntry.lat, prevEntry.lon, entry.lat, entry.lon);
+            prevEntry = entry;
+
+            if (prevUsedEntry != null
+                    && distCalc.calcDist(prevUsedEntry.lat, prevUsedEntry.lon, entry.lat, entry.lon) < minPointDistance) {
+                pointMatch.setStatus(PointMatch.Status.FILTERED);
+                continue;
+            }
+
+            List<QueryResult> candidates = locationIndex.findKNearest(entry.lat, entry.lon, maxCandidates, searchRadius, edgeFilter);
+            pointMatch.setCandidates(candidates.size());
+            if (candidates.isEmpty()) {
+                pointMatch.setStatus(PointMatch.Status.NO_CANDIDATES);
+                continue;
+            }
+
+            prevUsedEntry = entry;
+            steps.add(new Step(pointMatch, candidates));
+            allCandidates.addAll(candidates);
+        }
+
+        PathWrapper pathWrapper = new PathWrapper();
+        if (steps.isEmpty()) {
+            pathWrapper.addError(new IllegalArgumentException("No road found within " + searchRadius + "m of the GPX entries"));
+            return new MatchResult(Collections.<EdgeIteratorState>emptyList(), pathWrapper, pointMatches, gpxDistance, 0);
+        }
+
+        // all candidates are added at once as QueryGraph.lookup can be called only once
+        QueryGraph queryGraph = new QueryGraph(graph);
+        queryGraph.lookup(allCandidates);
+        search.init(queryGraph, queryGraph.createEdgeExplorer(new DefaultEdgeFilter(weighting.getFlagEncoder(), false, true)), weighting);
+        int visitedNodes = 0;
+
+        // forward pass of the Viterbi algorithm
+        Step prevStep = null;
+        for (Step step : steps) {
+            step.init(measurementErrorSigma);
+            if (prevStep != null) {
+                GPXEntry from = prevStep.pointMatch.getEntry();
+                GPXEntry to = step.pointMatch.getEntry();
+                step.linearDistance = distCalc.calcDist(from.lat, from.lon, to.lat, to.lon);
+                step.maxDistance = step.linearDistance * maxDetourFactor + 2 * searchRadius;
+                for (int i = 0; i < prevStep.nodes.length; i++) {
+                    if (prevStep.scores[i] == Double.NEGATIVE_INFINITY)
+                        continue;
+
+                    search.search(prevStep.nodes[i], step.nodes, step.maxDistance);
+                    visitedNodes += search.getVisitedNodes();
+                    for (int j = 0; j < step.nodes.length; j++) {
+                        double routeDistance = search.getDistance(step.nodes[j]);
+                        if (Double.isInfinite(routeDistance))
+                            continue;
+
+                        double score = prevStep.scores[i] + step.emissions[j]
+                                - Math.abs(routeDistance - step.linearDistance) / transitionProbabilityBeta;
+                        if (score > step.scores[j]) {
+                            step.scores[j] = score;
+                            step.parents[j] = i;
+                            step.routeDistances[j] = routeDistance;
+                        }
+                    }
+                }
+            }
+
+            if (step.parents.length > 0 && !step.hasParent()) {
+                // no candidate was reachable, so start a new sequence
+                step.sequenceStart = true;
+                System.arraycopy(step.emissions, 0, step.scores, 0, step.scores.length);
+            }
+            prevStep = step;
+        }
+
+        // backward pass: the best candidate of the last step of every sequence and its ancestors
+        int best = steps.get(steps.size() - 1).getBestCandidate();
+        for (int t = steps.size() - 1; t >= 0; t--) {
+            Step step = steps.get(t);
+            step.chosen = best;
+            if (step.sequenceStart)
+                best = t > 0 ? steps.get(t - 1).getBestCandidate() : -1;
+            else
+                best = step.parents[best];
+        }
+
+        List<Path> paths = new ArrayList<>(steps.size());
+        List<EdgeIteratorState> edges = new ArrayList<>();
+        prevStep = null;
+        for (Step step : steps) {
+            PointMatch pointMatch = step.pointMatch;
+            pointMatch.setQueryResult(step.results[step.chosen]);
+            pointMatch.setSequenceStart(step.sequenceStart);
+            if (!step.sequenceStart) {
+                pointMatch.setTransitionDistance(step.routeDistances[step.chosen]);
+                pointMatch.setLinearDistance(step.linearDistance);
+                int to = step.nodes[step.chosen];
+                search.search(prevStep.nodes[prevStep.chosen], new int[]{to}, step.maxDistance);
+                MatchedPath path = search.extractPath(to);
+                if (path.getEdgeCount() > 0) {
+                    paths.add(path);
+                    addEdges(queryGraph, path.calcEdges(), edges);
+                }
+            }
+            prevStep = step;
+        }
+
+        pathMerger.doWork(pathWrapper, paths, translation);
+        return new MatchResult(edges, pathWrapper, pointMatches, gpxDistance, visitedNodes);
+    }
+
+    /**
+     * Adds the edges of the graph for the specified edges of the QueryGraph. The virtual edges of
+     * one original edge are merged.
+     */
+    private void addEdges(QueryGraph queryGraph, List<EdgeIteratorState> pathEdges, List<EdgeIteratorState> edges) {
+        for (EdgeIteratorState pathEdge : pathEdges) {
+            EdgeIteratorState edge;
+            if (queryGraph.isVirtualEdge(pathEdge.getEdge())) {
+                // an even key means traversal from the lower to the higher node id, see GHUtility.createEdgeKey
+                int key = ((VirtualEdgeIteratorState) pathEdge).getOriginalTraversalKey();
+                int edgeId = GHUtility.getEdgeFromEdgeKey(key);
+                EdgeIteratorState original = graph.getEdgeIteratorState(edgeId, Integer.MIN_VALUE);
+                int lowNode = Math.min(original.getBaseNode(), original.getAdjNode());
+                int highNode = Math.max(original.getBaseNode(), original.getAdjNode());
+                edge = graph.getEdgeIteratorState(edgeId, key % 2 == 0 ? highNode : lowNode);
+            } else {
+                edge = graph.getEdgeIteratorState(pathEdge.getEdge(), pathEdge.getAdjNode());
+            }
+
+            if (!edges.isEmpty()) {
+                EdgeIteratorState last = edges.get(edges.size() - 1);
+                if (last.getEdge() == edge.getEdge() && last.getAdjNode() == edge.getAdjNode())
+                    continue;
+            }
+            edges.add(edge);
+        }
+    }
+
+    /**
+     * The state of the Viterbi algorithm for one GPX entry. The candidates are unique per node of
+     * the QueryGraph.
+     */
+    private static class Step {
+        final PointMatch pointMatch;
+        final List<QueryResult> candidates;
+        QueryResult[] results;
+        int[] nodes;
+        double[] emissions;
+        double[] scores;
+        int[] parents;
+        double[] routeDistances;
+        double linearDistance = Double.NaN;
+        double maxDistance;
+        boolean sequenceStart;
+        int chosen = -1;
+
+        Step(PointMatch pointMatch, List<QueryResult> candidates) {
+            this.pointMatch = pointMatch;
+            this.candidates = candidates;
+        }
+
+        /**
+         * Must be called after QueryGraph.lookup as it changes the closest nodes
+         */
+        void init(double sigma) {
+            List<QueryResult> unique = new ArrayList<>(candidates.size());
+            for (QueryResult candidate : candidates) {
+                boolean found = false;
+                for (int i = 0; i < unique.size(); i++) {
+                    if (unique.get(i).getClosestNode() == candidate.getClosestNode()) {
+                        if (candidate.getQueryDistance() < unique.get(i).getQueryDistance())
+                            unique.set(i, candidate);
+                        found = true;
+                        break;
+                    }
+                }
+                if (!found)
+                    unique.add(candidate);
+            }
+
+            int size = unique.size();
+            results = unique.toArray(new QueryResult[size]);
+            nodes = new int[size];
+            emissions = new double[size];
+            scores = new double[size];
+            parents = new int[size];
+            routeDistances = new double[size];
+            for (int i = 0; i < size; i++) {
+                nodes[i] = results[i].getClosestNode();
+                // the logarithm of the normal distribution without the constant part
+                double x = results[i].getQueryDistance() / sigma;
+                emissions[i] = -0.5 * x * x;
+            }
+            Arrays.fill(scores, Double.NEGATIVE_INFINITY);
+            Arrays.fill(parents, -1);
+            Arrays.fill(routeDistances, Double.NaN);
+        }
+
+        boolean hasParent() {
+            for (int parent : parents) {
+                if (parent >= 0)
+                    return true;
+            }
+            return false;
+        }
+
+        int getBestCandidate() {
+            int best = 0;
+            for (int i = 1; i < scores.length; i++) {
+                if (scores[i] > scores[best])
+                    best = i;
+            }
+            return best;
+        }
+    }
+}
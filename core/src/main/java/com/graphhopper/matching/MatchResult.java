@@ -0,0 +1,92 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for 
+ *  additional information regarding copyright ownership.
+ * 
+ *  GraphHopper GmbH licenses this file to you under the Apache License, 
+ *  Version 2.0 (the "License"); you may not use this file except in 
+ *  compliance with the License. You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.matching;
+
+import com.graphhopper.PathWrapper;
+import com.graphhopper.util.EdgeIteratorState;
+
+import java.util.List;
+
+/**
+ * The result of matching one GPX trace to the road network.
+ */
+public class MatchResult {
+    private final List<EdgeIteratorState> edges;
+    private final PathWrapper pathWrapper;
+    private final List<PointMatch> pointMatches;
+    private final double gpxDistance;
+    private final int visitedNodes;
+
+    MatchResult(List<EdgeIteratorState> edges, PathWrapper pathWrapper, List<PointMatch> pointMatches,
+                double gpxDistance, int visitedNodes) {
+        this.edges = edges;
+        this.pathWrapper = pathWrapper;
+        this.pointMatches = pointMatches;
+        this.gpxDistance = gpxDistance;
+        this.visitedNodes = visitedNodes;
+    }
+
+    /**
+     * @return the matched edges of the graph in the order and direction of travel. Edges that were
+     * only partially traveled at the start or end are included completely.
+     */
+    public List<EdgeIteratorState> getEdges() {
+        return edges;
+    }
+
+    /**
+     * @return the matched route with points, distance and time like for a routing request
+     */
+    public PathWrapper getPathWrapper() {
+        return pathWrapper;
+    }
+
+    /**
+     * @return the diagnostics for every GPX entry in the order of the trace
+     */
+    public List<PointMatch> getPointMatches() {
+        return pointMatches;
+    }
+
+    /**
+     * @return the beeline distance in meter along all GPX entries
+     */
+    public double getGpxDistance() {
+        return gpxDistance;
+    }
+
+    /**
+     * @return the distance in meter of the matched route
+     */
+    public double getMatchDistance() {
+        return pathWrapper.getDistance();
+    }
+
+    /**
+     * @return the number of nodes visited by all transition searches
+     */
+    public int getVisitedNodes() {
+        return visitedNodes;
+    }
+
+    @Override
+    public String toString() {
+        return "edges:" + edges.size() + ", distance:" + getMatchDistance() + ", gpx distance:" + gpxDistance
+                + ", visited nodes:" + visitedNodes;
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for 
+ *  additional information regarding copyright ownership.
+ * 
+ *  GraphHopper GmbH licenses this file to you under the Apache License, 
+ *  Version 2.0 (the "License"); you may not use this file except in 
+ *  compliance with the License. You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.matching;
+
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.util.EdgeIteratorState;
+
+/**
+ * A path between the matched candidates of two GPX entries. The edges are added in the order of
+ * travel.
+ */
+class MatchedPath extends Path {
+    MatchedPath(Graph graph, Weighting weighting, int fromNode) {
+        super(graph, weighting);
+        reverseOrder = false;
+        setFromNode(fromNode);
+        setEndNode(fromNode);
+        setWeight(0);
+        setFound(true);
+    }
+
+    void add(int edgeId, int adjNode, int prevEdgeId) {
+        processEdge(edgeId, adjNode, prevEdgeId);
+        EdgeIteratorState edge = graph.getEdgeIteratorState(edgeId, adjNode);
+        setWeight(getWeight() + weighting.calcWeight(edge, false, prevEdgeId));
+        setEndNode(adjNode);
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for 
+ *  additional information regarding copyright ownership.
+ * 
+ *  GraphHopper GmbH licenses this file to you under the Apache License, 
+ *  Version 2.0 (the "License"); you may not use this file except in 
+ *  compliance with the License. You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.matching;
+
+import com.graphhopper.storage.index.QueryResult;
+import com.graphhopper.util.GPXEntry;
+
+/**
+ * The diagnostics of map matching for one GPX entry.
+ */
+public class PointMatch {
+    public enum Status {
+        /**
+         * The entry was matched to a position on the road network.
+         */
+        MATCHED,
+        /**
+         * The entry was ignored as it is too close to the previous entry.
+         */
+        FILTERED,
+        /**
+         * There is no road within the search radius of the entry.
+         */
+        NO_CANDIDATES
+    }
+
+    private final GPXEntry entry;
+    private Status status = Status.MATCHED;
+    private int candidates;
+    private QueryResult queryResult;
+    private boolean sequenceStart;
+    private double transitionDistance = Double.NaN;
+    private double linearDistance = Double.NaN;
+
+    PointMatch(GPXEntry entry) {
+        this.entry = entry;
+    }
+
+    public GPXEntry getEntry() {
+        return entry;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public boolean isMatched() {
+        return status == Status.MATCHED;
+    }
+
+    /**
+     * @return the number of road positions that were considered for this entry
+     */
+    public int getCandidates() {
+        return candidates;
+    }
+
+    void setCandidates(int candidates) {
+        this.candidates = candidates;
+    }
+
+    /**
+     * @return the chosen position on the road network or null if the entry was not matched. The
+     * closest node refers to the QueryGraph of the match.
+     */
+    public QueryResult getQueryResult() {
+        return queryResult;
+    }
+
+    void setQueryResult(QueryResult queryResult) {
+        this.queryResult = queryResult;
+    }
+
+    /**
+     * @return the distance in meter between the entry and its matched position
+     */
+    public double getSnapDistance() {
+        return queryResult == null ? Double.NaN : queryResult.getQueryDistance();
+    }
+
+    /**
+     * @return true if this is the first matched entry or if no route to the previous matched entry
+     * was found, i.e. the matched route has a gap before this entry
+     */
+    public boolean isSequenceStart() {
+        return sequenceStart;
+    }
+
+    void setSequenceStart(boolean sequenceStart) {
+        this.sequenceStart = sequenceStart;
+    }
+
+    /**
+     * @return the route distance in meter from the matched position of the previous matched entry
+     * or NaN if this entry starts a sequence
+     */
+    public double getTransitionDistance() {
+        return transitionDistance;
+    }
+
+    void setTransitionDistance(double transitionDistance) {
+        this.transitionDistance = transitionDistance;
+    }
+
+    /**
+     * @return the beeline distance in meter to the previous matched entry or NaN if this entry
+     * starts a sequence
+     */
+    public double getLinearDistance() {
+        return linearDistance;
+    }
+
+    void setLinearDistance(double linearDistance) {
+        this.linearDistance = linearDistance;
+    }
+
+    @Override
+    public String toString() {
+        return entry + ", " + status + ", candidates:" + candidates + ", snap distance:" + getSnapDistance()
+                + ", transition distance:" + transitionDistance;
+    }
+}
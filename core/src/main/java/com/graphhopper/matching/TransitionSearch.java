@@ -0,0 +1,184 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for 
+ *  additional information regarding copyright ownership.
+ * 
+ *  GraphHopper GmbH licenses this file to you under the Apache License, 
+ *  Version 2.0 (the "License"); you may not use this file except in 
+ *  compliance with the License. You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.matching;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.apache.commons.collections.IntDoubleBinaryHeap;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+
+import java.util.Arrays;
+
+/**
+ * A bounded one to many search on the distance which calculates the route distances from one
+ * candidate to all candidates of the next GPX entry. Like in DijkstraOneToMany the arrays are
+ * allocated once and only the changed nodes are reset before the next search, so that one instance
+ * can be reused for all transitions of many traces. The arrays grow if a graph with more nodes is
+ * used. Not thread safe.
+ */
+class TransitionSearch {
+    private static final int EMPTY_PARENT = -1;
+    private final IntArrayList changedNodes = new IntArrayList();
+    private final IntDoubleBinaryHeap heap = new IntDoubleBinaryHeap(1000);
+    private double[] distances;
+    private int[] parents;
+    private int[] edgeIds;
+    private Graph graph;
+    private EdgeExplorer explorer;
+    private Weighting weighting;
+    private double maxDistance;
+    private int visitedNodes;
+
+    TransitionSearch(int nodes) {
+        distances = new double[0];
+        parents = new int[0];
+        edgeIds = new int[0];
+        ensureCapacity(nodes);
+    }
+
+    private void ensureCapacity(int nodes) {
+        int oldNodes = distances.length;
+        if (nodes <= oldNodes)
+            return;
+
+        // some room for the virtual nodes of the next traces
+        nodes = Math.max(nodes, oldNodes + oldNodes / 8);
+        distances = Arrays.copyOf(distances, nodes);
+        Arrays.fill(distances, oldNodes, nodes, Double.MAX_VALUE);
+        parents = Arrays.copyOf(parents, nodes);
+        Arrays.fill(parents, oldNodes, nodes, EMPTY_PARENT);
+        edgeIds = Arrays.copyOf(edgeIds, nodes);
+        Arrays.fill(edgeIds, oldNodes, nodes, EdgeIterator.NO_EDGE);
+    }
+
+    /**
+     * @param explorer the explorer for the outgoing edges of the specified graph
+     */
+    void init(Graph graph, EdgeExplorer explorer, Weighting weighting) {
+        ensureCapacity(graph.getNodes());
+        this.graph = graph;
+        this.explorer = explorer;
+        this.weighting = weighting;
+    }
+
+    /**
+     * Searches from the specified node until all targets are reached or the distance of the
+     * remaining nodes is greater than maxDistance. Edges with an infinite weight are skipped.
+     */
+    void search(int from, int[] targets, double maxDistance) {
+        clear();
+        this.maxDistance = maxDistance;
+        visitedNodes = 0;
+        int remainingTargets = targets.length;
+        int currNode = from;
+        distances[currNode] = 0;
+        changedNodes.add(currNode);
+        while (true) {
+            if (contains(targets, currNode)) {
+                remainingTargets--;
+                if (remainingTargets == 0)
+                    return;
+            }
+
+            visitedNodes++;
+            EdgeIterator iter = explorer.setBaseNode(currNode);
+            while (iter.next()) {
+                int adjNode = iter.getAdjNode();
+                if (Double.isInfinite(weighting.calcWeight(iter, false, edgeIds[currNode])))
+                    continue;
+
+                double tmpDistance = distances[currNode] + iter.getDistance();
+                double distance = distances[adjNode];
+                if (tmpDistance >= distance)
+                    continue;
+
+                if (distance == Double.MAX_VALUE) {
+                    heap.insert_(tmpDistance, adjNode);
+                    changedNodes.add(adjNode);
+                } else {
+                    heap.update_(tmpDistance, adjNode);
+                }
+                distances[adjNode] = tmpDistance;
+                parents[adjNode] = currNode;
+                edgeIds[adjNode] = iter.getEdge();
+            }
+
+            if (heap.isEmpty())
+                return;
+
+            currNode = heap.poll_element();
+            if (distances[currNode] > maxDistance)
+                return;
+        }
+    }
+
+    private static boolean contains(int[] nodes, int node) {
+        for (int n : nodes) {
+            if (n == node)
+                return true;
+        }
+        return false;
+    }
+
+    private void clear() {
+        for (int i = 0; i < changedNodes.size(); i++) {
+            int node = changedNodes.get(i);
+            distances[node] = Double.MAX_VALUE;
+            parents[node] = EMPTY_PARENT;
+            edgeIds[node] = EdgeIterator.NO_EDGE;
+        }
+        changedNodes.elementsCount = 0;
+        heap.clear();
+    }
+
+    /**
+     * @return the route distance to the specified node of the last search or infinity if the node
+     * was not reached within the maximum distance
+     */
+    double getDistance(int node) {
+        double distance = distances[node];
+        return distance > maxDistance ? Double.POSITIVE_INFINITY : distance;
+    }
+
+    /**
+     * Creates the path from the start node of the last search to the specified node.
+     */
+    MatchedPath extractPath(int node) {
+        IntArrayList nodes = new IntArrayList();
+        IntArrayList edges = new IntArrayList();
+        while (EdgeIterator.Edge.isValid(edgeIds[node])) {
+            nodes.add(node);
+            edges.add(edgeIds[node]);
+            node = parents[node];
+        }
+
+        MatchedPath path = new MatchedPath(graph, weighting, node);
+        int prevEdgeId = EdgeIterator.NO_EDGE;
+        for (int i = edges.size() - 1; i >= 0; i--) {
+            path.add(edges.get(i), nodes.get(i), prevEdgeId);
+            prevEdgeId = edges.get(i);
+        }
+        return path;
+    }
+
+    int getVisitedNodes() {
+        return visitedNodes;
+    }
+}
@@ -67,7 +67,10 @@ public abstract class ReaderElement {
         return tagTxt.toString();
     }
 
-    protected Map<String, Object> getTags() {
+    /**
+     * @return the tags of this element. The map is not copied, use setTag to change it.
+     */
+    public Map<String, Object> getTags() {
         return properties;
     }
 
@@ -18,14 +18,19 @@
 package com.graphhopper.reader.dem;
 
 import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.DataAccess;
 import com.graphhopper.storage.Directory;
 import com.graphhopper.storage.GHDirectory;
 import com.graphhopper.util.Downloader;
+import com.graphhopper.util.Helper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 
 /**
  * Provides basic methods that are usually used in an ElevationProvider.
@@ -37,11 +42,16 @@ public abstract class AbstractElevationProvider implements ElevationProvider {
     Downloader downloader;
     final File cacheDir;
     String baseUrl;
-    Directory dir;
+    volatile Directory dir;
     DAType daType = DAType.MMAP;
     boolean calcMean = false;
+    boolean interpolate = false;
     boolean autoRemoveTemporary = true;
     long sleep = 2000;
+    // a map as an array is not quite useful if we want to hold only parts of the world
+    final HeightTileCache<Object> tileCache = new HeightTileCache<>(64);
+    // the names of the tiles which were used and possibly created by this provider
+    private final Set<String> tileNames = Collections.synchronizedSet(new HashSet<String>());
 
     protected AbstractElevationProvider(String cacheDirString) {
         File cacheDir = new File(cacheDirString);
@@ -59,6 +69,11 @@ public abstract class AbstractElevationProvider implements ElevationProvider {
         calcMean = eleCalcMean;
     }
 
+    @Override
+    public void setInterpolate(boolean interpolate) {
+        this.interpolate = interpolate;
+    }
+
     void setSleep(long sleep) {
         this.sleep = sleep;
     }
@@ -92,15 +107,59 @@ public abstract class AbstractElevationProvider implements ElevationProvider {
     }
 
 
+    @Override
+    public void setMaxCachedTiles(int maxCachedTiles) {
+        tileCache.setMaxTiles(maxCachedTiles);
+    }
+
     protected Directory getDirectory() {
+        Directory tmpDir = dir;
+        if (tmpDir != null)
+            return tmpDir;
+        return createDirectory();
+    }
+
+    private synchronized Directory createDirectory() {
         if (dir != null)
             return dir;
 
         logger.info(this.toString() + " Elevation Provider, from: " + baseUrl + ", to: " + cacheDir + ", as: " + daType +
-                " using calcmean: " + calcMean);
+                " using calcmean: " + calcMean + ", max cached tiles: " + tileCache.getMaxTiles());
         return dir = new GHDirectory(cacheDir.getAbsolutePath(), daType);
     }
 
+    /**
+     * Creates the DataAccess for the heights of a tile. It is not registered in the directory of
+     * this provider as it is closed when the tile is dropped from the tile cache.
+     */
+    DataAccess createTileHeights(String name) {
+        Directory tileDir = new GHDirectory(getDirectory().getLocation(), daType);
+        tileNames.add(name);
+        return tileDir.find(name);
+    }
+
+    /**
+     * Removes the unpacked files of all tiles which were used by this provider
+     */
+    void removeTemporaryFiles() {
+        synchronized (tileNames) {
+            if (dir != null && daType.isStoring()) {
+                for (String name : tileNames) {
+                    Helper.removeDir(new File(dir.getLocation(), name));
+                }
+            }
+            tileNames.clear();
+        }
+    }
+
+    /**
+     * Returns the tile which contains the specified coordinates and loads it if necessary. The
+     * tile has to be released after use.
+     *
+     * @return the acquired tile or null if the provider has no data for the coordinates
+     */
+    abstract HeightTile acquireTile(double lat, double lon);
+
     /**
      * Return the local file name without file ending, has to be lower case, because DataAccess only supports lower case names.
      */
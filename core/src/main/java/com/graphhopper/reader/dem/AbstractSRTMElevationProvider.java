@@ -17,7 +17,6 @@
  */
 package com.graphhopper.reader.dem;
 
-import com.graphhopper.coll.GHIntObjectHashMap;
 import com.graphhopper.storage.DataAccess;
 import com.graphhopper.util.BitUtil;
 import com.graphhopper.util.Downloader;
@@ -27,6 +26,7 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.SocketTimeoutException;
+import java.util.concurrent.Callable;
 
 /**
  * Common functionality used when working with SRTM hgt data.
@@ -39,8 +39,6 @@ public abstract class AbstractSRTMElevationProvider extends AbstractElevationPro
     private final int DEFAULT_WIDTH;
     private final int WIDTH_BYTE_INDEX = 0;
     private final int DEGREE = 1;
-    // use a map as an array is not quite useful if we want to hold only parts of the world
-    private final GHIntObjectHashMap<HeightTile> cacheData = new GHIntObjectHashMap<HeightTile>();
     private final double precision = 1e7;
     private final double invPrecision = 1 / precision;
 
@@ -59,11 +57,11 @@ public abstract class AbstractSRTMElevationProvider extends AbstractElevationPro
 
     @Override
     public void release() {
-        cacheData.clear();
+        tileCache.clear();
 
         // for memory mapped type we create temporary unpacked files which should be removed
-        if (autoRemoveTemporary && dir != null)
-            dir.clear();
+        if (autoRemoveTemporary)
+            removeTemporaryFiles();
     }
 
     /**
@@ -90,56 +88,84 @@ public abstract class AbstractSRTMElevationProvider extends AbstractElevationPro
 
         lat = (int) (lat * precision) / precision;
         lon = (int) (lon * precision) / precision;
-        int intKey = calcIntKey(lat, lon);
-        HeightTile demProvider = cacheData.get(intKey);
-        if (demProvider == null) {
-            if (!cacheDir.exists())
-                cacheDir.mkdirs();
-
-            int minLat = down(lat);
-            int minLon = down(lon);
+        HeightTile demProvider = acquireTile(lat, lon);
+        if (demProvider == null)
+            return 0;
 
-            String fileName = getFileName(lat, lon);
-            if (fileName == null)
+        try {
+            if (demProvider.isSeaLevel())
                 return 0;
 
-            DataAccess heights = getDirectory().find("dem" + intKey);
-            boolean loadExisting = false;
-            try {
-                loadExisting = heights.loadExisting();
-            } catch (Exception ex) {
-                logger.warn("cannot load dem" + intKey + ", error:" + ex.getMessage());
-            }
+            return demProvider.getHeight(lat, lon);
+        } finally {
+            demProvider.release();
+        }
+    }
 
-            if (!loadExisting) {
-                try {
-                    updateHeightsFromFile(lat, lon, heights);
-                } catch (FileNotFoundException ex) {
-                    demProvider = new HeightTile(minLat, minLon, DEFAULT_WIDTH, DEFAULT_WIDTH, precision, DEGREE, DEGREE);
-                    cacheData.put(intKey, demProvider);
-                    demProvider.setHeights(heights);
-                    demProvider.setSeaLevel(true);
-                    // use small size on disc and in-memory
-                    heights.setSegmentSize(100).create(10).
-                            flush();
-                    return 0;
-                }
+    @Override
+    HeightTile acquireTile(final double lat, final double lon) {
+        if (lat >= 60 || lat <= -56)
+            return null;
+
+        final int intKey = calcIntKey(lat, lon);
+        HeightTile demProvider = tileCache.acquire(intKey);
+        if (demProvider != null)
+            return demProvider;
+
+        if (getFileName(lat, lon) == null)
+            return null;
+
+        return tileCache.acquire(intKey, new Callable<HeightTile>() {
+            @Override
+            public HeightTile call() {
+                return loadTile(intKey, lat, lon);
             }
+        });
+    }
+
+    /**
+     * Loads the tile from disc or downloads it. It is called only once per tile at the same time
+     * but tiles with different keys can be loaded in parallel.
+     */
+    private HeightTile loadTile(int intKey, double lat, double lon) {
+        if (!cacheDir.exists())
+            cacheDir.mkdirs();
+
+        int minLat = down(lat);
+        int minLon = down(lon);
 
-            int width = (int) (Math.sqrt(heights.getHeader(WIDTH_BYTE_INDEX)) + 0.5);
-            if (width == 0)
-                width = DEFAULT_WIDTH;
+        DataAccess heights = createTileHeights("dem" + intKey);
+        boolean loadExisting = false;
+        try {
+            loadExisting = heights.loadExisting();
+        } catch (Exception ex) {
+            logger.warn("cannot load dem" + intKey + ", error:" + ex.getMessage());
+        }
 
-            demProvider = new HeightTile(minLat, minLon, width, width, precision, DEGREE, DEGREE);
-            cacheData.put(intKey, demProvider);
-            demProvider.setCalcMean(calcMean);
-            demProvider.setHeights(heights);
+        HeightTile demProvider;
+        if (!loadExisting) {
+            try {
+                updateHeightsFromFile(lat, lon, heights);
+            } catch (FileNotFoundException ex) {
+                demProvider = new HeightTile(minLat, minLon, DEFAULT_WIDTH, DEFAULT_WIDTH, precision, DEGREE, DEGREE);
+                demProvider.setHeights(heights);
+                demProvider.setSeaLevel(true);
+                // use small size on disc and in-memory
+                heights.setSegmentSize(100).create(10).
+                        flush();
+                return demProvider;
+            }
         }
 
-        if (demProvider.isSeaLevel())
-            return 0;
+        int width = (int) (Math.sqrt(heights.getHeader(WIDTH_BYTE_INDEX)) + 0.5);
+        if (width == 0)
+            width = DEFAULT_WIDTH;
 
-        return demProvider.getHeight(lat, lon);
+        demProvider = new HeightTile(minLat, minLon, width, width, precision, DEGREE, DEGREE);
+        demProvider.setCalcMean(calcMean);
+        demProvider.setInterpolate(interpolate);
+        demProvider.setHeights(heights);
+        return demProvider;
     }
 
     private void updateHeightsFromFile(double lat, double lon, DataAccess heights) throws FileNotFoundException {
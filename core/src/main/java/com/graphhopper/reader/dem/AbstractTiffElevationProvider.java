@@ -24,8 +24,7 @@ import java.awt.image.Raster;
 import java.io.File;
 import java.io.IOException;
 import java.net.SocketTimeoutException;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.Callable;
 
 /**
  * Provides basic methods that are usually used in an ElevationProvider that reads tiff files.
@@ -33,7 +32,6 @@ import java.util.Map;
  * @author Robin Boldt
  */
 public abstract class AbstractTiffElevationProvider extends AbstractElevationProvider {
-    private final Map<String, HeightTile> cacheData = new HashMap<String, HeightTile>();
     final double precision = 1e7;
 
     private final int WIDTH;
@@ -56,11 +54,11 @@ public abstract class AbstractTiffElevationProvider extends AbstractElevationPro
 
     @Override
     public void release() {
-        cacheData.clear();
+        tileCache.clear();
 
         // for memory mapped type we create temporary unpacked files which should be removed
-        if (autoRemoveTemporary && dir != null)
-            dir.clear();
+        if (autoRemoveTemporary)
+            removeTemporaryFiles();
     }
 
     /**
@@ -91,55 +89,83 @@ public abstract class AbstractTiffElevationProvider extends AbstractElevationPro
 
         lat = (int) (lat * precision) / precision;
         lon = (int) (lon * precision) / precision;
-        String name = getFileName(lat, lon);
-        HeightTile demProvider = cacheData.get(name);
-        if (demProvider == null) {
-            if (!cacheDir.exists())
-                cacheDir.mkdirs();
-
-            int minLat = getMinLatForTile(lat);
-            int minLon = getMinLonForTile(lon);
-            // less restrictive against boundary checking
-            demProvider = new HeightTile(minLat, minLon, WIDTH, HEIGHT, LON_DEGREE * precision, LON_DEGREE, LAT_DEGREE);
-            demProvider.setCalcMean(calcMean);
-
-            cacheData.put(name, demProvider);
-            DataAccess heights = getDirectory().find(name + ".gh");
-            demProvider.setHeights(heights);
-            boolean loadExisting = false;
-            try {
-                loadExisting = heights.loadExisting();
-            } catch (Exception ex) {
-                logger.warn("cannot load " + name + ", error: " + ex.getMessage());
+        HeightTile demProvider = acquireTile(lat, lon);
+        try {
+            if (demProvider.isSeaLevel())
+                return 0;
+
+            return demProvider.getHeight(lat, lon);
+        } finally {
+            demProvider.release();
+        }
+    }
+
+    @Override
+    HeightTile acquireTile(final double lat, final double lon) {
+        if (isOutsideSupportedArea(lat, lon))
+            return null;
+
+        final String name = getFileName(lat, lon);
+        HeightTile demProvider = tileCache.acquire(name);
+        if (demProvider != null)
+            return demProvider;
+
+        return tileCache.acquire(name, new Callable<HeightTile>() {
+            @Override
+            public HeightTile call() {
+                return loadTile(name, lat, lon);
             }
+        });
+    }
 
-            if (!loadExisting) {
-                String zippedURL = getDownloadURL(lat, lon);
-                File file = new File(cacheDir, new File(getFileNameOfLocalFile(lat, lon)).getName());
+    /**
+     * Loads the tile from disc or downloads it. It is called only once per tile at the same time
+     * but tiles with different names can be loaded in parallel.
+     */
+    private HeightTile loadTile(String name, double lat, double lon) {
+        if (!cacheDir.exists())
+            cacheDir.mkdirs();
+
+        int minLat = getMinLatForTile(lat);
+        int minLon = getMinLonForTile(lon);
+        // less restrictive against boundary checking
+        HeightTile demProvider = new HeightTile(minLat, minLon, WIDTH, HEIGHT, LON_DEGREE * precision, LON_DEGREE, LAT_DEGREE);
+        demProvider.setCalcMean(calcMean);
+        demProvider.setInterpolate(interpolate);
+
+        DataAccess heights = createTileHeights(name + ".gh");
+        demProvider.setHeights(heights);
+        boolean loadExisting = false;
+        try {
+            loadExisting = heights.loadExisting();
+        } catch (Exception ex) {
+            logger.warn("cannot load " + name + ", error: " + ex.getMessage());
+        }
 
-                try {
-                    downloadFile(file, zippedURL);
-                } catch (IOException e) {
-                    demProvider.setSeaLevel(true);
-                    // use small size on disc and in-memory
-                    heights.setSegmentSize(100).create(10).
-                            flush();
-                    return 0;
-                }
+        if (!loadExisting) {
+            String zippedURL = getDownloadURL(lat, lon);
+            File file = new File(cacheDir, new File(getFileNameOfLocalFile(lat, lon)).getName());
+
+            boolean downloaded = true;
+            try {
+                downloadFile(file, zippedURL);
+            } catch (IOException e) {
+                downloaded = false;
+                demProvider.setSeaLevel(true);
+                // use small size on disc and in-memory
+                heights.setSegmentSize(100).create(10).
+                        flush();
+            }
 
+            if (downloaded) {
                 // short == 2 bytes
                 heights.create(2 * WIDTH * HEIGHT);
 
                 Raster raster = generateRasterFromFile(file, name + ".tif");
                 fillDataAccessWithElevationData(raster, heights, WIDTH);
-
-            } // loadExisting
-        }
-
-        if (demProvider.isSeaLevel())
-            return 0;
-
-        return demProvider.getHeight(lat, lon);
+            }
+        } // loadExisting
+        return demProvider;
     }
 
     abstract Raster generateRasterFromFile(File file, String tifName);
@@ -0,0 +1,219 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for 
+ *  additional information regarding copyright ownership.
+ * 
+ *  GraphHopper GmbH licenses this file to you under the Apache License, 
+ *  Version 2.0 (the "License"); you may not use this file except in 
+ *  compliance with the License. You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.dem;
+
+import com.carrotsearch.hppc.LongArrayList;
+import com.graphhopper.coll.GHLongHashSet;
+import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.GHDirectory;
+import com.graphhopper.util.CmdArgs;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.shapes.BBox;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.graphhopper.reader.dem.DEMStoreProvider.*;
+
+/**
+ * Converts the tiles of an elevation provider into one memory mappable store which can then be
+ * read with DEMStoreProvider. The conversion is done once, e.g. with:
+ * <pre>
+ * java -cp graphhopper.jar com.graphhopper.reader.dem.DEMStoreConverter provider=cgiar \
+ *   cache_dir=/tmp/cgiar bbox=5,16,45,56 location=/data/dem-store
+ * </pre>
+ * The bbox is in the format minLon,maxLon,minLat,maxLat and all tiles which intersect it are
+ * included. Sea level tiles and areas without data are not stored.
+ */
+public class DEMStoreConverter {
+    private static final Logger logger = LoggerFactory.getLogger(DEMStoreConverter.class);
+    // has to be smaller than the segment size of the tiles
+    private static final int COPY_BUFFER_SIZE = 1 << 12;
+    private final AbstractElevationProvider source;
+    private final String location;
+
+    public DEMStoreConverter(AbstractElevationProvider source, String location) {
+        this.source = source;
+        this.location = location;
+    }
+
+    /**
+     * Creates the store for the tiles of the source which intersect the specified area. Only one
+     * tile of the source is acquired at the same time.
+     *
+     * @return the number of stored tiles
+     */
+    public int convert(BBox bbox) {
+        TileGrid grid = collectTiles(bbox);
+        if (grid.size() == 0)
+            throw new IllegalArgumentException("No elevation data found in " + bbox);
+
+        int rows = (grid.maxLat - grid.originLat) / grid.latDegree;
+        int cols = (grid.maxLon - grid.originLon) / grid.lonDegree;
+        long tileBytes = 2L * grid.width * grid.height;
+        long dataStart = 4L * rows * cols;
+        long bytes = dataStart + grid.size() * tileBytes;
+        DataAccess store = new GHDirectory(location, DAType.MMAP).create().find(NAME);
+        store.create(bytes);
+        try {
+            for (long cell = 0; cell < (long) rows * cols; cell++) {
+                store.setInt(4 * cell, NO_TILE);
+            }
+
+            byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            for (int tileNo = 0; tileNo < grid.size(); tileNo++) {
+                int minLat = grid.getMinLat(tileNo);
+                int minLon = grid.getMinLon(tileNo);
+                int row = (minLat - grid.originLat) / grid.latDegree;
+                int col = (minLon - grid.originLon) / grid.lonDegree;
+                store.setInt(4L * (row * cols + col), tileNo);
+
+                HeightTile tile = source.acquireTile(minLat + grid.latDegree / 2d, minLon + grid.lonDegree / 2d);
+                if (tile == null)
+                    throw new IllegalStateException("Tile " + minLat + "," + minLon + " of " + source + " is no longer available");
+                try {
+                    DataAccess heights = tile.getHeights();
+                    long tileStart = dataStart + tileNo * tileBytes;
+                    for (long pos = 0; pos < tileBytes; pos += buffer.length) {
+                        int length = (int) Math.min(buffer.length, tileBytes - pos);
+                        heights.getBytes(pos, buffer, length);
+                        store.setBytes(tileStart + pos, buffer, length);
+                    }
+                } finally {
+                    tile.release();
+                }
+            }
+
+            store.setHeader(0, MAGIC);
+            store.setHeader(4, VERSION);
+            store.setHeader(2 * 4, rows);
+            store.setHeader(3 * 4, cols);
+            store.setHeader(4 * 4, grid.width);
+            store.setHeader(5 * 4, grid.height);
+            store.setHeader(6 * 4, grid.originLat);
+            store.setHeader(7 * 4, grid.originLon);
+            store.setHeader(8 * 4, grid.latDegree);
+            store.setHeader(9 * 4, grid.lonDegree);
+            store.setHeader(10 * 4, grid.size());
+            store.flush();
+        } finally {
+            store.close();
+        }
+        logger.info("Stored " + grid.size() + " tiles of " + source + " in a grid of " + rows + "x" + cols
+                + " cells, " + bytes / Helper.MB + "MB");
+        return grid.size();
+    }
+
+    /**
+     * Finds all tiles which intersect the bbox and releases them directly, only their position and
+     * size is kept. All providers use tiles with whole degrees so visiting every degree finds all
+     * of them.
+     */
+    private TileGrid collectTiles(BBox bbox) {
+        TileGrid grid = new TileGrid();
+        for (int lat = (int) Math.floor(bbox.minLat); lat < bbox.maxLat; lat++) {
+            for (int lon = (int) Math.floor(bbox.minLon); lon < bbox.maxLon; lon++) {
+                HeightTile tile = source.acquireTile(lat + 0.5, lon + 0.5);
+                if (tile == null)
+                    continue;
+
+                try {
+                    if (!tile.isSeaLevel())
+                        grid.add(tile);
+                } finally {
+                    tile.release();
+                }
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * The positions of the tiles to store and their common size.
+     */
+    private static class TileGrid {
+        private final LongArrayList origins = new LongArrayList();
+        private final GHLongHashSet originSet = new GHLongHashSet();
+        int width, height, latDegree, lonDegree;
+        int originLat = Integer.MAX_VALUE, originLon = Integer.MAX_VALUE;
+        int maxLat = Integer.MIN_VALUE, maxLon = Integer.MIN_VALUE;
+
+        void add(HeightTile tile) {
+            long origin = ((long) tile.getMinLat() << 32) | (tile.getMinLon() & 0xFFFFFFFFL);
+            if (!originSet.add(origin))
+                return;
+
+            if (origins.isEmpty()) {
+                width = tile.getWidth();
+                height = tile.getPixelHeight();
+                latDegree = tile.getVerticalDegree();
+                lonDegree = tile.getHorizontalDegree();
+            } else if (tile.getWidth() != width || tile.getPixelHeight() != height
+                    || tile.getVerticalDegree() != latDegree || tile.getHorizontalDegree() != lonDegree) {
+                throw new IllegalStateException("All tiles need the same size but " + tile + " differs from "
+                        + getMinLat(0) + "," + getMinLon(0));
+            }
+
+            origins.add(origin);
+            originLat = Math.min(originLat, tile.getMinLat());
+            originLon = Math.min(originLon, tile.getMinLon());
+            maxLat = Math.max(maxLat, tile.getMinLat() + latDegree);
+            maxLon = Math.max(maxLon, tile.getMinLon() + lonDegree);
+        }
+
+        int size() {
+            return origins.size();
+        }
+
+        int getMinLat(int tileNo) {
+            return (int) (origins.get(tileNo) >> 32);
+        }
+
+        int getMinLon(int tileNo) {
+            return (int) origins.get(tileNo);
+        }
+    }
+
+    public static void main(String[] strs) {
+        CmdArgs args = CmdArgs.read(strs);
+        String providerName = args.get("provider", "srtm");
+        String cacheDir = args.get("cache_dir", "/tmp/" + providerName);
+        String bboxStr = args.get("bbox", "");
+        if (bboxStr.isEmpty())
+            throw new IllegalArgumentException("Specify the area via bbox=minLon,maxLon,minLat,maxLat");
+
+        AbstractElevationProvider provider;
+        if (providerName.equalsIgnoreCase("srtm")) {
+            provider = new SRTMProvider(cacheDir);
+        } else if (providerName.equalsIgnoreCase("srtmgl1")) {
+            provider = new SRTMGL1Provider(cacheDir);
+        } else if (providerName.equalsIgnoreCase("cgiar")) {
+            provider = new CGIARProvider(cacheDir);
+        } else if (providerName.equalsIgnoreCase("gmted")) {
+            provider = new GMTEDProvider(cacheDir);
+        } else {
+            throw new IllegalArgumentException("Unsupported provider " + providerName);
+        }
+
+        try {
+            new DEMStoreConverter(provider, args.get("location", "dem-store")).convert(BBox.parseBBoxString(bboxStr));
+        } finally {
+            provider.release();
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for 
+ *  additional information regarding copyright ownership.
+ * 
+ *  GraphHopper GmbH licenses this file to you under the Apache License, 
+ *  Version 2.0 (the "License"); you may not use this file except in 
+ *  compliance with the License. You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.dem;
+
+import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.GHDirectory;
+
+import java.io.File;
+
+/**
+ * Reads elevation data from a store which was created with DEMStoreConverter. All tiles are in one
+ * DataAccess which starts with an index of the tile grid, so a tile is found in constant time and
+ * read directly from the mapped data without unpacking or decoding.
+ * <p>
+ * The header of the DataAccess contains the grid geometry and the tile size, the data starts with
+ * one int per grid cell containing the number of the tile or -1 if there is no data for this cell.
+ * The samples of the tiles follow as shorts with the northernmost row first like for the other
+ * providers.
+ */
+public class DEMStoreProvider implements ElevationProvider {
+    static final String NAME = "dem_store";
+    static final int MAGIC = 0x44454d31;
+    static final int VERSION = 1;
+    static final int NO_TILE = -1;
+    static final double PRECISION = 1e7;
+    private final File location;
+    private DAType daType = DAType.MMAP;
+    private boolean calcMean;
+    private boolean interpolate;
+    private DataAccess store;
+    private volatile HeightTile[] tiles;
+    private int rows;
+    private int cols;
+    private int originLat;
+    private int originLon;
+    private int latDegree;
+    private int lonDegree;
+
+    public DEMStoreProvider(String location) {
+        this.location = new File(location);
+    }
+
+    @Override
+    public double getEle(double lat, double lon) {
+        HeightTile[] tmpTiles = tiles;
+        if (tmpTiles == null)
+            tmpTiles = open();
+
+        int row = (int) Math.floor((lat - originLat) / latDegree);
+        int col = (int) Math.floor((lon - originLon) / lonDegree);
+        if (row < 0 || row >= rows || col < 0 || col >= cols)
+            return 0;
+
+        HeightTile tile = tmpTiles[row * cols + col];
+        if (tile == null)
+            return 0;
+        return tile.getHeight(lat, lon);
+    }
+
+    /**
+     * Loads the index and creates a view for every tile, the samples are not read.
+     */
+    private synchronized HeightTile[] open() {
+        if (tiles != null)
+            return tiles;
+
+        DataAccess da = new GHDirectory(location.getAbsolutePath(), daType).find(NAME);
+        if (!da.loadExisting())
+            throw new IllegalStateException("No elevation store found in " + location.getAbsolutePath()
+                    + ", create it with DEMStoreConverter");
+        if (da.getHeader(0) != MAGIC || da.getHeader(4) != VERSION) {
+            da.close();
+            throw new IllegalStateException("Incompatible elevation store in " + location.getAbsolutePath()
+                    + ", expected version " + VERSION + " but was " + da.getHeader(4));
+        }
+
+        rows = da.getHeader(2 * 4);
+        cols = da.getHeader(3 * 4);
+        int width = da.getHeader(4 * 4);
+        int height = da.getHeader(5 * 4);
+        originLat = da.getHeader(6 * 4);
+        originLon = da.getHeader(7 * 4);
+        latDegree = da.getHeader(8 * 4);
+        lonDegree = da.getHeader(9 * 4);
+
+        long tileBytes = 2L * width * height;
+        long dataStart = 4L * rows * cols;
+        HeightTile[] tmpTiles = new HeightTile[rows * cols];
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                int cell = row * cols + col;
+                int tileNo = da.getInt(4L * cell);
+                if (tileNo == NO_TILE)
+                    continue;
+
+                HeightTile tile = new HeightTile(originLat + row * latDegree, originLon + col * lonDegree,
+                        width, height, PRECISION, lonDegree, latDegree);
+                tile.setCalcMean(calcMean);
+                tile.setInterpolate(interpolate);
+                tile.setHeights(da, dataStart + tileNo * tileBytes);
+                tmpTiles[cell] = tile;
+            }
+        }
+        store = da;
+        return tiles = tmpTiles;
+    }
+
+    /**
+     * The store is read-only and contains the data which was specified when converting it.
+     */
+    @Override
+    public ElevationProvider setBaseURL(String baseURL) {
+        return this;
+    }
+
+    @Override
+    public ElevationProvider setDAType(DAType daType) {
+        this.daType = daType;
+        return this;
+    }
+
+    @Override
+    public void setCalcMean(boolean calcMean) {
+        this.calcMean = calcMean;
+    }
+
+    @Override
+    public void setInterpolate(boolean interpolate) {
+        this.interpolate = interpolate;
+    }
+
+    /**
+     * Has no effect as the tiles are views of the store and do not need to be cached.
+     */
+    @Override
+    public void setMaxCachedTiles(int maxCachedTiles) {
+    }
+
+    /**
+     * Has no effect as the store does not create temporary files.
+     */
+    @Override
+    public void setAutoRemoveTemporaryFiles(boolean autoRemoveTemporary) {
+    }
+
+    @Override
+    public synchronized void release() {
+        tiles = null;
+        if (store != null) {
+            store.close();
+            store = null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "dem_store";
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for 
+ *  additional information regarding copyright ownership.
+ * 
+ *  GraphHopper GmbH licenses this file to you under the Apache License, 
+ *  Version 2.0 (the "License"); you may not use this file except in 
+ *  compliance with the License. You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.dem;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Looks up the elevation of many points at once. The points are sorted by their one degree cell
+ * before the lookup so that the tiles of the ElevationProvider are used one after the other and a
+ * small tile cache is sufficient. With more than one thread the sorted points are split into
+ * ranges which are looked up in parallel, this requires a thread safe ElevationProvider.
+ * <p>
+ * Usage: add points until isFull, call sample and read the results via getElevation, then clear.
+ */
+public class ElevationBatch {
+    private final ElevationProvider provider;
+    private final int threads;
+    private ExecutorService executor;
+    private final double[] lats;
+    private final double[] lons;
+    private final double[] eles;
+    // the cell in the upper and the index in the lower 32 bits
+    private final long[] order;
+    private int size;
+
+    public ElevationBatch(ElevationProvider provider, int capacity, int threads) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("capacity has to be positive but was " + capacity);
+        if (threads <= 0)
+            throw new IllegalArgumentException("threads has to be positive but was " + threads);
+
+        this.provider = provider;
+        this.threads = threads;
+        this.lats = new double[capacity];
+        this.lons = new double[capacity];
+        this.eles = new double[capacity];
+        this.order = new long[capacity];
+    }
+
+    /**
+     * @return the index of the point for getElevation
+     */
+    public int add(double lat, double lon) {
+        if (isFull())
+            throw new IllegalStateException("Batch is full, call sample and clear before adding more points");
+
+        lats[size] = lat;
+        lons[size] = lon;
+        eles[size] = Double.NaN;
+        int cell = ((int) Math.floor(lat) + 90) * 1000 + (int) Math.floor(lon) + 180;
+        order[size] = (long) cell << 32 | size;
+        size++;
+        return size - 1;
+    }
+
+    public boolean isFull() {
+        return size == lats.length;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public double getLat(int index) {
+        return lats[index];
+    }
+
+    public double getLon(int index) {
+        return lons[index];
+    }
+
+    /**
+     * @return the elevation of the point with the specified index, only valid after sample
+     */
+    public double getElevation(int index) {
+        return eles[index];
+    }
+
+    /**
+     * Looks up the elevations of all points in this batch
+     */
+    public void sample() {
+        Arrays.sort(order, 0, size);
+        if (threads == 1 || size < 2 * threads) {
+            sample(0, size);
+            return;
+        }
+
+        if (executor == null)
+            executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    // do not block the exit of the JVM if close was not called
+                    Thread thread = new Thread(runnable, "elevation-sampler");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+        List<Future<?>> futures = new ArrayList<>(threads);
+        int rangeSize = (size + threads - 1) / threads;
+        for (int start = 0; start < size; start += rangeSize) {
+            final int from = start;
+            final int to = Math.min(size, start + rangeSize);
+            futures.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    sample(from, to);
+                }
+            }));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while sampling elevations", ex);
+        } catch (ExecutionException ex) {
+            throw new RuntimeException("Cannot sample elevations", ex.getCause());
+        }
+    }
+
+    private void sample(int from, int to) {
+        for (int i = from; i < to; i++) {
+            int index = (int) order[i];
+            eles[index] = provider.getEle(lats[index], lons[index]);
+        }
+    }
+
+    /**
+     * Removes all points, the batch can be reused afterwards
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Stops the threads, the batch cannot be sampled afterwards
+     */
+    public void close() {
+        if (executor != null)
+            executor.shutdown();
+        executor = null;
+        size = 0;
+    }
+}
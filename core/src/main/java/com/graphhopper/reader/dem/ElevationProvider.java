@@ -50,6 +50,14 @@ public interface ElevationProvider {
         @Override
         public void setCalcMean(boolean eleCalcMean) {
         }
+
+        @Override
+        public void setInterpolate(boolean interpolate) {
+        }
+
+        @Override
+        public void setMaxCachedTiles(int maxCachedTiles) {
+        }
     };
 
     /**
@@ -74,6 +82,19 @@ public interface ElevationProvider {
      */
     void setCalcMean(boolean calcMean);
 
+    /**
+     * Configuration option to interpolate bilinear between the surrounding elevation points
+     * instead of using the nearest one. Has only an effect if called before the first getEle
+     * call. Turned off by default.
+     */
+    void setInterpolate(boolean interpolate);
+
+    /**
+     * Limits the number of tiles which are kept in memory, the least recently used tile is dropped
+     * first. Default is 64.
+     */
+    void setMaxCachedTiles(int maxCachedTiles);
+
     /**
      * Release resources.
      */
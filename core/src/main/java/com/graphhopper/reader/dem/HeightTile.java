@@ -43,7 +43,11 @@ public class HeightTile {
     private final double lonHigherBound;
     private final double latHigherBound;
     private DataAccess heights;
+    private long heightsOffset;
     private boolean calcMean;
+    private boolean interpolate;
+    // the tile cache and every thread which reads the heights hold one reference
+    private final AtomicInteger references = new AtomicInteger(1);
 
     public HeightTile(int minLat, int minLon, int width, int height, double precision, int horizontalDegree, int verticalDegree) {
         this.minLat = minLat;
@@ -64,6 +68,15 @@ public class HeightTile {
         return this;
     }
 
+    /**
+     * Enables bilinear interpolation between the four samples around a coordinate instead of
+     * using the nearest sample. Samples without data are ignored.
+     */
+    public HeightTile setInterpolate(boolean interpolate) {
+        this.interpolate = interpolate;
+        return this;
+    }
+
     public boolean isSeaLevel() {
         return heights.getHeader(0) == 1;
     }
@@ -74,7 +87,67 @@ public class HeightTile {
     }
 
     void setHeights(DataAccess da) {
+        setHeights(da, 0);
+    }
+
+    /**
+     * Uses the samples at the specified byte offset of the DataAccess e.g. to read one of many
+     * tiles from a DEMStore without copying.
+     */
+    void setHeights(DataAccess da, long offset) {
         this.heights = da;
+        this.heightsOffset = offset;
+    }
+
+    DataAccess getHeights() {
+        return heights;
+    }
+
+    int getMinLat() {
+        return minLat;
+    }
+
+    int getMinLon() {
+        return minLon;
+    }
+
+    int getWidth() {
+        return width;
+    }
+
+    int getPixelHeight() {
+        return height;
+    }
+
+    int getHorizontalDegree() {
+        return horizontalDegree;
+    }
+
+    int getVerticalDegree() {
+        return verticalDegree;
+    }
+
+    /**
+     * Adds a reference to this tile so that its heights are not closed until release is called.
+     *
+     * @return false if the tile was already closed
+     */
+    boolean acquire() {
+        while (true) {
+            int count = references.get();
+            if (count == 0)
+                return false;
+            if (references.compareAndSet(count, count + 1))
+                return true;
+        }
+    }
+
+    /**
+     * Removes a reference and closes the heights when the last reference is removed.
+     */
+    void release() {
+        if (references.decrementAndGet() == 0 && heights != null)
+            heights.close();
     }
 
     public double getHeight(double lat, double lon) {
@@ -85,6 +158,9 @@ public class HeightTile {
         if (deltaLon > lonHigherBound || deltaLon < lowerBound)
             throw new IllegalStateException("longitude not in boundary of this file:" + lat + "," + lon + ", this:" + this.toString());
 
+        if (interpolate)
+            return interpolateHeight(deltaLat, deltaLon);
+
         // first row in the file is the northernmost one
         // http://gis.stackexchange.com/a/43756/9006
         int lonSimilar = (int) (width / horizontalDegree * deltaLon);
@@ -96,7 +172,7 @@ public class HeightTile {
             latSimilar = 0;
 
         // always keep in mind factor 2 because of short value
-        int daPointer = 2 * (latSimilar * width + lonSimilar);
+        long daPointer = heightsOffset + 2L * (latSimilar * width + lonSimilar);
         int value = heights.getShort(daPointer);
         AtomicInteger counter = new AtomicInteger(1);
         if (value == Short.MIN_VALUE)
@@ -119,7 +195,59 @@ public class HeightTile {
         return (double) value / counter.get();
     }
 
-    private double includePoint(int pointer, AtomicInteger counter) {
+    /**
+     * Weights the four samples around the coordinate where the sample (row, column) is located in
+     * the center of its pixel. The weights of samples without data are distributed to the others.
+     */
+    private double interpolateHeight(double deltaLat, double deltaLon) {
+        double x = deltaLon * width / horizontalDegree - 0.5;
+        double y = height - deltaLat * height / verticalDegree - 0.5;
+        int col = (int) Math.floor(x);
+        int row = (int) Math.floor(y);
+        double fx = x - col;
+        double fy = y - row;
+        int col0 = clamp(col, width), col1 = clamp(col + 1, width);
+        int row0 = clamp(row, height), row1 = clamp(row + 1, height);
+
+        double sum = 0, weights = 0;
+        double w = (1 - fx) * (1 - fy);
+        short value = getSample(row0, col0);
+        if (value != Short.MIN_VALUE) {
+            sum += w * value;
+            weights += w;
+        }
+        w = fx * (1 - fy);
+        value = getSample(row0, col1);
+        if (value != Short.MIN_VALUE) {
+            sum += w * value;
+            weights += w;
+        }
+        w = (1 - fx) * fy;
+        value = getSample(row1, col0);
+        if (value != Short.MIN_VALUE) {
+            sum += w * value;
+            weights += w;
+        }
+        w = fx * fy;
+        value = getSample(row1, col1);
+        if (value != Short.MIN_VALUE) {
+            sum += w * value;
+            weights += w;
+        }
+        if (weights == 0)
+            return Double.NaN;
+        return sum / weights;
+    }
+
+    private static int clamp(int index, int size) {
+        return index < 0 ? 0 : index >= size ? size - 1 : index;
+    }
+
+    private short getSample(int row, int col) {
+        return heights.getShort(heightsOffset + 2L * (row * width + col));
+    }
+
+    private double includePoint(long pointer, AtomicInteger counter) {
         short value = heights.getShort(pointer);
         if (value == Short.MIN_VALUE)
             return 0;
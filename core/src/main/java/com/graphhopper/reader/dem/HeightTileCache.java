@@ -0,0 +1,235 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for 
+ *  additional information regarding copyright ownership.
+ * 
+ *  GraphHopper GmbH licenses this file to you under the Apache License, 
+ *  Version 2.0 (the "License"); you may not use this file except in 
+ *  compliance with the License. You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.dem;
+
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds the most recently used tiles of an ElevationProvider. Reading a cached tile does not lock,
+ * the tiles are published through a concurrent map. A missing tile is loaded only once even if
+ * several threads request it at the same time, the other threads wait for the result while tiles
+ * with other keys can be read and loaded in parallel.
+ * <p>
+ * If there are more tiles than the maximum the least recently used tile is dropped. The heights of
+ * a dropped tile are closed when the last thread which reads it calls HeightTile.release.
+ */
+class HeightTileCache<K> {
+    private final ConcurrentHashMap<K, Entry> map = new ConcurrentHashMap<>();
+    // advances whenever a different tile is accessed, so repeated reads of the same tile do not write shared state
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private volatile int maxTiles;
+
+    HeightTileCache(int maxTiles) {
+        setMaxTiles(maxTiles);
+    }
+
+    int getMaxTiles() {
+        return maxTiles;
+    }
+
+    /**
+     * Sets the maximum number of tiles. If it is reduced the tiles are dropped when the next tile
+     * is added.
+     */
+    void setMaxTiles(int maxTiles) {
+        if (maxTiles <= 0)
+            throw new IllegalArgumentException("The maximum number of cached tiles has to be positive but was " + maxTiles);
+        this.maxTiles = maxTiles;
+    }
+
+    /**
+     * @return the tile of the specified key or null if it is not cached or still loading. The
+     * caller has to call HeightTile.release when it does not read the tile anymore.
+     */
+    HeightTile acquire(K key) {
+        Entry entry = map.get(key);
+        if (entry == null || !entry.future.isDone())
+            return null;
+        return entry.acquire();
+    }
+
+    /**
+     * Returns the tile of the specified key and loads it with the specified loader if it is not
+     * cached. The loader is called by the current thread and it has to return a tile with its
+     * initial reference, which is taken over by the cache.
+     *
+     * @return the acquired tile, the caller has to call HeightTile.release when it does not read
+     * the tile anymore.
+     */
+    HeightTile acquire(K key, Callable<HeightTile> loader) {
+        while (true) {
+            Entry entry = map.get(key);
+            if (entry == null) {
+                Entry newEntry = new Entry(new FutureTask<>(loader));
+                entry = map.putIfAbsent(key, newEntry);
+                if (entry == null)
+                    return load(key, newEntry, loader);
+            }
+
+            waitFor(entry);
+            HeightTile tile = entry.acquire();
+            if (tile != null)
+                return tile;
+            // the tile was dropped after we fetched the entry
+            map.remove(key, entry);
+        }
+    }
+
+    private HeightTile load(K key, Entry entry, Callable<HeightTile> loader) {
+        entry.future.run();
+        try {
+            waitFor(entry);
+        } catch (RuntimeException ex) {
+            // do not cache failures, the next call tries again
+            map.remove(key, entry);
+            throw ex;
+        }
+
+        HeightTile tile = entry.acquire();
+        // the cache could have been cleared while loading
+        if (entry.removed)
+            entry.releaseOnce();
+        evictIfNecessary();
+        // a concurrent clear could have closed the tile before we acquired it
+        return tile == null ? acquire(key, loader) : tile;
+    }
+
+    /**
+     * Adds the specified tile, the cache takes over the initial reference of the tile.
+     */
+    void put(K key, final HeightTile tile) {
+        Entry entry = new Entry(new FutureTask<>(new Callable<HeightTile>() {
+            @Override
+            public HeightTile call() {
+                return tile;
+            }
+        }));
+        entry.future.run();
+        Entry old = map.put(key, entry);
+        if (old != null)
+            old.remove();
+        evictIfNecessary();
+    }
+
+    private void evictIfNecessary() {
+        while (map.size() > maxTiles) {
+            K eldestKey = null;
+            Entry eldest = null;
+            for (Map.Entry<K, Entry> mapEntry : map.entrySet()) {
+                Entry entry = mapEntry.getValue();
+                if (entry.future.isDone() && (eldest == null || entry.lastAccess < eldest.lastAccess)) {
+                    eldestKey = mapEntry.getKey();
+                    eldest = entry;
+                }
+            }
+            // all tiles are still loading
+            if (eldest == null)
+                return;
+            if (map.remove(eldestKey, eldest)) {
+                evictions.incrementAndGet();
+                eldest.remove();
+            }
+        }
+    }
+
+    int size() {
+        return map.size();
+    }
+
+    long getEvictions() {
+        return evictions.get();
+    }
+
+    void clear() {
+        for (Map.Entry<K, Entry> mapEntry : map.entrySet()) {
+            if (map.remove(mapEntry.getKey(), mapEntry.getValue()))
+                mapEntry.getValue().remove();
+        }
+    }
+
+    private void waitFor(Entry entry) {
+        try {
+            entry.future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for elevation tile", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException)
+                throw (RuntimeException) ex.getCause();
+            throw new RuntimeException(ex.getCause());
+        }
+    }
+
+    private class Entry {
+        final FutureTask<HeightTile> future;
+        volatile long lastAccess;
+        volatile boolean removed;
+        // guards that the reference of the cache is dropped only once
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Entry(FutureTask<HeightTile> future) {
+            this.future = future;
+            this.lastAccess = clock.incrementAndGet();
+        }
+
+        void touch() {
+            if (lastAccess != clock.get())
+                lastAccess = clock.incrementAndGet();
+        }
+
+        /**
+         * @return the acquired tile or null if it failed to load or was already closed
+         */
+        HeightTile acquire() {
+            HeightTile tile = getTile();
+            if (tile == null || !tile.acquire())
+                return null;
+            touch();
+            return tile;
+        }
+
+        /**
+         * Marks the entry as removed from the map and drops the reference of the cache if the tile
+         * is loaded. Otherwise the loading thread drops it.
+         */
+        void remove() {
+            removed = true;
+            releaseOnce();
+        }
+
+        void releaseOnce() {
+            if (!future.isDone())
+                return;
+            HeightTile tile = getTile();
+            if (tile != null && released.compareAndSet(false, true))
+                tile.release();
+        }
+
+        private HeightTile getTile() {
+            try {
+                return future.get();
+            } catch (Exception ex) {
+                return null;
+            }
+        }
+    }
+}
@@ -82,6 +82,18 @@ public class MultiSourceElevationProvider implements ElevationProvider {
         globalProvider.setCalcMean(calcMean);
     }
 
+    @Override
+    public void setInterpolate(boolean interpolate) {
+        srtmProvider.setInterpolate(interpolate);
+        globalProvider.setInterpolate(interpolate);
+    }
+
+    @Override
+    public void setMaxCachedTiles(int maxCachedTiles) {
+        srtmProvider.setMaxCachedTiles(maxCachedTiles);
+        globalProvider.setMaxCachedTiles(maxCachedTiles);
+    }
+
     @Override
     public void release() {
         srtmProvider.release();
@@ -130,7 +130,15 @@ public abstract class AbstractRoutingAlgorithm implements RoutingAlgorithm {
         return getName() + "|" + weighting;
     }
 
+    /**
+     * @return true if the search has to stop as too many nodes were visited
+     * @throws IllegalStateException if the current thread was interrupted, e.g. as the request was
+     *                               cancelled, so that the thread does not stay busy until the
+     *                               search finishes
+     */
     protected boolean isMaxVisitedNodesExceeded() {
+        if (Thread.currentThread().isInterrupted())
+            throw new IllegalStateException("Route calculation was interrupted");
         return maxVisitedNodes < getVisitedNodes();
     }
 }
@@ -0,0 +1,232 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for 
+ *  additional information regarding copyright ownership.
+ * 
+ *  GraphHopper GmbH licenses this file to you under the Apache License, 
+ *  Version 2.0 (the "License"); you may not use this file except in 
+ *  compliance with the License. You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.coll.GHIntHashSet;
+import com.graphhopper.coll.GHIntObjectHashMap;
+import com.graphhopper.routing.util.DefaultEdgeFilter;
+import com.graphhopper.routing.util.FlagEncoder;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.SPTEntry;
+import com.graphhopper.storage.index.LocationIndex;
+import com.graphhopper.storage.index.QueryResult;
+
+import java.util.*;
+
+/**
+ * A set of facilities like warehouses or stations at nodes of the graph. For a query point it
+ * finds the k facilities with the lowest weight, e.g. the closest by drive time, with one
+ * Dijkstra search that stops as soon as k facilities are settled, instead of one route request
+ * per facility.
+ * <p>
+ * Facilities added by their location are snapped for every vehicle separately as the closest
+ * road of one vehicle could be inaccessible for another.
+ * <p>
+ * Add all facilities before the first query. Afterwards this class is thread safe.
+ */
+public class FacilityIndex {
+    private final Graph graph;
+    // facilities at the same node for all vehicles
+    private final GHIntObjectHashMap<List<String>> nodeToFacilities = new GHIntObjectHashMap<>();
+    private final Map<FlagEncoder, GHIntObjectHashMap<List<String>>> encoderNodeToFacilities = new HashMap<>();
+    private int size;
+
+    /**
+     * @param graph the base graph
+     */
+    public FacilityIndex(Graph graph) {
+        this.graph = graph;
+    }
+
+    public FacilityIndex add(String id, int node) {
+        if (node < 0 || node >= graph.getNodes())
+            throw new IllegalArgumentException("Node " + node + " of facility " + id + " does not exist");
+
+        addFacility(nodeToFacilities, id, node);
+        size++;
+        return this;
+    }
+
+    /**
+     * Adds the facility at the closest node of the specified location which is accessible for
+     * the vehicle, for each of the specified vehicles.
+     *
+     * @return false if there is no road close to the location for any of the vehicles
+     */
+    public boolean add(String id, double lat, double lon, LocationIndex locationIndex, Collection<FlagEncoder> encoders) {
+        boolean found = false;
+        for (FlagEncoder encoder : encoders) {
+            QueryResult qr = locationIndex.findClosest(lat, lon, new DefaultEdgeFilter(encoder));
+            if (!qr.isValid())
+                continue;
+
+            GHIntObjectHashMap<List<String>> facilities = encoderNodeToFacilities.get(encoder);
+            if (facilities == null) {
+                facilities = new GHIntObjectHashMap<>();
+                encoderNodeToFacilities.put(encoder, facilities);
+            }
+            addFacility(facilities, id, qr.getClosestNode());
+            found = true;
+        }
+        if (found)
+            size++;
+        return found;
+    }
+
+    private static void addFacility(GHIntObjectHashMap<List<String>> facilities, String id, int node) {
+        List<String> ids = facilities.get(node);
+        if (ids == null) {
+            ids = new ArrayList<>(1);
+            facilities.put(node, ids);
+        }
+        ids.add(id);
+    }
+
+    /**
+     * @return the facilities at the specified node for the vehicle or null if there are none
+     */
+    private List<String> getFacilities(int node, GHIntObjectHashMap<List<String>> encoderFacilities) {
+        List<String> ids = nodeToFacilities.get(node);
+        List<String> encoderIds = encoderFacilities == null ? null : encoderFacilities.get(node);
+        if (encoderIds == null)
+            return ids;
+        if (ids == null)
+            return encoderIds;
+
+        List<String> all = new ArrayList<>(ids.size() + encoderIds.size());
+        all.addAll(ids);
+        all.addAll(encoderIds);
+        return all;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Finds the k facilities which can be reached from the specified position with the lowest
+     * weight. Facilities that are not found within maxVisitedNodes are not returned.
+     *
+     * @param source the snapped query point, this method calls QueryGraph.lookup for it
+     * @return the facilities sorted by weight
+     */
+    public List<Facility> findNearest(QueryResult source, Weighting weighting, int k, int maxVisitedNodes) {
+        if (k < 1)
+            throw new IllegalArgumentException("At least one facility has to be requested but was " + k);
+
+        QueryGraph queryGraph = new QueryGraph(graph);
+        queryGraph.lookup(Collections.singletonList(source));
+        GHIntObjectHashMap<List<String>> encoderFacilities = encoderNodeToFacilities.get(weighting.getFlagEncoder());
+        FacilitySearch search = new FacilitySearch(queryGraph, weighting, k, encoderFacilities);
+        search.setMaxVisitedNodes(maxVisitedNodes);
+        search.calcPath(source.getClosestNode(), -1);
+
+        List<Facility> facilities = new ArrayList<>(k);
+        for (SPTEntry entry : search.settled) {
+            Path path = new Path(queryGraph, weighting).setWeight(entry.weight).setSPTEntry(entry).extract();
+            for (String id : getFacilities(entry.adjNode, encoderFacilities)) {
+                if (facilities.size() == k)
+                    break;
+                facilities.add(new Facility(id, entry.adjNode, path.getWeight(), path.getDistance(), path.getTime()));
+            }
+        }
+        return facilities;
+    }
+
+    public static class Facility {
+        private final String id;
+        private final int node;
+        private final double weight;
+        private final double distance;
+        private final long time;
+
+        Facility(String id, int node, double weight, double distance, long time) {
+            this.id = id;
+            this.node = node;
+            this.weight = weight;
+            this.distance = distance;
+            this.time = time;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public int getNode() {
+            return node;
+        }
+
+        public double getWeight() {
+            return weight;
+        }
+
+        /**
+         * @return the distance in meter from the query point
+         */
+        public double getDistance() {
+            return distance;
+        }
+
+        /**
+         * @return the time in milliseconds from the query point
+         */
+        public long getTime() {
+            return time;
+        }
+
+        @Override
+        public String toString() {
+            return id + ", node:" + node + ", distance:" + distance + ", time:" + time;
+        }
+    }
+
+    /**
+     * A Dijkstra without target that stops when k facilities are settled.
+     */
+    private class FacilitySearch extends Dijkstra {
+        final List<SPTEntry> settled = new ArrayList<>();
+        private final GHIntHashSet settledNodes = new GHIntHashSet();
+        private final int k;
+        private final GHIntObjectHashMap<List<String>> encoderFacilities;
+        private int found;
+
+        FacilitySearch(Graph graph, Weighting weighting, int k, GHIntObjectHashMap<List<String>> encoderFacilities) {
+            super(graph, weighting, TraversalMode.NODE_BASED);
+            this.k = k;
+            this.encoderFacilities = encoderFacilities;
+        }
+
+        @Override
+        protected boolean finished() {
+            int node = currEdge.adjNode;
+            List<String> ids = getFacilities(node, encoderFacilities);
+            if (ids != null && settledNodes.add(node)) {
+                settled.add(currEdge);
+                found += ids.size();
+            }
+            return found >= k;
+        }
+
+        @Override
+        protected Path extractPath() {
+            return createEmptyPath();
+        }
+    }
+}
@@ -34,6 +34,7 @@ import com.graphhopper.util.shapes.GHPoint;
  */
 public class InstructionsFromEdges implements Path.EdgeVisitor {
 
+    private final Graph graph;
     private final Weighting weighting;
     private final FlagEncoder encoder;
     private final NodeAccess nodeAccess;
@@ -74,10 +75,14 @@ public class InstructionsFromEdges implements Path.EdgeVisitor {
     private InstructionAnnotation prevAnnotation;
     private EdgeExplorer outEdgeExplorer;
     private EdgeExplorer crossingExplorer;
+    // The points of prevInstruction are collected here and copied into a list of the exact size
+    // when the next instruction starts. This avoids growing the list of every instruction.
+    private final PointList pendingPoints;
 
     private final int MAX_U_TURN_DISTANCE = 35;
 
     public InstructionsFromEdges(int tmpNode, Graph graph, Weighting weighting, FlagEncoder encoder, NodeAccess nodeAccess, Translation tr, InstructionList ways) {
+        this.graph = graph;
         this.weighting = weighting;
         this.encoder = encoder;
         this.nodeAccess = nodeAccess;
@@ -90,11 +95,20 @@ public class InstructionsFromEdges implements Path.EdgeVisitor {
         prevName = null;
         outEdgeExplorer = graph.createEdgeExplorer(new DefaultEdgeFilter(this.encoder, false, true));
         crossingExplorer = graph.createEdgeExplorer(new DefaultEdgeFilter(encoder, true, true));
+        pendingPoints = new PointList(20, nodeAccess.is3D());
     }
 
 
     @Override
     public void next(EdgeIteratorState edge, int index, int prevEdgeId) {
+        next(edge, index, prevEdgeId, edge.fetchWayGeometry(3));
+    }
+
+    /**
+     * Same as next(edge, index, prevEdgeId) but uses the already fetched geometry of the edge
+     * including its base and adjacent node.
+     */
+    public void next(EdgeIteratorState edge, int index, int prevEdgeId, PointList wayGeo) {
         // baseNode is the current node and adjNode is the next
         int adjNode = edge.getAdjNode();
         int baseNode = edge.getBaseNode();
@@ -103,7 +117,6 @@ public class InstructionsFromEdges implements Path.EdgeVisitor {
         double adjLon = nodeAccess.getLongitude(adjNode);
         double latitude, longitude;
 
-        PointList wayGeo = edge.fetchWayGeometry(3);
         boolean isRoundabout = encoder.isBool(flags, FlagEncoder.K_ROUNDABOUT);
 
         if (wayGeo.getSize() <= 2) {
@@ -122,12 +135,11 @@ public class InstructionsFromEdges implements Path.EdgeVisitor {
         if ((prevName == null) && (!isRoundabout)) // very first instruction (if not in Roundabout)
         {
             int sign = Instruction.CONTINUE_ON_STREET;
-            prevInstruction = new Instruction(sign, name, annotation, new PointList(10, nodeAccess.is3D()));
+            startInstruction(new Instruction(sign, name, annotation, PointList.EMPTY));
             double startLat = nodeAccess.getLat(baseNode);
             double startLon = nodeAccess.getLon(baseNode);
             double heading = Helper.ANGLE_CALC.calcAzimuth(startLat, startLon, latitude, longitude);
             prevInstruction.setExtraInfo("heading", Helper.round(heading, 2));
-            ways.add(prevInstruction);
             prevName = name;
             prevAnnotation = annotation;
 
@@ -137,7 +149,7 @@ public class InstructionsFromEdges implements Path.EdgeVisitor {
             {
                 int sign = Instruction.USE_ROUNDABOUT;
                 RoundaboutInstruction roundaboutInstruction = new RoundaboutInstruction(sign, name,
-                        annotation, new PointList(10, nodeAccess.is3D()));
+                        annotation, PointList.EMPTY);
                 prevInstructionPrevOrientation = prevOrientation;
                 if (prevName != null) {
                     // check if there is an exit at the same node the roundabout was entered
@@ -166,8 +178,7 @@ public class InstructionsFromEdges implements Path.EdgeVisitor {
                     prevName = name;
                     prevAnnotation = annotation;
                 }
-                prevInstruction = roundaboutInstruction;
-                ways.add(prevInstruction);
+                startInstruction(roundaboutInstruction);
             }
 
             // Add passed exits to instruction. A node is counted if there is at least one outgoing edge
@@ -252,11 +263,10 @@ public class InstructionsFromEdges implements Path.EdgeVisitor {
                     prevInstruction.setSign(uTurnType);
                     prevInstruction.setName(name);
                 } else {
-                    prevInstruction = new Instruction(sign, name, annotation, new PointList(10, nodeAccess.is3D()));
+                    startInstruction(new Instruction(sign, name, annotation, PointList.EMPTY));
                     // Remember the Orientation and name of the road, before doing this maneuver
                     prevInstructionPrevOrientation = prevOrientation;
                     prevInstructionName = prevName;
-                    ways.add(prevInstruction);
                     prevAnnotation = annotation;
                 }
             }
@@ -294,6 +304,7 @@ public class InstructionsFromEdges implements Path.EdgeVisitor {
 
         }
 
+        flushPendingPoints();
         Instruction finishInstruction = new FinishInstruction(nodeAccess, prevEdge.getAdjNode());
         // This is the heading how the edge ended
         finishInstruction.setExtraInfo("last_heading", Helper.ANGLE_CALC.calcAzimuth(doublePrevLat, doublePrevLon, prevLat, prevLon));
@@ -313,7 +324,7 @@ public class InstructionsFromEdges implements Path.EdgeVisitor {
             forceInstruction = true;
         }
 
-        InstructionsOutgoingEdges outgoingEdges = new InstructionsOutgoingEdges(prevEdge, edge, encoder, crossingExplorer, nodeAccess, prevNode, baseNode, adjNode);
+        InstructionsOutgoingEdges outgoingEdges = new InstructionsOutgoingEdges(prevEdge, edge, encoder, graph, crossingExplorer, nodeAccess, prevNode, baseNode, adjNode);
         int nrOfPossibleTurns = outgoingEdges.nrOfAllowedOutgoingEdges();
 
         // there is no other turn possible
@@ -411,11 +422,31 @@ public class InstructionsFromEdges implements Path.EdgeVisitor {
         return Instruction.IGNORE;
     }
 
+    /**
+     * Adds the specified instruction to the list and makes it the one the following points are
+     * added to. The points are set when the next instruction starts or in finish.
+     */
+    private void startInstruction(Instruction instruction) {
+        flushPendingPoints();
+        prevInstruction = instruction;
+        ways.add(instruction);
+    }
+
+    private void flushPendingPoints() {
+        if (prevInstruction == null)
+            return;
+
+        PointList points = new PointList(pendingPoints.size(), nodeAccess.is3D());
+        points.add(pendingPoints);
+        prevInstruction.setPoints(points);
+        pendingPoints.clear();
+    }
+
     private void updatePointsAndInstruction(EdgeIteratorState edge, PointList pl) {
         // skip adjNode
         int len = pl.size() - 1;
         for (int i = 0; i < len; i++) {
-            prevInstruction.getPoints().add(pl, i);
+            pendingPoints.add(pl, i);
         }
         double newDist = edge.getDistance();
         prevInstruction.setDistance(newDist + prevInstruction.getDistance());
@@ -19,6 +19,7 @@ package com.graphhopper.routing;
 
 import com.graphhopper.routing.util.DataFlagEncoder;
 import com.graphhopper.routing.util.FlagEncoder;
+import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.NodeAccess;
 import com.graphhopper.util.EdgeExplorer;
 import com.graphhopper.util.EdgeIterator;
@@ -26,6 +27,7 @@ import com.graphhopper.util.EdgeIteratorState;
 import com.graphhopper.util.shapes.GHPoint;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -59,18 +61,33 @@ class InstructionsOutgoingEdges {
     final EdgeIteratorState prevEdge;
     final EdgeIteratorState currentEdge;
 
-    // Outgoing edges that we would be allowed to turn on
-    final List<EdgeIteratorState> allowedOutgoingEdges;
+    // Outgoing edges that we would be allowed to turn on, created on first use
+    private List<EdgeIteratorState> allowedOutgoingEdges;
 
-    // All outgoing edges, including oneways in the wrong direction
-    final List<EdgeIteratorState> allOutgoingEdges;
+    // All outgoing edges, including oneways in the wrong direction, created on first use
+    private List<EdgeIteratorState> allOutgoingEdges;
+
+    // The summary of the junction collected in the only scan of the base node: id, adjacent node
+    // and flags in the direction from the base node of every outgoing edge
+    private int[] edgeIds = new int[4];
+    private int[] adjNodes = new int[4];
+    private long[] edgeFlags = new long[4];
+    private int allOutgoingCount;
+    private int allowedOutgoingCount;
 
     final FlagEncoder encoder;
     final NodeAccess nodeAccess;
+    private final Graph graph;
 
+    /**
+     * Collects the outgoing edges of the junction in one scan without creating objects. Most
+     * junctions of a route need nothing more than the counts and speeds, so the edges themselves
+     * are only fetched from the graph if their names or geometries are needed.
+     */
     public InstructionsOutgoingEdges(EdgeIteratorState prevEdge,
                                      EdgeIteratorState currentEdge,
                                      FlagEncoder encoder,
+                                     Graph graph,
                                      EdgeExplorer crossingExplorer,
                                      NodeAccess nodeAccess,
                                      int prevNode,
@@ -79,20 +96,42 @@ class InstructionsOutgoingEdges {
         this.prevEdge = prevEdge;
         this.currentEdge = currentEdge;
         this.encoder = encoder;
+        this.graph = graph;
         this.nodeAccess = nodeAccess;
 
-        EdgeIteratorState tmpEdge;
-
-        allOutgoingEdges = new ArrayList<>();
-        allowedOutgoingEdges = new ArrayList<>();
         EdgeIterator edgeIter = crossingExplorer.setBaseNode(baseNode);
         while (edgeIter.next()) {
             if (edgeIter.getAdjNode() != prevNode && edgeIter.getAdjNode() != adjNode) {
-                tmpEdge = edgeIter.detach(false);
-                allOutgoingEdges.add(tmpEdge);
-                if (encoder.isForward(tmpEdge.getFlags())) {
-                    allowedOutgoingEdges.add(tmpEdge);
+                if (allOutgoingCount == edgeIds.length) {
+                    edgeIds = Arrays.copyOf(edgeIds, allOutgoingCount * 2);
+                    adjNodes = Arrays.copyOf(adjNodes, allOutgoingCount * 2);
+                    edgeFlags = Arrays.copyOf(edgeFlags, allOutgoingCount * 2);
                 }
+                edgeIds[allOutgoingCount] = edgeIter.getEdge();
+                adjNodes[allOutgoingCount] = edgeIter.getAdjNode();
+                edgeFlags[allOutgoingCount] = edgeIter.getFlags();
+                allOutgoingCount++;
+                if (encoder.isForward(edgeIter.getFlags()))
+                    allowedOutgoingCount++;
+            }
+        }
+    }
+
+    /**
+     * Fetches the outgoing edges of the summary by their id, i.e. without another scan of the
+     * base node.
+     */
+    private void fetchOutgoingEdges() {
+        if (allOutgoingEdges != null)
+            return;
+
+        allOutgoingEdges = new ArrayList<>(allOutgoingCount);
+        allowedOutgoingEdges = new ArrayList<>(allowedOutgoingCount);
+        for (int i = 0; i < allOutgoingCount; i++) {
+            EdgeIteratorState tmpEdge = graph.getEdgeIteratorState(edgeIds[i], adjNodes[i]);
+            allOutgoingEdges.add(tmpEdge);
+            if (encoder.isForward(edgeFlags[i])) {
+                allowedOutgoingEdges.add(tmpEdge);
             }
         }
     }
@@ -102,7 +141,7 @@ class InstructionsOutgoingEdges {
      * roads one might take at the intersection. This excludes the road you are coming from and inaccessible roads.
      */
     public int nrOfAllowedOutgoingEdges() {
-        return 1 + allowedOutgoingEdges.size();
+        return 1 + allowedOutgoingCount;
     }
 
     /**
@@ -110,7 +149,7 @@ class InstructionsOutgoingEdges {
      * at the intersection. This excludes the road your are coming from.
      */
     public int nrOfAllOutgoingEdges() {
-        return 1 + allOutgoingEdges.size();
+        return 1 + allOutgoingCount;
     }
 
 
@@ -129,8 +168,12 @@ class InstructionsOutgoingEdges {
 
         double maxSurroundingSpeed = -1;
 
-        for (EdgeIteratorState edge : allOutgoingEdges) {
-            tmpSpeed = getSpeed(edge);
+        // the DataFlagEncoder needs the edge for the maxspeed, the others only its flags
+        boolean needsEdges = encoder instanceof DataFlagEncoder;
+        if (needsEdges)
+            fetchOutgoingEdges();
+        for (int i = 0; i < allOutgoingCount; i++) {
+            tmpSpeed = needsEdges ? getSpeed(allOutgoingEdges.get(i)) : encoder.getSpeed(edgeFlags[i]);
             if (tmpSpeed < 1) {
                 // This might happen for the DataFlagEncoder, might create unnecessary turn instructions
                 return false;
@@ -159,6 +202,7 @@ class InstructionsOutgoingEdges {
      */
     public EdgeIteratorState getOtherContinue(double prevLat, double prevLon, double prevOrientation) {
         int tmpSign;
+        fetchOutgoingEdges();
         for (EdgeIteratorState edge : allowedOutgoingEdges) {
             GHPoint point = InstructionsHelper.getPointForOrientationCalculation(edge, nodeAccess);
             tmpSign = InstructionsHelper.calculateSign(prevLat, prevLon, point.getLat(), point.getLon(), prevOrientation);
@@ -181,6 +225,7 @@ class InstructionsOutgoingEdges {
 
         // If flags are changing, there might be a chance we find these flags on a different edge
         boolean checkFlag = currentEdge.getFlags() != prevEdge.getFlags();
+        fetchOutgoingEdges();
         for (EdgeIteratorState edge : allowedOutgoingEdges) {
             String edgeName = edge.getName();
             long edgeFlag = edge.getFlags();
@@ -328,45 +328,25 @@ public class Path {
      * @return this path its geometry
      */
     public PointList calcPoints() {
-        final PointList points = new PointList(edgeIds.size() + 1, nodeAccess.is3D());
-        if (edgeIds.isEmpty()) {
-            if (isFound()) {
-                points.add(graph.getNodeAccess(), endNode);
-            }
-            return points;
-        }
-
-        int tmpNode = getFromNode();
-        points.add(nodeAccess, tmpNode);
-        forEveryEdge(new EdgeVisitor() {
-            @Override
-            public void next(EdgeIteratorState eb, int index, int prevEdgeId) {
-                PointList pl = eb.fetchWayGeometry(2);
-                for (int j = 0; j < pl.getSize(); j++) {
-                    points.add(pl, j);
-                }
-            }
-
-            @Override
-            public void finish() {
-
-            }
-        });
+        PointList points = createPointList();
+        calcPointsInstructionsAndDetails(points, null, null, Collections.<String>emptyList(), null, 0);
         return points;
     }
 
+    /**
+     * @return an empty PointList with the dimension of the graph which can be filled via
+     * calcPointsInstructionsAndDetails
+     */
+    public PointList createPointList() {
+        return new PointList(edgeIds.size() + 1, nodeAccess.is3D());
+    }
+
     /**
      * @return the list of instructions for this path.
      */
     public InstructionList calcInstructions(final Translation tr) {
-        final InstructionList ways = new InstructionList(edgeIds.size() / 4, tr);
-        if (edgeIds.isEmpty()) {
-            if (isFound()) {
-                ways.add(new FinishInstruction(nodeAccess, endNode));
-            }
-            return ways;
-        }
-        forEveryEdge(new InstructionsFromEdges(getFromNode(), graph, weighting, encoder, nodeAccess, tr, ways));
+        InstructionList ways = new InstructionList(edgeIds.size() / 4, tr);
+        calcPointsInstructionsAndDetails(null, ways, tr, Collections.<String>emptyList(), null, 0);
         return ways;
     }
 
@@ -377,13 +357,69 @@ public class Path {
      * @return List of PathDetails for this Path
      */
     public Map<String, List<PathDetail>> calcDetails(List<String> requestedPathDetails, PathDetailsBuilderFactory pathBuilderFactory, int previousIndex) {
-        if (!isFound() || requestedPathDetails.isEmpty())
-            return Collections.EMPTY_MAP;
-        List<PathDetailsBuilder> pathBuilders = pathBuilderFactory.createPathDetailsBuilders(requestedPathDetails, encoder, weighting);
-        if (pathBuilders.isEmpty())
-            return Collections.EMPTY_MAP;
+        return calcPointsInstructionsAndDetails(null, null, null, requestedPathDetails, pathBuilderFactory, previousIndex);
+    }
 
-        forEveryEdge(new PathDetailsFromEdges(pathBuilders, previousIndex));
+    /**
+     * Calculates the points, the instructions and the path details of this path in one iteration
+     * over the edges where the geometry of every edge is fetched only once. Only the requested
+     * parts are calculated, which is cheaper than calling calcPoints, calcInstructions and
+     * calcDetails one after the other.
+     *
+     * @param points       the list the points are added to or null if no points are requested
+     * @param instructions the list the instructions are added to or null if no instructions are
+     *                     requested
+     * @return the path details or an empty map if no details were requested
+     */
+    public Map<String, List<PathDetail>> calcPointsInstructionsAndDetails(final PointList points, InstructionList instructions, Translation tr,
+                                                                          List<String> requestedPathDetails, PathDetailsBuilderFactory pathBuilderFactory, int previousIndex) {
+        List<PathDetailsBuilder> pathBuilders = Collections.emptyList();
+        if (isFound() && !requestedPathDetails.isEmpty())
+            pathBuilders = pathBuilderFactory.createPathDetailsBuilders(requestedPathDetails, encoder, weighting);
+
+        if (edgeIds.isEmpty()) {
+            if (isFound()) {
+                if (points != null)
+                    points.add(nodeAccess, endNode);
+                if (instructions != null)
+                    instructions.add(new FinishInstruction(nodeAccess, endNode));
+            }
+        } else if (points != null) {
+            points.add(nodeAccess, getFromNode());
+        }
+
+        final InstructionsFromEdges instructionsVisitor = instructions == null || edgeIds.isEmpty() ? null
+                : new InstructionsFromEdges(getFromNode(), graph, weighting, encoder, nodeAccess, tr, instructions);
+        final PathDetailsFromEdges detailsVisitor = pathBuilders.isEmpty() ? null : new PathDetailsFromEdges(pathBuilders, previousIndex);
+        if (points != null || instructionsVisitor != null || detailsVisitor != null) {
+            forEveryEdge(new EdgeVisitor() {
+                @Override
+                public void next(EdgeIteratorState eb, int index, int prevEdgeId) {
+                    // includes the base node which is skipped for the points and the details
+                    PointList wayGeo = eb.fetchWayGeometry(3);
+                    if (points != null) {
+                        for (int j = 1; j < wayGeo.getSize(); j++) {
+                            points.add(wayGeo, j);
+                        }
+                    }
+                    if (instructionsVisitor != null)
+                        instructionsVisitor.next(eb, index, prevEdgeId, wayGeo);
+                    if (detailsVisitor != null)
+                        detailsVisitor.next(eb, wayGeo.getSize() - 1);
+                }
+
+                @Override
+                public void finish() {
+                    if (instructionsVisitor != null)
+                        instructionsVisitor.finish();
+                    if (detailsVisitor != null)
+                        detailsVisitor.finish();
+                }
+            });
+        }
+
+        if (pathBuilders.isEmpty())
+            return Collections.emptyMap();
 
         Map<String, List<PathDetail>> pathDetails = new HashMap<>(pathBuilders.size());
         for (PathDetailsBuilder builder : pathBuilders) {
@@ -18,9 +18,7 @@
 package com.graphhopper.routing;
 
 import com.carrotsearch.hppc.IntArrayList;
-import com.carrotsearch.hppc.IntObjectMap;
 import com.carrotsearch.hppc.predicates.IntObjectPredicate;
-import com.carrotsearch.hppc.procedures.IntProcedure;
 import com.graphhopper.coll.GHIntHashSet;
 import com.graphhopper.coll.GHIntObjectHashMap;
 import com.graphhopper.routing.util.AllEdgesIterator;
@@ -66,6 +64,11 @@ public class QueryGraph implements Graph {
     // For every virtual node there are 4 edges: base-snap, snap-base, snap-adj, adj-snap.
     List<VirtualEdgeIteratorState> virtualEdges;
     private List<QueryResult> queryResults;
+    /**
+     * Sorted ids of the tower nodes which are adjacent to at least one virtual node. Only for these
+     * nodes the explorer has to create a modified edge list.
+     */
+    private int[] towerNodes;
     /**
      * Store lat,lon of virtual tower nodes.
      */
@@ -357,6 +360,19 @@ public class QueryGraph implements Graph {
                 return true;
             }
         });
+
+        GHIntHashSet towerNodeSet = new GHIntHashSet(queryResults.size() * 2);
+        for (int i = 0; i < queryResults.size(); i++) {
+            int baseNode = virtualEdges.get(i * 4 + VE_BASE_REV).getAdjNode();
+            if (!isVirtualNode(baseNode))
+                towerNodeSet.add(baseNode);
+            int adjNode = virtualEdges.get(i * 4 + VE_ADJ).getAdjNode();
+            if (!isVirtualNode(adjNode))
+                towerNodeSet.add(adjNode);
+        }
+        towerNodes = towerNodeSet.toArray();
+        Arrays.sort(towerNodes);
+        baseGraph.towerNodes = towerNodes;
     }
 
     @Override
@@ -604,14 +620,11 @@ public class QueryGraph implements Graph {
 
     private EdgeExplorer createUncachedEdgeExplorer(EdgeFilter edgeFilter) {
         // Iteration over virtual nodes needs to be thread safe if done from different explorer
-        // so we need to create the mapping on EVERY call!
-        // This needs to be a HashMap (and cannot be an array) as we also need to tweak edges for some mainNodes!
-        // The more query points we have the more inefficient this map could be. Hmmh.
-        final IntObjectMap<VirtualEdgeIterator> node2EdgeMap
-                = new GHIntObjectHashMap<VirtualEdgeIterator>(queryResults.size() * 3);
-
+        // so we need to create the iterators on EVERY call! Virtual nodes are indexed by their
+        // offset to mainNodes and the modified tower nodes by their position in towerNodes.
+        final VirtualEdgeIterator[] virtualNodeIters = new VirtualEdgeIterator[queryResults.size()];
+        final VirtualEdgeIterator[] towerNodeIters = new VirtualEdgeIterator[towerNodes.length];
         final EdgeExplorer mainExplorer = mainGraph.createEdgeExplorer(edgeFilter);
-        final GHIntHashSet towerNodesToChange = new GHIntHashSet(queryResults.size());
 
         // 1. virtualEdges should also get fresh EdgeIterators on every createEdgeExplorer call!
         for (int i = 0; i < queryResults.size(); i++) {
@@ -624,58 +637,64 @@ public class QueryGraph implements Graph {
             if (edgeFilter.accept(adjEdge))
                 virtEdgeIter.add(adjEdge);
 
-            int virtNode = mainNodes + i;
-            node2EdgeMap.put(virtNode, virtEdgeIter);
+            virtualNodeIters[i] = virtEdgeIter;
 
             // replace edge list of neighboring tower nodes:
-            // add virtual edges only and collect tower nodes where real edges will be added in step 2.
+            // add virtual edges only, the real edges will be added in step 2.
             //
             // base node
             int towerNode = baseRevEdge.getAdjNode();
-            if (!isVirtualNode(towerNode)) {
-                towerNodesToChange.add(towerNode);
-                addVirtualEdges(node2EdgeMap, edgeFilter, true, towerNode, i);
-            }
+            if (!isVirtualNode(towerNode))
+                addVirtualEdges(towerNodeIters, edgeFilter, true, towerNode, i);
 
             // adj node
             towerNode = adjEdge.getAdjNode();
-            if (!isVirtualNode(towerNode)) {
-                towerNodesToChange.add(towerNode);
-                addVirtualEdges(node2EdgeMap, edgeFilter, false, towerNode, i);
-            }
+            if (!isVirtualNode(towerNode))
+                addVirtualEdges(towerNodeIters, edgeFilter, false, towerNode, i);
         }
 
         // 2. the connected tower nodes from mainGraph need fresh EdgeIterators with possible fakes
         // where 'fresh' means independent of previous call and respecting the edgeFilter
-        // -> setup fake iterators of detected tower nodes (virtual edges are already added)
-        towerNodesToChange.forEach(new IntProcedure() {
-            @Override
-            public void apply(int value) {
-                fillVirtualEdges(node2EdgeMap, value, mainExplorer);
-            }
-        });
+        for (int i = 0; i < towerNodes.length; i++) {
+            fillVirtualEdges(towerNodeIters[i], towerNodes[i], mainExplorer);
+        }
 
         return new EdgeExplorer() {
             @Override
             public EdgeIterator setBaseNode(int baseNode) {
-                VirtualEdgeIterator iter = node2EdgeMap.get(baseNode);
-                if (iter != null)
-                    return iter.reset();
+                if (isVirtualNode(baseNode))
+                    return virtualNodeIters[baseNode - mainNodes].reset();
+
+                int index = getTowerNodeIndex(baseNode);
+                if (index >= 0)
+                    return towerNodeIters[index].reset();
 
                 return mainExplorer.setBaseNode(baseNode);
             }
         };
     }
 
+    /**
+     * @return the position of the specified node in towerNodes or a negative value if no virtual
+     * node is adjacent to it. The range check makes this cheap for most nodes of the main graph.
+     */
+    private int getTowerNodeIndex(int node) {
+        int length = towerNodes.length;
+        if (length == 0 || node < towerNodes[0] || node > towerNodes[length - 1])
+            return -1;
+        return Arrays.binarySearch(towerNodes, node);
+    }
+
     /**
      * Creates a fake edge iterator pointing to multiple edge states.
      */
-    private void addVirtualEdges(IntObjectMap<VirtualEdgeIterator> node2EdgeMap, EdgeFilter filter, boolean base,
+    private void addVirtualEdges(VirtualEdgeIterator[] towerNodeIters, EdgeFilter filter, boolean base,
                                  int node, int virtNode) {
-        VirtualEdgeIterator existingIter = node2EdgeMap.get(node);
+        int index = getTowerNodeIndex(node);
+        VirtualEdgeIterator existingIter = towerNodeIters[index];
         if (existingIter == null) {
             existingIter = new VirtualEdgeIterator(10);
-            node2EdgeMap.put(node, existingIter);
+            towerNodeIters[index] = existingIter;
         }
         EdgeIteratorState edge = base
                 ? virtualEdges.get(virtNode * 4 + VE_BASE)
@@ -684,11 +703,10 @@ public class QueryGraph implements Graph {
             existingIter.add(edge);
     }
 
-    void fillVirtualEdges(IntObjectMap<VirtualEdgeIterator> node2Edge, int towerNode, EdgeExplorer mainExpl) {
+    void fillVirtualEdges(VirtualEdgeIterator vIter, int towerNode, EdgeExplorer mainExpl) {
         if (isVirtualNode(towerNode))
-            throw new IllegalStateException("Node should not be virtual:" + towerNode + ", " + node2Edge);
+            throw new IllegalStateException("Node should not be virtual:" + towerNode + ", " + vIter);
 
-        VirtualEdgeIterator vIter = node2Edge.get(towerNode);
         IntArrayList ignoreEdges = new IntArrayList(vIter.count() * 2);
         while (vIter.next()) {
             EdgeIteratorState edge = queryResults.get(vIter.getAdjNode() - mainNodes).getClosestEdge();
@@ -0,0 +1,199 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.GHRequest;
+import com.graphhopper.GHResponse;
+import com.graphhopper.PathWrapper;
+import com.graphhopper.storage.index.QueryResult;
+import com.graphhopper.util.PMap;
+import com.graphhopper.util.Parameters;
+import com.graphhopper.util.shapes.GHPoint3D;
+
+import java.util.*;
+
+/**
+ * A bounded cache of route responses. The key is created from the snapped positions of the
+ * request points and from the parameters that influence the route. This way requests with slightly
+ * different coordinates but identical snapping share the same entry.
+ * <p>
+ * Entries are evicted in least recently used order if the cache is full and are ignored after they
+ * expired. The cached PathWrapper objects are shared between responses and must not be modified.
+ * The cache has to be cleared whenever the graph changes, see GraphHopper.changeGraph.
+ * <p>
+ * This class is thread safe.
+ */
+public class RouteCache {
+    /**
+     * Hints which only influence the rendering of the response and not the route itself
+     */
+    private static final Set<String> IGNORED_HINTS = new HashSet<>(Arrays.asList(
+            "point", "type", "key", "callback", "locale", "elevation", "points_encoded", "millis", "trackname",
+            "gpx.route", "gpx.track", "gpx.waypoints", "heading", "vehicle",
+            Parameters.Routing.POINT_HINT, Parameters.DETAILS.PATH_DETAILS));
+    private final int maxEntries;
+    private final long expireMillis;
+    private final LinkedHashMap<String, Entry> map;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param maxEntries   the maximum number of cached responses
+     * @param expireMillis the maximum age of an entry in milliseconds. Use Long.MAX_VALUE to keep
+     *                     entries until they are evicted
+     */
+    public RouteCache(int maxEntries, long expireMillis) {
+        if (maxEntries <= 0)
+            throw new IllegalArgumentException("maxEntries has to be positive but was " + maxEntries);
+        if (expireMillis <= 0)
+            throw new IllegalArgumentException("expireMillis has to be positive but was " + expireMillis);
+
+        this.maxEntries = maxEntries;
+        this.expireMillis = expireMillis;
+        this.map = new LinkedHashMap<String, Entry>(Math.min(maxEntries, 1024), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > RouteCache.this.maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Creates the key for the specified request. Call this method before QueryGraph.lookup as this
+     * modifies the QueryResults.
+     */
+    public String createKey(GHRequest request, List<QueryResult> queryResults) {
+        StringBuilder sb = new StringBuilder(64 + queryResults.size() * 48);
+        sb.append(request.getVehicle()).append('|').append(request.getAlgorithm()).
+                append('|').append(request.getLocale()).
+                append('|').append(request.getPathDetails());
+        // sort to make the key independent of the insertion order
+        TreeMap<String, String> sortedHints = new TreeMap<>(request.getHints().toMap());
+        for (Map.Entry<String, String> e : sortedHints.entrySet()) {
+            if (IGNORED_HINTS.contains(e.getKey()))
+                continue;
+            sb.append('|').append(e.getKey()).append('=').append(e.getValue());
+        }
+
+        for (int i = 0; i < queryResults.size(); i++) {
+            QueryResult qr = queryResults.get(i);
+            sb.append('|');
+            if (request.hasFavoredHeading(i))
+                sb.append(request.getFavoredHeading(i)).append('@');
+
+            if (qr.getSnappedPosition() == QueryResult.Position.TOWER) {
+                sb.append('t').append(qr.getClosestNode());
+            } else {
+                GHPoint3D snapped = qr.getSnappedPoint();
+                sb.append('e').append(qr.getClosestEdge().getEdge()).
+                        append(',').append(qr.getWayIndex()).
+                        append(',').append(qr.getSnappedPosition().ordinal()).
+                        append(',').append(snapped.lat).
+                        append(',').append(snapped.lon);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Fills the specified response from the cache.
+     *
+     * @return true if a valid entry was found
+     */
+    public synchronized boolean fill(String key, GHResponse rsp) {
+        Entry entry = map.get(key);
+        if (entry != null && System.currentTimeMillis() - entry.created > expireMillis) {
+            map.remove(key);
+            evictions++;
+            entry = null;
+        }
+
+        if (entry == null) {
+            misses++;
+            return false;
+        }
+
+        hits++;
+        for (PathWrapper pw : entry.paths) {
+            rsp.add(pw);
+        }
+        rsp.getHints().put(entry.hints);
+        return true;
+    }
+
+    /**
+     * Stores the paths and hints of the specified response. Erroneous responses are not cached.
+     */
+    public synchronized void put(String key, GHResponse rsp) {
+        if (rsp.hasErrors() || rsp.getAll().isEmpty())
+            return;
+
+        map.put(key, new Entry(new ArrayList<>(rsp.getAll()), new PMap(rsp.getHints()), System.currentTimeMillis()));
+    }
+
+    /**
+     * Removes all entries. The statistics are not reset.
+     */
+    public synchronized void clear() {
+        evictions += map.size();
+        map.clear();
+    }
+
+    public synchronized int getSize() {
+        return map.size();
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "size:" + map.size() + "/" + maxEntries + ", hits:" + hits + ", misses:" + misses
+                + ", evictions:" + evictions;
+    }
+
+    private static class Entry {
+        final List<PathWrapper> paths;
+        final PMap hints;
+        final long created;
+
+        Entry(List<PathWrapper> paths, PMap hints, long created) {
+            this.paths = paths;
+            this.hints = hints;
+            this.created = created;
+        }
+    }
+}
@@ -280,27 +280,47 @@ public class CHAlgoFactoryDecorator implements RoutingAlgorithmFactoryDecorator
     }
 
     public void prepare(final StorableProperties properties) {
+        prepare(properties, false);
+    }
+
+    /**
+     * Prepares all weightings which are not yet prepared according to the specified properties.
+     *
+     * @param storeEachPreparation if true the shortcuts and the properties are stored as soon as a
+     *                             weighting is prepared so that an interrupted import can skip it
+     */
+    public void prepare(final StorableProperties properties, final boolean storeEachPreparation) {
         ExecutorCompletionService completionService = new ExecutorCompletionService<>(threadPool);
         int counter = 0;
+        int submitted = 0;
         for (final PrepareContractionHierarchies prepare : getPreparations()) {
-            LOGGER.info((++counter) + "/" + getPreparations().size() + " calling CH prepare.doWork for " + prepare.getWeighting() + " ... (" + getMemInfo() + ")");
             final String name = AbstractWeighting.weightingToFileName(prepare.getWeighting());
+            if (!properties.get(CH.PREPARE + "date." + name).isEmpty()) {
+                LOGGER.info((++counter) + "/" + getPreparations().size() + " CH for " + prepare.getWeighting() + " is already prepared");
+                continue;
+            }
+
+            LOGGER.info((++counter) + "/" + getPreparations().size() + " calling CH prepare.doWork for " + prepare.getWeighting() + " ... (" + getMemInfo() + ")");
             completionService.submit(new Runnable() {
                 @Override
                 public void run() {
                     // toString is not taken into account so we need to cheat, see http://stackoverflow.com/q/6113746/194609 for other options
                     Thread.currentThread().setName(name);
                     prepare.doWork();
+                    if (storeEachPreparation)
+                        prepare.flush();
                     properties.put(CH.PREPARE + "date." + name, createFormatter().format(new Date()));
+                    if (storeEachPreparation)
+                        properties.flush();
                 }
             }, name);
-
+            submitted++;
         }
 
         threadPool.shutdown();
 
         try {
-            for (int i = 0; i < getPreparations().size(); i++) {
+            for (int i = 0; i < submitted; i++) {
                 completionService.take().get();
             }
         } catch (Exception e) {
@@ -167,6 +167,13 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation imple
         contractNodes();
     }
 
+    /**
+     * Stores the shortcuts of this preparation without the other graphs.
+     */
+    public void flush() {
+        ghStorage.flushCHGraph(weighting);
+    }
+
     @Override
     public RoutingAlgorithm createAlgo(Graph graph, AlgorithmOptions opts) {
         AbstractBidirAlgo algo;
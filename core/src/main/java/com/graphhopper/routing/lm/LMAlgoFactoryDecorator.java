@@ -264,13 +264,21 @@ public class LMAlgoFactoryDecorator implements RoutingAlgorithmFactoryDecorator
         }
     }
 
+    public boolean loadOrDoWork(final StorableProperties properties) {
+        return loadOrDoWork(properties, false);
+    }
+
     /**
      * This method calculates the landmark data for all weightings (optionally in parallel) or if already existent loads it.
+     * The landmark data is only loaded if its preparation date is recorded in the properties, as it could be incomplete
+     * otherwise.
      *
+     * @param storeEachPreparation if true the properties are stored as soon as the landmark data of a weighting is
+     *                             stored so that an interrupted import can skip it
      * @return true if the preparation data for at least one weighting was calculated.
-     * @see com.graphhopper.routing.ch.CHAlgoFactoryDecorator#prepare(StorableProperties) for a very similar method
+     * @see com.graphhopper.routing.ch.CHAlgoFactoryDecorator#prepare(StorableProperties, boolean) for a very similar method
      */
-    public boolean loadOrDoWork(final StorableProperties properties) {
+    public boolean loadOrDoWork(final StorableProperties properties, final boolean storeEachPreparation) {
         ExecutorCompletionService completionService = new ExecutorCompletionService<>(threadPool);
         int counter = 0;
         final AtomicBoolean prepared = new AtomicBoolean(false);
@@ -281,14 +289,17 @@ public class LMAlgoFactoryDecorator implements RoutingAlgorithmFactoryDecorator
             completionService.submit(new Runnable() {
                 @Override
                 public void run() {
-                    if (plm.loadExisting())
+                    if (!properties.get(Landmark.PREPARE + "date." + name).isEmpty() && plm.loadExisting())
                         return;
 
                     LOGGER.info(tmpCounter + "/" + getPreparations().size() + " calling LM prepare.doWork for " + plm.getWeighting() + " ... (" + getMemInfo() + ")");
                     prepared.set(true);
                     Thread.currentThread().setName(name);
+                    // flushes the landmark data
                     plm.doWork();
                     properties.put(Landmark.PREPARE + "date." + name, createFormatter().format(new Date()));
+                    if (storeEachPreparation)
+                        properties.flush();
                 }
             }, name);
         }
@@ -31,6 +31,7 @@ import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -38,6 +39,9 @@ import java.util.concurrent.atomic.AtomicInteger;
  * also small subnetworks which could be bugs in OSM data or indicate otherwise disconnected areas
  * e.g. via barriers or one way problems - see #86.
  * <p>
+ * The encoders are analyzed independently as every encoder only reads its own access bits. With
+ * more than one thread the edges to disable are collected per encoder and applied at the end.
+ * <p>
  *
  * @author Peter Karich
  */
@@ -49,6 +53,7 @@ public class PrepareRoutingSubnetworks {
     private int minNetworkSize = 200;
     private int minOneWayNetworkSize = 0;
     private int subnetworks = -1;
+    private int threads = 1;
 
     public PrepareRoutingSubnetworks(GraphHopperStorage ghStorage, List<FlagEncoder> encoders) {
         this.ghStorage = ghStorage;
@@ -65,24 +70,51 @@ public class PrepareRoutingSubnetworks {
         return this;
     }
 
+    /**
+     * Analyzes the specified number of encoders in parallel. Every thread needs the memory for the
+     * components of one encoder, so only increase this if there is enough RAM.
+     */
+    public PrepareRoutingSubnetworks setThreads(int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("threads has to be positive but was " + threads);
+        this.threads = threads;
+        return this;
+    }
+
     public void doWork() {
         if (minNetworkSize <= 0 && minOneWayNetworkSize <= 0)
             return;
 
-        logger.info("start finding subnetworks (min:" + minNetworkSize + ", min one way:" + minOneWayNetworkSize + ") " + Helper.getMemInfo());
-        int unvisitedDeadEnds = 0;
+        logger.info("start finding subnetworks (min:" + minNetworkSize + ", min one way:" + minOneWayNetworkSize
+                + ", threads:" + threads + ") " + Helper.getMemInfo());
+        final AtomicInteger unvisitedDeadEnds = new AtomicInteger(0);
+        final List<PrepEdgeFilter> filters = new ArrayList<>(encoders.size());
+        List<Callable<Integer>> callables = new ArrayList<>(encoders.size());
         for (FlagEncoder encoder : encoders) {
-            // mark edges for one vehicle as inaccessible
-            PrepEdgeFilter filter = new PrepEdgeFilter(encoder);
-            if (minOneWayNetworkSize > 0)
-                unvisitedDeadEnds += removeDeadEndUnvisitedNetworks(filter);
-
-            List<IntArrayList> components = findSubnetworks(filter);
-            keepLargeNetworks(filter, components);
-            subnetworks = Math.max(components.size(), subnetworks);
-            logger.info(components.size() + " subnetworks found for " + encoder + ", " + Helper.getMemInfo());
+            // the graph is only read while analyzing and the edges are disabled for all encoders at the end
+            final PrepEdgeFilter filter = new PrepEdgeFilter(encoder, new GHBitSetImpl(ghStorage.getAllEdges().length()));
+            filters.add(filter);
+            callables.add(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    if (minOneWayNetworkSize > 0)
+                        unvisitedDeadEnds.addAndGet(removeDeadEndUnvisitedNetworks(filter));
+
+                    List<IntArrayList> components = findSubnetworks(filter);
+                    keepLargeNetworks(filter, components);
+                    logger.info(components.size() + " subnetworks found for " + filter.getEncoder() + ", " + Helper.getMemInfo());
+                    return components.size();
+                }
+            });
         }
 
+        for (int count : invokeAll(callables)) {
+            subnetworks = Math.max(count, subnetworks);
+        }
+
+        for (PrepEdgeFilter filter : filters) {
+            filter.applyDisabledEdges(ghStorage);
+        }
         markNodesRemovedIfUnreachable();
 
         logger.info("optimize to remove subnetworks (" + subnetworks + "), "
@@ -91,6 +123,37 @@ public class PrepareRoutingSubnetworks {
         ghStorage.optimize();
     }
 
+    private List<Integer> invokeAll(List<Callable<Integer>> callables) {
+        List<Integer> results = new ArrayList<>(callables.size());
+        if (threads == 1 || callables.size() == 1) {
+            for (Callable<Integer> callable : callables) {
+                try {
+                    results.add(callable.call());
+                } catch (Exception ex) {
+                    throw ex instanceof RuntimeException ? (RuntimeException) ex : new RuntimeException(ex);
+                }
+            }
+            return results;
+        }
+
+        ExecutorService service = Executors.newFixedThreadPool(Math.min(threads, callables.size()));
+        try {
+            for (Future<Integer> future : service.invokeAll(callables)) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException)
+                throw (RuntimeException) ex.getCause();
+            throw new RuntimeException(ex.getCause());
+        } finally {
+            service.shutdownNow();
+        }
+    }
+
     public int getMaxSubnetworks() {
         return subnetworks;
     }
@@ -120,8 +183,11 @@ public class PrepareRoutingSubnetworks {
 
                 @Override
                 protected final boolean goFurther(int nodeId) {
-                    if (tmpCounter > maxEdgesPerNode.get())
-                        maxEdgesPerNode.set(tmpCounter);
+                    int max;
+                    while (tmpCounter > (max = maxEdgesPerNode.get())) {
+                        if (maxEdgesPerNode.compareAndSet(max, tmpCounter))
+                            break;
+                    }
 
                     tmpCounter = 0;
                     intList.add(nodeId);
@@ -153,7 +219,6 @@ public class PrepareRoutingSubnetworks {
         int maxCount = -1;
         IntIndexedContainer oldComponent = null;
         int allRemoved = 0;
-        FlagEncoder encoder = filter.getEncoder();
         EdgeExplorer explorer = ghStorage.createEdgeExplorer(filter);
         for (IntArrayList component : components) {
             if (maxCount < 0) {
@@ -165,12 +230,12 @@ public class PrepareRoutingSubnetworks {
             int removedEdges;
             if (maxCount < component.size()) {
                 // new biggest area found. remove old
-                removedEdges = removeEdges(explorer, encoder, oldComponent, minNetworkSize);
+                removedEdges = removeEdges(explorer, filter, oldComponent, minNetworkSize);
 
                 maxCount = component.size();
                 oldComponent = component;
             } else {
-                removedEdges = removeEdges(explorer, encoder, component, minNetworkSize);
+                removedEdges = removeEdges(explorer, filter, component, minNetworkSize);
             }
 
             allRemoved += removedEdges;
@@ -205,7 +270,13 @@ public class PrepareRoutingSubnetworks {
      */
     int removeDeadEndUnvisitedNetworks(final PrepEdgeFilter bothFilter) {
         StopWatch sw = new StopWatch(bothFilter.getEncoder() + " findComponents").start();
-        final EdgeFilter outFilter = new DefaultEdgeFilter(bothFilter.getEncoder(), false, true);
+        final EdgeFilter forwardFilter = new DefaultEdgeFilter(bothFilter.getEncoder(), false, true);
+        final EdgeFilter outFilter = new EdgeFilter() {
+            @Override
+            public boolean accept(EdgeIteratorState edgeState) {
+                return forwardFilter.accept(edgeState) && bothFilter.accept(edgeState);
+            }
+        };
 
         // partition graph into strongly connected components using Tarjan's algorithm        
         TarjansSCCAlgorithm tarjan = new TarjansSCCAlgorithm(ghStorage, outFilter, true);
@@ -224,22 +295,21 @@ public class PrepareRoutingSubnetworks {
      */
     int removeEdges(final PrepEdgeFilter bothFilter, List<IntArrayList> components, int min) {
         // remove edges determined from nodes but only if less than minimum size
-        FlagEncoder encoder = bothFilter.getEncoder();
         EdgeExplorer explorer = ghStorage.createEdgeExplorer(bothFilter);
         int removedEdges = 0;
         for (IntArrayList component : components) {
-            removedEdges += removeEdges(explorer, encoder, component, min);
+            removedEdges += removeEdges(explorer, bothFilter, component, min);
         }
         return removedEdges;
     }
 
-    int removeEdges(EdgeExplorer explorer, FlagEncoder encoder, IntIndexedContainer component, int min) {
+    int removeEdges(EdgeExplorer explorer, PrepEdgeFilter filter, IntIndexedContainer component, int min) {
         int removedEdges = 0;
         if (component.size() < min) {
             for (int i = 0; i < component.size(); i++) {
                 EdgeIterator edge = explorer.setBaseNode(component.get(i));
                 while (edge.next()) {
-                    edge.setFlags(encoder.setAccess(edge.getFlags(), false, false));
+                    filter.disable(edge);
                     removedEdges++;
                 }
             }
@@ -283,13 +353,48 @@ public class PrepareRoutingSubnetworks {
         return true;
     }
 
-    static class PrepEdgeFilter extends DefaultEdgeFilter {
-
-        FlagEncoder encoder;
+    static class PrepEdgeFilter implements EdgeFilter {
+        private final FlagEncoder encoder;
+        private final EdgeFilter accessFilter;
+        // the edges disabled for this encoder which are not yet written to the graph
+        private final GHBitSet disabledEdges;
 
         public PrepEdgeFilter(FlagEncoder encoder) {
-            super(encoder);
+            this(encoder, null);
+        }
+
+        /**
+         * @param disabledEdges if not null the access of disabled edges is not changed until
+         *                      applyDisabledEdges is called
+         */
+        PrepEdgeFilter(FlagEncoder encoder, GHBitSet disabledEdges) {
             this.encoder = encoder;
+            this.accessFilter = new DefaultEdgeFilter(encoder);
+            this.disabledEdges = disabledEdges;
+        }
+
+        @Override
+        public boolean accept(EdgeIteratorState edgeState) {
+            return accessFilter.accept(edgeState)
+                    && (disabledEdges == null || !disabledEdges.contains(edgeState.getEdge()));
+        }
+
+        void disable(EdgeIteratorState edge) {
+            if (disabledEdges == null)
+                edge.setFlags(encoder.setAccess(edge.getFlags(), false, false));
+            else
+                disabledEdges.add(edge.getEdge());
+        }
+
+        void applyDisabledEdges(GraphHopperStorage graph) {
+            if (disabledEdges == null)
+                return;
+
+            for (int edge = disabledEdges.next(0); edge >= 0; edge = disabledEdges.next(edge + 1)) {
+                EdgeIteratorState edgeState = graph.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+                edgeState.setFlags(encoder.setAccess(edgeState.getFlags(), false, false));
+            }
+            disabledEdges.clear();
         }
 
         public FlagEncoder getEncoder() {
@@ -28,7 +28,6 @@ import com.graphhopper.util.EdgeIterator;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Stack;
 
 /**
  * Implementation of Tarjan's algorithm using an explicit stack. The traditional recursive approach
@@ -39,15 +38,18 @@ import java.util.Stack;
  * http://www.timl.id.au/?p=327 and http://homepages.ecs.vuw.ac.nz/~djp/files/P05.pdf
  */
 public class TarjansSCCAlgorithm {
+    private static final int NO_EDGE = -1;
     private final ArrayList<IntArrayList> components = new ArrayList<IntArrayList>();
     // TODO use just the Graph interface here
     private final GraphHopperStorage graph;
     private final IntArrayDeque nodeStack;
+    // pairs of node and resume edge, avoids an object per state
+    private final IntArrayDeque stateStack = new IntArrayDeque();
     private final GHBitSet onStack;
     private final GHBitSet ignoreSet;
     private final int[] nodeIndex;
     private final int[] nodeLowLink;
-    private final EdgeFilter edgeFilter;
+    private final EdgeExplorer explorer;
     private int index = 1;
 
     public TarjansSCCAlgorithm(GraphHopperStorage ghStorage, final EdgeFilter edgeFilter, boolean ignoreSingleEntries) {
@@ -56,13 +58,12 @@ public class TarjansSCCAlgorithm {
         this.onStack = new GHBitSetImpl(ghStorage.getNodes());
         this.nodeIndex = new int[ghStorage.getNodes()];
         this.nodeLowLink = new int[ghStorage.getNodes()];
-        this.edgeFilter = edgeFilter;
+        this.explorer = ghStorage.createEdgeExplorer(edgeFilter);
 
         if (ignoreSingleEntries) {
             // Very important case to boost performance - see #520. Exclude single entry components as we don't need them! 
             // But they'll be created a lot for multiple vehicles because many nodes e.g. for foot are not accessible at all for car.
             // We can ignore these single entry components as they are already set 'not accessible'
-            EdgeExplorer explorer = ghStorage.createEdgeExplorer(edgeFilter);
             int nodes = ghStorage.getNodes();
             ignoreSet = new GHBitSetImpl(ghStorage.getNodes());
             for (int start = 0; start < nodes; start++) {
@@ -103,18 +104,20 @@ public class TarjansSCCAlgorithm {
      * @param firstNode start search of SCC at this node
      */
     private void strongConnect(int firstNode) {
-        final Stack<TarjanState> stateStack = new Stack<TarjanState>();
-        stateStack.push(TarjanState.startState(firstNode));
+        // every state is a pair of the node and the edge where the iteration over its children has to be resumed.
+        // An edge of NO_EDGE marks the start state of a node
+        stateStack.clear();
+        pushState(firstNode, NO_EDGE);
 
         // nextState label is equivalent to the function entry point in the recursive Tarjan's algorithm.
         nextState:
 
-        while (!stateStack.empty()) {
-            TarjanState state = stateStack.pop();
-            final int start = state.start;
-            final EdgeIterator iter;
+        while (!stateStack.isEmpty()) {
+            final int lastEdge = stateStack.removeLast();
+            final int start = stateStack.removeLast();
+            final EdgeIterator iter = explorer.setBaseNode(start);
 
-            if (state.isStart()) {
+            if (lastEdge == NO_EDGE) {
                 // We're traversing a new node 'start'.  Set the depth index for this node to the smallest unused index.
                 nodeIndex[start] = index;
                 nodeLowLink[start] = index;
@@ -122,11 +125,13 @@ public class TarjansSCCAlgorithm {
                 nodeStack.addLast(start);
                 onStack.add(start);
 
-                iter = graph.createEdgeExplorer(edgeFilter).setBaseNode(start);
-
             } else {
                 // We're resuming iteration over the next child of 'start', set lowLink as appropriate.
-                iter = state.iter;
+                // The explorer is shared with the deeper states so skip the already traversed edges.
+                while (iter.next()) {
+                    if (iter.getEdge() == lastEdge)
+                        break;
+                }
 
                 int prevConnectedId = iter.getAdjNode();
                 nodeLowLink[start] = Math.min(nodeLowLink[start], nodeLowLink[prevConnectedId]);
@@ -142,8 +147,8 @@ public class TarjansSCCAlgorithm {
                 if (nodeIndex[connectedId] == 0) {
                     // Push resume and start states onto state stack to continue our DFS through the graph after the jump.
                     // Ideally we'd just call strongConnectIterative(connectedId);
-                    stateStack.push(TarjanState.resumeState(start, iter));
-                    stateStack.push(TarjanState.startState(connectedId));
+                    pushState(start, iter.getEdge());
+                    pushState(connectedId, NO_EDGE);
                     continue nextState;
                 } else if (onStack.contains(connectedId)) {
                     nodeLowLink[start] = Math.min(nodeLowLink[start], nodeIndex[connectedId]);
@@ -167,31 +172,8 @@ public class TarjansSCCAlgorithm {
         }
     }
 
-    /**
-     * Internal stack state of algorithm, used to avoid recursive function calls and hitting stack
-     * overflow exceptions. State is either 'start' for new nodes or 'resume' for partially
-     * traversed nodes.
-     */
-    private static class TarjanState {
-        final int start;
-        final EdgeIterator iter;
-
-        private TarjanState(final int start, final EdgeIterator iter) {
-            this.start = start;
-            this.iter = iter;
-        }
-
-        public static TarjanState startState(int start) {
-            return new TarjanState(start, null);
-        }
-
-        public static TarjanState resumeState(int start, EdgeIterator iter) {
-            return new TarjanState(start, iter);
-        }
-
-        // Iterator only present in 'resume' state.
-        boolean isStart() {
-            return iter == null;
-        }
+    private void pushState(int node, int edge) {
+        stateStack.addLast(node);
+        stateStack.addLast(edge);
     }
 }
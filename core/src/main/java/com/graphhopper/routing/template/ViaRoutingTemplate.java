@@ -60,17 +60,28 @@ public class ViaRoutingTemplate extends AbstractRoutingTemplate implements Routi
             throw new IllegalArgumentException("At least 2 points have to be specified, but was:" + points.size());
 
         EdgeFilter edgeFilter = new DefaultEdgeFilter(encoder);
+        List<QueryResult> batchResults = null;
+        if (!ghRequest.hasPointHints()) {
+            double[] lats = new double[points.size()];
+            double[] lons = new double[points.size()];
+            for (int placeIndex = 0; placeIndex < points.size(); placeIndex++) {
+                lats[placeIndex] = points.get(placeIndex).lat;
+                lons[placeIndex] = points.get(placeIndex).lon;
+            }
+            batchResults = locationIndex.findClosest(lats, lons, edgeFilter);
+        }
+
         queryResults = new ArrayList<>(points.size());
         for (int placeIndex = 0; placeIndex < points.size(); placeIndex++) {
             GHPoint point = points.get(placeIndex);
             QueryResult res;
-            if (ghRequest.hasPointHints()) {
+            if (batchResults == null) {
                 res = locationIndex.findClosest(point.lat, point.lon, new NameSimilarityEdgeFilter(edgeFilter, ghRequest.getPointHints().get(placeIndex)));
                 if (!res.isValid()) {
                     res = locationIndex.findClosest(point.lat, point.lon, edgeFilter);
                 }
             } else {
-                res = locationIndex.findClosest(point.lat, point.lon, edgeFilter);
+                res = batchResults.get(placeIndex);
             }
             if (!res.isValid())
                 ghResponse.addError(new PointNotFoundException("Cannot find point " + placeIndex + ": " + point, placeIndex));
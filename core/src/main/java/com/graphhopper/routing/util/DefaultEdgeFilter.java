@@ -45,6 +45,10 @@ public class DefaultEdgeFilter implements EdgeFilter {
         return fwd && iter.isForward(encoder) || bwd && iter.isBackward(encoder);
     }
 
+    public FlagEncoder getEncoder() {
+        return encoder;
+    }
+
     public boolean acceptsBackward() {
         return bwd;
     }
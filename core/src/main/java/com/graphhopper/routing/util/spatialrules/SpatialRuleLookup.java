@@ -20,6 +20,9 @@ package com.graphhopper.routing.util.spatialrules;
 import com.graphhopper.util.shapes.BBox;
 import com.graphhopper.util.shapes.GHPoint;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * SpatialRuleLookup defines a container that stores SpatialRules and can lookup
  * a SpatialRule rule depending on the location.
@@ -43,6 +46,13 @@ public interface SpatialRuleLookup {
      */
     SpatialRule lookupRule(GHPoint point);
 
+    /**
+     * Looks up the rules of many locations at once, see {@link #lookupRule(double, double)}.
+     *
+     * @return the rules in the order of the specified locations
+     */
+    List<SpatialRule> lookupRules(double[] lats, double[] lons);
+
     /**
      * This method returns an identification number from 0 to size (exclusive) for the specified rule.
      * The id is fix for a given set of SpatialRules.
@@ -70,6 +80,15 @@ public interface SpatialRuleLookup {
             return SpatialRule.EMPTY;
         }
 
+        @Override
+        public List<SpatialRule> lookupRules(double[] lats, double[] lons) {
+            List<SpatialRule> rules = new ArrayList<>(lats.length);
+            for (int i = 0; i < lats.length; i++) {
+                rules.add(SpatialRule.EMPTY);
+            }
+            return rules;
+        }
+
         @Override
         public int getSpatialId(SpatialRule rule) {
             return 0;
@@ -152,6 +152,18 @@ public class SpatialRuleLookupArray implements SpatialRuleLookup {
         return lookupRule(point.getLat(), point.getLon());
     }
 
+    @Override
+    public List<SpatialRule> lookupRules(double[] lats, double[] lons) {
+        if (lats.length != lons.length)
+            throw new IllegalArgumentException("lats and lons must have the same length but was " + lats.length + " vs. " + lons.length);
+
+        List<SpatialRule> rules = new ArrayList<>(lats.length);
+        for (int i = 0; i < lats.length; i++) {
+            rules.add(lookupRule(lats[i], lons[i]));
+        }
+        return rules;
+    }
+
     private int getXIndexForLon(double lon) {
         if (lon < bounds.minLon)
             return 0;
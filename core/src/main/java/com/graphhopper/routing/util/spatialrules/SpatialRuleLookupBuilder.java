@@ -34,6 +34,8 @@ public class SpatialRuleLookupBuilder {
      * @param spatialRuleFactory    a factory which is called with all the (id, geometry) pairs.
      *                              It should provide a SpatialRule for each id it knows about,
      *                              and SpatialRule.EMPTY otherwise.
+     * @param resolution            the size of the smallest cell in decimal degrees, only cells along the
+     *                              borders are split down to this size
      * @param maxBBox               limit the maximum BBox of the SpatialRuleLookup to the given BBox
      * @return the fully constructed SpatialRuleLookup.
      */
@@ -74,9 +76,9 @@ public class SpatialRuleLookupBuilder {
         if (calculatedBounds == null)
             return SpatialRuleLookup.EMPTY;
 
-        SpatialRuleLookup spatialRuleLookup = new SpatialRuleLookupArray(spatialRules, resolution, true, calculatedBounds);
+        SpatialRuleLookup spatialRuleLookup = new SpatialRuleLookupTree(spatialRules, resolution, calculatedBounds);
 
-        logger.info("Created the SpatialRuleLookup with the following rules: " + Arrays.toString(spatialRules.toArray()));
+        logger.info("Created the SpatialRuleLookup " + spatialRuleLookup + " with the following rules: " + Arrays.toString(spatialRules.toArray()));
 
         return spatialRuleLookup;
     }
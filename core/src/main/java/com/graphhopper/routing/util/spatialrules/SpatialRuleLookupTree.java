@@ -0,0 +1,421 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.util.spatialrules;
+
+import com.graphhopper.coll.GHIntArrayList;
+import com.graphhopper.util.shapes.BBox;
+import com.graphhopper.util.shapes.GHPoint;
+import com.graphhopper.util.shapes.Polygon;
+
+import java.util.*;
+
+/**
+ * SpatialRuleLookup implementation using a quadtree over the bounds. A cell which is completely
+ * inside or outside of every rule is stored as one leaf no matter how big it is, only cells which
+ * are crossed by a border are split until they reach the resolution. For these border cells the
+ * polygons of the candidate rules are checked, so the lookup is exact while the memory usage
+ * grows with the length of the borders and not with the area.
+ * <p>
+ * The polygons are indexed in latitude bands so that the border checks only visit the edges
+ * close to the requested location.
+ */
+public class SpatialRuleLookupTree implements SpatialRuleLookup {
+    private static final int EMPTY_RULE_INDEX = 0;
+    private static final int MAX_DEPTH = 30;
+    private static final int OUTSIDE = 0, INSIDE = 1, BORDER = 2;
+
+    private final BBox bounds;
+    private final double rootMinLat;
+    private final double rootMinLon;
+    private final double rootSize;
+    private final int maxDepth;
+    // negative entries point to the first of the four children, the others are leafs containing
+    // the container index and a flag in the lowest bit if the polygons have to be checked
+    private final int[] tree;
+    private final List<SpatialRuleContainer> ruleContainers = new ArrayList<>();
+    private final Map<SpatialRuleContainer, Integer> ruleContainerIndices = new HashMap<>();
+    private final Map<SpatialRule, IndexedPolygon[]> polygons = new HashMap<>();
+    private final Map<SpatialRule, Integer> singleRulesIndices = new HashMap<>();
+    private final List<SpatialRule> singleRules = new ArrayList<>();
+
+    /**
+     * @param spatialRules the spatial rules, if they overlap the first one is returned
+     * @param resolution   the minimum size of a cell in decimal degrees. Smaller cells make the
+     *                     lookup faster close to the borders but need more memory.
+     * @param bounds       create the SpatialRuleLookup for the given BBox
+     */
+    public SpatialRuleLookupTree(List<SpatialRule> spatialRules, double resolution, BBox bounds) {
+        if (!bounds.isValid())
+            throw new IllegalStateException("Bounds are not valid: " + bounds);
+        if (resolution < 1e-100)
+            throw new IllegalArgumentException("resolution cannot be that high " + resolution);
+
+        this.bounds = bounds;
+        rootMinLat = bounds.minLat;
+        rootMinLon = bounds.minLon;
+        rootSize = Math.max(Math.max(bounds.maxLat - bounds.minLat, bounds.maxLon - bounds.minLon), resolution);
+        int depth = 0;
+        while (depth < MAX_DEPTH && rootSize / (1 << depth) > resolution) {
+            depth++;
+        }
+        maxDepth = depth;
+
+        addSingleRule(SpatialRule.EMPTY);
+        addRuleContainer(new SpatialRuleContainer().addRule(SpatialRule.EMPTY));
+        List<SpatialRule> candidates = new ArrayList<>();
+        for (SpatialRule rule : spatialRules) {
+            if (rule == null)
+                throw new IllegalArgumentException("rule cannot be null");
+            if (rule.equals(SpatialRule.EMPTY))
+                throw new IllegalArgumentException("rule cannot be EMPTY");
+
+            addSingleRule(rule);
+            IndexedPolygon[] indexed = new IndexedPolygon[rule.getBorders().size()];
+            for (int i = 0; i < indexed.length; i++) {
+                indexed[i] = new IndexedPolygon(rule.getBorders().get(i));
+            }
+            polygons.put(rule, indexed);
+            candidates.add(rule);
+        }
+
+        GHIntArrayList treeList = new GHIntArrayList();
+        treeList.add(0);
+        build(treeList, 0, rootMinLat, rootMinLon, rootSize, 0, candidates);
+        tree = treeList.toArray();
+    }
+
+    private void build(GHIntArrayList treeList, int node, double minLat, double minLon, double size, int depth,
+                       List<SpatialRule> candidates) {
+        double maxLat = minLat + size, maxLon = minLon + size;
+        List<SpatialRule> remaining = new ArrayList<>(candidates.size());
+        boolean border = false;
+        for (SpatialRule rule : candidates) {
+            int location = OUTSIDE;
+            for (IndexedPolygon polygon : polygons.get(rule)) {
+                int tmp = polygon.locate(minLat, minLon, maxLat, maxLon);
+                if (tmp > location)
+                    location = tmp;
+                if (location == BORDER)
+                    break;
+            }
+            if (location == OUTSIDE)
+                continue;
+
+            remaining.add(rule);
+            if (location == BORDER) {
+                border = true;
+            } else if (!border) {
+                // the earlier rules do not cover this cell, so this rule is returned for the whole cell
+                break;
+            }
+        }
+
+        if (!border || depth >= maxDepth) {
+            SpatialRuleContainer container = new SpatialRuleContainer();
+            if (remaining.isEmpty())
+                container.addRule(SpatialRule.EMPTY);
+            else
+                container.addRules(remaining);
+            treeList.set(node, addRuleContainer(container) << 1 | (border ? 1 : 0));
+            return;
+        }
+
+        int firstChild = treeList.size();
+        treeList.set(node, -firstChild);
+        for (int i = 0; i < 4; i++) {
+            treeList.add(0);
+        }
+        double half = size / 2;
+        build(treeList, firstChild, minLat, minLon, half, depth + 1, remaining);
+        build(treeList, firstChild + 1, minLat, minLon + half, half, depth + 1, remaining);
+        build(treeList, firstChild + 2, minLat + half, minLon, half, depth + 1, remaining);
+        build(treeList, firstChild + 3, minLat + half, minLon + half, half, depth + 1, remaining);
+    }
+
+    @Override
+    public SpatialRule lookupRule(double lat, double lon) {
+        if (lon < bounds.minLon || lon > bounds.maxLon || lat < bounds.minLat || lat > bounds.maxLat)
+            return SpatialRule.EMPTY;
+
+        double cellLat = rootMinLat, cellLon = rootMinLon, size = rootSize;
+        int node = tree[0];
+        while (node < 0) {
+            size /= 2;
+            int child = -node;
+            if (lat >= cellLat + size) {
+                cellLat += size;
+                child += 2;
+            }
+            if (lon >= cellLon + size) {
+                cellLon += size;
+                child++;
+            }
+            node = tree[child];
+        }
+        return resolve(node, lat, lon);
+    }
+
+    @Override
+    public SpatialRule lookupRule(GHPoint point) {
+        return lookupRule(point.getLat(), point.getLon());
+    }
+
+    /**
+     * Looks up the rules of many locations. Consecutive locations in the same cell reuse the
+     * result of the tree traversal, so sorting the locations spatially makes this faster.
+     */
+    @Override
+    public List<SpatialRule> lookupRules(double[] lats, double[] lons) {
+        if (lats.length != lons.length)
+            throw new IllegalArgumentException("lats and lons must have the same length but was " + lats.length + " vs. " + lons.length);
+
+        SpatialRule[] results = new SpatialRule[lats.length];
+        double leafLat = 0, leafLon = 0, leafSize = -1;
+        int leaf = 0;
+        for (int i = 0; i < lats.length; i++) {
+            double lat = lats[i], lon = lons[i];
+            if (lon < bounds.minLon || lon > bounds.maxLon || lat < bounds.minLat || lat > bounds.maxLat) {
+                results[i] = SpatialRule.EMPTY;
+                continue;
+            }
+
+            if (lat < leafLat || lat >= leafLat + leafSize || lon < leafLon || lon >= leafLon + leafSize) {
+                leafLat = rootMinLat;
+                leafLon = rootMinLon;
+                leafSize = rootSize;
+                leaf = tree[0];
+                while (leaf < 0) {
+                    leafSize /= 2;
+                    int child = -leaf;
+                    if (lat >= leafLat + leafSize) {
+                        leafLat += leafSize;
+                        child += 2;
+                    }
+                    if (lon >= leafLon + leafSize) {
+                        leafLon += leafSize;
+                        child++;
+                    }
+                    leaf = tree[child];
+                }
+            }
+            results[i] = resolve(leaf, lat, lon);
+        }
+        return Arrays.asList(results);
+    }
+
+    private SpatialRule resolve(int leaf, double lat, double lon) {
+        SpatialRuleContainer container = ruleContainers.get(leaf >>> 1);
+        if ((leaf & 1) == 0)
+            return container.first();
+
+        for (SpatialRule rule : container.getRules()) {
+            for (IndexedPolygon polygon : polygons.get(rule)) {
+                if (polygon.contains(lat, lon))
+                    return rule;
+            }
+        }
+        return SpatialRule.EMPTY;
+    }
+
+    private void addSingleRule(SpatialRule rule) {
+        int index = singleRules.indexOf(rule);
+        if (index >= 0)
+            throw new IllegalArgumentException("Rule " + rule + " already contained at " + index);
+
+        singleRulesIndices.put(rule, singleRules.size());
+        singleRules.add(rule);
+    }
+
+    private int addRuleContainer(SpatialRuleContainer container) {
+        Integer index = ruleContainerIndices.get(container);
+        if (index != null)
+            return index;
+
+        index = ruleContainers.size();
+        ruleContainers.add(container);
+        ruleContainerIndices.put(container, index);
+        return index;
+    }
+
+    SpatialRule getSpatialRule(int id) {
+        if (id < 0 || id >= singleRules.size())
+            throw new IllegalArgumentException("SpatialRuleId " + id + " is illegal");
+        return singleRules.get(id);
+    }
+
+    @Override
+    public int getSpatialId(SpatialRule rule) {
+        if (rule == null)
+            throw new IllegalArgumentException("rule parameter cannot be null");
+
+        Integer integ = singleRulesIndices.get(rule);
+        if (integ == null)
+            throw new IllegalArgumentException("Cannot find rule " + rule);
+        return integ;
+    }
+
+    @Override
+    public int size() {
+        return singleRules.size();
+    }
+
+    @Override
+    public BBox getBounds() {
+        return bounds;
+    }
+
+    /**
+     * @return the number of entries in the tree, every entry is an int
+     */
+    int getTreeSize() {
+        return tree.length;
+    }
+
+    int getMaxDepth() {
+        return maxDepth;
+    }
+
+    @Override
+    public String toString() {
+        return "rules: " + singleRules.size() + ", tree entries: " + tree.length + ", max depth: " + maxDepth
+                + ", containers: " + ruleContainers.size();
+    }
+
+    /**
+     * Stores the edges of a polygon in latitude bands so that only the edges close to a location
+     * have to be checked.
+     */
+    static class IndexedPolygon {
+        private final Polygon polygon;
+        private final double[] lat;
+        private final double[] lon;
+        private final double minLat;
+        private final double bandHeight;
+        private final int[][] bands;
+
+        IndexedPolygon(Polygon polygon) {
+            this.polygon = polygon;
+            int size = polygon.getSize();
+            lat = new double[size + 1];
+            lon = new double[size + 1];
+            double tmpMinLat = Double.MAX_VALUE, tmpMaxLat = -Double.MAX_VALUE;
+            for (int i = 0; i < size; i++) {
+                lat[i] = polygon.getLat(i);
+                lon[i] = polygon.getLon(i);
+                tmpMinLat = Math.min(tmpMinLat, lat[i]);
+                tmpMaxLat = Math.max(tmpMaxLat, lat[i]);
+            }
+            // close the ring like Polygon does
+            lat[size] = lat[0];
+            lon[size] = lon[0];
+
+            minLat = tmpMinLat;
+            int bandCount = Math.max(1, Math.min(4096, size / 4));
+            bandHeight = Math.max((tmpMaxLat - tmpMinLat) / bandCount, 1e-9);
+            GHIntArrayList[] tmpBands = new GHIntArrayList[bandCount];
+            for (int edge = 0; edge < size; edge++) {
+                int from = getBand(Math.min(lat[edge], lat[edge + 1]), bandCount);
+                int to = getBand(Math.max(lat[edge], lat[edge + 1]), bandCount);
+                for (int band = from; band <= to; band++) {
+                    if (tmpBands[band] == null)
+                        tmpBands[band] = new GHIntArrayList(4);
+                    tmpBands[band].add(edge);
+                }
+            }
+            bands = new int[bandCount][];
+            for (int band = 0; band < bandCount; band++) {
+                bands[band] = tmpBands[band] == null ? new int[0] : tmpBands[band].toArray();
+            }
+        }
+
+        private int getBand(double latitude, int bandCount) {
+            int band = (int) ((latitude - minLat) / bandHeight);
+            return band < 0 ? 0 : band >= bandCount ? bandCount - 1 : band;
+        }
+
+        /**
+         * Even-odd test with a ray to the west which only crosses the edges of one band.
+         */
+        boolean contains(double queryLat, double queryLon) {
+            if (queryLat < polygon.getMinLat() || queryLat > polygon.getMaxLat()
+                    || queryLon < polygon.getMinLon() || queryLon > polygon.getMaxLon())
+                return false;
+
+            boolean inside = false;
+            for (int edge : bands[getBand(queryLat, bands.length)]) {
+                double lat1 = lat[edge], lat2 = lat[edge + 1];
+                if ((lat1 > queryLat) != (lat2 > queryLat)) {
+                    double crossLon = lon[edge] + (queryLat - lat1) * (lon[edge + 1] - lon[edge]) / (lat2 - lat1);
+                    if (queryLon < crossLon)
+                        inside = !inside;
+                }
+            }
+            return inside;
+        }
+
+        /**
+         * @return OUTSIDE, INSIDE or BORDER if an edge crosses or touches the cell
+         */
+        int locate(double cellMinLat, double cellMinLon, double cellMaxLat, double cellMaxLon) {
+            if (cellMaxLat < polygon.getMinLat() || cellMinLat > polygon.getMaxLat()
+                    || cellMaxLon < polygon.getMinLon() || cellMinLon > polygon.getMaxLon())
+                return OUTSIDE;
+
+            int fromBand = getBand(cellMinLat, bands.length);
+            int toBand = getBand(cellMaxLat, bands.length);
+            for (int band = fromBand; band <= toBand; band++) {
+                for (int edge : bands[band]) {
+                    if (intersects(edge, cellMinLat, cellMinLon, cellMaxLat, cellMaxLon))
+                        return BORDER;
+                }
+            }
+            return contains((cellMinLat + cellMaxLat) / 2, (cellMinLon + cellMaxLon) / 2) ? INSIDE : OUTSIDE;
+        }
+
+        /**
+         * Clips the edge against the cell, see Liang-Barsky
+         */
+        private boolean intersects(int edge, double cellMinLat, double cellMinLon, double cellMaxLat, double cellMaxLon) {
+            double x = lon[edge], y = lat[edge];
+            double dx = lon[edge + 1] - x, dy = lat[edge + 1] - y;
+            double[] p = {-dx, dx, -dy, dy};
+            double[] q = {x - cellMinLon, cellMaxLon - x, y - cellMinLat, cellMaxLat - y};
+            double t0 = 0, t1 = 1;
+            for (int i = 0; i < 4; i++) {
+                if (p[i] == 0) {
+                    if (q[i] < 0)
+                        return false;
+                } else {
+                    double r = q[i] / p[i];
+                    if (p[i] < 0) {
+                        if (r > t1)
+                            return false;
+                        if (r > t0)
+                            t0 = r;
+                    } else {
+                        if (r < t0)
+                            return false;
+                        if (r < t1)
+                            t1 = r;
+                    }
+                }
+            }
+            return true;
+        }
+    }
+}
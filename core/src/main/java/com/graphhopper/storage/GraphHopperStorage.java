@@ -261,6 +261,16 @@ public final class GraphHopperStorage implements GraphStorage, Graph {
         return false;
     }
 
+    /**
+     * Stores only the CHGraph of the specified weighting, e.g. after its preparation finished while
+     * the other weightings are still prepared.
+     */
+    public void flushCHGraph(Weighting weighting) {
+        CHGraphImpl cg = getGraph(CHGraphImpl.class, weighting);
+        cg.setEdgesHeader();
+        cg.flush();
+    }
+
     @Override
     public void flush() {
         for (CHGraphImpl cg : chGraphs) {
@@ -27,6 +27,7 @@ import com.graphhopper.routing.util.FlagEncoder;
 import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.GraphEdgeIdFinder;
 import com.graphhopper.storage.index.LocationIndex;
+import com.graphhopper.storage.index.LocationIndexTree;
 import com.graphhopper.util.EdgeIteratorState;
 
 import java.util.Collection;
@@ -49,11 +50,14 @@ public class ChangeGraphHelper {
     private final Logger logger = LoggerFactory.getLogger(getClass());
     private final Graph graph;
     private final GraphEdgeIdFinder graphBrowser;
+    // to keep the access bitmaps of the index in sync with the changed flags
+    private final LocationIndexTree accessIndex;
     private boolean enableLogging = false;
 
     public ChangeGraphHelper(Graph graph, LocationIndex locationIndex) {
         this.graph = graph;
         this.graphBrowser = new GraphEdgeIdFinder(graph, locationIndex);
+        this.accessIndex = locationIndex instanceof LocationIndexTree ? (LocationIndexTree) locationIndex : null;
     }
 
     public void setLogging(boolean log) {
@@ -111,6 +115,8 @@ public class ChangeGraphHelper {
                 if (enableLogging)
                     logger.info(encoder.toString() + " - access change via feature " + jsonFeature.getId());
                 edge.setFlags(encoder.setAccess(edge.getFlags(), value, value));
+                if (accessIndex != null)
+                    accessIndex.updateAccess(edge);
 
             } else if (props.containsKey("speed")) {
                 // TODO use different speed for the different directions (see e.g. Bike2WeightFlagEncoder)
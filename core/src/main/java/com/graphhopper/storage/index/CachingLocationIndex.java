@@ -0,0 +1,315 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage.index;
+
+import com.graphhopper.routing.util.DefaultEdgeFilter;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.util.DistanceCalc;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.shapes.GHPoint3D;
+
+import java.util.*;
+
+/**
+ * Caches the results of findClosest of another LocationIndex. This helps if many requests start or
+ * end at the same locations like depots or stations. The key is the coordinate rounded to 5 decimal
+ * places (roughly 1m) plus the encoder and the directions of the DefaultEdgeFilter. Lookups with
+ * other filters are not cached.
+ * <p>
+ * A cached result is copied for every lookup as QueryGraph.lookup modifies the QueryResult. The
+ * copy keeps the closest edge and way index but calculates the snapped point and the distance for
+ * the actual query point.
+ * <p>
+ * Entries are evicted in least recently used order. The cache has to be cleared whenever the graph
+ * changes, see GraphHopper.changeGraph. This class is thread safe.
+ */
+public class CachingLocationIndex implements LocationIndex {
+    private static final double QUANTIZATION = 1e5;
+    private final LocationIndex delegate;
+    private final int maxEntries;
+    private final LinkedHashMap<Key, Entry> map;
+    private DistanceCalc distCalc = Helper.DIST_PLANE;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public CachingLocationIndex(LocationIndex delegate, int maxEntries) {
+        if (maxEntries <= 0)
+            throw new IllegalArgumentException("maxEntries has to be positive but was " + maxEntries);
+
+        this.delegate = delegate;
+        this.maxEntries = maxEntries;
+        this.map = new LinkedHashMap<Key, Entry>(Math.min(maxEntries, 1024), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > CachingLocationIndex.this.maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public LocationIndex getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public QueryResult findClosest(double lat, double lon, EdgeFilter edgeFilter) {
+        Key key = createKey(lat, lon, edgeFilter);
+        if (key == null)
+            return delegate.findClosest(lat, lon, edgeFilter);
+
+        QueryResult qr = get(key, lat, lon);
+        if (qr != null)
+            return qr;
+
+        qr = delegate.findClosest(lat, lon, edgeFilter);
+        put(key, qr);
+        return qr;
+    }
+
+    @Override
+    public List<QueryResult> findClosest(double[] lats, double[] lons, EdgeFilter edgeFilter) {
+        QueryResult[] results = new QueryResult[lats.length];
+        Key[] keys = new Key[lats.length];
+        int missCount = 0;
+        for (int i = 0; i < lats.length; i++) {
+            keys[i] = createKey(lats[i], lons[i], edgeFilter);
+            if (keys[i] != null)
+                results[i] = get(keys[i], lats[i], lons[i]);
+            if (results[i] == null)
+                missCount++;
+        }
+        if (missCount == 0)
+            return Arrays.asList(results);
+
+        // snap the remaining points with one batch call to keep the benefits of the delegate
+        double[] missLats = new double[missCount];
+        double[] missLons = new double[missCount];
+        for (int i = 0, j = 0; i < lats.length; i++) {
+            if (results[i] == null) {
+                missLats[j] = lats[i];
+                missLons[j] = lons[i];
+                j++;
+            }
+        }
+        List<QueryResult> missResults = delegate.findClosest(missLats, missLons, edgeFilter);
+        for (int i = 0, j = 0; i < lats.length; i++) {
+            if (results[i] == null) {
+                results[i] = missResults.get(j++);
+                if (keys[i] != null)
+                    put(keys[i], results[i]);
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    @Override
+    public void findWithin(double lat, double lon, double radiusInMeter, EdgeFilter edgeFilter, Visitor visitor) {
+        delegate.findWithin(lat, lon, radiusInMeter, edgeFilter, visitor);
+    }
+
+    @Override
+    public List<QueryResult> findKNearest(double lat, double lon, int k, double maxRadiusInMeter, EdgeFilter edgeFilter) {
+        return delegate.findKNearest(lat, lon, k, maxRadiusInMeter, edgeFilter);
+    }
+
+    private Key createKey(double lat, double lon, EdgeFilter edgeFilter) {
+        String filterKey;
+        if (edgeFilter == EdgeFilter.ALL_EDGES) {
+            filterKey = "all";
+        } else if (edgeFilter instanceof DefaultEdgeFilter) {
+            DefaultEdgeFilter filter = (DefaultEdgeFilter) edgeFilter;
+            // the class is not final, but subclasses cannot change the final accept method
+            filterKey = filter.getEncoder().toString() + (filter.acceptsForward() ? "f" : "") + (filter.acceptsBackward() ? "b" : "");
+        } else {
+            return null;
+        }
+        return new Key(Math.round(lat * QUANTIZATION), Math.round(lon * QUANTIZATION), filterKey);
+    }
+
+    private QueryResult get(Key key, double lat, double lon) {
+        Entry entry;
+        synchronized (this) {
+            entry = map.get(key);
+            if (entry == null) {
+                misses++;
+                return null;
+            }
+            hits++;
+        }
+
+        QueryResult qr = new QueryResult(lat, lon);
+        qr.setClosestNode(entry.closestNode);
+        qr.setClosestEdge(entry.closestEdge);
+        qr.setWayIndex(entry.wayIndex);
+        qr.setSnappedPosition(entry.position);
+        qr.calcSnappedPoint(distCalc);
+        GHPoint3D snapped = qr.getSnappedPoint();
+        qr.setQueryDistance(distCalc.calcDist(lat, lon, snapped.lat, snapped.lon));
+        return qr;
+    }
+
+    private synchronized void put(Key key, QueryResult qr) {
+        // invalid results are not cached as they are usually a user error
+        if (!qr.isValid())
+            return;
+
+        map.put(key, new Entry(qr.getClosestNode(), qr.getClosestEdge(), qr.getWayIndex(), qr.getSnappedPosition()));
+    }
+
+    /**
+     * Removes all entries. The statistics are not reset.
+     */
+    public synchronized void clear() {
+        evictions += map.size();
+        map.clear();
+    }
+
+    public synchronized int getSize() {
+        return map.size();
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return the share of the lookups which were answered from the cache or 0 if there were none
+     */
+    public synchronized double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public LocationIndex setResolution(int resolution) {
+        delegate.setResolution(resolution);
+        return this;
+    }
+
+    @Override
+    public LocationIndex prepareIndex() {
+        delegate.prepareIndex();
+        return this;
+    }
+
+    @Override
+    public LocationIndex setApproximation(boolean approxDist) {
+        delegate.setApproximation(approxDist);
+        distCalc = approxDist ? Helper.DIST_PLANE : Helper.DIST_EARTH;
+        return this;
+    }
+
+    @Override
+    public void setSegmentSize(int bytes) {
+        delegate.setSegmentSize(bytes);
+    }
+
+    @Override
+    public boolean loadExisting() {
+        return delegate.loadExisting();
+    }
+
+    @Override
+    public LocationIndex create(long byteCount) {
+        delegate.create(byteCount);
+        return this;
+    }
+
+    @Override
+    public void flush() {
+        delegate.flush();
+    }
+
+    @Override
+    public void close() {
+        clear();
+        delegate.close();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return delegate.isClosed();
+    }
+
+    @Override
+    public long getCapacity() {
+        return delegate.getCapacity();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "size:" + map.size() + "/" + maxEntries + ", hits:" + hits + ", misses:" + misses
+                + ", evictions:" + evictions;
+    }
+
+    private static class Key {
+        final long lat;
+        final long lon;
+        final String filter;
+
+        Key(long lat, long lon, String filter) {
+            this.lat = lat;
+            this.lon = lon;
+            this.filter = filter;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key))
+                return false;
+            Key other = (Key) obj;
+            return lat == other.lat && lon == other.lon && filter.equals(other.filter);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * (int) (lat ^ (lat >>> 32)) + (int) (lon ^ (lon >>> 32))) + filter.hashCode();
+        }
+    }
+
+    private static class Entry {
+        final int closestNode;
+        final EdgeIteratorState closestEdge;
+        final int wayIndex;
+        final QueryResult.Position position;
+
+        Entry(int closestNode, EdgeIteratorState closestEdge, int wayIndex, QueryResult.Position position) {
+            this.closestNode = closestNode;
+            this.closestEdge = closestEdge;
+            this.wayIndex = wayIndex;
+            this.position = position;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage.index;
+
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.util.DistanceCalc;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.PointList;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Calculates the position on an edge which is closest to a query point. The instance is reused
+ * for all edges of one query so that rejected edges do not create any objects except the fetched
+ * geometry.
+ */
+class EdgeCandidate {
+    private final double queryLat;
+    private final double queryLon;
+    private final DistanceCalc distCalc;
+    private final NodeAccess nodeAccess;
+    double normedDist;
+    int closestNode;
+    int wayIndex;
+    QueryResult.Position position;
+
+    EdgeCandidate(double queryLat, double queryLon, DistanceCalc distCalc, NodeAccess nodeAccess) {
+        this.queryLat = queryLat;
+        this.queryLon = queryLon;
+        this.distCalc = distCalc;
+        this.nodeAccess = nodeAccess;
+    }
+
+    /**
+     * Finds the closest position of the specified edge. The way index refers to the geometry
+     * including both tower nodes like in QueryResult.
+     */
+    void calc(EdgeIteratorState edge) {
+        PointList pointList = edge.fetchWayGeometry(3);
+        int len = pointList.getSize();
+        double prevLat = pointList.getLatitude(0);
+        double prevLon = pointList.getLongitude(0);
+        normedDist = distCalc.calcNormalizedDist(queryLat, queryLon, prevLat, prevLon);
+        double baseDist = normedDist;
+        wayIndex = 0;
+        position = QueryResult.Position.TOWER;
+        for (int pointIndex = 1; pointIndex < len; pointIndex++) {
+            double wayLat = pointList.getLatitude(pointIndex);
+            double wayLon = pointList.getLongitude(pointIndex);
+            if (!distCalc.isCrossBoundary(prevLon, wayLon)) {
+                if (distCalc.validEdgeDistance(queryLat, queryLon, prevLat, prevLon, wayLat, wayLon)) {
+                    double tmpDist = distCalc.calcNormalizedEdgeDistance(queryLat, queryLon, prevLat, prevLon, wayLat, wayLon);
+                    if (tmpDist < normedDist) {
+                        normedDist = tmpDist;
+                        wayIndex = pointIndex - 1;
+                        position = QueryResult.Position.EDGE;
+                    }
+                }
+                double tmpDist = distCalc.calcNormalizedDist(queryLat, queryLon, wayLat, wayLon);
+                if (tmpDist < normedDist) {
+                    normedDist = tmpDist;
+                    wayIndex = pointIndex;
+                    position = pointIndex + 1 == len ? QueryResult.Position.TOWER : QueryResult.Position.PILLAR;
+                }
+            }
+            prevLat = wayLat;
+            prevLon = wayLon;
+        }
+
+        int adjNode = edge.getAdjNode();
+        double adjDist = distCalc.calcNormalizedDist(queryLat, queryLon,
+                nodeAccess.getLatitude(adjNode), nodeAccess.getLongitude(adjNode));
+        closestNode = adjDist < baseDist ? adjNode : edge.getBaseNode();
+    }
+
+    double getDistance() {
+        return distCalc.calcDenormalizedDist(normedDist);
+    }
+
+    /**
+     * Creates a QueryResult from the arguments of LocationIndex.Visitor.onEdge
+     */
+    static QueryResult createQueryResult(double queryLat, double queryLon, EdgeIteratorState edge, int closestNode,
+                                         int wayIndex, QueryResult.Position position, double distance, DistanceCalc distCalc) {
+        QueryResult qr = new QueryResult(queryLat, queryLon);
+        qr.setQueryDistance(distance);
+        qr.setClosestNode(closestNode);
+        qr.setClosestEdge(edge.detach(false));
+        qr.setWayIndex(wayIndex);
+        qr.setSnappedPosition(position);
+        qr.calcSnappedPoint(distCalc);
+        return qr;
+    }
+
+    /**
+     * Visits all edges of the graph, for indices without spatial structure.
+     */
+    static void findWithin(Graph graph, DistanceCalc distCalc, double queryLat, double queryLon, double radiusInMeter,
+                           EdgeFilter edgeFilter, LocationIndex.Visitor visitor) {
+        EdgeCandidate candidate = new EdgeCandidate(queryLat, queryLon, distCalc, graph.getNodeAccess());
+        double normedRadius = distCalc.calcNormalizedDist(radiusInMeter);
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            if (!edgeFilter.accept(iter))
+                continue;
+
+            candidate.calc(iter);
+            if (candidate.normedDist <= normedRadius
+                    && !visitor.onEdge(iter, candidate.closestNode, candidate.wayIndex, candidate.position, candidate.getDistance()))
+                return;
+        }
+    }
+
+    /**
+     * Implements findKNearest via findWithin with the maximum radius.
+     */
+    static List<QueryResult> findKNearest(LocationIndex index, final DistanceCalc distCalc, final double queryLat, final double queryLon,
+                                          final int k, double maxRadiusInMeter, EdgeFilter edgeFilter) {
+        final List<QueryResult> results = new ArrayList<>();
+        index.findWithin(queryLat, queryLon, maxRadiusInMeter, edgeFilter, new LocationIndex.Visitor() {
+            @Override
+            public boolean onEdge(EdgeIteratorState edge, int closestNode, int wayIndex, QueryResult.Position position, double distance) {
+                results.add(createQueryResult(queryLat, queryLon, edge, closestNode, wayIndex, position, distance, distCalc));
+                return true;
+            }
+        });
+        return nearest(results, k);
+    }
+
+    static List<QueryResult> nearest(List<QueryResult> results, int k) {
+        Collections.sort(results, new Comparator<QueryResult>() {
+            @Override
+            public int compare(QueryResult o1, QueryResult o2) {
+                return Double.compare(o1.getQueryDistance(), o2.getQueryDistance());
+            }
+        });
+        return results.size() > k ? new ArrayList<>(results.subList(0, k)) : results;
+    }
+}
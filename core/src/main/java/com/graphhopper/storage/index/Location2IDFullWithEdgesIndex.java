@@ -24,6 +24,9 @@ import com.graphhopper.storage.NodeAccess;
 import com.graphhopper.util.DistanceCalc;
 import com.graphhopper.util.Helper;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Same as full index but calculates distance to all edges too
  * <p>
@@ -66,6 +69,25 @@ public class Location2IDFullWithEdgesIndex implements LocationIndex {
         return this;
     }
 
+    @Override
+    public List<QueryResult> findClosest(double[] lats, double[] lons, EdgeFilter edgeFilter) {
+        List<QueryResult> list = new ArrayList<>(lats.length);
+        for (int i = 0; i < lats.length; i++) {
+            list.add(findClosest(lats[i], lons[i], edgeFilter));
+        }
+        return list;
+    }
+
+    @Override
+    public void findWithin(double lat, double lon, double radiusInMeter, EdgeFilter edgeFilter, Visitor visitor) {
+        EdgeCandidate.findWithin(graph, calc, lat, lon, radiusInMeter, edgeFilter, visitor);
+    }
+
+    @Override
+    public List<QueryResult> findKNearest(double lat, double lon, int k, double maxRadiusInMeter, EdgeFilter edgeFilter) {
+        return EdgeCandidate.findKNearest(this, calc, lat, lon, k, maxRadiusInMeter, edgeFilter);
+    }
+
     @Override
     public QueryResult findClosest(double queryLat, double queryLon, EdgeFilter filter) {
         if (isClosed())
@@ -33,7 +33,9 @@ import com.graphhopper.util.shapes.GHPoint;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 /**
  * This class implements map matching and returns a node index from lat,lon coordinate. This
@@ -276,6 +278,25 @@ class Location2IDQuadtree implements LocationIndex {
         return dx * dx + dy * dy;
     }
 
+    @Override
+    public List<QueryResult> findClosest(double[] lats, double[] lons, EdgeFilter edgeFilter) {
+        List<QueryResult> list = new ArrayList<>(lats.length);
+        for (int i = 0; i < lats.length; i++) {
+            list.add(findClosest(lats[i], lons[i], edgeFilter));
+        }
+        return list;
+    }
+
+    @Override
+    public void findWithin(double lat, double lon, double radiusInMeter, EdgeFilter edgeFilter, Visitor visitor) {
+        EdgeCandidate.findWithin(graph, distCalc, lat, lon, radiusInMeter, edgeFilter, visitor);
+    }
+
+    @Override
+    public List<QueryResult> findKNearest(double lat, double lon, int k, double maxRadiusInMeter, EdgeFilter edgeFilter) {
+        return EdgeCandidate.findKNearest(this, distCalc, lat, lon, k, maxRadiusInMeter, edgeFilter);
+    }
+
     @Override
     public QueryResult findClosest(final double queryLat, final double queryLon,
                                    final EdgeFilter edgeFilter) {
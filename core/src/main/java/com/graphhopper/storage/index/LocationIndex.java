@@ -19,6 +19,9 @@ package com.graphhopper.storage.index;
 
 import com.graphhopper.routing.util.EdgeFilter;
 import com.graphhopper.storage.Storable;
+import com.graphhopper.util.EdgeIteratorState;
+
+import java.util.List;
 
 /**
  * Provides a way to map real world data "lat,lon" to internal ids/indices of a memory efficient graph
@@ -56,10 +59,43 @@ public interface LocationIndex extends Storable<LocationIndex> {
      */
     QueryResult findClosest(double lat, double lon, EdgeFilter edgeFilter);
 
+    /**
+     * This method returns the closest QueryResult for every specified location, see
+     * findClosest(lat, lon, edgeFilter). Implementations can make use of the locality of the
+     * points and should be preferred over calling findClosest for every point.
+     *
+     * @return the QueryResult for every location in the order of the specified arrays
+     */
+    List<QueryResult> findClosest(double[] lats, double[] lons, EdgeFilter edgeFilter);
+
+    /**
+     * Calls the visitor for every edge accepted by the edgeFilter which has a distance of at most
+     * radiusInMeter to the specified location. Every edge is visited only once but in no specific
+     * order. Unlike findClosest no QueryResult is created, the visitor decides which edges it needs.
+     */
+    void findWithin(double lat, double lon, double radiusInMeter, EdgeFilter edgeFilter, Visitor visitor);
+
+    /**
+     * This method returns the k edges closest to the specified location sorted by their distance.
+     * Only edges within maxRadiusInMeter are considered, so less than k results are possible.
+     */
+    List<QueryResult> findKNearest(double lat, double lon, int k, double maxRadiusInMeter, EdgeFilter edgeFilter);
+
     /**
      * @param approxDist false if initialization and querying should be faster but less precise.
      */
     LocationIndex setApproximation(boolean approxDist);
 
     void setSegmentSize(int bytes);
+
+    interface Visitor {
+        /**
+         * @param edge        the edge which is only valid while this method is called, use detach to keep it
+         * @param closestNode the tower node of the edge which is closer to the location
+         * @param wayIndex    the index in the geometry of the edge including both tower nodes, see QueryResult
+         * @param distance    the distance in meter between the location and the edge
+         * @return false if no further edges should be visited
+         */
+        boolean onEdge(EdgeIteratorState edge, int closestNode, int wayIndex, QueryResult.Position position, double distance);
+    }
 }
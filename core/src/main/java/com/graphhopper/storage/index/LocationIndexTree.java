@@ -22,9 +22,13 @@ import com.carrotsearch.hppc.cursors.IntCursor;
 import com.carrotsearch.hppc.predicates.IntPredicate;
 import com.graphhopper.coll.GHBitSet;
 import com.graphhopper.coll.GHIntHashSet;
+import com.graphhopper.coll.GHLongObjectHashMap;
 import com.graphhopper.coll.GHTBitSet;
 import com.graphhopper.geohash.SpatialKeyAlgo;
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.routing.util.DefaultEdgeFilter;
 import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.FlagEncoder;
 import com.graphhopper.storage.*;
 import com.graphhopper.util.*;
 import com.graphhopper.util.shapes.BBox;
@@ -41,6 +45,11 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * This implementation implements an n-tree to get the closest node or edge from GPS coordinates.
@@ -55,8 +64,14 @@ import java.util.List;
 public class LocationIndexTree implements LocationIndex {
     // do not start with 0 as a positive value means leaf and a negative means "entry with subentries"
     static final int START_POINTER = 1;
+    // the number of points of one parallel task of the batch findClosest
+    private static final int BATCH_CHUNK_SIZE = 512;
+    private static final int MAX_CACHED_TILES = 4096;
+    // below this number of edges per thread a parallel preparation is not worth the merge
+    private static final int MIN_EDGES_PER_THREAD = 10_000;
     protected final Graph graph;
     final DataAccess dataAccess;
+    private final Directory dir;
     private final Logger logger = LoggerFactory.getLogger(getClass());
     private final int MAGIC_INT;
     private final NodeAccess nodeAccess;
@@ -73,6 +88,12 @@ public class LocationIndexTree implements LocationIndex {
     private double deltaLon;
     private int initSizeLeafEntries = 4;
     private boolean initialized = false;
+    private int prepareThreads = 1;
+    // for every encoder a bitmap of the nodes that have at least one accessible edge
+    private List<FlagEncoder> accessEncoders = Collections.emptyList();
+    private DataAccess accessBitmaps;
+    private int wordsPerEncoder;
+    private boolean compactLeafs = false;
     private static final Comparator<QueryResult> QR_COMPARATOR = new Comparator<QueryResult>() {
         @Override
         public int compare(QueryResult o1, QueryResult o2) {
@@ -95,6 +116,7 @@ public class LocationIndexTree implements LocationIndex {
         MAGIC_INT = Integer.MAX_VALUE / 22316;
         this.graph = g;
         this.nodeAccess = g.getNodeAccess();
+        this.dir = dir;
         dataAccess = dir.find("location_index");
     }
 
@@ -128,6 +150,50 @@ public class LocationIndexTree implements LocationIndex {
         return this;
     }
 
+    /**
+     * Sets the number of threads used to create the index in prepareIndex. Every thread builds the
+     * tree for a range of edges and the trees are merged afterwards, so the memory usage increases
+     * a bit while preparing. The stored index is identical to the one created with one thread.
+     * Default is 1.
+     */
+    public LocationIndexTree setPrepareThreads(int prepareThreads) {
+        if (prepareThreads < 1)
+            throw new IllegalArgumentException("Threads of location index preparation must be at least 1 but was " + prepareThreads);
+
+        this.prepareThreads = prepareThreads;
+        return this;
+    }
+
+    /**
+     * Stores for every of the specified encoders which nodes have an accessible edge. If
+     * findClosest is called with a DefaultEdgeFilter of one of these encoders the tiles are
+     * filtered via this bitmap before any edge is explored, so that e.g. a car query does not
+     * decode the footways of a pedestrian zone and widens the search early if there are no car
+     * roads nearby. This needs one bit per node and encoder. Default is no encoder.
+     */
+    public LocationIndexTree setAccessFilterEncoders(List<FlagEncoder> encoders) {
+        if (initialized)
+            throw new IllegalStateException("Call setAccessFilterEncoders before prepareIndex or loadExisting");
+
+        this.accessEncoders = new ArrayList<>(encoders);
+        return this;
+    }
+
+    /**
+     * Stores the ids of every leaf with more than one entry sorted and as variable length deltas
+     * instead of one int per id. As the ids of one tile are usually close to each other most
+     * deltas need only one or two bytes, so the index gets smaller especially for leafs with many
+     * entries. Decoding the leafs of a query needs a bit more CPU. The setting is stored in the
+     * index, i.e. loadExisting overwrites it. Default is false.
+     */
+    public LocationIndexTree setCompactLeafs(boolean compactLeafs) {
+        if (initialized)
+            throw new IllegalStateException("Call setCompactLeafs before prepareIndex or loadExisting");
+
+        this.compactLeafs = compactLeafs;
+        return this;
+    }
+
     void prepareAlgo() {
         // 0.1 meter should count as 'equal'
         equalNormedDelta = distCalc.calcNormalizedDist(0.1);
@@ -221,11 +287,67 @@ public class LocationIndexTree implements LocationIndex {
     }
 
     InMemConstructionIndex getPrepareInMemIndex() {
-        InMemConstructionIndex memIndex = new InMemConstructionIndex(entries[0]);
-        memIndex.prepare();
+        final InMemConstructionIndex memIndex = new InMemConstructionIndex(entries[0]);
+        int edges = graph.getAllEdges().length();
+        int threads = Math.min(prepareThreads, Math.max(1, edges / MIN_EDGES_PER_THREAD));
+        if (threads <= 1) {
+            memIndex.prepare();
+            return memIndex;
+        }
+
+        ExecutorService threadPool = Executors.newFixedThreadPool(threads);
+        try {
+            // 1. every thread fills its own tree for a range of edges
+            final InMemConstructionIndex[] partialIndices = new InMemConstructionIndex[threads];
+            List<Callable<Object>> tasks = new ArrayList<>(threads);
+            int edgesPerThread = (edges + threads - 1) / threads;
+            for (int i = 0; i < threads; i++) {
+                final InMemConstructionIndex partialIndex = new InMemConstructionIndex(entries[0]);
+                partialIndices[i] = partialIndex;
+                final int fromEdge = i * edgesPerThread;
+                final int toEdge = Math.min(edges, fromEdge + edgesPerThread);
+                tasks.add(Executors.callable(new Runnable() {
+                    @Override
+                    public void run() {
+                        partialIndex.prepare(fromEdge, toEdge);
+                    }
+                }));
+            }
+            invokeAll(threadPool, tasks);
+
+            // 2. merge the subtrees of the top level tiles, they are disjoint and can be merged in parallel
+            tasks.clear();
+            for (int i = 0; i < entries[0]; i++) {
+                final int subIndex = i;
+                tasks.add(Executors.callable(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (InMemConstructionIndex partialIndex : partialIndices) {
+                            memIndex.merge(memIndex.root, partialIndex.root, subIndex);
+                        }
+                    }
+                }));
+            }
+            invokeAll(threadPool, tasks);
+        } finally {
+            threadPool.shutdown();
+        }
         return memIndex;
     }
 
+    private static void invokeAll(ExecutorService threadPool, List<Callable<Object>> tasks) {
+        try {
+            for (Future<Object> future : threadPool.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Preparation of location index was interrupted", ex);
+        } catch (ExecutionException ex) {
+            throw new RuntimeException("Preparation of location index failed", ex.getCause());
+        }
+    }
+
     @Override
     public LocationIndex setResolution(int minResolutionInMeter) {
         if (minResolutionInMeter <= 0)
@@ -265,7 +387,19 @@ public class LocationIndexTree implements LocationIndex {
                     + dataAccess.getHeader(1 * 4) + " vs. " + calcChecksum());
 
         setMinResolutionInMeter(dataAccess.getHeader(2 * 4));
+        // indices created before the compact format was introduced have 0 in this header
+        compactLeafs = dataAccess.getHeader(3 * 4) == 1;
         prepareAlgo();
+        if (!accessEncoders.isEmpty()) {
+            accessBitmaps = dir.find("location_index_access");
+            if (!accessBitmaps.loadExisting() || accessBitmaps.getHeader(0) != accessEncoders.size()
+                    || accessBitmaps.getHeader(4) != graph.getNodes()
+                    || accessBitmaps.getHeader(2 * 4) != calcAccessChecksum()) {
+                logger.info("access bitmaps of location index are missing or for different encoders, recreating them");
+                prepareAccessBitmaps();
+            }
+            wordsPerEncoder = (graph.getNodes() + 31) >>> 5;
+        }
         initialized = true;
         return true;
     }
@@ -275,9 +409,12 @@ public class LocationIndexTree implements LocationIndex {
         dataAccess.setHeader(0, MAGIC_INT);
         dataAccess.setHeader(1 * 4, calcChecksum());
         dataAccess.setHeader(2 * 4, minResolutionInMeter);
+        dataAccess.setHeader(3 * 4, compactLeafs ? 1 : 0);
 
         // saving space not necessary: dataAccess.trimTo((lastPointer + 1) * 4);
         dataAccess.flush();
+        if (accessBitmaps != null)
+            accessBitmaps.flush();
     }
 
     @Override
@@ -290,10 +427,16 @@ public class LocationIndexTree implements LocationIndex {
         // in-memory preparation
         InMemConstructionIndex inMem = getPrepareInMemIndex();
 
+        if (!accessEncoders.isEmpty()) {
+            accessBitmaps = dir.find("location_index_access");
+            prepareAccessBitmaps();
+        }
+
         // compact & store to dataAccess
         dataAccess.create(64 * 1024);
+        long storedBytes;
         try {
-            inMem.store(inMem.root, START_POINTER);
+            storedBytes = (long) inMem.store(inMem.root, START_POINTER) * 4;
             flush();
         } catch (Exception ex) {
             throw new IllegalStateException("Problem while storing location index. " + Helper.getMemInfo(), ex);
@@ -303,7 +446,9 @@ public class LocationIndexTree implements LocationIndex {
         logger.info("location index created in " + sw.stop().getSeconds()
                 + "s, size:" + Helper.nf(inMem.size)
                 + ", leafs:" + Helper.nf(inMem.leafs)
+                + ", bytes:" + Helper.nf(storedBytes)
                 + ", precision:" + minResolutionInMeter
+                + ", compact:" + compactLeafs
                 + ", depth:" + entries.length
                 + ", checksum:" + calcChecksum()
                 + ", entries:" + Arrays.toString(entries)
@@ -312,6 +457,80 @@ public class LocationIndexTree implements LocationIndex {
         return this;
     }
 
+    private void prepareAccessBitmaps() {
+        int nodes = graph.getNodes();
+        wordsPerEncoder = (nodes + 31) >>> 5;
+        accessBitmaps.create((long) wordsPerEncoder * accessEncoders.size() * 4);
+        accessBitmaps.ensureCapacity((long) wordsPerEncoder * accessEncoders.size() * 4);
+        // a fresh DataAccess is not necessarily zeroed, e.g. if it reuses an existing file
+        for (long pointer = 0; pointer < (long) wordsPerEncoder * accessEncoders.size() * 4; pointer += 4) {
+            accessBitmaps.setInt(pointer, 0);
+        }
+
+        AllEdgesIterator allIter = graph.getAllEdges();
+        while (allIter.next()) {
+            for (int encoderIndex = 0; encoderIndex < accessEncoders.size(); encoderIndex++) {
+                FlagEncoder encoder = accessEncoders.get(encoderIndex);
+                if (allIter.isForward(encoder) || allIter.isBackward(encoder)) {
+                    setAccessible(encoderIndex, allIter.getBaseNode());
+                    setAccessible(encoderIndex, allIter.getAdjNode());
+                }
+            }
+        }
+        accessBitmaps.setHeader(0, accessEncoders.size());
+        accessBitmaps.setHeader(4, nodes);
+        accessBitmaps.setHeader(2 * 4, calcAccessChecksum());
+    }
+
+    /**
+     * Marks the nodes of the specified edge as accessible for every access filter encoder that can
+     * use the edge now. Call this if the flags of the edge were changed after the index was
+     * prepared, otherwise findClosest could skip the edge for a DefaultEdgeFilter. Nodes that lost
+     * their access keep their bit, which is fine as the edge filter is still applied.
+     */
+    public void updateAccess(EdgeIteratorState edge) {
+        if (accessBitmaps == null)
+            return;
+
+        int base = edge.getBaseNode(), adj = edge.getAdjNode();
+        // nodes added after the preparation are not in the index
+        int nodes = accessBitmaps.getHeader(4);
+        for (int encoderIndex = 0; encoderIndex < accessEncoders.size(); encoderIndex++) {
+            FlagEncoder encoder = accessEncoders.get(encoderIndex);
+            if (edge.isForward(encoder) || edge.isBackward(encoder)) {
+                if (base < nodes)
+                    setAccessible(encoderIndex, base);
+                if (adj < nodes)
+                    setAccessible(encoderIndex, adj);
+            }
+        }
+    }
+
+    private int calcAccessChecksum() {
+        return accessEncoders.toString().hashCode();
+    }
+
+    private void setAccessible(int encoderIndex, int node) {
+        long pointer = ((long) encoderIndex * wordsPerEncoder + (node >>> 5)) * 4;
+        accessBitmaps.setInt(pointer, accessBitmaps.getInt(pointer) | (1 << (node & 31)));
+    }
+
+    private boolean isAccessible(int encoderIndex, int node) {
+        long pointer = ((long) encoderIndex * wordsPerEncoder + (node >>> 5)) * 4;
+        return (accessBitmaps.getInt(pointer) & (1 << (node & 31))) != 0;
+    }
+
+    /**
+     * @return the index of the access bitmap that can be used for the specified filter or -1
+     */
+    private int getAccessEncoderIndex(EdgeFilter edgeFilter) {
+        if (accessBitmaps == null || !(edgeFilter instanceof DefaultEdgeFilter))
+            return -1;
+
+        // DefaultEdgeFilter.accept is final and accepts only edges with access in one direction
+        return accessEncoders.indexOf(((DefaultEdgeFilter) edgeFilter).getEncoder());
+    }
+
     int calcChecksum() {
         // do not include the edges as we could get problem with CHGraph due to shortcuts
         // ^ graph.getAllEdges().count();
@@ -321,6 +540,8 @@ public class LocationIndexTree implements LocationIndex {
     @Override
     public void close() {
         dataAccess.close();
+        if (accessBitmaps != null)
+            accessBitmaps.close();
     }
 
     @Override
@@ -330,7 +551,7 @@ public class LocationIndexTree implements LocationIndex {
 
     @Override
     public long getCapacity() {
-        return dataAccess.getCapacity();
+        return dataAccess.getCapacity() + (accessBitmaps == null ? 0 : accessBitmaps.getCapacity());
     }
 
     @Override
@@ -351,6 +572,8 @@ public class LocationIndexTree implements LocationIndex {
             if (value < 0) {
                 // single data entries (less disc space)
                 set.add(-(value + 1));
+            } else if (compactLeafs) {
+                readCompactLeaf(pointer + 4, (long) value * 4, set);
             } else {
                 long max = (long) value * 4;
                 // leaf entry => value is maxPointer
@@ -368,6 +591,34 @@ public class LocationIndexTree implements LocationIndex {
         }
     }
 
+    /**
+     * Decodes the entries of a leaf written by InMemConstructionIndex.storeCompactLeaf directly
+     * into the specified set. The words are decoded one after the other so that no buffer is
+     * necessary.
+     */
+    private void readCompactLeaf(long pointer, long maxPointer, GHIntHashSet set) {
+        int value = 0, shift = 0, prevId = -1;
+        for (; pointer < maxPointer; pointer += 4) {
+            int word = dataAccess.getInt(pointer);
+            for (int byteIndex = 0; byteIndex < 4; byteIndex++, word >>>= 8) {
+                value |= (word & 0x7F) << shift;
+                if ((word & 0x80) != 0) {
+                    shift += 7;
+                    continue;
+                }
+
+                // the ids are unique, so only the padding of the last word can be a delta of 0
+                if (prevId >= 0 && value == 0)
+                    return;
+
+                prevId = prevId < 0 ? value : prevId + value;
+                set.add(prevId);
+                value = 0;
+                shift = 0;
+            }
+        }
+    }
+
     // this method returns the spatial key in reverse order for easier right-shifting
     final long createReverseKey(double lat, double lon) {
         return BitUtil.BIG.reverse(keyAlgo.encode(lat, lon), keyAlgo.getBits());
@@ -456,24 +707,29 @@ public class LocationIndexTree implements LocationIndex {
      */
     public final boolean findNetworkEntries(double queryLat, double queryLon,
                                             GHIntHashSet foundEntries, int iteration) {
+        return findNetworkEntries(queryLat, queryLon, foundEntries, iteration, null, -1);
+    }
+
+    private boolean findNetworkEntries(double queryLat, double queryLon, GHIntHashSet foundEntries, int iteration,
+                                       GHLongObjectHashMap<int[]> tileCache, int accessEncoderIndex) {
         // find entries in border of searchbox
         for (int yreg = -iteration; yreg <= iteration; yreg++) {
             double subqueryLat = queryLat + yreg * deltaLat;
             double subqueryLonA = queryLon - iteration * deltaLon;
             double subqueryLonB = queryLon + iteration * deltaLon;
-            findNetworkEntriesSingleRegion(foundEntries, subqueryLat, subqueryLonA);
+            findNetworkEntriesSingleRegion(foundEntries, subqueryLat, subqueryLonA, tileCache, accessEncoderIndex);
 
             // minor optimization for iteration == 0
             if (iteration > 0)
-                findNetworkEntriesSingleRegion(foundEntries, subqueryLat, subqueryLonB);
+                findNetworkEntriesSingleRegion(foundEntries, subqueryLat, subqueryLonB, tileCache, accessEncoderIndex);
         }
 
         for (int xreg = -iteration + 1; xreg <= iteration - 1; xreg++) {
             double subqueryLon = queryLon + xreg * deltaLon;
             double subqueryLatA = queryLat - iteration * deltaLat;
             double subqueryLatB = queryLat + iteration * deltaLat;
-            findNetworkEntriesSingleRegion(foundEntries, subqueryLatA, subqueryLon);
-            findNetworkEntriesSingleRegion(foundEntries, subqueryLatB, subqueryLon);
+            findNetworkEntriesSingleRegion(foundEntries, subqueryLatA, subqueryLon, tileCache, accessEncoderIndex);
+            findNetworkEntriesSingleRegion(foundEntries, subqueryLatB, subqueryLon, tileCache, accessEncoderIndex);
         }
 
         if (iteration % 2 != 0) {
@@ -515,23 +771,149 @@ public class LocationIndexTree implements LocationIndex {
         fillIDs(keyPart, START_POINTER, storedNetworkEntryIds, 0);
     }
 
+    /**
+     * Same as findNetworkEntriesSingleRegion but remembers the entries of every tile in the
+     * specified cache, so that neighbouring query points do not need to read the tree again.
+     * Additionally skips the entries without accessible edge if accessEncoderIndex is not -1.
+     */
+    private void findNetworkEntriesSingleRegion(GHIntHashSet storedNetworkEntryIds, double queryLat, double queryLon,
+                                                GHLongObjectHashMap<int[]> tileCache, int accessEncoderIndex) {
+        if (tileCache == null && accessEncoderIndex < 0) {
+            findNetworkEntriesSingleRegion(storedNetworkEntryIds, queryLat, queryLon);
+            return;
+        }
+
+        long keyPart = createReverseKey(queryLat, queryLon);
+        int[] tileEntries = tileCache == null ? null : tileCache.get(keyPart);
+        if (tileEntries == null) {
+            GHIntHashSet set = new GHIntHashSet();
+            fillIDs(keyPart, START_POINTER, set, 0);
+            tileEntries = set.toArray();
+            if (tileCache != null) {
+                if (tileCache.size() >= MAX_CACHED_TILES)
+                    // the points are sorted so old tiles are unlikely to be requested again
+                    tileCache.clear();
+                tileCache.put(keyPart, tileEntries);
+            }
+        }
+        for (int entry : tileEntries) {
+            if (accessEncoderIndex < 0 || isAccessible(accessEncoderIndex, entry))
+                storedNetworkEntryIds.add(entry);
+        }
+    }
+
     @Override
     public QueryResult findClosest(final double queryLat, final double queryLon, final EdgeFilter edgeFilter) {
         if (isClosed())
             throw new IllegalStateException("You need to create a new LocationIndex instance as it is already closed");
 
+        return findClosest(queryLat, queryLon, edgeFilter, graph.createEdgeExplorer(), null);
+    }
+
+    /**
+     * Finds the closest QueryResult for every point. The points are processed in the order of their
+     * spatial key, i.e. neighbouring points are processed one after the other and share the entries
+     * of the tiles they have in common. Use this method instead of calling findClosest for every
+     * point if many points have to be snapped.
+     *
+     * @return the QueryResult for every point in the order of the specified points
+     */
+    @Override
+    public List<QueryResult> findClosest(double[] lats, double[] lons, EdgeFilter edgeFilter) {
+        return findClosest(lats, lons, edgeFilter, null);
+    }
+
+    /**
+     * Same as findClosest(lats, lons, edgeFilter) but the spatially sorted points are split into
+     * chunks which are processed in parallel on the specified executor service.
+     *
+     * @param executorService the executor service or null if the calling thread should be used
+     */
+    public List<QueryResult> findClosest(final double[] lats, final double[] lons, final EdgeFilter edgeFilter,
+                                         ExecutorService executorService) {
+        if (isClosed())
+            throw new IllegalStateException("You need to create a new LocationIndex instance as it is already closed");
+        if (lats.length != lons.length)
+            throw new IllegalArgumentException("The number of latitudes " + lats.length + " and longitudes " + lons.length + " has to be equal");
+
+        final int[] order = sortSpatially(lats, lons);
+        final QueryResult[] results = new QueryResult[order.length];
+        if (executorService == null || order.length <= BATCH_CHUNK_SIZE) {
+            findClosest(lats, lons, edgeFilter, order, 0, order.length, results);
+        } else {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int start = 0; start < order.length; start += BATCH_CHUNK_SIZE) {
+                final int from = start;
+                final int to = Math.min(order.length, start + BATCH_CHUNK_SIZE);
+                futures.add(executorService.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        findClosest(lats, lons, edgeFilter, order, from, to, results);
+                    }
+                }));
+            }
+            try {
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Snapping was interrupted", ex);
+            } catch (ExecutionException ex) {
+                throw new RuntimeException("Snapping failed", ex.getCause());
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    private void findClosest(double[] lats, double[] lons, EdgeFilter edgeFilter, int[] order, int from, int to,
+                             QueryResult[] results) {
+        // the explorer and the tile entries are shared between the points of one chunk
+        EdgeExplorer explorer = graph.createEdgeExplorer();
+        GHLongObjectHashMap<int[]> tileCache = new GHLongObjectHashMap<>();
+        for (int i = from; i < to; i++) {
+            int index = order[i];
+            results[index] = findClosest(lats[index], lons[index], edgeFilter, explorer, tileCache);
+        }
+    }
+
+    /**
+     * @return the indices of the specified points sorted by their spatial key
+     */
+    private int[] sortSpatially(double[] lats, double[] lons) {
+        final long[] keys = new long[lats.length];
+        Integer[] order = new Integer[lats.length];
+        for (int i = 0; i < lats.length; i++) {
+            keys[i] = keyAlgo.encode(lats[i], lons[i]);
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                return Long.compare(keys[o1], keys[o2]);
+            }
+        });
+        int[] result = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            result[i] = order[i];
+        }
+        return result;
+    }
+
+    private QueryResult findClosest(final double queryLat, final double queryLon, final EdgeFilter edgeFilter,
+                                    final EdgeExplorer explorer, GHLongObjectHashMap<int[]> tileCache) {
+        int accessEncoderIndex = getAccessEncoderIndex(edgeFilter);
         GHIntHashSet allCollectedEntryIds = new GHIntHashSet();
         final QueryResult closestMatch = new QueryResult(queryLat, queryLon);
         for (int iteration = 0; iteration < maxRegionSearch; iteration++) {
             GHIntHashSet storedNetworkEntryIds = new GHIntHashSet();
-            boolean earlyFinish = findNetworkEntries(queryLat, queryLon, storedNetworkEntryIds, iteration);
+            boolean earlyFinish = findNetworkEntries(queryLat, queryLon, storedNetworkEntryIds, iteration, tileCache, accessEncoderIndex);
             storedNetworkEntryIds.removeAll(allCollectedEntryIds);
             allCollectedEntryIds.addAll(storedNetworkEntryIds);
 
             // clone storedIds to avoid interference with forEach
             final GHBitSet checkBitset = new GHTBitSet(new GHIntHashSet(storedNetworkEntryIds));
             // find nodes from the network entries which are close to 'point'
-            final EdgeExplorer explorer = graph.createEdgeExplorer();
             storedNetworkEntryIds.forEach(new IntPredicate() {
                 @Override
                 public boolean apply(int networkEntryNodeId) {
@@ -572,6 +954,269 @@ public class LocationIndexTree implements LocationIndex {
         return closestMatch;
     }
     
+    /**
+     * Collects the entries of all tiles which intersect the bounding box of the circle and visits
+     * their adjacent edges. As the tree contains an entry for every tile an edge crosses, all edges
+     * within the radius are found independent of maxRegionSearch.
+     */
+    @Override
+    public void findWithin(double queryLat, double queryLon, double radiusInMeter, EdgeFilter edgeFilter, Visitor visitor) {
+        if (isClosed())
+            throw new IllegalStateException("You need to create a new LocationIndex instance as it is already closed");
+
+        BBox bounds = graph.getBounds();
+        BBox circleBBox = distCalc.createBBox(queryLat, queryLon, radiusInMeter);
+        double minLat = Math.max(circleBBox.minLat, bounds.minLat), maxLat = Math.min(circleBBox.maxLat, bounds.maxLat);
+        double minLon = Math.max(circleBBox.minLon, bounds.minLon), maxLon = Math.min(circleBBox.maxLon, bounds.maxLon);
+        if (minLat > maxLat || minLon > maxLon)
+            return;
+
+        int accessEncoderIndex = getAccessEncoderIndex(edgeFilter);
+        GHIntHashSet entries = new GHIntHashSet();
+        int latTiles = (int) Math.ceil((maxLat - minLat) / deltaLat);
+        int lonTiles = (int) Math.ceil((maxLon - minLon) / deltaLon);
+        for (int latTile = 0; latTile <= latTiles; latTile++) {
+            double tileLat = Math.min(maxLat, minLat + latTile * deltaLat);
+            for (int lonTile = 0; lonTile <= lonTiles; lonTile++) {
+                double tileLon = Math.min(maxLon, minLon + lonTile * deltaLon);
+                findNetworkEntriesSingleRegion(entries, tileLat, tileLon, null, accessEncoderIndex);
+            }
+        }
+
+        EdgeExplorer explorer = graph.createEdgeExplorer();
+        EdgeCandidate candidate = new EdgeCandidate(queryLat, queryLon, distCalc, nodeAccess);
+        double normedRadius = distCalc.calcNormalizedDist(radiusInMeter);
+        GHIntHashSet visitedEdges = new GHIntHashSet();
+        for (IntCursor entry : entries) {
+            EdgeIterator iter = explorer.setBaseNode(entry.value);
+            while (iter.next()) {
+                if (!edgeFilter.accept(iter) || !visitedEdges.add(iter.getEdge()))
+                    continue;
+
+                candidate.calc(iter);
+                if (candidate.normedDist <= normedRadius
+                        && !visitor.onEdge(iter, candidate.closestNode, candidate.wayIndex, candidate.position, candidate.getDistance()))
+                    return;
+            }
+        }
+    }
+
+    /**
+     * Visits the tiles ring by ring around the tile of the query point and keeps the k closest
+     * edges in a bounded heap. The search stops when the k-th distance is smaller than the distance
+     * to the tiles not yet complete or when these are further away than maxRadiusInMeter. The
+     * QueryResults are only created for the final k edges.
+     */
+    @Override
+    public List<QueryResult> findKNearest(double queryLat, double queryLon, int k, double maxRadiusInMeter, EdgeFilter edgeFilter) {
+        if (isClosed())
+            throw new IllegalStateException("You need to create a new LocationIndex instance as it is already closed");
+
+        List<QueryResult> results = new ArrayList<>();
+        if (k <= 0)
+            return results;
+
+        BBox bounds = graph.getBounds();
+        double normedMaxRadius = distCalc.calcNormalizedDist(maxRadiusInMeter);
+        if (calcNormalizedDistToBox(queryLat, queryLon, bounds.minLat, bounds.maxLat, bounds.minLon, bounds.maxLon) > normedMaxRadius)
+            return results;
+
+        int accessEncoderIndex = getAccessEncoderIndex(edgeFilter);
+        // the spatial key clamps a query outside of the bounds to a tile at the border
+        GHPoint center = getCenter(queryLat, queryLon);
+        EdgeExplorer explorer = graph.createEdgeExplorer();
+        EdgeCandidate candidate = new EdgeCandidate(queryLat, queryLon, distCalc, nodeAccess);
+        CandidateHeap heap = new CandidateHeap(k);
+        GHIntHashSet visitedEntries = new GHIntHashSet();
+        GHIntHashSet visitedEdges = new GHIntHashSet();
+        for (int ring = 0; ; ring++) {
+            GHIntHashSet entries = new GHIntHashSet();
+            findNetworkEntriesRing(center, ring, entries, accessEncoderIndex);
+            for (IntCursor entry : entries) {
+                if (!visitedEntries.add(entry.value))
+                    continue;
+
+                EdgeIterator iter = explorer.setBaseNode(entry.value);
+                while (iter.next()) {
+                    if (!edgeFilter.accept(iter) || !visitedEdges.add(iter.getEdge()))
+                        continue;
+
+                    candidate.calc(iter);
+                    if (candidate.normedDist <= normedMaxRadius
+                            && (!heap.isFull() || candidate.normedDist < heap.peekNormedDist()))
+                        heap.add(iter.getEdge(), iter.getAdjNode(), candidate);
+                }
+            }
+
+            // an edge is stored only in the tiles of its Bresenham line, which can miss a tile it crosses
+            // at the corner but not its neighbours. So only the edges of the previous rings are complete
+            if (ring == 0)
+                continue;
+            double normedIncompleteDist = calcNormalizedDistOutside(queryLat, queryLon, center, ring - 1);
+            if (normedIncompleteDist == Double.POSITIVE_INFINITY || normedIncompleteDist > normedMaxRadius
+                    || heap.isFull() && heap.peekNormedDist() <= normedIncompleteDist)
+                break;
+        }
+
+        for (int i : heap.sortedIndices()) {
+            EdgeIteratorState edge = graph.getEdgeIteratorState(heap.edges[i], heap.adjNodes[i]);
+            results.add(EdgeCandidate.createQueryResult(queryLat, queryLon, edge, heap.closestNodes[i], heap.wayIndices[i],
+                    heap.positions[i], distCalc.calcDenormalizedDist(heap.normedDists[i]), distCalc));
+        }
+        return results;
+    }
+
+    /**
+     * Collects the entries of the tiles with a distance of ring tiles to the tile of the specified
+     * center. Tiles outside of the graph bounds are skipped.
+     *
+     * @return the number of visited tiles
+     */
+    int findNetworkEntriesRing(GHPoint center, int ring, GHIntHashSet foundEntries, int accessEncoderIndex) {
+        BBox bounds = graph.getBounds();
+        // the center is in the middle of a tile, so rounding down counts the complete tiles to the border
+        int minY = Math.max(-ring, -(int) ((center.lat - bounds.minLat) / deltaLat));
+        int maxY = Math.min(ring, (int) ((bounds.maxLat - center.lat) / deltaLat));
+        int minX = Math.max(-ring, -(int) ((center.lon - bounds.minLon) / deltaLon));
+        int maxX = Math.min(ring, (int) ((bounds.maxLon - center.lon) / deltaLon));
+        int tiles = 0;
+        for (int yreg = minY; yreg <= maxY; yreg++) {
+            double lat = center.lat + yreg * deltaLat;
+            boolean border = yreg == -ring || yreg == ring;
+            for (int xreg = border ? minX : -ring; xreg <= maxX; xreg += border ? 1 : 2 * ring) {
+                if (xreg < minX)
+                    continue;
+                findNetworkEntriesSingleRegion(foundEntries, lat, center.lon + xreg * deltaLon, null, accessEncoderIndex);
+                tiles++;
+            }
+        }
+        return tiles;
+    }
+
+    /**
+     * Returns the normalized distance from the query point to the part of the graph bounds which
+     * is outside of the tiles until the specified ring, or infinity if no part is outside.
+     */
+    private double calcNormalizedDistOutside(double queryLat, double queryLon, GHPoint center, int ring) {
+        BBox bounds = graph.getBounds();
+        double minLat = center.lat - (0.5 + ring) * deltaLat, maxLat = center.lat + (0.5 + ring) * deltaLat;
+        double minLon = center.lon - (0.5 + ring) * deltaLon, maxLon = center.lon + (0.5 + ring) * deltaLon;
+        double min = Double.POSITIVE_INFINITY;
+        if (minLat > bounds.minLat)
+            min = Math.min(min, calcNormalizedDistToBox(queryLat, queryLon, bounds.minLat, minLat, bounds.minLon, bounds.maxLon));
+        if (maxLat < bounds.maxLat)
+            min = Math.min(min, calcNormalizedDistToBox(queryLat, queryLon, maxLat, bounds.maxLat, bounds.minLon, bounds.maxLon));
+        if (minLon > bounds.minLon)
+            min = Math.min(min, calcNormalizedDistToBox(queryLat, queryLon, bounds.minLat, bounds.maxLat, bounds.minLon, minLon));
+        if (maxLon < bounds.maxLon)
+            min = Math.min(min, calcNormalizedDistToBox(queryLat, queryLon, bounds.minLat, bounds.maxLat, maxLon, bounds.maxLon));
+        return min;
+    }
+
+    private double calcNormalizedDistToBox(double queryLat, double queryLon, double minLat, double maxLat, double minLon, double maxLon) {
+        double lat = Math.max(minLat, Math.min(maxLat, queryLat));
+        double lon = Math.max(minLon, Math.min(maxLon, queryLon));
+        return distCalc.calcNormalizedDist(queryLat, queryLon, lat, lon);
+    }
+
+    /**
+     * A max heap of at most k edges ordered by their distance to the query point. The edges are
+     * stored in primitive arrays so that replaced candidates do not create objects.
+     */
+    private static class CandidateHeap {
+        final int[] edges;
+        final int[] adjNodes;
+        final int[] closestNodes;
+        final int[] wayIndices;
+        final QueryResult.Position[] positions;
+        final double[] normedDists;
+        private final int[] heap;
+        private int size;
+
+        CandidateHeap(int k) {
+            edges = new int[k];
+            adjNodes = new int[k];
+            closestNodes = new int[k];
+            wayIndices = new int[k];
+            positions = new QueryResult.Position[k];
+            normedDists = new double[k];
+            heap = new int[k];
+        }
+
+        boolean isFull() {
+            return size == heap.length;
+        }
+
+        double peekNormedDist() {
+            return normedDists[heap[0]];
+        }
+
+        /**
+         * Adds the candidate and removes the most distant one if the heap is full
+         */
+        void add(int edge, int adjNode, EdgeCandidate candidate) {
+            boolean replace = isFull();
+            int pos = replace ? 0 : size++;
+            int slot = replace ? heap[0] : pos;
+            edges[slot] = edge;
+            adjNodes[slot] = adjNode;
+            closestNodes[slot] = candidate.closestNode;
+            wayIndices[slot] = candidate.wayIndex;
+            positions[slot] = candidate.position;
+            normedDists[slot] = candidate.normedDist;
+            heap[pos] = slot;
+            if (replace)
+                siftDown(0);
+            else
+                siftUp(pos);
+        }
+
+        private void siftUp(int pos) {
+            int slot = heap[pos];
+            while (pos > 0) {
+                int parent = (pos - 1) / 2;
+                if (normedDists[heap[parent]] >= normedDists[slot])
+                    break;
+                heap[pos] = heap[parent];
+                pos = parent;
+            }
+            heap[pos] = slot;
+        }
+
+        private void siftDown(int pos) {
+            int slot = heap[pos];
+            while (true) {
+                int child = 2 * pos + 1;
+                if (child >= size)
+                    break;
+                if (child + 1 < size && normedDists[heap[child + 1]] > normedDists[heap[child]])
+                    child++;
+                if (normedDists[slot] >= normedDists[heap[child]])
+                    break;
+                heap[pos] = heap[child];
+                pos = child;
+            }
+            heap[pos] = slot;
+        }
+
+        /**
+         * @return the slots of the stored edges in ascending order of their distance
+         */
+        int[] sortedIndices() {
+            int[] sorted = new int[size];
+            int count = size;
+            for (int i = count - 1; i >= 0; i--) {
+                sorted[i] = heap[0];
+                size--;
+                if (size > 0) {
+                    heap[0] = heap[size];
+                    siftDown(0);
+                }
+            }
+            return sorted;
+        }
+    }
+
     /**
      * Returns all edges that are within the specified radius around the queried position.
      * Searches at most 9 cells to avoid performance problems. Hence, if the radius is larger than
@@ -789,24 +1434,7 @@ public class LocationIndexTree implements LocationIndex {
             final EdgeIterator allIter = graph.getAllEdges();
             try {
                 while (allIter.next()) {
-                    int nodeA = allIter.getBaseNode();
-                    int nodeB = allIter.getAdjNode();
-                    double lat1 = nodeAccess.getLatitude(nodeA);
-                    double lon1 = nodeAccess.getLongitude(nodeA);
-                    double lat2;
-                    double lon2;
-                    PointList points = allIter.fetchWayGeometry(0);
-                    int len = points.getSize();
-                    for (int i = 0; i < len; i++) {
-                        lat2 = points.getLatitude(i);
-                        lon2 = points.getLongitude(i);
-                        addNode(nodeA, nodeB, lat1, lon1, lat2, lon2);
-                        lat1 = lat2;
-                        lon1 = lon2;
-                    }
-                    lat2 = nodeAccess.getLatitude(nodeB);
-                    lon2 = nodeAccess.getLongitude(nodeB);
-                    addNode(nodeA, nodeB, lat1, lon1, lat2, lon2);
+                    addEdge(allIter);
                 }
             } catch (Exception ex) {
                 logger.error("Problem! base:" + allIter.getBaseNode() + ", adj:" + allIter.getAdjNode()
@@ -814,6 +1442,73 @@ public class LocationIndexTree implements LocationIndex {
             }
         }
 
+        /**
+         * Adds the edges from fromEdge (inclusive) to toEdge (exclusive). Other than the graph the
+         * tree is not thread safe, so every thread needs its own InMemConstructionIndex.
+         */
+        void prepare(int fromEdge, int toEdge) {
+            // iterate over all edges as this skips the edges removed e.g. with the subnetworks
+            AllEdgesIterator allIter = graph.getAllEdges();
+            while (allIter.next()) {
+                int edge = allIter.getEdge();
+                if (edge < fromEdge)
+                    continue;
+                if (edge >= toEdge)
+                    break;
+
+                addEdge(allIter);
+            }
+        }
+
+        private void addEdge(EdgeIteratorState edge) {
+            int nodeA = edge.getBaseNode();
+            int nodeB = edge.getAdjNode();
+            double lat1 = nodeAccess.getLatitude(nodeA);
+            double lon1 = nodeAccess.getLongitude(nodeA);
+            double lat2;
+            double lon2;
+            PointList points = edge.fetchWayGeometry(0);
+            int len = points.getSize();
+            for (int i = 0; i < len; i++) {
+                lat2 = points.getLatitude(i);
+                lon2 = points.getLongitude(i);
+                addNode(nodeA, nodeB, lat1, lon1, lat2, lon2);
+                lat1 = lat2;
+                lon1 = lon2;
+            }
+            lat2 = nodeAccess.getLatitude(nodeB);
+            lon2 = nodeAccess.getLongitude(nodeB);
+            addNode(nodeA, nodeB, lat1, lon1, lat2, lon2);
+        }
+
+        /**
+         * Merges the sub entry at the specified index of the source tree into the target tree.
+         * Subtrees which only exist in the source are taken over without copying, so the source
+         * must not be used afterwards.
+         */
+        void merge(InMemTreeEntry target, InMemTreeEntry source, int index) {
+            InMemEntry sourceSub = source.getSubEntry(index);
+            if (sourceSub == null)
+                return;
+
+            InMemEntry targetSub = target.getSubEntry(index);
+            if (targetSub == null) {
+                target.setSubEntry(index, sourceSub);
+            } else if (targetSub.isLeaf()) {
+                InMemLeafEntry targetLeaf = (InMemLeafEntry) targetSub;
+                IntArrayList sourceNodes = ((InMemLeafEntry) sourceSub).getResults();
+                for (int i = 0; i < sourceNodes.size(); i++) {
+                    targetLeaf.addNode(sourceNodes.get(i));
+                }
+            } else {
+                InMemTreeEntry targetTree = (InMemTreeEntry) targetSub;
+                InMemTreeEntry sourceTree = (InMemTreeEntry) sourceSub;
+                for (int i = 0; i < targetTree.subEntries.length; i++) {
+                    merge(targetTree, sourceTree, i);
+                }
+            }
+        }
+
         void addNode(final int nodeA, final int nodeB,
                      final double lat1, final double lon1,
                      final double lat2, final double lon2) {
@@ -915,10 +1610,14 @@ public class LocationIndexTree implements LocationIndex {
                 size += len;
                 intIndex++;
                 leafs++;
-                dataAccess.ensureCapacity((long) (intIndex + len + 1) * 4);
+                // a compact entry needs up to 5 bytes
+                dataAccess.ensureCapacity((long) (intIndex + (compactLeafs ? (len * 5 + 3) / 4 : len) + 1) * 4);
                 if (len == 1) {
                     // less disc space for single entries
                     dataAccess.setInt(refPointer, -entries.get(0) - 1);
+                } else if (compactLeafs) {
+                    intIndex = storeCompactLeaf(entries, intIndex);
+                    dataAccess.setInt(refPointer, intIndex);
                 } else {
                     for (int index = 0; index < len; index++, intIndex++) {
                         dataAccess.setInt((long) intIndex * 4, entries.get(index));
@@ -946,6 +1645,45 @@ public class LocationIndexTree implements LocationIndex {
             }
             return intIndex;
         }
+
+        /**
+         * Writes the sorted entries as variable length integers, where the first entry is stored
+         * absolute and all others as delta to the previous entry. The bytes are packed into ints
+         * starting with the lowest byte and the last int is padded with 0.
+         *
+         * @return the int index after the leaf
+         */
+        private int storeCompactLeaf(IntArrayList entries, int intIndex) {
+            int word = 0, byteIndex = 0, prevId = 0;
+            for (int index = 0; index < entries.size(); index++) {
+                int id = entries.get(index);
+                int value = index == 0 ? id : id - prevId;
+                if (value <= 0 && index > 0)
+                    throw new IllegalStateException("Leaf entries have to be sorted and unique " + entries);
+                prevId = id;
+                while (true) {
+                    int b = value & 0x7F;
+                    value >>>= 7;
+                    if (value != 0)
+                        b |= 0x80;
+                    word |= b << (byteIndex * 8);
+                    byteIndex++;
+                    if (byteIndex == 4) {
+                        dataAccess.setInt((long) intIndex * 4, word);
+                        intIndex++;
+                        word = 0;
+                        byteIndex = 0;
+                    }
+                    if (value == 0)
+                        break;
+                }
+            }
+            if (byteIndex > 0) {
+                dataAccess.setInt((long) intIndex * 4, word);
+                intIndex++;
+            }
+            return intIndex;
+        }
     }
 
     /**
@@ -80,6 +80,16 @@ public class InstructionList extends AbstractList<Instruction> {
         instructions.set(instructions.size() - 1, instr);
     }
 
+    /**
+     * @return the human readable text of the specified instruction in the language of this list
+     */
+    public String createText(Instruction instruction) {
+        String text = instruction.getTurnDescription(tr);
+        if (Helper.isEmpty(text))
+            text = instruction.getAnnotation().getMessage();
+        return Helper.firstBig(text);
+    }
+
     @JsonValue
     public List<Map<String, Object>> createJson() {
         List<Map<String, Object>> instrList = new ArrayList<>(instructions.size());
@@ -90,10 +100,7 @@ public class InstructionList extends AbstractList<Instruction> {
             instrList.add(instrJson);
 
             InstructionAnnotation ia = instruction.getAnnotation();
-            String text = instruction.getTurnDescription(tr);
-            if (Helper.isEmpty(text))
-                text = ia.getMessage();
-            instrJson.put("text", Helper.firstBig(text));
+            instrJson.put("text", createText(instruction));
             if (!ia.isEmpty()) {
                 instrJson.put("annotation_text", ia.getMessage());
                 instrJson.put("annotation_importance", ia.getImportance());
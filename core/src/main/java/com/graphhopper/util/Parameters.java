@@ -124,6 +124,14 @@ public class Parameters {
          * a rectangle lat1,lon1,lat2,lon2
          */
         public static final String BLOCK_AREA = "block_area";
+        /**
+         * The maximum number of responses in the route cache. The default 0 disables the cache.
+         */
+        public static final String INIT_CACHE_SIZE = ROUTING_INIT_PREFIX + "cache.size";
+        /**
+         * The time in seconds after which an entry of the route cache expires.
+         */
+        public static final String INIT_CACHE_EXPIRE_SECONDS = ROUTING_INIT_PREFIX + "cache.expire_seconds";
     }
 
     /**
@@ -96,10 +96,13 @@ public class PathMerger {
             fullTimeInMillis += path.getTime();
             fullDistance += path.getDistance();
             fullWeight += path.getWeight();
-            if (enableInstructions) {
-                InstructionList il = path.calcInstructions(tr);
+            if (calcPoints || enableInstructions) {
+                // calculate everything in one iteration over the edges, instead of one per result
+                PointList tmpPoints = path.createPointList();
+                InstructionList il = enableInstructions ? new InstructionList(path.getEdgeCount() / 4, tr) : null;
+                altRsp.addPathDetails(path.calcPointsInstructionsAndDetails(tmpPoints, il, tr, requestedPathDetails, pathBuilderFactory, origPoints));
 
-                if (!il.isEmpty()) {
+                if (il != null && !il.isEmpty()) {
                     fullInstructions.addAll(il);
 
                     // for all paths except the last replace the FinishInstruction with a ViaInstructionn
@@ -110,9 +113,6 @@ public class PathMerger {
                     }
                 }
 
-            }
-            if (calcPoints || enableInstructions) {
-                PointList tmpPoints = path.calcPoints();
                 if (fullPoints.isEmpty())
                     fullPoints = new PointList(tmpPoints.size(), tmpPoints.is3D());
 
@@ -122,7 +122,6 @@ public class PathMerger {
                 }
 
                 fullPoints.add(tmpPoints);
-                altRsp.addPathDetails(path.calcDetails(requestedPathDetails, pathBuilderFactory, origPoints));
                 origPoints = fullPoints.size();
             }
 
@@ -44,13 +44,21 @@ public class PathDetailsFromEdges implements Path.EdgeVisitor {
 
     @Override
     public void next(EdgeIteratorState edge, int index, int prevEdgeId) {
+        next(edge, edge.fetchWayGeometry(2).size());
+    }
+
+    /**
+     * Same as next(edge, index, prevEdgeId) but uses the already known number of points of the
+     * edge without its base node.
+     */
+    public void next(EdgeIteratorState edge, int points) {
         for (PathDetailsBuilder calc : calculators) {
             if (calc.isEdgeDifferentToLastEdge(edge)) {
                 calc.endInterval(lastIndex);
                 calc.startInterval(lastIndex);
             }
         }
-        lastIndex += edge.fetchWayGeometry(2).size();
+        lastIndex += points;
     }
 
     @Override
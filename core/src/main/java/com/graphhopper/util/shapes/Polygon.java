@@ -209,6 +209,21 @@ public class Polygon implements Shape {
         return true;
     }
 
+    /**
+     * @return the number of points of this polygon
+     */
+    public int getSize() {
+        return lat.length;
+    }
+
+    public double getLat(int index) {
+        return lat[index];
+    }
+
+    public double getLon(int index) {
+        return lon[index];
+    }
+
     public double getMinLat() {
         return minLat;
     }
@@ -18,12 +18,14 @@
 package com.graphhopper;
 
 import com.graphhopper.json.geo.JsonFeature;
+import com.graphhopper.routing.RouteCache;
 import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.GraphBuilder;
 import com.graphhopper.storage.GraphHopperStorage;
 import com.graphhopper.storage.NodeAccess;
 import com.graphhopper.storage.change.ChangeGraphHelper;
+import com.graphhopper.storage.index.CachingLocationIndex;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.util.PointList;
 import com.graphhopper.util.shapes.BBox;
@@ -189,4 +191,89 @@ public class GraphHopperAPITest {
 
         assertEquals(2, checkPointCounter.get());
     }
+
+    @Test
+    public void testRouteCache() {
+        GraphHopperStorage graph = new GraphBuilder(encodingManager).create();
+        initGraph(graph);
+        graph.edge(1, 2, 10, true);
+
+        RouteCache cache = new RouteCache(10, 60 * 1000);
+        GraphHopper instance = new GraphHopper().
+                setStoreOnFlush(false).
+                setEncodingManager(encodingManager).setCHEnabled(false).
+                setRouteCache(cache).
+                loadGraph(graph);
+
+        GHResponse rsp = instance.route(new GHRequest(42, 10.4, 42, 10));
+        assertFalse(rsp.toString(), rsp.hasErrors());
+        assertEquals(1800, rsp.getBest().getTime());
+        assertEquals(0, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getSize());
+
+        rsp = instance.route(new GHRequest(42, 10.4, 42, 10));
+        assertFalse(rsp.toString(), rsp.hasErrors());
+        assertEquals(1800, rsp.getBest().getTime());
+        assertTrue(rsp.getDebugInfo(), rsp.getDebugInfo().contains("route_cache:hit"));
+        assertEquals(1, cache.getHits());
+
+        // a different weighting must not use the cached entry
+        rsp = instance.route(new GHRequest(42, 10.4, 42, 10).setWeighting("shortest"));
+        assertFalse(rsp.toString(), rsp.hasErrors());
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getSize());
+
+        // calcPaths always calculates the paths
+        GHResponse calcRsp = new GHResponse();
+        assertEquals(1, instance.calcPaths(new GHRequest(42, 10.4, 42, 10), calcRsp).size());
+        assertEquals(1, cache.getHits());
+
+        // changing the graph invalidates the cache
+        final List<JsonFeature> list = new ArrayList<>();
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("speed", 5);
+        list.add(new JsonFeature("1", "bbox", new BBox(10.399, 10.4, 42.0, 42.001), null, properties));
+        instance.changeGraph(list);
+        assertEquals(0, cache.getSize());
+
+        rsp = instance.route(new GHRequest(42, 10.4, 42, 10));
+        assertFalse(rsp.toString(), rsp.hasErrors());
+        assertEquals(8400, rsp.getBest().getTime());
+        assertEquals(1, cache.getHits());
+        instance.close();
+    }
+
+    @Test
+    public void testSnapCache() {
+        GraphHopperStorage graph = new GraphBuilder(encodingManager).create();
+        initGraph(graph);
+        graph.edge(1, 2, 10, true);
+
+        GraphHopper instance = new GraphHopper().
+                setStoreOnFlush(false).
+                setEncodingManager(encodingManager).setCHEnabled(false).
+                setSnapCacheSize(10).
+                loadGraph(graph);
+        CachingLocationIndex snapCache = instance.getSnapCache();
+        assertNotNull(snapCache);
+
+        GHResponse rsp = instance.route(new GHRequest(42, 10.4, 42, 10));
+        assertFalse(rsp.toString(), rsp.hasErrors());
+        assertEquals(0, snapCache.getHits());
+        assertEquals(2, snapCache.getSize());
+
+        rsp = instance.route(new GHRequest(42, 10.4, 42.000001, 10));
+        assertFalse(rsp.toString(), rsp.hasErrors());
+        assertEquals(1800, rsp.getBest().getTime());
+        assertEquals(2, snapCache.getHits());
+
+        final List<JsonFeature> list = new ArrayList<>();
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("speed", 5);
+        list.add(new JsonFeature("1", "bbox", new BBox(10.399, 10.4, 42.0, 42.001), null, properties));
+        instance.changeGraph(list);
+        assertEquals(0, snapCache.getSize());
+        instance.close();
+    }
 }
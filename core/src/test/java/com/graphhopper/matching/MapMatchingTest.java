@@ -0,0 +1,204 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for 
+ *  additional information regarding copyright ownership.
+ * 
+ *  GraphHopper GmbH licenses this file to you under the Apache License, 
+ *  Version 2.0 (the "License"); you may not use this file except in 
+ *  compliance with the License. You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.matching;
+
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.FlagEncoder;
+import com.graphhopper.routing.weighting.FastestWeighting;
+import com.graphhopper.storage.GraphExtension;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.storage.RAMDirectory;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.GPXEntry;
+import com.graphhopper.util.Helper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MapMatchingTest {
+    // roughly 111m between the nodes of the grid
+    private static final double GRID = 0.001;
+    private static final int SIZE = 10;
+    private GraphHopperStorage graph;
+    private MapMatching mapMatching;
+
+    @Before
+    public void setUp() {
+        FlagEncoder encoder = new CarFlagEncoder();
+        graph = new GraphHopperStorage(new RAMDirectory(), new EncodingManager(encoder), false,
+                new GraphExtension.NoOpExtension()).create(100);
+        NodeAccess na = graph.getNodeAccess();
+        for (int row = 0; row < SIZE; row++) {
+            for (int col = 0; col < SIZE; col++) {
+                na.setNode(node(row, col), row * GRID, col * GRID);
+            }
+        }
+        for (int row = 0; row < SIZE; row++) {
+            for (int col = 0; col < SIZE; col++) {
+                if (col + 1 < SIZE)
+                    connect(node(row, col), node(row, col + 1));
+                if (row + 1 < SIZE)
+                    connect(node(row, col), node(row + 1, col));
+            }
+        }
+        LocationIndexTree index = new LocationIndexTree(graph, new RAMDirectory());
+        index.prepareIndex();
+        mapMatching = new MapMatching(graph, index, new FastestWeighting(encoder));
+    }
+
+    @After
+    public void tearDown() {
+        graph.close();
+    }
+
+    private static int node(int row, int col) {
+        return row * SIZE + col;
+    }
+
+    private void connect(int a, int b) {
+        NodeAccess na = graph.getNodeAccess();
+        double dist = Helper.DIST_PLANE.calcDist(na.getLat(a), na.getLon(a), na.getLat(b), na.getLon(b));
+        graph.edge(a, b, dist, true);
+    }
+
+    /**
+     * Creates a noisy trace along row 2 from west to east and then along the last column to the
+     * north with an entry roughly every 40m. The entries are not placed at the junctions.
+     */
+    private static List<GPXEntry> createTrace() {
+        List<GPXEntry> entries = new ArrayList<>();
+        long time = 0;
+        for (int i = 1; i < 9 * 3; i++) {
+            // alternating offset of roughly 5m from the road
+            double offset = i % 2 == 0 ? 0.00005 : -0.00005;
+            entries.add(new GPXEntry(2 * GRID + offset, (i + 0.5) * GRID / 3, time += 4000));
+        }
+        for (int i = 0; i < 4 * 3; i++) {
+            double offset = i % 2 == 0 ? 0.00005 : -0.00005;
+            entries.add(new GPXEntry(2 * GRID + (i + 0.5) * GRID / 3, 9 * GRID + offset, time += 4000));
+        }
+        return entries;
+    }
+
+    @Test
+    public void testMatch() {
+        List<GPXEntry> entries = createTrace();
+        MatchResult result = mapMatching.match(entries);
+        assertFalse(result.getPathWrapper().getErrors().toString(), result.getPathWrapper().hasErrors());
+
+        List<EdgeIteratorState> edges = result.getEdges();
+        assertEquals(node(2, 0), edges.get(0).getBaseNode());
+        assertEquals(node(6, 9), edges.get(edges.size() - 1).getAdjNode());
+        for (int i = 0; i < edges.size(); i++) {
+            EdgeIteratorState edge = edges.get(i);
+            int row = edge.getAdjNode() / SIZE, col = edge.getAdjNode() % SIZE;
+            assertTrue("unexpected edge " + edge, row == 2 || col == 9);
+            if (i > 0)
+                assertEquals(edges.get(i - 1).getAdjNode(), edge.getBaseNode());
+        }
+        assertEquals(9 + 4, edges.size());
+
+        // the route starts and ends at the snapped positions of the first and last entry
+        assertEquals(result.getGpxDistance(), result.getMatchDistance(), 100);
+        assertEquals(entries.size(), result.getPointMatches().size());
+        for (int i = 0; i < entries.size(); i++) {
+            PointMatch pointMatch = result.getPointMatches().get(i);
+            assertEquals(PointMatch.Status.MATCHED, pointMatch.getStatus());
+            assertEquals(i == 0, pointMatch.isSequenceStart());
+            assertTrue(pointMatch.getCandidates() > 0);
+            assertTrue(pointMatch.getSnapDistance() < 10);
+            if (i > 0)
+                assertEquals(pointMatch.getLinearDistance(), pointMatch.getTransitionDistance(), 40);
+        }
+        assertTrue(result.getPathWrapper().getPoints().size() >= 2);
+    }
+
+    @Test
+    public void testEntriesWithoutCandidatesAndFiltered() {
+        List<GPXEntry> entries = createTrace();
+        entries.add(5, new GPXEntry(1, 1, 0));
+        MatchResult result = mapMatching.match(entries);
+        assertEquals(PointMatch.Status.NO_CANDIDATES, result.getPointMatches().get(5).getStatus());
+        assertFalse(result.getPointMatches().get(5).isMatched());
+        assertTrue(result.getPointMatches().get(6).isMatched());
+        assertEquals(9 + 4, result.getEdges().size());
+
+        mapMatching.setMinPointDistance(60);
+        result = mapMatching.match(createTrace());
+        int filtered = 0;
+        for (PointMatch pointMatch : result.getPointMatches()) {
+            if (pointMatch.getStatus() == PointMatch.Status.FILTERED)
+                filtered++;
+        }
+        assertTrue(filtered > 10);
+        assertEquals(9 + 4, result.getEdges().size());
+
+        result = mapMatching.match(Arrays.asList(new GPXEntry(1, 1, 0), new GPXEntry(1.1, 1, 0)));
+        assertTrue(result.getPathWrapper().hasErrors());
+        assertTrue(result.getEdges().isEmpty());
+    }
+
+    @Test
+    public void testSequenceBreak() {
+        // block the road between column 4 and 5 of row 2, the detour is longer than the search allows
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            if (iter.getBaseNode() == node(2, 4) && iter.getAdjNode() == node(2, 5))
+                iter.setFlags(0);
+        }
+        mapMatching.setMaxDetourFactor(1);
+        MatchResult result = mapMatching.match(createTrace());
+        int starts = 0;
+        for (PointMatch pointMatch : result.getPointMatches()) {
+            // the entries in the middle of the blocked road have no candidates
+            if (pointMatch.isSequenceStart()) {
+                starts++;
+                assertTrue(Double.isNaN(pointMatch.getTransitionDistance()));
+            }
+        }
+        assertEquals(result.getPointMatches().toString(), 2, starts);
+        assertFalse(result.getPathWrapper().hasErrors());
+    }
+
+    @Test
+    public void testParallelMatch() {
+        List<List<GPXEntry>> traces = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            List<GPXEntry> trace = createTrace();
+            traces.add(trace.subList(i % 5, trace.size() - i % 3));
+        }
+
+        List<MatchResult> results = mapMatching.match(traces, 4);
+        assertEquals(traces.size(), results.size());
+        for (int i = 0; i < traces.size(); i++) {
+            MatchResult expected = mapMatching.match(traces.get(i));
+            assertEquals(expected.getEdges().toString(), results.get(i).getEdges().toString());
+            assertEquals(expected.getMatchDistance(), results.get(i).getMatchDistance(), 1e-6);
+        }
+    }
+}
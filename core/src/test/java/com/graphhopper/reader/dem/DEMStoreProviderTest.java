@@ -0,0 +1,169 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for 
+ *  additional information regarding copyright ownership.
+ * 
+ *  GraphHopper GmbH licenses this file to you under the Apache License, 
+ *  Version 2.0 (the "License"); you may not use this file except in 
+ *  compliance with the License. You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.dem;
+
+import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.RAMDirectory;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.shapes.BBox;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class DEMStoreProviderTest {
+    private final String cacheDir = "./target/tmp/dem-cache";
+    private final String location = "./target/tmp/dem-store";
+
+    @Before
+    public void setUp() {
+        Helper.removeDir(new File(location));
+    }
+
+    @After
+    public void tearDown() {
+        Helper.removeDir(new File(location));
+        Helper.removeDir(new File(cacheDir));
+    }
+
+    @Test
+    public void testSameElevationAsSource() {
+        FakeTileProvider source = new FakeTileProvider(cacheDir);
+        // the tile 1,2 is at sea level and there is no data for negative latitudes
+        assertEquals(8, new DEMStoreConverter(source, location).convert(new BBox(0, 2.5, -1, 2.5)));
+        // the tiles are copied one after the other
+        assertEquals(1, source.maxOpenTiles);
+        assertEquals(0, source.openTiles);
+
+        for (DAType daType : new DAType[]{DAType.MMAP, DAType.RAM_STORE}) {
+            DEMStoreProvider store = new DEMStoreProvider(location);
+            store.setDAType(daType);
+            Random rand = new Random(42);
+            for (int i = 0; i < 1000; i++) {
+                double lat = rand.nextDouble() * 3;
+                double lon = rand.nextDouble() * 3;
+                assertEquals(lat + "," + lon, source.getEle(lat, lon), store.getEle(lat, lon), 1e-6);
+            }
+            assertEquals(0, store.getEle(1.5, 2.5), 1e-6);
+            assertEquals(0, store.getEle(-0.5, 1.5), 1e-6);
+            assertEquals(0, store.getEle(0.5, 3.5), 1e-6);
+            store.release();
+        }
+    }
+
+    @Test
+    public void testInterpolate() {
+        FakeTileProvider source = new FakeTileProvider(cacheDir);
+        source.setInterpolate(true);
+        new DEMStoreConverter(source, location).convert(new BBox(0, 1, 0, 1));
+
+        DEMStoreProvider store = new DEMStoreProvider(location);
+        store.setInterpolate(true);
+        // between the samples in column 0 and 1 of the southernmost row
+        assertEquals((24 + 26) / 2d, store.getEle(1d / 8, 1d / 4), 1e-6);
+        Random rand = new Random(42);
+        for (int i = 0; i < 100; i++) {
+            double lat = rand.nextDouble();
+            double lon = rand.nextDouble();
+            assertEquals(source.getEle(lat, lon), store.getEle(lat, lon), 1e-6);
+        }
+        store.release();
+    }
+
+    @Test
+    public void testMissingStore() {
+        DEMStoreProvider store = new DEMStoreProvider(location);
+        try {
+            store.getEle(1, 1);
+            fail("an exception should be thrown if there is no store");
+        } catch (IllegalStateException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().startsWith("No elevation store found"));
+        }
+    }
+
+    /**
+     * Creates tiles of one degree with 4x4 samples from the tile position and the sample index.
+     */
+    private static class FakeTileProvider extends AbstractElevationProvider {
+        private static final int WIDTH = 4;
+        int openTiles;
+        int maxOpenTiles;
+
+        FakeTileProvider(String cacheDir) {
+            super(cacheDir);
+        }
+
+        @Override
+        HeightTile acquireTile(double lat, double lon) {
+            if (lat < 0)
+                return null;
+
+            int minLat = (int) Math.floor(lat);
+            int minLon = (int) Math.floor(lon);
+            HeightTile tile = new HeightTile(minLat, minLon, WIDTH, WIDTH, 1e7, 1, 1) {
+                @Override
+                void release() {
+                    super.release();
+                    openTiles--;
+                }
+            };
+            openTiles++;
+            maxOpenTiles = Math.max(maxOpenTiles, openTiles);
+            tile.setInterpolate(interpolate);
+            DataAccess heights = new RAMDirectory().find("dem");
+            heights.create(2 * WIDTH * WIDTH);
+            tile.setHeights(heights);
+            tile.setSeaLevel(minLat == 1 && minLon == 2);
+            for (int i = 0; i < WIDTH * WIDTH; i++) {
+                heights.setShort(2 * i, (short) (minLat * 1000 + minLon * 100 + i * 2));
+            }
+            return tile;
+        }
+
+        @Override
+        public double getEle(double lat, double lon) {
+            HeightTile tile = acquireTile(lat, lon);
+            if (tile == null)
+                return 0;
+            try {
+                return tile.isSeaLevel() ? 0 : tile.getHeight(lat, lon);
+            } finally {
+                tile.release();
+            }
+        }
+
+        @Override
+        public void release() {
+        }
+
+        @Override
+        String getFileName(double lat, double lon) {
+            return null;
+        }
+
+        @Override
+        String getDownloadURL(double lat, double lon) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for 
+ *  additional information regarding copyright ownership.
+ * 
+ *  GraphHopper GmbH licenses this file to you under the Apache License, 
+ *  Version 2.0 (the "License"); you may not use this file except in 
+ *  compliance with the License. You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.dem;
+
+import com.graphhopper.storage.DAType;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class ElevationBatchTest {
+    private static class FakeProvider implements ElevationProvider {
+        final Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>());
+
+        @Override
+        public double getEle(double lat, double lon) {
+            threads.add(Thread.currentThread());
+            return lat * 100 + lon;
+        }
+
+        @Override
+        public ElevationProvider setBaseURL(String baseURL) {
+            return this;
+        }
+
+        @Override
+        public ElevationProvider setDAType(DAType daType) {
+            return this;
+        }
+
+        @Override
+        public void setCalcMean(boolean calcMean) {
+        }
+
+        @Override
+        public void setInterpolate(boolean interpolate) {
+        }
+
+        @Override
+        public void setMaxCachedTiles(int maxCachedTiles) {
+        }
+
+        @Override
+        public void release() {
+        }
+
+        @Override
+        public void setAutoRemoveTemporaryFiles(boolean autoRemoveTemporary) {
+        }
+    }
+
+    @Test
+    public void testSample() {
+        Random rand = new Random(12);
+        for (int threads : new int[]{1, 3}) {
+            FakeProvider provider = new FakeProvider();
+            ElevationBatch batch = new ElevationBatch(provider, 1000, threads);
+            double[] lats = new double[1000];
+            double[] lons = new double[1000];
+            for (int run = 0; run < 2; run++) {
+                for (int i = 0; !batch.isFull(); i++) {
+                    lats[i] = rand.nextDouble() * 20 - 10;
+                    lons[i] = rand.nextDouble() * 20 - 10;
+                    assertEquals(i, batch.add(lats[i], lons[i]));
+                }
+                batch.sample();
+                for (int i = 0; i < batch.getSize(); i++) {
+                    assertEquals(lats[i], batch.getLat(i), 0);
+                    assertEquals(lats[i] * 100 + lons[i], batch.getElevation(i), 1e-9);
+                }
+                batch.clear();
+                assertEquals(0, batch.getSize());
+            }
+            batch.close();
+            assertEquals(threads, provider.threads.size());
+        }
+    }
+
+    @Test
+    public void testAddToFullBatch() {
+        ElevationBatch batch = new ElevationBatch(new FakeProvider(), 1, 1);
+        batch.add(1, 1);
+        assertTrue(batch.isFull());
+        try {
+            batch.add(2, 2);
+            fail("full batch should throw");
+        } catch (IllegalStateException ex) {
+        }
+    }
+}
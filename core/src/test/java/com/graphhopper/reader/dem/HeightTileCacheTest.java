@@ -0,0 +1,148 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for 
+ *  additional information regarding copyright ownership.
+ * 
+ *  GraphHopper GmbH licenses this file to you under the Apache License, 
+ *  Version 2.0 (the "License"); you may not use this file except in 
+ *  compliance with the License. You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.dem;
+
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.RAMDirectory;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class HeightTileCacheTest {
+    private HeightTile createTile(String name) {
+        HeightTile tile = new HeightTile(0, 0, 2, 2, 1e7, 1, 1);
+        DataAccess heights = new RAMDirectory().find(name);
+        heights.create(8);
+        tile.setHeights(heights);
+        return tile;
+    }
+
+    @Test
+    public void testEvictLeastRecentlyUsed() {
+        HeightTileCache<String> cache = new HeightTileCache<>(2);
+        HeightTile tile1 = createTile("1");
+        HeightTile tile2 = createTile("2");
+        cache.put("1", tile1);
+        cache.put("2", tile2);
+        // a thread still reads tile 2
+        assertSame(tile2, cache.acquire("2"));
+        // make tile 2 the eldest one
+        cache.acquire("1").release();
+
+        cache.put("3", createTile("3"));
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+        assertNotNull(cache.acquire("1"));
+        assertNull(cache.acquire("2"));
+
+        // evicted but not yet closed, as it is still in use
+        assertFalse(tile2.getHeights().isClosed());
+        tile2.release();
+        assertTrue(tile2.getHeights().isClosed());
+        assertFalse(tile2.acquire());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testLoadOnlyOnce() throws Exception {
+        final HeightTileCache<String> cache = new HeightTileCache<>(4);
+        final AtomicInteger loads = new AtomicInteger();
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch finishLoading = new CountDownLatch(1);
+        final Callable<HeightTile> slowLoader = new Callable<HeightTile>() {
+            @Override
+            public HeightTile call() throws Exception {
+                loads.incrementAndGet();
+                loading.countDown();
+                finishLoading.await();
+                return createTile("slow");
+            }
+        };
+
+        ExecutorService service = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<HeightTile>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(service.submit(new Callable<HeightTile>() {
+                    @Override
+                    public HeightTile call() {
+                        return cache.acquire("slow", slowLoader);
+                    }
+                }));
+            }
+            assertTrue(loading.await(10, TimeUnit.SECONDS));
+            assertNull(cache.acquire("slow"));
+
+            // other tiles are loaded and read while the slow tile is loading
+            HeightTile other = cache.acquire("other", new Callable<HeightTile>() {
+                @Override
+                public HeightTile call() {
+                    return createTile("other");
+                }
+            });
+            assertNotNull(other);
+            other.release();
+            assertSame(other, cache.acquire("other"));
+            other.release();
+
+            finishLoading.countDown();
+            HeightTile tile = futures.get(0).get(10, TimeUnit.SECONDS);
+            for (Future<HeightTile> future : futures) {
+                assertSame(tile, future.get(10, TimeUnit.SECONDS));
+                tile.release();
+            }
+            assertEquals(1, loads.get());
+            assertEquals(2, cache.size());
+        } finally {
+            service.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testLoadFailureIsNotCached() {
+        HeightTileCache<String> cache = new HeightTileCache<>(4);
+        try {
+            cache.acquire("1", new Callable<HeightTile>() {
+                @Override
+                public HeightTile call() {
+                    throw new IllegalStateException("cannot load");
+                }
+            });
+            fail("the exception of the loader should be thrown");
+        } catch (IllegalStateException ex) {
+            assertEquals("cannot load", ex.getMessage());
+        }
+        assertEquals(0, cache.size());
+
+        final HeightTile tile = createTile("1");
+        assertSame(tile, cache.acquire("1", new Callable<HeightTile>() {
+            @Override
+            public HeightTile call() {
+                return tile;
+            }
+        }));
+        assertEquals(1, cache.size());
+    }
+}
@@ -122,6 +122,51 @@ public class HeightTileTest {
         assertEquals((10 + 2) / 3d, instance.getHeight(-0.5, -0.5), 1e-3);
     }
 
+    @Test
+    public void testInterpolate() {
+        int width = 10;
+        HeightTile instance = new HeightTile(0, 0, width, width, 1e-6, 10, 10).setInterpolate(true);
+        DataAccess heights = new RAMDirectory().find("tmp");
+        heights.create(2 * 10 * 10);
+        instance.setHeights(heights);
+        init(heights, width, width, 1);
+
+        // x,y=1,9 has its center at 0.5,1.5
+        heights.setShort(2 * (9 * width + 1), (short) 11);
+        // x,y=2,9 has no data
+        heights.setShort(2 * (9 * width + 2), Short.MIN_VALUE);
+
+        assertEquals(1, instance.getHeight(0.5, 0.5), 1e-3);
+        assertEquals(11, instance.getHeight(0.5, 1.5), 1e-3);
+        assertEquals(6, instance.getHeight(0.5, 1.0), 1e-3);
+        assertEquals(8.5, instance.getHeight(0.5, 1.25), 1e-3);
+        assertEquals(4.75, instance.getHeight(1.0, 1.25), 1e-3);
+        // the sample without data is ignored
+        assertEquals(11, instance.getHeight(0.5, 2.0), 1e-3);
+        // samples outside of the tile are clamped to the border
+        assertEquals(1, instance.getHeight(0, 0), 1e-3);
+        assertEquals(6, instance.getHeight(0, 1.0), 1e-3);
+    }
+
+    @Test
+    public void testHeightsWithOffset() {
+        int width = 10;
+        DataAccess heights = new RAMDirectory().find("tmp");
+        heights.create(2 * 2 * 10 * 10);
+        HeightTile first = new HeightTile(0, 0, width, width, 1e-6, 10, 10);
+        first.setHeights(heights, 0);
+        HeightTile second = new HeightTile(0, 10, width, width, 1e-6, 10, 10);
+        second.setHeights(heights, 2 * 10 * 10);
+        for (int i = 0; i < 2 * width * width; i++) {
+            heights.setShort(2 * i, (short) (i < width * width ? 1 : 2));
+        }
+        heights.setShort(2 * (width * width + 9 * width), (short) 20);
+
+        assertEquals(1, first.getHeight(0.5, 0.5), 1e-3);
+        assertEquals(20, second.getHeight(0.5, 10.5), 1e-3);
+        assertEquals(2, second.getHeight(5, 15), 1e-3);
+    }
+
     private void init(DataAccess da, int width, int height, int i) {
         for (int x = 0; x < width; x++) {
             for (int y = 0; y < height; y++) {
@@ -407,6 +407,24 @@ public abstract class AbstractRoutingAlgorithmTester {
         assertFalse(p.isFound());
     }
 
+    @Test
+    public void testInterrupted() {
+        GraphHopperStorage graph = createGHStorage(false);
+        initBiGraph(graph);
+
+        RoutingAlgorithm algo = createAlgo(graph);
+        Thread.currentThread().interrupt();
+        try {
+            algo.calcPath(0, 4);
+            fail("the search of a cancelled request has to stop");
+        } catch (IllegalStateException ex) {
+            assertEquals("Route calculation was interrupted", ex.getMessage());
+        } finally {
+            // clear the flag for the other tests
+            Thread.interrupted();
+        }
+    }
+
     // 1-2-3-4-5
     // |     / |
     // |    9  |
@@ -0,0 +1,152 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for 
+ *  additional information regarding copyright ownership.
+ * 
+ *  GraphHopper GmbH licenses this file to you under the Apache License, 
+ *  Version 2.0 (the "License"); you may not use this file except in 
+ *  compliance with the License. You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.FlagEncoder;
+import com.graphhopper.routing.util.FootFlagEncoder;
+import com.graphhopper.routing.weighting.FastestWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.GraphExtension;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.storage.RAMDirectory;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.QueryResult;
+import com.graphhopper.util.Helper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class FacilityIndexTest {
+    private GraphHopperStorage graph;
+    private LocationIndexTree locationIndex;
+    private FlagEncoder carEncoder;
+    private FlagEncoder footEncoder;
+    private Weighting weighting;
+
+    @Before
+    public void setUp() {
+        carEncoder = new CarFlagEncoder();
+        footEncoder = new FootFlagEncoder();
+        graph = new GraphHopperStorage(new RAMDirectory(), new EncodingManager(carEncoder, footEncoder), false,
+                new GraphExtension.NoOpExtension()).create(100);
+        //         7
+        //         |  only for foot
+        // 0-1-2-3-4-5 with roughly 111m between the nodes
+        NodeAccess na = graph.getNodeAccess();
+        for (int node = 0; node < 6; node++) {
+            na.setNode(node, 0, node * 0.001);
+        }
+        // an isolated node so that the bounds are valid
+        na.setNode(6, 0.002, 0);
+        na.setNode(7, 0.001, 0.002);
+        for (int node = 0; node < 5; node++) {
+            graph.edge(node, node + 1, Helper.DIST_PLANE.calcDist(0, node * 0.001, 0, (node + 1) * 0.001), true);
+        }
+        graph.edge(2, 7).setDistance(Helper.DIST_PLANE.calcDist(0, 0.002, 0.001, 0.002)).
+                setFlags(footEncoder.setProperties(5, true, true));
+        locationIndex = new LocationIndexTree(graph, new RAMDirectory());
+        locationIndex.prepareIndex();
+        weighting = new FastestWeighting(carEncoder);
+    }
+
+    @After
+    public void tearDown() {
+        graph.close();
+    }
+
+    private QueryResult snap(double lat, double lon) {
+        return locationIndex.findClosest(lat, lon, EdgeFilter.ALL_EDGES);
+    }
+
+    @Test
+    public void testFindNearest() {
+        FacilityIndex index = new FacilityIndex(graph).add("a", 0).add("b", 3).add("c", 5).add("d", 3);
+        assertEquals(4, index.getSize());
+
+        // between node 2 and 3 but closer to 2
+        List<FacilityIndex.Facility> facilities = index.findNearest(snap(0, 0.0022), weighting, 2, Integer.MAX_VALUE);
+        assertEquals(2, facilities.size());
+        assertEquals("b", facilities.get(0).getId());
+        assertEquals("d", facilities.get(1).getId());
+        assertEquals(3, facilities.get(0).getNode());
+        assertEquals(89, facilities.get(0).getDistance(), 1);
+        assertTrue(facilities.get(0).getTime() > 0);
+
+        facilities = index.findNearest(snap(0, 0.0022), weighting, 3, Integer.MAX_VALUE);
+        assertEquals(3, facilities.size());
+        assertEquals("a", facilities.get(2).getId());
+        assertEquals(245, facilities.get(2).getDistance(), 1);
+        assertTrue(facilities.get(2).getTime() > facilities.get(1).getTime());
+
+        // more facilities requested than exist
+        assertEquals(4, index.findNearest(snap(0, 0.0022), weighting, 10, Integer.MAX_VALUE).size());
+
+        // the search stops before it reaches the other facilities
+        facilities = index.findNearest(snap(0, 0.0049), weighting, 3, 2);
+        assertEquals(1, facilities.size());
+        assertEquals("c", facilities.get(0).getId());
+    }
+
+    @Test
+    public void testAddByLocation() {
+        List<FlagEncoder> encoders = Arrays.asList(carEncoder, footEncoder);
+        FacilityIndex index = new FacilityIndex(graph);
+        assertTrue(index.add("x", 0.0001, 0.0041, locationIndex, encoders));
+        assertFalse(index.add("y", 10, 10, locationIndex, encoders));
+        assertEquals(1, index.getSize());
+
+        List<FacilityIndex.Facility> facilities = index.findNearest(snap(0, 0), weighting, 1, Integer.MAX_VALUE);
+        assertEquals(4, facilities.get(0).getNode());
+        assertEquals(445, facilities.get(0).getDistance(), 1);
+    }
+
+    @Test
+    public void testAddByLocationSnapsPerVehicle() {
+        FacilityIndex index = new FacilityIndex(graph);
+        // closest to the foot way 2-7, for car the closest road is 1-2-3
+        assertTrue(index.add("w", 0.0009, 0.0021, locationIndex, Arrays.asList(carEncoder, footEncoder)));
+        assertEquals(1, index.getSize());
+
+        List<FacilityIndex.Facility> facilities = index.findNearest(snap(0, 0), weighting, 1, Integer.MAX_VALUE);
+        assertEquals(1, facilities.size());
+        assertEquals(2, facilities.get(0).getNode());
+        assertEquals(222, facilities.get(0).getDistance(), 1);
+
+        facilities = index.findNearest(snap(0, 0), new FastestWeighting(footEncoder), 1, Integer.MAX_VALUE);
+        assertEquals(1, facilities.size());
+        assertEquals(7, facilities.get(0).getNode());
+        assertEquals(333, facilities.get(0).getDistance(), 1);
+
+        // not snapped for foot
+        index = new FacilityIndex(graph).add("a", 5);
+        assertTrue(index.add("w", 0.0009, 0.0021, locationIndex, Arrays.<FlagEncoder>asList(carEncoder)));
+        assertEquals(2, index.findNearest(snap(0, 0), weighting, 2, Integer.MAX_VALUE).size());
+        facilities = index.findNearest(snap(0, 0), new FastestWeighting(footEncoder), 2, Integer.MAX_VALUE);
+        assertEquals(1, facilities.size());
+        assertEquals("a", facilities.get(0).getId());
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for 
+ *  additional information regarding copyright ownership.
+ * 
+ *  GraphHopper GmbH licenses this file to you under the Apache License, 
+ *  Version 2.0 (the "License"); you may not use this file except in 
+ *  compliance with the License. You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.DefaultEdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.FlagEncoder;
+import com.graphhopper.storage.GraphBuilder;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.util.*;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class InstructionsOutgoingEdgesTest {
+
+    @Test
+    public void testScanJunctionOnce() {
+        FlagEncoder encoder = new CarFlagEncoder();
+        GraphHopperStorage graph = new GraphBuilder(new EncodingManager(encoder)).create();
+        //    3  5
+        //    | /
+        // 0--1--2
+        //    |
+        //    4
+        NodeAccess na = graph.getNodeAccess();
+        na.setNode(0, 0, -0.001);
+        na.setNode(1, 0, 0);
+        na.setNode(2, 0, 0.001);
+        na.setNode(3, 0.001, 0);
+        na.setNode(4, -0.001, 0);
+        na.setNode(5, 0.0002, 0.001);
+        EdgeIteratorState prevEdge = graph.edge(0, 1).setDistance(111).setName("main").
+                setFlags(encoder.setProperties(60, true, true));
+        EdgeIteratorState currentEdge = graph.edge(1, 2).setDistance(111).setName("main").
+                setFlags(encoder.setProperties(60, true, true));
+        graph.edge(1, 3).setDistance(111).setName("side").setFlags(encoder.setProperties(30, true, true));
+        // a oneway towards the junction
+        graph.edge(4, 1).setDistance(111).setName("side").setFlags(encoder.setProperties(30, true, false));
+        graph.edge(1, 5).setDistance(113).setName("other").setFlags(encoder.setProperties(30, true, true));
+
+        final EdgeExplorer explorer = graph.createEdgeExplorer(new DefaultEdgeFilter(encoder, true, true));
+        final int[] scans = {0};
+        EdgeExplorer countingExplorer = new EdgeExplorer() {
+            @Override
+            public EdgeIterator setBaseNode(int baseNode) {
+                scans[0]++;
+                return explorer.setBaseNode(baseNode);
+            }
+        };
+
+        InstructionsOutgoingEdges outgoingEdges = new InstructionsOutgoingEdges(prevEdge, currentEdge, encoder, graph,
+                countingExplorer, na, 0, 1, 2);
+        assertEquals(3, outgoingEdges.nrOfAllowedOutgoingEdges());
+        assertEquals(4, outgoingEdges.nrOfAllOutgoingEdges());
+        assertTrue(outgoingEdges.outgoingEdgesAreSlowerByFactor(1));
+        assertFalse(outgoingEdges.outgoingEdgesAreSlowerByFactor(2.5));
+        double prevOrientation = Helper.ANGLE_CALC.calcOrientation(0, -0.001, 0, 0);
+        EdgeIteratorState otherContinue = outgoingEdges.getOtherContinue(0, 0, prevOrientation);
+        assertEquals(5, otherContinue.getAdjNode());
+        assertEquals("other", otherContinue.getName());
+        assertTrue(outgoingEdges.isLeavingCurrentStreet("main", "side"));
+        assertFalse(outgoingEdges.isLeavingCurrentStreet("main", "main"));
+        // all queries reuse the summary of the only scan
+        assertEquals(1, scans[0]);
+    }
+}
@@ -279,6 +279,67 @@ public class PathTest {
         roundaboutGraph.inverse3to9();
     }
 
+    @Test
+    public void testCalcPointsInstructionsAndDetailsInOnePass() {
+        Path p = new Dijkstra(roundaboutGraph.g, new ShortestWeighting(encoder), TraversalMode.NODE_BASED)
+                .calcPath(1, 8);
+        assertTrue(p.isFound());
+        List<String> requestedDetails = Arrays.asList(AVERAGE_SPEED, STREET_NAME, EDGE_ID);
+
+        PointList points = p.createPointList();
+        InstructionList instructions = new InstructionList(tr);
+        Map<String, List<PathDetail>> details = p.calcPointsInstructionsAndDetails(points, instructions, tr,
+                requestedDetails, new PathDetailsBuilderFactory(), 3);
+
+        // the roundabout is counterclockwise: 1-2-3-4-5-8, every edge has 5m at 60km/h
+        assertEquals(Helper.createTList(1, 2, 3, 4, 5, 8), p.calcNodes());
+        assertEquals(createPointList(1, 2, 3, 4, 5, 8).toString(), points.toString());
+
+        assertEquals(Arrays.asList("Continue onto MainStreet 1 2", "At roundabout, take exit 3 onto 5-8", "Arrive at destination"),
+                pick("text", instructions.createJson()));
+        assertEquals(createPointList(1).toString(), instructions.get(0).getPoints().toString());
+        assertEquals(createPointList(2, 3, 4, 5).toString(), instructions.get(1).getPoints().toString());
+        assertEquals(createPointList(8).toString(), instructions.get(2).getPoints().toString());
+        assertEquals(5, instructions.get(0).getDistance(), 1e-6);
+        assertEquals(300, instructions.get(0).getTime());
+        assertEquals(20, instructions.get(1).getDistance(), 1e-6);
+        assertEquals(1200, instructions.get(1).getTime());
+
+        // the intervals start at the specified point offset
+        assertEquals(new HashSet<>(requestedDetails), details.keySet());
+        assertEquals("[60.0 [3, 8]]", details.get(AVERAGE_SPEED).toString());
+        assertEquals("[MainStreet 1 2 [3, 4], 2-3 [4, 5], 3-4 [5, 6], 4-5 [6, 7], 5-8 [7, 8]]", details.get(STREET_NAME).toString());
+        assertEquals("[0 [3, 4], 1 [4, 5], 2 [5, 6], 3 [6, 7], 6 [7, 8]]", details.get(EDGE_ID).toString());
+
+        // only the requested parts are calculated
+        points = p.createPointList();
+        details = p.calcPointsInstructionsAndDetails(points, null, null, Collections.<String>emptyList(), null, 0);
+        assertTrue(details.isEmpty());
+        assertEquals(6, points.getSize());
+    }
+
+    private PointList createPointList(int... nodes) {
+        NodeAccess na = roundaboutGraph.g.getNodeAccess();
+        PointList list = new PointList(nodes.length, false);
+        for (int node : nodes) {
+            list.add(na.getLatitude(node), na.getLongitude(node));
+        }
+        return list;
+    }
+
+    @Test
+    public void testInstructionPointsCoverPath() {
+        Path p = new Dijkstra(roundaboutGraph.g, new ShortestWeighting(encoder), TraversalMode.NODE_BASED)
+                .calcPath(1, 8);
+        assertTrue(p.isFound());
+        InstructionList il = p.calcInstructions(tr);
+        PointList merged = new PointList(10, false);
+        for (Instruction instruction : il) {
+            merged.add(instruction.getPoints());
+        }
+        assertEquals(p.calcPoints().toString(), merged.toString());
+    }
+
     @Test
     public void testCalcAverageSpeedDetails() {
         Path p = new Dijkstra(pathDetailGraph, new ShortestWeighting(encoder), TraversalMode.NODE_BASED).calcPath(1, 5);
@@ -17,7 +17,6 @@
  */
 package com.graphhopper.routing;
 
-import com.carrotsearch.hppc.IntObjectMap;
 import com.graphhopper.routing.util.*;
 import com.graphhopper.routing.weighting.FastestWeighting;
 import com.graphhopper.routing.weighting.TurnWeighting;
@@ -154,13 +153,13 @@ public class QueryGraphTest {
         QueryGraph queryGraph = new QueryGraph(g) {
 
             @Override
-            void fillVirtualEdges(IntObjectMap<VirtualEdgeIterator> node2Edge, int towerNode, EdgeExplorer mainExpl) {
-                super.fillVirtualEdges(node2Edge, towerNode, mainExpl);
+            void fillVirtualEdges(VirtualEdgeIterator vIter, int towerNode, EdgeExplorer mainExpl) {
+                super.fillVirtualEdges(vIter, towerNode, mainExpl);
                 // ignore nodes should include baseNode == 1
                 if (towerNode == 3)
-                    assertEquals("[3->4]", node2Edge.get(towerNode).toString());
+                    assertEquals("[3->4]", vIter.toString());
                 else if (towerNode == 1)
-                    assertEquals("[1->4, 1 1-0]", node2Edge.get(towerNode).toString());
+                    assertEquals("[1->4, 1 1-0]", vIter.toString());
                 else
                     throw new IllegalStateException("not allowed " + towerNode);
             }
@@ -174,6 +173,24 @@ public class QueryGraphTest {
         assertEquals(2, state.fetchWayGeometry(3).size());
     }
 
+    @Test
+    public void testExplorerForNodesWithoutVirtualNeighbors() {
+        initGraph(g);
+        EdgeIterator iter = g.createEdgeExplorer().setBaseNode(1);
+        iter.next();
+        QueryResult res1 = createLocationResult(2, 1.7, iter, 1, PILLAR);
+        QueryGraph queryGraph = new QueryGraph(g);
+        queryGraph.lookup(Arrays.asList(res1));
+
+        EdgeExplorer explorer = queryGraph.createEdgeExplorer();
+        // node 2 has no virtual neighbor and is iterated like in the main graph
+        assertFalse(explorer.setBaseNode(2) instanceof VirtualEdgeIterator);
+        assertEquals(GHUtility.asSet(0), GHUtility.getNeighbors(explorer.setBaseNode(2)));
+        assertEquals(GHUtility.asSet(2, 3), GHUtility.getNeighbors(explorer.setBaseNode(0)));
+        assertEquals(GHUtility.asSet(3), GHUtility.getNeighbors(explorer.setBaseNode(1)));
+        assertEquals(GHUtility.asSet(0, 1), GHUtility.getNeighbors(explorer.setBaseNode(3)));
+    }
+
     @Test
     public void testMultipleVirtualNodes() {
         initGraph(g);
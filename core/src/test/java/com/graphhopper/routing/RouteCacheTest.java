@@ -0,0 +1,75 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.GHResponse;
+import com.graphhopper.PathWrapper;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RouteCacheTest {
+
+    private GHResponse createResponse(double distance) {
+        GHResponse rsp = new GHResponse();
+        rsp.add(new PathWrapper().setDistance(distance));
+        rsp.getHints().put("visited_nodes.sum", 10);
+        return rsp;
+    }
+
+    @Test
+    public void testFillAndEvict() {
+        RouteCache cache = new RouteCache(2, Long.MAX_VALUE);
+        cache.put("a", createResponse(1));
+        cache.put("b", createResponse(2));
+
+        GHResponse rsp = new GHResponse();
+        assertTrue(cache.fill("a", rsp));
+        assertEquals(1, rsp.getBest().getDistance(), 1e-6);
+        assertEquals(10, rsp.getHints().getLong("visited_nodes.sum", 0));
+
+        // "b" is the least recently used entry
+        cache.put("c", createResponse(3));
+        assertEquals(2, cache.getSize());
+        assertFalse(cache.fill("b", new GHResponse()));
+        assertTrue(cache.fill("a", new GHResponse()));
+        assertTrue(cache.fill("c", new GHResponse()));
+
+        assertEquals(3, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getEvictions());
+    }
+
+    @Test
+    public void testExpire() throws InterruptedException {
+        RouteCache cache = new RouteCache(10, 1);
+        cache.put("a", createResponse(1));
+        Thread.sleep(20);
+        assertFalse(cache.fill("a", new GHResponse()));
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void testErrorsAreNotCached() {
+        RouteCache cache = new RouteCache(10, Long.MAX_VALUE);
+        GHResponse rsp = createResponse(1);
+        rsp.addError(new IllegalArgumentException("test"));
+        cache.put("a", rsp);
+        assertEquals(0, cache.getSize());
+    }
+}
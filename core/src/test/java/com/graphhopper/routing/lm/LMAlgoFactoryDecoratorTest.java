@@ -1,5 +1,6 @@
 package com.graphhopper.routing.lm;
 
+import com.graphhopper.routing.AbstractRoutingAlgorithmTester;
 import com.graphhopper.routing.util.CarFlagEncoder;
 import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.routing.util.FlagEncoder;
@@ -10,9 +11,12 @@ import com.graphhopper.storage.GraphExtension;
 import com.graphhopper.storage.GraphHopperStorage;
 import com.graphhopper.storage.RAMDirectory;
 import com.graphhopper.util.CmdArgs;
+import com.graphhopper.util.Helper;
 import com.graphhopper.util.Parameters;
+import org.junit.After;
 import org.junit.Test;
 
+import java.io.File;
 import java.util.Arrays;
 
 import static org.junit.Assert.assertEquals;
@@ -21,6 +25,12 @@ import static org.junit.Assert.assertTrue;
 
 
 public class LMAlgoFactoryDecoratorTest {
+    private final String location = "./target/lm-decorator-test";
+
+    @After
+    public void tearDown() {
+        Helper.removeDir(new File(location));
+    }
 
     @Test
     public void addWeighting() {
@@ -56,4 +66,61 @@ public class LMAlgoFactoryDecoratorTest {
         dec.init(args);
         assertFalse(dec.isEnabled());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testLoadOnlyRecordedPreparation() {
+        FlagEncoder car = new CarFlagEncoder();
+        EncodingManager em = new EncodingManager(car);
+        GraphHopperStorage graph = new GraphHopperStorage(new RAMDirectory(location, true), em, false,
+                new GraphExtension.NoOpExtension()).create(100);
+        int width = 10;
+        for (int node = 0; node < width * width; node++) {
+            if (node % width + 1 < width)
+                graph.edge(node, node + 1, 1, true);
+            if (node + width < width * width)
+                graph.edge(node, node + width, 1, true);
+            AbstractRoutingAlgorithmTester.updateDistancesFor(graph, node, -node / width / 50.0, node % width / 50.0);
+        }
+        graph.flush();
+        graph.close();
+        String dateKey = Parameters.Landmark.PREPARE + "date.fastest_car";
+
+        graph = loadGraph(em);
+        assertTrue(createDecorator(graph, car).loadOrDoWork(graph.getProperties(), true));
+        // the date is stored together with the landmark data
+        graph.close();
+        graph = loadGraph(em);
+        assertFalse(graph.getProperties().get(dateKey).isEmpty());
+
+        // the recorded landmark data is loaded
+        assertFalse(createDecorator(graph, car).loadOrDoWork(graph.getProperties(), true));
+        graph.close();
+
+        // without the date the landmark data could be incomplete and is prepared again
+        graph = loadGraph(em);
+        graph.getProperties().remove(dateKey);
+        assertTrue(createDecorator(graph, car).loadOrDoWork(graph.getProperties(), true));
+        assertFalse(graph.getProperties().get(dateKey).isEmpty());
+        graph.close();
+    }
+
+    private GraphHopperStorage loadGraph(EncodingManager em) {
+        GraphHopperStorage graph = new GraphHopperStorage(new RAMDirectory(location, true), em, false,
+                new GraphExtension.NoOpExtension());
+        assertTrue(graph.loadExisting());
+        return graph;
+    }
+
+    private LMAlgoFactoryDecorator createDecorator(GraphHopperStorage graph, FlagEncoder encoder) {
+        CmdArgs args = new CmdArgs();
+        args.put(Parameters.Landmark.COUNT, 4);
+        args.put(Parameters.Landmark.PREPARE + "min_network_size", 2);
+        LMAlgoFactoryDecorator dec = new LMAlgoFactoryDecorator();
+        dec.init(args);
+        dec.setEnabled(true);
+        dec.addWeighting("fastest");
+        dec.addWeighting(new FastestWeighting(encoder));
+        dec.createPreparations(graph, null);
+        return dec;
+    }
+}
@@ -34,6 +34,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.util.Arrays;
+import java.util.List;
 
 import static org.junit.Assert.*;
 
@@ -207,6 +208,11 @@ public class LandmarkStorageTest {
                 return lookupRule(point.lat, point.lon);
             }
 
+            @Override
+            public List<SpatialRule> lookupRules(double[] lats, double[] lons) {
+                throw new IllegalStateException();
+            }
+
             @Override
             public int getSpatialId(SpatialRule rule) {
                 throw new IllegalStateException();
@@ -18,6 +18,7 @@
 package com.graphhopper.routing.subnetwork;
 
 import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.coll.GHBitSetImpl;
 import com.graphhopper.routing.subnetwork.PrepareRoutingSubnetworks.PrepEdgeFilter;
 import com.graphhopper.routing.util.*;
 import com.graphhopper.storage.GraphBuilder;
@@ -203,6 +204,50 @@ public class PrepareRoutingSubnetworksTest {
         assertEquals(6, g.getNodes());
     }
 
+    @Test
+    public void testRemoveSubnetworkWhenMultipleVehiclesInParallel() {
+        FlagEncoder carEncoder = new CarFlagEncoder();
+        BikeFlagEncoder bikeEncoder = new BikeFlagEncoder();
+        EncodingManager em2 = new EncodingManager(carEncoder, bikeEncoder);
+        GraphHopperStorage g = createSubnetworkTestStorage2(em2);
+        GHUtility.getEdge(g, 3, 4).setFlags(carEncoder.setProperties(10, false, false)
+                | bikeEncoder.setProperties(5, true, true));
+        PrepareRoutingSubnetworks instance = new PrepareRoutingSubnetworks(g, em2.fetchEdgeEncoders()).setThreads(2);
+        instance.setMinNetworkSize(5);
+        instance.doWork();
+        g.optimize();
+        assertEquals(9, g.getNodes());
+        assertEquals(2, instance.getMaxSubnetworks());
+
+        // the small network is disabled only for car
+        EdgeExplorer carExplorer = g.createEdgeExplorer(new DefaultEdgeFilter(carEncoder));
+        assertEquals(GHUtility.asSet(7, 2, 1), GHUtility.getNeighbors(carExplorer.setBaseNode(3)));
+        assertEquals(GHUtility.asSet(), GHUtility.getNeighbors(carExplorer.setBaseNode(4)));
+        EdgeExplorer bikeExplorer = g.createEdgeExplorer(new DefaultEdgeFilter(bikeEncoder));
+        assertEquals(GHUtility.asSet(7, 2, 1, 4), GHUtility.getNeighbors(bikeExplorer.setBaseNode(3)));
+        assertEquals(Arrays.<String>asList(), GHUtility.getProblems(g));
+    }
+
+    @Test
+    public void testDisabledEdgesAreAppliedLater() {
+        GraphHopperStorage g = createSubnetworkTestStorage();
+        PrepEdgeFilter filter = new PrepEdgeFilter(carFlagEncoder, new GHBitSetImpl());
+        PrepareRoutingSubnetworks instance = new PrepareRoutingSubnetworks(g, Collections.singletonList(carFlagEncoder));
+        List<IntArrayList> components = instance.findSubnetworks(filter);
+        assertEquals(8, instance.keepLargeNetworks(filter, components));
+
+        // the graph is unchanged until the disabled edges are applied
+        instance.markNodesRemovedIfUnreachable();
+        g.optimize();
+        assertEquals(16, g.getNodes());
+
+        filter.applyDisabledEdges(g);
+        instance.markNodesRemovedIfUnreachable();
+        g.optimize();
+        assertEquals(8, g.getNodes());
+        assertEquals(1, instance.findSubnetworks(new PrepEdgeFilter(carFlagEncoder)).size());
+    }
+
     GraphHopperStorage createDeadEndUnvisitedNetworkStorage(EncodingManager em) {
         GraphHopperStorage g = createStorage(em);
         // 0 <-> 1 <-> 2 <-> 3 <-> 4 <- 5 <-> 6
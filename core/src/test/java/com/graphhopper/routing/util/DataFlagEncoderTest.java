@@ -354,6 +354,15 @@ public class DataFlagEncoderTest {
                 return lookupRule(point.lat, point.lon);
             }
 
+            @Override
+            public List<SpatialRule> lookupRules(double[] lats, double[] lons) {
+                List<SpatialRule> rules = new ArrayList<>();
+                for (int i = 0; i < lats.length; i++) {
+                    rules.add(lookupRule(lats[i], lons[i]));
+                }
+                return rules;
+            }
+
             @Override
             public int getSpatialId(SpatialRule rule) {
                 if (germany.equals(rule)) {
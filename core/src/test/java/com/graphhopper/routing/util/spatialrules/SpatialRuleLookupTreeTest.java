@@ -0,0 +1,144 @@
+package com.graphhopper.routing.util.spatialrules;
+
+import com.graphhopper.util.shapes.BBox;
+import com.graphhopper.util.shapes.Polygon;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SpatialRuleLookupTreeTest {
+    // Taken from here: https://github.com/johan/world.geo.json/blob/master/countries/DEU.geo.json
+    private static final String GERMANY = "[9.921906,54.983104],[9.93958,54.596642],[10.950112,54.363607],[10.939467,54.008693],[11.956252,54.196486],[12.51844,54.470371],[13.647467,54.075511],[14.119686,53.757029],[14.353315,53.248171],[14.074521,52.981263],[14.4376,52.62485],[14.685026,52.089947],[14.607098,51.745188],[15.016996,51.106674],[14.570718,51.002339],[14.307013,51.117268],[14.056228,50.926918],[13.338132,50.733234],[12.966837,50.484076],[12.240111,50.266338],[12.415191,49.969121],[12.521024,49.547415],[13.031329,49.307068],[13.595946,48.877172],[13.243357,48.416115],[12.884103,48.289146],[13.025851,47.637584],[12.932627,47.467646],[12.62076,47.672388],[12.141357,47.703083],[11.426414,47.523766],[10.544504,47.566399],[10.402084,47.302488],[9.896068,47.580197],[9.594226,47.525058],[8.522612,47.830828],[8.317301,47.61358],[7.466759,47.620582],[7.593676,48.333019],[8.099279,49.017784],[6.65823,49.201958],[6.18632,49.463803],[6.242751,49.902226],[6.043073,50.128052],[6.156658,50.803721],[5.988658,51.851616],[6.589397,51.852029],[6.84287,52.22844],[7.092053,53.144043],[6.90514,53.482162],[7.100425,53.693932],[7.936239,53.748296],[8.121706,53.527792],[8.800734,54.020786],[8.572118,54.395646],[8.526229,54.962744],[9.282049,54.830865],[9.921906,54.983104]";
+
+    @Test
+    public void testSpatialLookup() {
+        List<SpatialRule> spatialRules = new ArrayList<>();
+        SpatialRule germany = createRule(new Polygon(new double[]{1, 1, 2, 2}, new double[]{1, 2, 2, 1}), "DEU");
+        spatialRules.add(germany);
+        spatialRules.add(createRule(new Polygon(new double[]{5, 5, 6, 6}, new double[]{5, 6, 6, 5}), "AUT"));
+
+        SpatialRuleLookupTree lookup = new SpatialRuleLookupTree(spatialRules, 1, new BBox(1, 2, 1, 2));
+        SpatialRule rule = lookup.lookupRule(1.5, 1.5);
+        assertEquals(germany, rule);
+        int id = lookup.getSpatialId(rule);
+        assertEquals(1, id);
+        assertEquals(rule, lookup.getSpatialRule(id));
+        assertEquals(3, lookup.size());
+        assertEquals(SpatialRule.EMPTY, lookup.lookupRule(5.5, 5.5));
+    }
+
+    @Test
+    public void testAdjacentBorderInOneCell() {
+        List<SpatialRule> spatialRules = new ArrayList<>();
+        spatialRules.add(createRule(new Polygon(new double[]{1, 1, 1.5, 1.5}, new double[]{1, 2, 2, 1}), "top"));
+        spatialRules.add(createRule(new Polygon(new double[]{1.5, 1.5, 2, 2}, new double[]{1, 2, 2, 1}), "bottom"));
+
+        // the resolution is coarser than the rules, so the polygons have to be checked
+        SpatialRuleLookup lookup = new SpatialRuleLookupTree(spatialRules, 5, new BBox(1, 4, 1, 4));
+        assertEquals("top", lookup.lookupRule(1.4, 1.5).getId());
+        assertEquals("bottom", lookup.lookupRule(1.6, 1.5).getId());
+        assertEquals(SpatialRule.EMPTY, lookup.lookupRule(2.5, 1.5));
+    }
+
+    @Test
+    public void testOverlappingRulesReturnTheFirst() {
+        List<SpatialRule> spatialRules = new ArrayList<>();
+        spatialRules.add(createRule(new Polygon(new double[]{1, 1, 2, 2}, new double[]{1, 2, 2, 1}), "small"));
+        spatialRules.add(createRule(new Polygon(new double[]{-100, -100, 100, 100}, new double[]{-100, 100, 100, -100}), "big"));
+
+        SpatialRuleLookup lookup = new SpatialRuleLookupTree(spatialRules, .1, new BBox(0, 4, 0, 4));
+        assertEquals("small", lookup.lookupRule(1.5, 1.5).getId());
+        assertEquals("big", lookup.lookupRule(2.5, 1.5).getId());
+        assertEquals("big", lookup.lookupRule(0.5, 3.5).getId());
+    }
+
+    @Test
+    public void testSameAsPolygonAndSmallerThanArray() {
+        List<SpatialRule> spatialRules = new ArrayList<>();
+        Polygon germanPolygon = parsePolygonString(GERMANY);
+        spatialRules.add(createRule(germanPolygon, "DEU"));
+        SpatialRuleLookupTree lookup = new SpatialRuleLookupTree(spatialRules, .001, new BBox(-180, 180, -90, 90));
+
+        // an array with this resolution would need 360 * 180 * 1000 * 1000 entries
+        assertTrue(lookup.toString(), lookup.getTreeSize() < 2_000_000);
+        assertEquals(19, lookup.getMaxDepth());
+
+        Random rand = new Random(1);
+        int inside = 0;
+        for (int i = 0; i < 10_000; i++) {
+            double lat = 47 + rand.nextDouble() * 8.5;
+            double lon = 5.5 + rand.nextDouble() * 10;
+            boolean expected = germanPolygon.contains(lat, lon);
+            if (expected)
+                inside++;
+            assertEquals(lat + "," + lon, expected ? "DEU" : "SpatialRule.EMPTY", lookup.lookupRule(lat, lon).getId());
+        }
+        assertTrue(inside > 1000);
+
+        // Close to the border of Germany
+        assertEquals("DEU", lookup.lookupRule(50.017714, 12.356129).getId());
+        assertEquals("DEU", lookup.lookupRule(47.557166, 9.738343).getId());
+        assertEquals("SpatialRule.EMPTY", lookup.lookupRule(50.025342, 12.386262).getId());
+        assertEquals("SpatialRule.EMPTY", lookup.lookupRule(47.547463, 9.741948).getId());
+    }
+
+    @Test
+    public void testLookupRules() {
+        List<SpatialRule> spatialRules = new ArrayList<>();
+        spatialRules.add(createRule(parsePolygonString(GERMANY), "DEU"));
+        spatialRules.add(createRule(new Polygon(new double[]{1, 1, 2, 2}, new double[]{1, 2, 2, 1}), "1"));
+        SpatialRuleLookupTree lookup = new SpatialRuleLookupTree(spatialRules, .01, new BBox(0, 20, 0, 60));
+
+        Random rand = new Random(2);
+        double[] lats = new double[1000];
+        double[] lons = new double[1000];
+        double lat = 50, lon = 10;
+        for (int i = 0; i < lats.length; i++) {
+            // a random walk like the nodes of ways
+            lat += (rand.nextDouble() - 0.5) * 0.2;
+            lon += (rand.nextDouble() - 0.5) * 0.2;
+            lats[i] = lat;
+            lons[i] = lon;
+        }
+        lats[10] = 1.5;
+        lons[10] = 1.5;
+        lats[11] = 90;
+        lons[11] = 1.5;
+
+        List<SpatialRule> rules = lookup.lookupRules(lats, lons);
+        assertEquals(lats.length, rules.size());
+        for (int i = 0; i < lats.length; i++) {
+            assertEquals(lookup.lookupRule(lats[i], lons[i]), rules.get(i));
+        }
+        assertEquals("1", rules.get(10).getId());
+        assertEquals(SpatialRule.EMPTY, rules.get(11));
+        assertEquals(Arrays.asList(SpatialRule.EMPTY, SpatialRule.EMPTY),
+                SpatialRuleLookup.EMPTY.lookupRules(new double[]{1, 2}, new double[]{1, 2}));
+    }
+
+    private Polygon parsePolygonString(String polygonString) {
+        String[] polygonArr = polygonString.split("\\],\\[");
+        double[] lats = new double[polygonArr.length];
+        double[] lons = new double[polygonArr.length];
+        for (int i = 0; i < polygonArr.length; i++) {
+            String[] coords = polygonArr[i].replaceAll("\\[", "").replaceAll("\\]", "").split(",");
+            lats[i] = Double.parseDouble(coords[1]);
+            lons[i] = Double.parseDouble(coords[0]);
+        }
+        return new Polygon(lats, lons);
+    }
+
+    private SpatialRule createRule(Polygon p, final String id) {
+        return new DefaultSpatialRule() {
+            @Override
+            public String getId() {
+                return id;
+            }
+        }.addBorder(p);
+    }
+}
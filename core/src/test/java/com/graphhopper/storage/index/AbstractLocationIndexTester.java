@@ -17,11 +17,13 @@
  */
 package com.graphhopper.storage.index;
 
+import com.graphhopper.coll.GHIntHashSet;
 import com.graphhopper.routing.util.*;
 import com.graphhopper.storage.*;
 import com.graphhopper.util.DistanceCalc;
 import com.graphhopper.util.DistanceCalcEarth;
 import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.EdgeIteratorState;
 import com.graphhopper.util.Helper;
 import org.junit.After;
 import org.junit.Before;
@@ -29,6 +31,7 @@ import org.junit.Test;
 
 import java.io.Closeable;
 import java.io.File;
+import java.util.List;
 import java.util.Random;
 
 import static org.junit.Assert.assertEquals;
@@ -193,6 +196,70 @@ public abstract class AbstractLocationIndexTester {
         Helper.close((Closeable) g);
     }
 
+    @Test
+    public void testBatchFindClosest() {
+        Graph g = createSampleGraph(new EncodingManager("car"));
+        idx = createIndex(g, -1);
+        Random rand = new Random(12);
+        double[] lats = new double[200];
+        double[] lons = new double[200];
+        for (int i = 0; i < lats.length; i++) {
+            lats[i] = rand.nextDouble() * 5;
+            lons[i] = rand.nextDouble() * 5;
+        }
+
+        List<QueryResult> results = idx.findClosest(lats, lons, EdgeFilter.ALL_EDGES);
+        assertEquals(lats.length, results.size());
+        for (int i = 0; i < lats.length; i++) {
+            QueryResult expected = idx.findClosest(lats[i], lons[i], EdgeFilter.ALL_EDGES);
+            assertEquals(i + " " + lats[i] + "," + lons[i], expected.getClosestNode(), results.get(i).getClosestNode());
+            assertEquals(expected.getQueryDistance(), results.get(i).getQueryDistance(), 1e-6);
+        }
+        Helper.close((Closeable) g);
+    }
+
+    @Test
+    public void testFindWithinAndKNearest() {
+        final Graph g = createSampleGraph(new EncodingManager("car"));
+        idx = createIndex(g, -1);
+        Random rand = new Random(12);
+        final double radius = 50_000;
+        for (int i = 0; i < 50; i++) {
+            final double lat = rand.nextDouble() * 5, lon = rand.nextDouble() * 5;
+            final GHIntHashSet found = new GHIntHashSet();
+            idx.findWithin(lat, lon, radius, EdgeFilter.ALL_EDGES, new LocationIndex.Visitor() {
+                @Override
+                public boolean onEdge(EdgeIteratorState edge, int closestNode, int wayIndex, QueryResult.Position position, double distance) {
+                    assertTrue(distance <= radius);
+                    assertTrue("edge " + edge.getEdge() + " visited twice", found.add(edge.getEdge()));
+                    return true;
+                }
+            });
+
+            // compare with all edges but allow small differences of the distance calculations
+            EdgeCandidate.findWithin(g, Helper.DIST_EARTH, lat, lon, 1.01 * radius, EdgeFilter.ALL_EDGES, new LocationIndex.Visitor() {
+                @Override
+                public boolean onEdge(EdgeIteratorState edge, int closestNode, int wayIndex, QueryResult.Position position, double distance) {
+                    if (distance < 0.99 * radius)
+                        assertTrue("edge " + edge.getEdge() + " not found for " + lat + "," + lon, found.contains(edge.getEdge()));
+                    found.remove(edge.getEdge());
+                    return true;
+                }
+            });
+            assertTrue(found.isEmpty());
+
+            List<QueryResult> nearest = idx.findKNearest(lat, lon, 3, 300_000, EdgeFilter.ALL_EDGES);
+            assertTrue(nearest.size() <= 3);
+            for (int j = 1; j < nearest.size(); j++) {
+                assertTrue(nearest.get(j - 1).getQueryDistance() <= nearest.get(j).getQueryDistance());
+            }
+            if (hasEdgeSupport() && !nearest.isEmpty())
+                assertEquals(idx.findClosest(lat, lon, EdgeFilter.ALL_EDGES).getQueryDistance(),
+                        nearest.get(0).getQueryDistance(), 1);
+        }
+        Helper.close((Closeable) g);
+    }
+
     // our simple index has only one node per tile => problems if multiple subnetworks
     boolean testGridIgnore(int i) {
         return false;
@@ -0,0 +1,99 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage.index;
+
+import com.graphhopper.routing.util.DefaultEdgeFilter;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.FlagEncoder;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.RAMDirectory;
+import com.graphhopper.util.EdgeIteratorState;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CachingLocationIndexTest extends AbstractLocationIndexTester {
+    @Override
+    public LocationIndex createIndex(Graph g, int resolution) {
+        if (resolution < 0)
+            resolution = 500000;
+        LocationIndex index = new LocationIndexTree(g, new RAMDirectory(location)).setResolution(resolution).prepareIndex();
+        return new CachingLocationIndex(index, 100);
+    }
+
+    @Override
+    public boolean hasEdgeSupport() {
+        return true;
+    }
+
+    @Test
+    public void testCache() {
+        EncodingManager em = new EncodingManager("car");
+        FlagEncoder encoder = em.getEncoder("car");
+        Graph graph = createSampleGraph(em);
+        LocationIndex tree = new LocationIndexTree(graph, new RAMDirectory()).setResolution(500000).prepareIndex();
+        CachingLocationIndex cache = new CachingLocationIndex(tree, 2);
+
+        QueryResult qr = cache.findClosest(1.5, 1.5, new DefaultEdgeFilter(encoder));
+        assertEquals(0, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getSize());
+
+        // the same location and filter within the precision of the key
+        QueryResult cached = cache.findClosest(1.500001, 1.5, new DefaultEdgeFilter(encoder));
+        assertEquals(1, cache.getHits());
+        assertNotSame(qr, cached);
+        assertEquals(qr.getClosestEdge().getEdge(), cached.getClosestEdge().getEdge());
+        assertEquals(qr.getClosestNode(), cached.getClosestNode());
+        assertEquals(qr.getSnappedPosition(), cached.getSnappedPosition());
+        assertEquals(qr.getQueryDistance(), cached.getQueryDistance(), 1);
+        assertEquals(1.500001, cached.getQueryPoint().lat, 1e-9);
+
+        // other filters are different keys or not cached at all
+        cache.findClosest(1.5, 1.5, new DefaultEdgeFilter(encoder, false, true));
+        assertEquals(2, cache.getMisses());
+        cache.findClosest(1.5, 1.5, new EdgeFilter() {
+            @Override
+            public boolean accept(EdgeIteratorState edgeState) {
+                return true;
+            }
+        });
+        assertEquals(2, cache.getMisses());
+        assertEquals(2, cache.getSize());
+
+        // evict least recently used
+        cache.findClosest(2.5, 2.5, EdgeFilter.ALL_EDGES);
+        assertEquals(1, cache.getEvictions());
+        assertEquals(2, cache.getSize());
+        cache.findClosest(1.5, 1.5, new DefaultEdgeFilter(encoder));
+        assertEquals(4, cache.getMisses());
+        assertEquals(1.0 / 5, cache.getHitRate(), 1e-6);
+
+        // batch uses the cache and snaps only the misses
+        List<QueryResult> results = cache.findClosest(new double[]{1.5, 3.5}, new double[]{1.5, 3.5}, new DefaultEdgeFilter(encoder));
+        assertEquals(2, results.size());
+        assertEquals(2, cache.getHits());
+        assertEquals(tree.findClosest(3.5, 3.5, new DefaultEdgeFilter(encoder)).getClosestNode(), results.get(1).getClosestNode());
+
+        cache.clear();
+        assertEquals(0, cache.getSize());
+    }
+}
@@ -17,20 +17,27 @@
  */
 package com.graphhopper.storage.index;
 
+import com.carrotsearch.hppc.IntArrayList;
 import com.graphhopper.coll.GHIntHashSet;
+import com.graphhopper.routing.subnetwork.PrepareRoutingSubnetworks;
 import com.graphhopper.routing.util.*;
 import com.graphhopper.storage.Directory;
 import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.GraphHopperStorage;
 import com.graphhopper.storage.NodeAccess;
 import com.graphhopper.storage.RAMDirectory;
 import com.graphhopper.util.*;
 import com.graphhopper.util.shapes.GHPoint;
 import org.junit.Test;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -397,6 +404,334 @@ public class LocationIndexTreeTest extends AbstractLocationIndexTester {
         return graph;
     }
 
+    @Test
+    public void testBatchFindClosestParallel() {
+        Graph graph = createSampleGraph(encodingManager);
+        LocationIndexTree index = createIndex(graph, 50000);
+        Random rand = new Random(1);
+        double[] lats = new double[2000];
+        double[] lons = new double[2000];
+        for (int i = 0; i < lats.length; i++) {
+            lats[i] = rand.nextDouble() * 5;
+            lons[i] = rand.nextDouble() * 5;
+        }
+
+        EdgeFilter filter = new DefaultEdgeFilter(encodingManager.getEncoder("car"));
+        ExecutorService executorService = Executors.newFixedThreadPool(3);
+        try {
+            List<QueryResult> results = index.findClosest(lats, lons, filter, executorService);
+            assertEquals(lats.length, results.size());
+            for (int i = 0; i < lats.length; i++) {
+                QueryResult expected = index.findClosest(lats[i], lons[i], filter);
+                assertEquals(expected.isValid(), results.get(i).isValid());
+                assertEquals(expected.getClosestNode(), results.get(i).getClosestNode());
+                assertEquals(expected.getSnappedPoint().toString(), results.get(i).getSnappedPoint().toString());
+            }
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    public void testParallelPrepareIndex() {
+        Graph graph = createGHStorage(new RAMDirectory(), encodingManager, false);
+        NodeAccess na = graph.getNodeAccess();
+        Random rand = new Random(12);
+        int nodes = 10_000;
+        for (int i = 0; i < nodes; i++) {
+            na.setNode(i, rand.nextDouble(), rand.nextDouble());
+        }
+        for (int i = 0; i < 3 * nodes; i++) {
+            int from = rand.nextInt(nodes);
+            int to = Math.min(nodes - 1, from + 1 + rand.nextInt(20));
+            EdgeIteratorState edge = graph.edge(from, to, 1, true);
+            if (i % 3 == 0)
+                edge.setWayGeometry(Helper.createPointList(rand.nextDouble(), rand.nextDouble()));
+        }
+
+        LocationIndexTree serialIndex = createIndex(graph, 500);
+        LocationIndexTree parallelIndex = (LocationIndexTree) createIndexNoPrepare(graph, 500).
+                setPrepareThreads(3).prepareIndex();
+        assertEquals(serialIndex.dataAccess.getCapacity(), parallelIndex.dataAccess.getCapacity());
+        for (long pointer = 0; pointer < serialIndex.dataAccess.getCapacity(); pointer += 4) {
+            assertEquals("pointer " + pointer, serialIndex.dataAccess.getInt(pointer), parallelIndex.dataAccess.getInt(pointer));
+        }
+
+        for (int i = 0; i < 100; i++) {
+            double lat = rand.nextDouble(), lon = rand.nextDouble();
+            assertEquals(serialIndex.findClosest(lat, lon, EdgeFilter.ALL_EDGES).getClosestNode(),
+                    parallelIndex.findClosest(lat, lon, EdgeFilter.ALL_EDGES).getClosestNode());
+        }
+    }
+
+    @Test
+    public void testParallelPrepareIndexWithRemovedSubnetworks() {
+        GraphHopperStorage graph = createGHStorage(new RAMDirectory(), encodingManager, false);
+        NodeAccess na = graph.getNodeAccess();
+        Random rand = new Random(13);
+        int nodes = 10_000;
+        for (int i = 0; i < nodes; i++) {
+            na.setNode(i, rand.nextDouble(), rand.nextDouble());
+        }
+        for (int i = 0; i < 3 * nodes; i++) {
+            int from = rand.nextInt(nodes);
+            graph.edge(from, Math.min(nodes - 1, from + 1 + rand.nextInt(20)), 1, true);
+            // small subnetworks spread over all edge ranges
+            if (i % 10 == 0) {
+                int node = graph.getNodes();
+                na.setNode(node, rand.nextDouble(), rand.nextDouble());
+                na.setNode(node + 1, rand.nextDouble(), rand.nextDouble());
+                graph.edge(node, node + 1, 1, true);
+            }
+        }
+        new PrepareRoutingSubnetworks(graph, encodingManager.fetchEdgeEncoders()).setMinNetworkSize(5).doWork();
+
+        int validEdges = 0;
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            validEdges++;
+        }
+        assertTrue("edges should be removed " + validEdges, validEdges < iter.length());
+
+        LocationIndexTree serialIndex = createIndex(graph, 500);
+        LocationIndexTree parallelIndex = (LocationIndexTree) createIndexNoPrepare(graph, 500).
+                setPrepareThreads(3).prepareIndex();
+        assertEquals(serialIndex.dataAccess.getCapacity(), parallelIndex.dataAccess.getCapacity());
+        for (long pointer = 0; pointer < serialIndex.dataAccess.getCapacity(); pointer += 4) {
+            assertEquals("pointer " + pointer, serialIndex.dataAccess.getInt(pointer), parallelIndex.dataAccess.getInt(pointer));
+        }
+
+        for (int i = 0; i < 100; i++) {
+            double lat = rand.nextDouble(), lon = rand.nextDouble();
+            QueryResult expected = serialIndex.findClosest(lat, lon, EdgeFilter.ALL_EDGES);
+            QueryResult result = parallelIndex.findClosest(lat, lon, EdgeFilter.ALL_EDGES);
+            assertEquals(expected.getClosestNode(), result.getClosestNode());
+            assertEquals(expected.getClosestEdge().getEdge(), result.getClosestEdge().getEdge());
+        }
+    }
+
+    @Test
+    public void testFindKNearestSameAsAllEdges() {
+        Graph graph = createGHStorage(new RAMDirectory(), encodingManager, false);
+        NodeAccess na = graph.getNodeAccess();
+        Random rand = new Random(21);
+        int nodes = 2000;
+        for (int i = 0; i < nodes; i++) {
+            na.setNode(i, rand.nextDouble(), rand.nextDouble());
+        }
+        for (int i = 0; i < 2 * nodes; i++) {
+            int from = rand.nextInt(nodes);
+            EdgeIteratorState edge = graph.edge(from, Math.min(nodes - 1, from + 1 + rand.nextInt(20)), 1, rand.nextBoolean());
+            if (i % 3 == 0)
+                edge.setWayGeometry(Helper.createPointList(rand.nextDouble(), rand.nextDouble()));
+        }
+        LocationIndexTree index = createIndex(graph, 2000);
+
+        for (int i = 0; i < 200; i++) {
+            // also query outside of the graph bounds
+            final double lat = rand.nextDouble() * 1.4 - 0.2, lon = rand.nextDouble() * 1.4 - 0.2;
+            int k = 1 + rand.nextInt(10);
+            double maxRadius = i % 4 == 0 ? 5_000 : 200_000;
+            final List<Double> expected = new ArrayList<>();
+            EdgeCandidate.findWithin(graph, Helper.DIST_EARTH, lat, lon, maxRadius, EdgeFilter.ALL_EDGES, new LocationIndex.Visitor() {
+                @Override
+                public boolean onEdge(EdgeIteratorState edge, int closestNode, int wayIndex, QueryResult.Position position, double distance) {
+                    expected.add(distance);
+                    return true;
+                }
+            });
+            Collections.sort(expected);
+
+            List<QueryResult> results = index.findKNearest(lat, lon, k, maxRadius, EdgeFilter.ALL_EDGES);
+            assertEquals(lat + "," + lon, Math.min(k, expected.size()), results.size());
+            for (int j = 0; j < results.size(); j++) {
+                QueryResult qr = results.get(j);
+                // the index uses a faster distance calculation
+                assertEquals(lat + "," + lon, expected.get(j), qr.getQueryDistance(), 1e-3 + 1e-5 * expected.get(j));
+                assertEquals(qr.getQueryDistance(), Helper.DIST_EARTH.calcDist(lat, lon,
+                        qr.getSnappedPoint().lat, qr.getSnappedPoint().lon), 1e-3 + 1e-5 * expected.get(j));
+            }
+        }
+    }
+
+    @Test
+    public void testFindKNearestFarOutside() {
+        Graph graph = createGHStorage(new RAMDirectory(), encodingManager, false);
+        NodeAccess na = graph.getNodeAccess();
+        Random rand = new Random(11);
+        int nodes = 1000;
+        for (int i = 0; i < nodes; i++) {
+            na.setNode(i, rand.nextDouble(), rand.nextDouble());
+        }
+        for (int i = 0; i < 2 * nodes; i++) {
+            int from = rand.nextInt(nodes);
+            graph.edge(from, Math.min(nodes - 1, from + 1 + rand.nextInt(20)), 1, true);
+        }
+        LocationIndexTree index = createIndex(graph, 2000);
+
+        // the bounds are more than 2000km away
+        assertTrue(index.findKNearest(0.5, 20, 3, 100_000, EdgeFilter.ALL_EDGES).isEmpty());
+
+        final List<Double> expected = new ArrayList<>();
+        EdgeCandidate.findWithin(graph, Helper.DIST_EARTH, 0.5, 20, 3_000_000, EdgeFilter.ALL_EDGES, new LocationIndex.Visitor() {
+            @Override
+            public boolean onEdge(EdgeIteratorState edge, int closestNode, int wayIndex, QueryResult.Position position, double distance) {
+                expected.add(distance);
+                return true;
+            }
+        });
+        Collections.sort(expected);
+        List<QueryResult> results = index.findKNearest(0.5, 20, 3, 3_000_000, EdgeFilter.ALL_EDGES);
+        assertEquals(3, results.size());
+        for (int j = 0; j < results.size(); j++) {
+            assertEquals(expected.get(j), results.get(j).getQueryDistance(), 1e-3 + 1e-5 * expected.get(j));
+        }
+
+        // the query is clamped to a tile at the eastern border and only the western half of the rings is visited
+        GHPoint center = index.getCenter(0.5, 20);
+        assertEquals(1, index.findNetworkEntriesRing(center, 0, new GHIntHashSet(), -1));
+        assertEquals(5, index.findNetworkEntriesRing(center, 1, new GHIntHashSet(), -1));
+        assertEquals(13, index.findNetworkEntriesRing(center, 3, new GHIntHashSet(), -1));
+        assertEquals(0, index.findNetworkEntriesRing(center, 1_000_000, new GHIntHashSet(), -1));
+    }
+
+    @Test
+    public void testCompactLeafs() {
+        Graph graph = createGHStorage(new RAMDirectory(), encodingManager, false);
+        NodeAccess na = graph.getNodeAccess();
+        Random rand = new Random(7);
+        int nodes = 10_000;
+        for (int i = 0; i < nodes; i++) {
+            na.setNode(i, rand.nextDouble(), rand.nextDouble());
+        }
+        for (int i = 0; i < 2 * nodes; i++) {
+            int from = rand.nextInt(nodes);
+            graph.edge(from, Math.min(nodes - 1, from + 1 + rand.nextInt(20)), 1, true);
+        }
+
+        LocationIndexTree index = createIndex(graph, 2000);
+        new File(location).mkdirs();
+        LocationIndexTree compactIndex = (LocationIndexTree) new LocationIndexTree(graph, new RAMDirectory(location, true)).
+                setCompactLeafs(true).setResolution(2000).prepareIndex();
+        compactIndex.flush();
+        compactIndex.close();
+        // the format is read from the stored index
+        compactIndex = new LocationIndexTree(graph, new RAMDirectory(location, true));
+        assertTrue(compactIndex.setResolution(2000).loadExisting());
+
+        // every leaf with more than one entry needs the packed varints instead of one int per entry
+        LocationIndexTree plainIndex = createIndexNoPrepare(graph, 2000);
+        plainIndex.prepareAlgo();
+        LocationIndexTree.InMemConstructionIndex inMemIndex = plainIndex.getPrepareInMemIndex();
+        long savedBytes = 0;
+        for (Object entry : inMemIndex.getEntriesOf(plainIndex.getEntries().size() - 1)) {
+            IntArrayList leafEntries = ((LocationIndexTree.InMemLeafEntry) entry).getResults();
+            if (leafEntries.size() < 2)
+                continue;
+            int varintBytes = 0;
+            for (int i = 0; i < leafEntries.size(); i++) {
+                int value = i == 0 ? leafEntries.get(0) : leafEntries.get(i) - leafEntries.get(i - 1);
+                do {
+                    varintBytes++;
+                    value >>>= 7;
+                } while (value != 0);
+            }
+            savedBytes += leafEntries.size() * 4 - (varintBytes + 3) / 4 * 4;
+        }
+        assertTrue(savedBytes > 0);
+        plainIndex.dataAccess.create(64 * 1024);
+        long plainBytes = (long) inMemIndex.store(inMemIndex.root, LocationIndexTree.START_POINTER) * 4;
+
+        LocationIndexTree compactStoreIndex = createIndexNoPrepare(graph, 2000).setCompactLeafs(true);
+        compactStoreIndex.prepareAlgo();
+        inMemIndex = compactStoreIndex.getPrepareInMemIndex();
+        compactStoreIndex.dataAccess.create(64 * 1024);
+        long compactBytes = (long) inMemIndex.store(inMemIndex.root, LocationIndexTree.START_POINTER) * 4;
+        assertEquals(savedBytes, plainBytes - compactBytes);
+
+        for (int i = 0; i < 200; i++) {
+            double lat = rand.nextDouble(), lon = rand.nextDouble();
+            GHIntHashSet expected = new GHIntHashSet();
+            index.findNetworkEntriesSingleRegion(expected, lat, lon);
+            GHIntHashSet entries = new GHIntHashSet();
+            compactIndex.findNetworkEntriesSingleRegion(entries, lat, lon);
+            assertEquals(expected, entries);
+            assertEquals(index.findClosest(lat, lon, EdgeFilter.ALL_EDGES).getClosestNode(),
+                    compactIndex.findClosest(lat, lon, EdgeFilter.ALL_EDGES).getClosestNode());
+        }
+    }
+
+    @Test
+    public void testAccessFilter() {
+        EncodingManager em = new EncodingManager("car,foot");
+        FlagEncoder carEncoder = em.getEncoder("car");
+        FlagEncoder footEncoder = em.getEncoder("foot");
+        Graph graph = createGHStorage(new RAMDirectory(), em, false);
+        NodeAccess na = graph.getNodeAccess();
+        Random rand = new Random(3);
+        int nodes = 500;
+        for (int i = 0; i < nodes; i++) {
+            na.setNode(i, rand.nextDouble() * 0.1, rand.nextDouble() * 0.1);
+        }
+        for (int i = 0; i < 2 * nodes; i++) {
+            int from = rand.nextInt(nodes);
+            int to = rand.nextInt(nodes);
+            long flags = footEncoder.setProperties(5, true, true);
+            // mostly footways and only a few car roads
+            if (i % 10 == 0)
+                flags |= carEncoder.setProperties(50, true, i % 20 == 0);
+            graph.edge(from, to).setDistance(100).setFlags(flags);
+        }
+
+        LocationIndexTree index = createIndex(graph, 500);
+        LocationIndexTree filteredIndex = (LocationIndexTree) createIndexNoPrepare(graph, 500).
+                setAccessFilterEncoders(Arrays.asList(carEncoder, footEncoder)).prepareIndex();
+        assertTrue(filteredIndex.getCapacity() > index.getCapacity());
+
+        List<EdgeFilter> filters = Arrays.<EdgeFilter>asList(new DefaultEdgeFilter(carEncoder),
+                new DefaultEdgeFilter(carEncoder, false, true), new DefaultEdgeFilter(footEncoder));
+        for (int i = 0; i < 200; i++) {
+            double lat = rand.nextDouble() * 0.1, lon = rand.nextDouble() * 0.1;
+            for (EdgeFilter filter : filters) {
+                QueryResult expected = index.findClosest(lat, lon, filter);
+                QueryResult result = filteredIndex.findClosest(lat, lon, filter);
+                assertEquals(expected.isValid(), result.isValid());
+                if (expected.isValid()) {
+                    assertTrue(filter.accept(result.getClosestEdge()));
+                    // inaccessible entries no longer trigger the early finish, so the match can only get closer
+                    assertTrue(result.getQueryDistance() <= expected.getQueryDistance() + 1e-6);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testUpdateAccess() {
+        EncodingManager em = new EncodingManager("car,foot");
+        FlagEncoder carEncoder = em.getEncoder("car");
+        FlagEncoder footEncoder = em.getEncoder("foot");
+        Graph graph = createGHStorage(new RAMDirectory(), em, false);
+        NodeAccess na = graph.getNodeAccess();
+        na.setNode(0, 0, 0);
+        na.setNode(1, 0, 0.001);
+        na.setNode(2, 0.01, 0);
+        na.setNode(3, 0.01, 0.001);
+        EdgeIteratorState footway = graph.edge(0, 1).setDistance(111).setFlags(footEncoder.setProperties(5, true, true));
+        graph.edge(2, 3).setDistance(111).setFlags(carEncoder.setProperties(50, true, true));
+
+        LocationIndexTree index = (LocationIndexTree) createIndexNoPrepare(graph, 500).
+                setAccessFilterEncoders(Arrays.asList(carEncoder, footEncoder)).prepareIndex();
+        EdgeFilter carFilter = new DefaultEdgeFilter(carEncoder);
+        assertTrue(index.findClosest(0, 0.0005, carFilter).getQueryDistance() > 1000);
+
+        // the footway becomes a road
+        footway.setFlags(footway.getFlags() | carEncoder.setProperties(50, true, true));
+        index.updateAccess(footway);
+        QueryResult qr = index.findClosest(0, 0.0005, carFilter);
+        assertEquals(footway.getEdge(), qr.getClosestEdge().getEdge());
+        assertEquals(0, qr.getQueryDistance(), 1e-3);
+    }
+
     @Test
     public void testRMin() {
         Graph graph = createTestGraph(encodingManager);
@@ -22,6 +22,9 @@ import com.graphhopper.routing.util.EdgeFilter;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.QueryResult;
 
+import java.util.ArrayList;
+import java.util.List;
+
 class EmptyLocationIndex implements LocationIndex {
     @Override
     public LocationIndex setResolution(int resolution) {
@@ -33,11 +36,29 @@ class EmptyLocationIndex implements LocationIndex {
         return this;
     }
 
+    @Override
+    public List<QueryResult> findClosest(double[] lats, double[] lons, EdgeFilter edgeFilter) {
+        List<QueryResult> list = new ArrayList<>(lats.length);
+        for (int i = 0; i < lats.length; i++) {
+            list.add(findClosest(lats[i], lons[i], edgeFilter));
+        }
+        return list;
+    }
+
     @Override
     public QueryResult findClosest(double lat, double lon, EdgeFilter edgeFilter) {
         return new QueryResult(lat, lon);
     }
 
+    @Override
+    public void findWithin(double lat, double lon, double radiusInMeter, EdgeFilter edgeFilter, Visitor visitor) {
+    }
+
+    @Override
+    public List<QueryResult> findKNearest(double lat, double lon, int k, double maxRadiusInMeter, EdgeFilter edgeFilter) {
+        return new ArrayList<>();
+    }
+
     @Override
     public LocationIndex setApproximation(boolean approxDist) {
         return this;
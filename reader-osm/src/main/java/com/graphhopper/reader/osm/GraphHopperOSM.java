@@ -23,9 +23,17 @@ import com.graphhopper.reader.DataReader;
 import com.graphhopper.routing.lm.PrepareLandmarks;
 import com.graphhopper.routing.util.spatialrules.*;
 import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.util.CmdArgs;
+import com.graphhopper.util.shapes.BBox;
 import com.graphhopper.util.shapes.Polygon;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.locks.Lock;
 
 /**
  * This class is the simplified entry to all functionality if you import from OpenStreetMap data.
@@ -34,7 +42,12 @@ import java.util.List;
  */
 public class GraphHopperOSM extends GraphHopper {
 
+    private final Logger logger = LoggerFactory.getLogger(getClass());
     private final JsonFeatureCollection landmarkSplittingFeatureCollection;
+    private boolean singlePassImport = false;
+    private boolean storeOSMWayIds = false;
+    private int elevationThreads = 1;
+    private OSMEdgeMapping edgeMapping;
 
     public GraphHopperOSM() {
         this(null);
@@ -45,9 +58,111 @@ public class GraphHopperOSM extends GraphHopper {
         this.landmarkSplittingFeatureCollection = landmarkSplittingFeatureCollection;
     }
 
+    @Override
+    public GraphHopper init(CmdArgs args) {
+        super.init(args);
+        singlePassImport = args.getBool("datareader.single_pass", singlePassImport);
+        storeOSMWayIds = args.getBool("datareader.store_osm_way_ids", storeOSMWayIds);
+        elevationThreads = args.getInt("graph.elevation.import_threads", elevationThreads);
+        return this;
+    }
+
     @Override
     protected DataReader createReader(GraphHopperStorage ghStorage) {
-        return initDataReader(new OSMReader(ghStorage));
+        OSMReader reader = new OSMReader(ghStorage).setSinglePass(singlePassImport).setElevationThreads(elevationThreads);
+        if (storeOSMWayIds) {
+            if (isSortGraph())
+                throw new IllegalStateException("Storing the OSM way ids does not work with graph.do_sort");
+
+            edgeMapping = new OSMEdgeMapping(ghStorage.getDirectory()).create(1000);
+            reader.setEdgeMapping(edgeMapping);
+        }
+        return initDataReader(reader);
+    }
+
+    /**
+     * Decodes the OSM file only once and buffers the elements in temporary files of the graph
+     * directory instead, see OSMReader.setSinglePass. This is faster for big PBF files if there is
+     * enough disc space.
+     */
+    public GraphHopperOSM setSinglePassImport(boolean singlePassImport) {
+        this.singlePassImport = singlePassImport;
+        return this;
+    }
+
+    /**
+     * Looks up the elevation of the nodes with the specified number of threads while importing,
+     * see OSMReader.setElevationThreads.
+     */
+    public GraphHopperOSM setElevationThreads(int elevationThreads) {
+        this.elevationThreads = elevationThreads;
+        return this;
+    }
+
+    /**
+     * Stores the OSM way of every edge while importing so that OSM change files can be applied
+     * later, see importChanges.
+     */
+    public GraphHopperOSM setStoreOSMWayIds(boolean storeOSMWayIds) {
+        this.storeOSMWayIds = storeOSMWayIds;
+        return this;
+    }
+
+    /**
+     * Applies the tags of the changed ways of the specified OSM change file (.osc or .osc.gz) to
+     * the graph. New ways, changed nodes of ways and changes of nodes and relations are not applied
+     * and need a new import, see OSMChangeImporter. The graph has to be imported with
+     * setStoreOSMWayIds(true) and CH and LM have to be disabled as changed edges can get faster and
+     * there is no partial preparation. The union of the changed regions is stored in the property
+     * datareader.changes.bbox for information only, nothing reads it.
+     * Routing requests wait while the changes are applied.
+     */
+    public OSMChangeImporter.Result importChanges(String oscFile) throws IOException {
+        if (getCHFactoryDecorator().isEnabled())
+            throw new IllegalArgumentException("To import OSM changes you need to turn off CH");
+        // faster edges would make the landmark weights too high for the A* lower bound
+        if (getLMFactoryDecorator().isEnabled())
+            throw new IllegalArgumentException("To import OSM changes you need to turn off LM");
+
+        GraphHopperStorage ghStorage = getGraphHopperStorage();
+        if (ghStorage == null)
+            throw new IllegalStateException("Load or import the graph before importing OSM changes");
+
+        Lock writeLock = getGraphWriteLock();
+        writeLock.lock();
+        try {
+            if (edgeMapping == null) {
+                OSMEdgeMapping tmpMapping = new OSMEdgeMapping(ghStorage.getDirectory());
+                if (!tmpMapping.loadExisting())
+                    throw new IllegalStateException("No OSM way ids found in " + ghStorage.getDirectory().getLocation()
+                            + ", import the graph with datareader.store_osm_way_ids: true");
+                edgeMapping = tmpMapping;
+            }
+
+            OSMChangeImporter changeImporter = new OSMChangeImporter(ghStorage, edgeMapping);
+            if (getLocationIndex() instanceof LocationIndexTree)
+                changeImporter.setLocationIndex((LocationIndexTree) getLocationIndex());
+            OSMChangeImporter.Result result = changeImporter.importChanges(new File(oscFile));
+            if (result.getSkippedWays() + result.getIgnoredNodes() + result.getIgnoredRelations() > 0)
+                logger.warn("Not all changes of " + oscFile + " could be applied, a new import is necessary for them. " + result);
+            if (result.hasChanges()) {
+                clearCaches();
+                // the area which changed since the import, e.g. to decide what has to be prepared again
+                BBox bounds = result.getBounds().clone();
+                String oldBoundsStr = ghStorage.getProperties().get("datareader.changes.bbox");
+                if (!oldBoundsStr.isEmpty()) {
+                    BBox oldBounds = BBox.parseBBoxString(oldBoundsStr);
+                    bounds.update(oldBounds.minLat, oldBounds.minLon);
+                    bounds.update(oldBounds.maxLat, oldBounds.maxLon);
+                }
+                ghStorage.getProperties().put("datareader.changes.bbox", bounds.toString());
+                ghStorage.flush();
+                getLocationIndex().flush();
+            }
+            return result;
+        } finally {
+            writeLock.unlock();
+        }
     }
 
     public String getOSMFile() {
@@ -63,6 +178,15 @@ public class GraphHopperOSM extends GraphHopper {
         return this;
     }
 
+    @Override
+    public void close() {
+        if (edgeMapping != null) {
+            edgeMapping.close();
+            edgeMapping = null;
+        }
+        super.close();
+    }
+
     @Override
     protected void loadOrPrepareLM() {
         if (!getLMFactoryDecorator().isEnabled() || getLMFactoryDecorator().getPreparations().isEmpty())
@@ -0,0 +1,323 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for 
+ *  additional information regarding copyright ownership.
+ * 
+ *  GraphHopper GmbH licenses this file to you under the Apache License, 
+ *  Version 2.0 (the "License"); you may not use this file except in 
+ *  compliance with the License. You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.osm;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.cursors.LongObjectCursor;
+import com.graphhopper.coll.GHLongHashSet;
+import com.graphhopper.coll.GHLongObjectHashMap;
+import com.graphhopper.reader.ReaderWay;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.FlagEncoder;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.util.DistanceCalc;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.PointList;
+import com.graphhopper.util.shapes.BBox;
+import com.graphhopper.util.shapes.GHPoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.*;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Applies the tag changes of an OSM change file (.osc or .osc.gz) to an imported graph without a
+ * new import. The edges of modified ways get the flags and names calculated from the new tags and
+ * the edges of deleted ways are blocked for all vehicles. This requires the OSMEdgeMapping of the
+ * import.
+ * <p>
+ * This is no complete incremental update, the following changes are not applied and need a new
+ * import:
+ * <ul>
+ * <li>changes of the topology: created ways, ways with changed nodes and ways which were not
+ * imported before. They are counted in Result.getSkippedWays. A created way which already exists
+ * in the graph, e.g. from overlapping change files, is skipped too.</li>
+ * <li>changes of nodes like moved nodes or new barriers, counted in Result.getIgnoredNodes</li>
+ * <li>changes of relations like turn restrictions or bike routes, counted in
+ * Result.getIgnoredRelations</li>
+ * </ul>
+ * The location index does not need to be changed as the edges stay at the same positions. A CH or
+ * LM preparation is not updated, not even partially, and would be invalid afterwards as edges can
+ * get faster. Result.getBounds is the region which was changed.
+ */
+public class OSMChangeImporter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(OSMChangeImporter.class);
+    private final GraphHopperStorage graph;
+    private final EncodingManager encodingManager;
+    private final OSMEdgeMapping edgeMapping;
+    private final DistanceCalc distCalc = Helper.DIST_EARTH;
+    private LocationIndexTree accessIndex;
+
+    public OSMChangeImporter(GraphHopperStorage graph, OSMEdgeMapping edgeMapping) {
+        this.graph = graph;
+        this.encodingManager = graph.getEncodingManager();
+        this.edgeMapping = edgeMapping;
+    }
+
+    /**
+     * Updates the access bitmaps of the specified index for the changed edges, see
+     * LocationIndexTree.setAccessFilterEncoders
+     */
+    public OSMChangeImporter setLocationIndex(LocationIndexTree accessIndex) {
+        this.accessIndex = accessIndex;
+        return this;
+    }
+
+    public Result importChanges(File oscFile) throws IOException {
+        try (InputStream is = new BufferedInputStream(new FileInputStream(oscFile))) {
+            return importChanges(oscFile.getName().endsWith(".gz") ? new GZIPInputStream(is) : is);
+        }
+    }
+
+    public Result importChanges(InputStream is) throws IOException {
+        Result result = new Result();
+        GHLongObjectHashMap<ReaderWay> changedWays = new GHLongObjectHashMap<>();
+        GHLongHashSet createdWays = new GHLongHashSet();
+        try {
+            XMLStreamReader parser = XMLInputFactory.newInstance().createXMLStreamReader(is, "UTF-8");
+            try {
+                readChanges(parser, changedWays, createdWays, result);
+            } finally {
+                parser.close();
+            }
+        } catch (XMLStreamException ex) {
+            throw new IOException("Cannot read OSM change file", ex);
+        }
+        // the edges of every changed way are found via the way index of the mapping
+        for (LongObjectCursor<ReaderWay> cursor : changedWays) {
+            long wayOsmId = cursor.key;
+            ReaderWay way = cursor.value;
+            IntArrayList edges = getEdges(wayOsmId);
+            if (edges.isEmpty()) {
+                // a way without edges, it does not matter if it was deleted or if it is still not accepted
+                if (way != null && encodingManager.acceptWay(way) != 0)
+                    result.skippedWays++;
+                continue;
+            }
+            if (createdWays.contains(wayOsmId)) {
+                LOGGER.debug("skipped way " + wayOsmId + " as it was created but exists already");
+                result.skippedWays++;
+                continue;
+            }
+
+            if (way == null) {
+                block(edges, result);
+            } else if (OSMEdgeMapping.calcNodesHash(way.getNodes()) != edgeMapping.getNodesHash(edges.get(0))) {
+                LOGGER.debug("skipped way " + wayOsmId + " as its nodes changed");
+                result.skippedWays++;
+            } else {
+                update(way, edges, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the edges of the way which were not removed after the import, e.g. as they were in
+     * a small subnetwork
+     */
+    private IntArrayList getEdges(long wayOsmId) {
+        IntArrayList edges = edgeMapping.getEdges(wayOsmId);
+        IntArrayList existing = new IntArrayList(edges.size());
+        for (int i = 0; i < edges.size(); i++) {
+            try {
+                graph.getEdgeIteratorState(edges.get(i), Integer.MIN_VALUE);
+                existing.add(edges.get(i));
+            } catch (IllegalStateException ex) {
+                // the edge is marked as removed, see BaseGraph.inPlaceNodeRemove
+            }
+        }
+        return existing;
+    }
+
+    /**
+     * Reads the ways of the change file. Deleted ways are stored as null.
+     */
+    private void readChanges(XMLStreamReader parser, GHLongObjectHashMap<ReaderWay> changedWays,
+                             GHLongHashSet createdWays, Result result) throws XMLStreamException {
+        String action = null;
+        int event = parser.next();
+        while (event != XMLStreamConstants.END_DOCUMENT) {
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                String name = parser.getLocalName();
+                switch (name) {
+                    case "create":
+                    case "modify":
+                    case "delete":
+                        action = name;
+                        break;
+                    case "way":
+                        if (action == null)
+                            throw new IllegalStateException("Way outside of create, modify or delete in OSM change file");
+                        long id = Long.parseLong(parser.getAttributeValue(null, "id"));
+                        ReaderWay way = OSMXMLHelper.createWay(id, parser);
+                        if ("delete".equals(action)) {
+                            changedWays.put(id, null);
+                        } else {
+                            changedWays.put(id, way);
+                            if ("create".equals(action))
+                                createdWays.add(id);
+                        }
+                        break;
+                    case "node":
+                        result.ignoredNodes++;
+                        break;
+                    case "relation":
+                        result.ignoredRelations++;
+                        break;
+                    default:
+                        break;
+                }
+            }
+            event = parser.next();
+        }
+    }
+
+    /**
+     * Blocks the edges for all vehicles
+     */
+    private void block(IntArrayList edges, Result result) {
+        for (int i = 0; i < edges.size(); i++) {
+            EdgeIteratorState edge = graph.getEdgeIteratorState(edges.get(i), Integer.MIN_VALUE);
+            long flags = edge.getFlags();
+            for (FlagEncoder encoder : encodingManager.fetchEdgeEncoders()) {
+                flags = encoder.setAccess(flags, false, false);
+            }
+            edge.setFlags(flags);
+            result.blockedEdges++;
+            result.extend(edge);
+        }
+    }
+
+    /**
+     * Calculates the flags like OSMReader.processWay but for the existing edges of the way
+     */
+    private void update(ReaderWay way, IntArrayList edges, Result result) {
+        long includeWay = encodingManager.acceptWay(way);
+        if (includeWay == 0) {
+            block(edges, result);
+            return;
+        }
+
+        // the edges of a way are created in the order of its nodes
+        NodeAccess nodeAccess = graph.getNodeAccess();
+        int first = graph.getEdgeIteratorState(edges.get(0), Integer.MIN_VALUE).getBaseNode();
+        int last = graph.getEdgeIteratorState(edges.get(edges.size() - 1), Integer.MIN_VALUE).getAdjNode();
+        double firstLat = nodeAccess.getLat(first), firstLon = nodeAccess.getLon(first);
+        double lastLat = nodeAccess.getLat(last), lastLon = nodeAccess.getLon(last);
+        way.setTag("estimated_distance", distCalc.calcDist(firstLat, firstLon, lastLat, lastLon));
+        way.setTag("estimated_center", new GHPoint((firstLat + lastLat) / 2, (firstLon + lastLon) / 2));
+        if (way.getTag("duration") != null) {
+            try {
+                long dur = OSMTagParser.parseDuration(way.getTag("duration"));
+                way.setTag("duration:seconds", Long.toString(dur));
+            } catch (Exception ex) {
+                LOGGER.warn("Parsing error in way with OSMID=" + way.getId() + " : " + ex.getMessage());
+            }
+        }
+
+        long wayFlags = encodingManager.handleWayTags(way, includeWay, edgeMapping.getRelationFlags(way.getId()));
+        if (wayFlags == 0) {
+            block(edges, result);
+            return;
+        }
+
+        for (int i = 0; i < edges.size(); i++) {
+            int edgeId = edges.get(i);
+            EdgeIteratorState edge = graph.getEdgeIteratorState(edgeId, Integer.MIN_VALUE);
+            edge.setFlags(wayFlags & ~edgeMapping.getBarrierFlags(edgeId));
+            encodingManager.applyWayTags(way, edge);
+            if (accessIndex != null)
+                accessIndex.updateAccess(edge);
+            result.updatedEdges++;
+            result.extend(edge);
+        }
+    }
+
+    public static class Result {
+        private long updatedEdges;
+        private long blockedEdges;
+        private long skippedWays;
+        private long ignoredNodes;
+        private long ignoredRelations;
+        private final BBox bounds = BBox.createInverse(false);
+
+        private void extend(EdgeIteratorState edge) {
+            PointList points = edge.fetchWayGeometry(3);
+            for (int i = 0; i < points.size(); i++) {
+                bounds.update(points.getLat(i), points.getLon(i));
+            }
+        }
+
+        /**
+         * @return the number of edges which got new flags
+         */
+        public long getUpdatedEdges() {
+            return updatedEdges;
+        }
+
+        /**
+         * @return the number of edges which are blocked now as their way was deleted or is no
+         * longer accepted
+         */
+        public long getBlockedEdges() {
+            return blockedEdges;
+        }
+
+        /**
+         * @return the number of ways which could not be applied and need a new import
+         */
+        public long getSkippedWays() {
+            return skippedWays;
+        }
+
+        public long getIgnoredNodes() {
+            return ignoredNodes;
+        }
+
+        public long getIgnoredRelations() {
+            return ignoredRelations;
+        }
+
+        public boolean hasChanges() {
+            return updatedEdges + blockedEdges > 0;
+        }
+
+        /**
+         * @return the area of the changed edges. It is not valid if there are no changes.
+         */
+        public BBox getBounds() {
+            return bounds;
+        }
+
+        @Override
+        public String toString() {
+            return "updated edges:" + updatedEdges + ", blocked edges:" + blockedEdges + ", skipped ways:" + skippedWays
+                    + ", ignored nodes:" + ignoredNodes + ", ignored relations:" + ignoredRelations
+                    + (hasChanges() ? ", bounds:" + bounds : "");
+        }
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for 
+ *  additional information regarding copyright ownership.
+ * 
+ *  GraphHopper GmbH licenses this file to you under the Apache License, 
+ *  Version 2.0 (the "License"); you may not use this file except in 
+ *  compliance with the License. You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.osm;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.LongIndexedContainer;
+import com.carrotsearch.hppc.cursors.IntLongCursor;
+import com.carrotsearch.hppc.cursors.LongLongCursor;
+import com.carrotsearch.hppc.sorting.IndirectComparator;
+import com.carrotsearch.hppc.sorting.IndirectSort;
+import com.graphhopper.coll.GHIntLongHashMap;
+import com.graphhopper.coll.GHLongLongHashMap;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.Directory;
+import com.graphhopper.storage.Storable;
+import com.graphhopper.util.BitUtil;
+
+/**
+ * Stores for every edge the id of the OSM way it was created from and a hash of the node ids of
+ * this way. Additionally the barrier flags of barrier edges and the relation flags of ways are
+ * stored. This is all that is needed to encode the flags of the edges of a changed way again, see
+ * OSMChangeImporter. To find the edges of a way without reading all edges an index of the edges
+ * sorted by their way is stored too.
+ * <p>
+ * It needs 28 bytes per edge and is only created if enabled via OSMReader.setEdgeMapping.
+ */
+public class OSMEdgeMapping implements Storable<OSMEdgeMapping> {
+    private static final int VERSION = 2;
+    private static final int EDGE_BYTES = 16;
+    // the way id and the edge id, sorted by way and then by edge
+    private static final int INDEX_BYTES = 12;
+    private static final BitUtil BIT_UTIL = BitUtil.LITTLE;
+    private final DataAccess edges;
+    private final DataAccess extras;
+    private final DataAccess wayIndex;
+    private final GHIntLongHashMap barrierFlags = new GHIntLongHashMap();
+    private final GHLongLongHashMap relationFlags = new GHLongLongHashMap();
+    private int edgeCount;
+    private int indexSize;
+    // false if ways were set since the way index was built
+    private boolean indexValid;
+
+    public OSMEdgeMapping(Directory dir) {
+        this.edges = dir.find("osm_edge_ways");
+        this.extras = dir.find("osm_edge_extras");
+        this.wayIndex = dir.find("osm_way_edges");
+    }
+
+    @Override
+    public OSMEdgeMapping create(long initBytes) {
+        edges.create(initBytes);
+        extras.create(initBytes);
+        wayIndex.create(initBytes);
+        return this;
+    }
+
+    @Override
+    public boolean loadExisting() {
+        if (!edges.loadExisting())
+            return false;
+        if (!extras.loadExisting())
+            throw new IllegalStateException("Cannot load " + extras.getName() + " although " + edges.getName() + " exists");
+        if (!wayIndex.loadExisting())
+            throw new IllegalStateException("Cannot load " + wayIndex.getName() + " although " + edges.getName() + " exists");
+
+        int version = edges.getHeader(0);
+        if (version != VERSION)
+            throw new IllegalStateException("Unsupported version " + version + " of the OSM edge mapping, supported is " + VERSION);
+
+        edgeCount = edges.getHeader(4);
+        indexSize = wayIndex.getHeader(0);
+        indexValid = true;
+        int barriers = extras.getHeader(0);
+        int relations = extras.getHeader(4);
+        long pointer = 0;
+        for (int i = 0; i < barriers; i++, pointer += 12) {
+            barrierFlags.put(extras.getInt(pointer), getLong(extras, pointer + 4));
+        }
+        for (int i = 0; i < relations; i++, pointer += 16) {
+            relationFlags.put(getLong(extras, pointer), getLong(extras, pointer + 8));
+        }
+        return true;
+    }
+
+    @Override
+    public void flush() {
+        if (!indexValid)
+            buildWayIndex();
+        wayIndex.setHeader(0, indexSize);
+        edges.setHeader(0, VERSION);
+        edges.setHeader(4, edgeCount);
+        extras.setHeader(0, barrierFlags.size());
+        extras.setHeader(4, relationFlags.size());
+        extras.ensureCapacity(barrierFlags.size() * 12L + relationFlags.size() * 16L);
+        long pointer = 0;
+        for (IntLongCursor cursor : barrierFlags) {
+            extras.setInt(pointer, cursor.key);
+            setLong(extras, pointer + 4, cursor.value);
+            pointer += 12;
+        }
+        for (LongLongCursor cursor : relationFlags) {
+            setLong(extras, pointer, cursor.key);
+            setLong(extras, pointer + 8, cursor.value);
+            pointer += 16;
+        }
+        edges.flush();
+        extras.flush();
+        wayIndex.flush();
+    }
+
+    /**
+     * Stores the specified way for the edge.
+     *
+     * @param nodesHash the hash of the node ids of the way, see calcNodesHash
+     */
+    public void setWay(int edgeId, long wayOsmId, long nodesHash) {
+        long pointer = (long) edgeId * EDGE_BYTES;
+        edges.ensureCapacity(pointer + EDGE_BYTES);
+        setLong(edges, pointer, wayOsmId);
+        setLong(edges, pointer + 8, nodesHash);
+        edgeCount = Math.max(edgeCount, edgeId + 1);
+        indexValid = false;
+    }
+
+    /**
+     * @return the edges created from the specified way in increasing order. The list is empty if
+     * there is no such edge.
+     */
+    public IntArrayList getEdges(long wayOsmId) {
+        if (!indexValid)
+            buildWayIndex();
+
+        // the first entry of the way
+        int low = 0, high = indexSize;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (getLong(wayIndex, (long) mid * INDEX_BYTES) < wayOsmId)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        IntArrayList wayEdges = new IntArrayList(4);
+        for (int i = low; i < indexSize && getLong(wayIndex, (long) i * INDEX_BYTES) == wayOsmId; i++) {
+            wayEdges.add(wayIndex.getInt((long) i * INDEX_BYTES + 8));
+        }
+        return wayEdges;
+    }
+
+    /**
+     * Sorts the edges with a way by their way. As the ways are usually imported in the order of
+     * their ids this is mostly only a copy.
+     */
+    private void buildWayIndex() {
+        final IntArrayList wayEdges = new IntArrayList();
+        boolean sorted = true;
+        long prevWayOsmId = Long.MIN_VALUE;
+        for (int edgeId = 0; edgeId < edgeCount; edgeId++) {
+            if (!hasWay(edgeId))
+                continue;
+
+            long wayOsmId = getWayOsmId(edgeId);
+            if (wayOsmId < prevWayOsmId)
+                sorted = false;
+            prevWayOsmId = wayOsmId;
+            wayEdges.add(edgeId);
+        }
+
+        int[] order = null;
+        if (!sorted) {
+            // stable, so the edges of a way stay in increasing order
+            order = IndirectSort.mergesort(0, wayEdges.size(), new IndirectComparator() {
+                @Override
+                public int compare(int indexA, int indexB) {
+                    return Long.compare(getWayOsmId(wayEdges.get(indexA)), getWayOsmId(wayEdges.get(indexB)));
+                }
+            });
+        }
+
+        wayIndex.ensureCapacity((long) wayEdges.size() * INDEX_BYTES);
+        for (int i = 0; i < wayEdges.size(); i++) {
+            int edgeId = wayEdges.get(order == null ? i : order[i]);
+            long pointer = (long) i * INDEX_BYTES;
+            setLong(wayIndex, pointer, getWayOsmId(edgeId));
+            wayIndex.setInt(pointer + 8, edgeId);
+        }
+        indexSize = wayEdges.size();
+        indexValid = true;
+    }
+
+    /**
+     * @return true if the specified edge was created from an OSM way
+     */
+    public boolean hasWay(int edgeId) {
+        // edges without way have a hash of 0, see calcNodesHash
+        return edgeId < edgeCount && getNodesHash(edgeId) != 0;
+    }
+
+    public long getWayOsmId(int edgeId) {
+        return getLong(edges, (long) edgeId * EDGE_BYTES);
+    }
+
+    public long getNodesHash(int edgeId) {
+        return getLong(edges, (long) edgeId * EDGE_BYTES + 8);
+    }
+
+    /**
+     * Remembers that the specified edge was created for a barrier which removed the specified
+     * flags.
+     */
+    public void setBarrierFlags(int edgeId, long nodeFlags) {
+        barrierFlags.put(edgeId, nodeFlags);
+    }
+
+    /**
+     * @return the flags removed from the edge due to a barrier or 0 if it is no barrier edge
+     */
+    public long getBarrierFlags(int edgeId) {
+        return barrierFlags.get(edgeId);
+    }
+
+    /**
+     * Stores the flags of the relations of the way, like bike routes
+     */
+    public void setRelationFlags(long wayOsmId, long flags) {
+        if (flags == 0)
+            relationFlags.remove(wayOsmId);
+        else
+            relationFlags.put(wayOsmId, flags);
+    }
+
+    public long getRelationFlags(long wayOsmId) {
+        return relationFlags.get(wayOsmId);
+    }
+
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * @return a hash of the node ids to find ways where the nodes changed. It is never 0.
+     */
+    public static long calcNodesHash(LongIndexedContainer nodeIds) {
+        // FNV-1a
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < nodeIds.size(); i++) {
+            hash ^= nodeIds.get(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash == 0 ? 1 : hash;
+    }
+
+    private static void setLong(DataAccess da, long pointer, long value) {
+        da.setInt(pointer, BIT_UTIL.getIntLow(value));
+        da.setInt(pointer + 4, BIT_UTIL.getIntHigh(value));
+    }
+
+    private static long getLong(DataAccess da, long pointer) {
+        return BIT_UTIL.combineIntsToLong(da.getInt(pointer), da.getInt(pointer + 4));
+    }
+
+    @Override
+    public void close() {
+        edges.close();
+        extras.close();
+        wayIndex.close();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return edges.isClosed();
+    }
+
+    @Override
+    public long getCapacity() {
+        return edges.getCapacity() + extras.getCapacity() + wayIndex.getCapacity();
+    }
+}
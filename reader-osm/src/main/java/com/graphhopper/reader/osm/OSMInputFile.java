@@ -40,6 +40,7 @@ import java.util.zip.ZipInputStream;
  * @author Nop
  */
 public class OSMInputFile implements Sink, OSMInput {
+    private final File file;
     private final InputStream bis;
     private final BlockingQueue<ReaderElement> itemQueue;
     Thread pbfReaderThread;
@@ -53,13 +54,14 @@ public class OSMInputFile implements Sink, OSMInput {
     private OSMFileHeader fileheader;
 
     public OSMInputFile(File file) throws IOException {
+        this.file = file;
         bis = decode(file);
         itemQueue = new LinkedBlockingQueue<>(50_000);
     }
 
     public OSMInputFile open() throws XMLStreamException {
         if (binary) {
-            openPBFReader(bis);
+            openPBFReader(file);
         } else {
             openXMLStream(bis);
         }
@@ -234,12 +236,13 @@ public class OSMInputFile implements Sink, OSMInput {
         }
     }
 
-    private void openPBFReader(InputStream stream) {
+    private void openPBFReader(File pbfFile) {
         hasIncomingData = true;
         if (workerThreads <= 0)
             workerThreads = 1;
 
-        PbfReader reader = new PbfReader(stream, this, workerThreads);
+        // binary files are never compressed, so they can be mapped into memory
+        PbfReader reader = new PbfReader(pbfFile, this, workerThreads);
         pbfReaderThread = new Thread(reader, "PBF Reader");
         pbfReaderThread.start();
     }
@@ -21,6 +21,7 @@ import com.carrotsearch.hppc.*;
 import com.graphhopper.coll.*;
 import com.graphhopper.coll.LongIntMap;
 import com.graphhopper.reader.*;
+import com.graphhopper.reader.dem.ElevationBatch;
 import com.graphhopper.reader.dem.ElevationProvider;
 import com.graphhopper.reader.dem.GraphElevationSmoothing;
 import com.graphhopper.reader.osm.OSMTurnRelation.TurnCostTableEntry;
@@ -62,6 +63,9 @@ import static com.graphhopper.util.Helper.nf;
  * When creating an edge the pillar node information from the intermediate data structure will be
  * stored in the way geometry of that edge.
  * <p>
+ * With setSinglePass(true) the file is only read in phase 1 and phase 2 reads the elements from
+ * temporary files written in phase 1, see OSMSpill.
+ * <p>
  *
  * @author Peter Karich
  */
@@ -72,6 +76,7 @@ public class OSMReader implements DataReader {
     // tower node is <= -3
     protected static final int TOWER_NODE = -2;
     private static final Logger LOGGER = LoggerFactory.getLogger(OSMReader.class);
+    private static final int ELEVATION_BATCH_SIZE = 100_000;
     private final GraphStorage ghStorage;
     private final Graph graph;
     private final NodeAccess nodeAccess;
@@ -110,9 +115,17 @@ public class OSMReader implements DataReader {
     // negative but increasing to avoid clash with custom created OSM files
     private long newUniqueOsmId = -Long.MAX_VALUE;
     private ElevationProvider eleProvider = ElevationProvider.NOOP;
+    private int elevationThreads = 1;
+    // the nodes of the batch in the format of the node map
+    private int[] eleBatchNodes;
+    private ElevationBatch eleBatch;
     private File osmFile;
     private Date osmDataDate;
     private boolean createStorage = true;
+    private boolean singlePass = false;
+    // buffers the elements of the first pass if singlePass is enabled
+    private OSMSpill spill;
+    private OSMEdgeMapping edgeMapping;
 
     public OSMReader(GraphHopperStorage ghStorage) {
         this.ghStorage = ghStorage;
@@ -138,7 +151,13 @@ public class OSMReader implements DataReader {
             throw new IllegalStateException("Your specified OSM file does not exist:" + osmFile.getAbsolutePath());
 
         StopWatch sw1 = new StopWatch().start();
+        if (singlePass)
+            spill = new OSMSpill(ghStorage.getDirectory());
         preProcess(osmFile);
+        if (spill != null) {
+            spill.finishWriting();
+            LOGGER.info("spilled elements for single pass import, " + spill);
+        }
         sw1.stop();
 
         StopWatch sw2 = new StopWatch().start();
@@ -160,10 +179,16 @@ public class OSMReader implements DataReader {
             long tmpRelationCounter = 1;
             ReaderElement item;
             while ((item = in.getNext()) != null) {
-                if (item.isType(ReaderElement.WAY)) {
+                if (item.isType(ReaderElement.NODE)) {
+                    if (spill != null)
+                        spill.addNode((ReaderNode) item);
+                } else if (item.isType(ReaderElement.WAY)) {
                     final ReaderWay way = (ReaderWay) item;
                     boolean valid = filterWay(way);
                     if (valid) {
+                        if (spill != null)
+                            spill.addWay(way);
+
                         LongIndexedContainer wayNodes = way.getNodes();
                         int s = wayNodes.size();
                         for (int index = 0; index < s; index++) {
@@ -177,6 +202,9 @@ public class OSMReader implements DataReader {
                     }
                 } else if (item.isType(ReaderElement.RELATION)) {
                     final ReaderRelation relation = (ReaderRelation) item;
+                    if (spill != null)
+                        spill.addRelation(relation);
+
                     if (!relation.isMetaRelation() && relation.hasTag("type", "route"))
                         prepareWaysWithRelationInfo(relation);
 
@@ -240,7 +268,8 @@ public class OSMReader implements DataReader {
     }
 
     /**
-     * Creates the graph with edges and nodes from the specified osm file.
+     * Creates the graph with edges and nodes from the specified osm file or from the elements
+     * spilled in preProcess.
      */
     private void writeOsm2Graph(File osmFile) {
         int tmp = (int) Math.max(getNodeMap().getSize() / 50, 100);
@@ -251,7 +280,11 @@ public class OSMReader implements DataReader {
         long wayStart = -1;
         long relationStart = -1;
         long counter = 1;
-        try (OSMInput in = openOsmInputFile(osmFile)) {
+        if (eleProvider != ElevationProvider.NOOP && !isGetElevationOverridden()) {
+            eleBatch = new ElevationBatch(eleProvider, ELEVATION_BATCH_SIZE, elevationThreads);
+            eleBatchNodes = new int[ELEVATION_BATCH_SIZE];
+        }
+        try (OSMInput in = spill != null ? spill : openOsmInputFile(osmFile)) {
             LongIntMap nodeFilter = getNodeMap();
 
             ReaderElement item;
@@ -268,6 +301,8 @@ public class OSMReader implements DataReader {
                             LOGGER.info(nf(counter) + ", now parsing ways");
                             wayStart = counter;
                         }
+                        // the ways need the elevation of their nodes
+                        sampleElevations();
                         processWay((ReaderWay) item);
                         break;
                     case ReaderElement.RELATION:
@@ -290,9 +325,18 @@ public class OSMReader implements DataReader {
             if (in.getUnprocessedElements() > 0)
                 throw new IllegalStateException("Still unprocessed elements in reader queue " + in.getUnprocessedElements());
 
+            sampleElevations();
+
             // logger.info("storage nodes:" + storage.nodes() + " vs. graph nodes:" + storage.getGraph().nodes());
         } catch (Exception ex) {
             throw new RuntimeException("Couldn't process file " + osmFile + ", error: " + ex.getMessage(), ex);
+        } finally {
+            spill = null;
+            if (eleBatch != null) {
+                eleBatch.close();
+                eleBatch = null;
+                eleBatchNodes = null;
+            }
         }
 
         finishedReading();
@@ -353,6 +397,9 @@ public class OSMReader implements DataReader {
         if (wayFlags == 0)
             return;
 
+        // before the node ids are changed for barriers
+        long nodesHash = edgeMapping == null ? 0 : OSMEdgeMapping.calcNodesHash(osmNodeIds);
+
         List<EdgeIteratorState> createdEdges = new ArrayList<EdgeIteratorState>();
         // look for barriers along the way
         final int size = osmNodeIds.size();
@@ -381,10 +428,10 @@ public class OSMReader implements DataReader {
                         createdEdges.addAll(addOSMWay(partNodeIds, wayFlags, wayOsmId));
 
                         // create zero length edge for barrier
-                        createdEdges.addAll(addBarrierEdge(newNodeId, nodeId, wayFlags, nodeFlags, wayOsmId));
+                        createdEdges.addAll(storeBarrierFlags(addBarrierEdge(newNodeId, nodeId, wayFlags, nodeFlags, wayOsmId), nodeFlags));
                     } else {
                         // run edge from real first node to shadow node
-                        createdEdges.addAll(addBarrierEdge(nodeId, newNodeId, wayFlags, nodeFlags, wayOsmId));
+                        createdEdges.addAll(storeBarrierFlags(addBarrierEdge(nodeId, newNodeId, wayFlags, nodeFlags, wayOsmId), nodeFlags));
 
                         // exchange first node for created barrier node
                         osmNodeIds.set(0, newNodeId);
@@ -410,6 +457,22 @@ public class OSMReader implements DataReader {
         for (EdgeIteratorState edge : createdEdges) {
             encodingManager.applyWayTags(way, edge);
         }
+
+        if (edgeMapping != null) {
+            for (EdgeIteratorState edge : createdEdges) {
+                edgeMapping.setWay(edge.getEdge(), wayOsmId, nodesHash);
+            }
+            edgeMapping.setRelationFlags(wayOsmId, relationFlags);
+        }
+    }
+
+    private Collection<EdgeIteratorState> storeBarrierFlags(Collection<EdgeIteratorState> barrierEdges, long nodeFlags) {
+        if (edgeMapping != null) {
+            for (EdgeIteratorState edge : barrierEdges) {
+                edgeMapping.setBarrierFlags(edge.getEdge(), nodeFlags);
+            }
+        }
+        return barrierEdges;
     }
 
     public void processRelation(ReaderRelation relation) throws XMLStreamException {
@@ -536,21 +599,67 @@ public class OSMReader implements DataReader {
 
         double lat = node.getLat();
         double lon = node.getLon();
-        double ele = getElevation(node);
+        double ele = eleBatch == null ? getElevation(node) : Double.NaN;
+        int id;
         if (nodeType == TOWER_NODE) {
-            addTowerNode(node.getId(), lat, lon, ele);
+            id = addTowerNode(node.getId(), lat, lon, ele);
         } else if (nodeType == PILLAR_NODE) {
             pillarInfo.setNode(nextPillarId, lat, lon, ele);
-            getNodeMap().put(node.getId(), nextPillarId + 3);
+            id = nextPillarId + 3;
+            getNodeMap().put(node.getId(), id);
             nextPillarId++;
+        } else {
+            return true;
+        }
+
+        if (eleBatch != null) {
+            eleBatchNodes[eleBatch.add(lat, lon)] = id;
+            if (eleBatch.isFull())
+                sampleElevations();
         }
         return true;
     }
 
+    /**
+     * Sets the elevation of all nodes which were added since the last call
+     */
+    void sampleElevations() {
+        if (eleBatch == null || eleBatch.getSize() == 0)
+            return;
+
+        eleBatch.sample();
+        for (int i = 0; i < eleBatch.getSize(); i++) {
+            int id = eleBatchNodes[i];
+            double lat = eleBatch.getLat(i), lon = eleBatch.getLon(i), ele = eleBatch.getElevation(i);
+            if (id < TOWER_NODE)
+                nodeAccess.setNode(-id - 3, lat, lon, ele);
+            else
+                pillarInfo.setNode(id - 3, lat, lon, ele);
+        }
+        eleBatch.clear();
+    }
+
+    /**
+     * Returns the elevation of the node. If this method is not overridden the nodes are collected
+     * and their elevation is looked up in batches from the ElevationProvider instead, see
+     * setElevationThreads.
+     */
     protected double getElevation(ReaderNode node) {
         return eleProvider.getEle(node.getLat(), node.getLon());
     }
 
+    private boolean isGetElevationOverridden() {
+        for (Class<?> clazz = getClass(); clazz != OSMReader.class; clazz = clazz.getSuperclass()) {
+            try {
+                clazz.getDeclaredMethod("getElevation", ReaderNode.class);
+                return true;
+            } catch (NoSuchMethodException ex) {
+                // not overridden in this class
+            }
+        }
+        return false;
+    }
+
     void prepareWaysWithRelationInfo(ReaderRelation osmRelation) {
         // is there at least one tag interesting for the registed encoders?
         if (encodingManager.handleRelationTags(osmRelation, 0) == 0)
@@ -775,6 +884,8 @@ public class OSMReader implements DataReader {
 
     protected void finishedReading() {
         printInfo("way");
+        if (edgeMapping != null)
+            edgeMapping.flush();
         pillarInfo.clear();
         eleProvider.release();
         osmNodeIdToInternalNodeMap = null;
@@ -893,6 +1004,17 @@ public class OSMReader implements DataReader {
         return this;
     }
 
+    /**
+     * Looks up the elevation of the nodes with the specified number of threads. Only use more than
+     * one thread if the ElevationProvider is thread safe.
+     */
+    public OSMReader setElevationThreads(int elevationThreads) {
+        if (elevationThreads <= 0)
+            throw new IllegalArgumentException("elevationThreads has to be positive but was " + elevationThreads);
+        this.elevationThreads = elevationThreads;
+        return this;
+    }
+
     @Override
     public OSMReader setElevationProvider(ElevationProvider eleProvider) {
         if (eleProvider == null)
@@ -932,6 +1054,29 @@ public class OSMReader implements DataReader {
         this.createStorage = createStorage;
     }
 
+    /**
+     * Per default the OSM file is decoded twice: once to find the nodes used by ways and once to
+     * create the graph. If singlePass is true the file is decoded only once and all nodes, the
+     * accepted ways and the relations are written to temporary files in the graph directory in the
+     * same pass. The graph is then created from these files, which saves the second decompression
+     * of the file but needs temporary disc space of roughly the size of the nodes and ways.
+     */
+    public OSMReader setSinglePass(boolean singlePass) {
+        this.singlePass = singlePass;
+        return this;
+    }
+
+    /**
+     * Stores the OSM way of every created edge in the specified mapping, which is required to
+     * apply OSM change files later, see OSMChangeImporter. The mapping has to be created already
+     * and is flushed at the end of the import. The edge ids must not change after the import, so
+     * the graph cannot be sorted.
+     */
+    public OSMReader setEdgeMapping(OSMEdgeMapping edgeMapping) {
+        this.edgeMapping = edgeMapping;
+        return this;
+    }
+
     @Override
     public String toString() {
         return getClass().getSimpleName();
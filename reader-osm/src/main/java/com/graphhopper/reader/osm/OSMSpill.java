@@ -0,0 +1,359 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for 
+ *  additional information regarding copyright ownership.
+ * 
+ *  GraphHopper GmbH licenses this file to you under the Apache License, 
+ *  Version 2.0 (the "License"); you may not use this file except in 
+ *  compliance with the License. You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.osm;
+
+import com.graphhopper.reader.ReaderElement;
+import com.graphhopper.reader.ReaderNode;
+import com.graphhopper.reader.ReaderRelation;
+import com.graphhopper.reader.ReaderWay;
+import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.Directory;
+import com.graphhopper.util.Helper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Buffers the OSM elements of a single pass over the input file so that OSMReader can replay them
+ * instead of decoding the file a second time. Nodes, ways and relations are appended to three
+ * temporary DataAccess objects which are memory mapped if the directory stores its data. The
+ * elements are read back in the order nodes, ways, relations, independent of the order in the file.
+ * <p>
+ * The records are compact: ids, coordinates and way node references are stored as variable length
+ * deltas to the previous value, which makes them small for the sorted ids of PBF files, and
+ * frequent tag keys, values and roles are stored only once per file. Coordinates are stored with
+ * a precision of 1e-7 degrees, like in OSM itself.
+ */
+class OSMSpill implements OSMInput {
+    private static final double COORD_FACTOR = 1e7;
+    private static final int ID = 0, LAT = 1, LON = 2;
+    private final Directory dir;
+    private final SpillStream nodes;
+    private final SpillStream ways;
+    private final SpillStream relations;
+    private long nodeCount, wayCount, relationCount;
+    private long readNodes, readWays, readRelations;
+    private boolean reading;
+
+    OSMSpill(Directory dir) {
+        this.dir = dir;
+        dir.create();
+        // spill to disk if possible as the nodes can take several GB for bigger areas
+        DAType type = dir.getDefaultType().isStoring() ? DAType.MMAP : dir.getDefaultType();
+        nodes = new SpillStream(dir.find("tmp_spill_nodes", type));
+        ways = new SpillStream(dir.find("tmp_spill_ways", type));
+        relations = new SpillStream(dir.find("tmp_spill_relations", type));
+    }
+
+    void addNode(ReaderNode node) {
+        checkWriting();
+        nodes.writeDelta(ID, node.getId());
+        nodes.writeDelta(LAT, Math.round(node.getLat() * COORD_FACTOR));
+        nodes.writeDelta(LON, Math.round(node.getLon() * COORD_FACTOR));
+        writeTags(nodes, node);
+        nodeCount++;
+    }
+
+    void addWay(ReaderWay way) {
+        checkWriting();
+        ways.writeDelta(ID, way.getId());
+        writeTags(ways, way);
+        int size = way.getNodes().size();
+        ways.writeVarLong(size);
+        long prev = 0;
+        for (int i = 0; i < size; i++) {
+            long ref = way.getNodes().get(i);
+            ways.writeSignedVarLong(ref - prev);
+            prev = ref;
+        }
+        wayCount++;
+    }
+
+    void addRelation(ReaderRelation relation) {
+        checkWriting();
+        relations.writeDelta(ID, relation.getId());
+        writeTags(relations, relation);
+        List<ReaderRelation.Member> members = relation.getMembers();
+        relations.writeVarLong(members.size());
+        long prev = 0;
+        for (ReaderRelation.Member member : members) {
+            relations.writeVarLong(member.getType());
+            relations.writeSignedVarLong(member.getRef() - prev);
+            relations.writeString(member.getRole());
+            prev = member.getRef();
+        }
+        relationCount++;
+    }
+
+    private void checkWriting() {
+        if (reading)
+            throw new IllegalStateException("Cannot add elements after finishWriting was called");
+    }
+
+    private static void writeTags(SpillStream stream, ReaderElement element) {
+        Map<String, Object> tags = element.getTags();
+        stream.writeVarLong(tags.size());
+        for (Map.Entry<String, Object> entry : tags.entrySet()) {
+            stream.writeString(entry.getKey());
+            stream.writeString(entry.getValue() == null ? "" : entry.getValue().toString());
+        }
+    }
+
+    private static void readTags(SpillStream stream, ReaderElement element) {
+        int count = (int) stream.readVarLong();
+        for (int i = 0; i < count; i++) {
+            element.setTag(stream.readString(), stream.readString());
+        }
+    }
+
+    /**
+     * Flushes the written elements and prepares reading them via getNext.
+     */
+    OSMSpill finishWriting() {
+        checkWriting();
+        nodes.startReading();
+        ways.startReading();
+        relations.startReading();
+        reading = true;
+        return this;
+    }
+
+    @Override
+    public ReaderElement getNext() {
+        if (!reading)
+            throw new IllegalStateException("Call finishWriting before reading the elements");
+
+        if (readNodes < nodeCount) {
+            readNodes++;
+            long id = nodes.readDelta(ID);
+            long lat = nodes.readDelta(LAT);
+            long lon = nodes.readDelta(LON);
+            ReaderNode node = new ReaderNode(id, lat / COORD_FACTOR, lon / COORD_FACTOR);
+            readTags(nodes, node);
+            return node;
+        }
+        if (readWays < wayCount) {
+            readWays++;
+            ReaderWay way = new ReaderWay(ways.readDelta(ID));
+            readTags(ways, way);
+            int size = (int) ways.readVarLong();
+            way.getNodes().ensureCapacity(size);
+            long ref = 0;
+            for (int i = 0; i < size; i++) {
+                ref += ways.readSignedVarLong();
+                way.getNodes().add(ref);
+            }
+            return way;
+        }
+        if (readRelations < relationCount) {
+            readRelations++;
+            ReaderRelation relation = new ReaderRelation(relations.readDelta(ID));
+            readTags(relations, relation);
+            int size = (int) relations.readVarLong();
+            long ref = 0;
+            for (int i = 0; i < size; i++) {
+                int type = (int) relations.readVarLong();
+                ref += relations.readSignedVarLong();
+                relation.add(new ReaderRelation.Member(type, ref, relations.readString()));
+            }
+            return relation;
+        }
+        return null;
+    }
+
+    @Override
+    public int getUnprocessedElements() {
+        return 0;
+    }
+
+    long getNodeCount() {
+        return nodeCount;
+    }
+
+    long getWayCount() {
+        return wayCount;
+    }
+
+    long getRelationCount() {
+        return relationCount;
+    }
+
+    /**
+     * @return the number of bytes used for all elements
+     */
+    long getBytes() {
+        return nodes.size + ways.size + relations.size;
+    }
+
+    /**
+     * Removes the temporary data
+     */
+    @Override
+    public void close() {
+        dir.remove(nodes.da);
+        dir.remove(ways.da);
+        dir.remove(relations.da);
+    }
+
+    @Override
+    public String toString() {
+        return "nodes:" + Helper.nf(nodeCount) + ", ways:" + Helper.nf(wayCount) + ", relations:" + Helper.nf(relationCount)
+                + ", " + getBytes() / Helper.MB + "MB";
+    }
+
+    /**
+     * Sequential access to a DataAccess through a buffer. It writes until startReading is called and
+     * reads afterwards.
+     */
+    private static class SpillStream {
+        // strings are only added to the table until it is full to limit the memory usage
+        private static final int MAX_STRINGS = 100_000;
+        final DataAccess da;
+        final byte[] buffer;
+        // the position of the buffer in the DataAccess
+        long position;
+        int bufferPos;
+        int bufferLimit;
+        long size;
+        // the previous values of the delta encoded fields
+        final long[] prev = new long[3];
+        final Map<String, Integer> stringIndex = new HashMap<>();
+        final List<String> strings = new ArrayList<>();
+
+        SpillStream(DataAccess da) {
+            this.da = da;
+            da.create(da.getSegmentSize());
+            this.buffer = new byte[Math.min(1 << 16, da.getSegmentSize())];
+        }
+
+        void writeByte(int b) {
+            if (bufferPos == buffer.length)
+                flushBuffer();
+            buffer[bufferPos++] = (byte) b;
+        }
+
+        private void flushBuffer() {
+            da.ensureCapacity(position + bufferPos);
+            da.setBytes(position, buffer, bufferPos);
+            position += bufferPos;
+            bufferPos = 0;
+        }
+
+        void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                writeByte((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            writeByte((int) value);
+        }
+
+        void writeSignedVarLong(long value) {
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        /**
+         * Writes the difference to the previous value of the field. Ids are usually sorted and
+         * nodes with close ids are usually close together.
+         */
+        void writeDelta(int field, long value) {
+            writeSignedVarLong(value - prev[field]);
+            prev[field] = value;
+        }
+
+        void writeString(String str) {
+            Integer index = stringIndex.get(str);
+            if (index != null) {
+                writeVarLong(index + 1);
+                return;
+            }
+
+            writeVarLong(0);
+            byte[] bytes = str.getBytes(Helper.UTF_CS);
+            writeVarLong(bytes.length);
+            for (byte b : bytes) {
+                writeByte(b);
+            }
+            if (strings.size() < MAX_STRINGS) {
+                stringIndex.put(str, strings.size());
+                strings.add(str);
+            }
+        }
+
+        void startReading() {
+            flushBuffer();
+            size = position;
+            position = 0;
+            bufferLimit = 0;
+            Arrays.fill(prev, 0);
+            stringIndex.clear();
+            strings.clear();
+        }
+
+        int readByte() {
+            if (bufferPos == bufferLimit) {
+                position += bufferLimit;
+                bufferLimit = (int) Math.min(buffer.length, size - position);
+                if (bufferLimit <= 0)
+                    throw new IllegalStateException("Read beyond the end of the spill file " + da.getName());
+                da.getBytes(position, buffer, bufferLimit);
+                bufferPos = 0;
+            }
+            return buffer[bufferPos++] & 0xFF;
+        }
+
+        long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0)
+                    return value;
+            }
+            throw new IllegalStateException("Malformed variable length integer in " + da.getName());
+        }
+
+        long readSignedVarLong() {
+            long value = readVarLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        long readDelta(int field) {
+            prev[field] += readSignedVarLong();
+            return prev[field];
+        }
+
+        String readString() {
+            int index = (int) readVarLong();
+            if (index > 0)
+                return strings.get(index - 1);
+
+            byte[] bytes = new byte[(int) readVarLong()];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = (byte) readByte();
+            }
+            String str = new String(bytes, Helper.UTF_CS);
+            if (strings.size() < MAX_STRINGS)
+                strings.add(str);
+            return str;
+        }
+    }
+}
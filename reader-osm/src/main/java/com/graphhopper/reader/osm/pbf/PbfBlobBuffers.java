@@ -0,0 +1,60 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package com.graphhopper.reader.osm.pbf;
+
+import java.util.zip.Inflater;
+
+/**
+ * The objects one worker thread reuses for all blobs it decodes: the inflater, the buffers for
+ * the raw, compressed and decompressed data and the field decoder with its string cache. An
+ * instance must not be used by more than one thread at the same time.
+ */
+public class PbfBlobBuffers {
+    private final Inflater inflater = new Inflater();
+    private final PbfFieldDecoder fieldDecoder = new PbfFieldDecoder();
+    private byte[] blob = new byte[0];
+    private byte[] input = new byte[0];
+    private byte[] output = new byte[0];
+
+    Inflater getInflater() {
+        inflater.reset();
+        return inflater;
+    }
+
+    PbfFieldDecoder getFieldDecoder() {
+        return fieldDecoder;
+    }
+
+    /**
+     * @return an array with at least the specified size, its content is undefined
+     */
+    byte[] getBlob(int size) {
+        if (blob.length < size)
+            blob = new byte[size];
+        return blob;
+    }
+
+    /**
+     * @return an array with at least the specified size, its content is undefined
+     */
+    byte[] getInput(int size) {
+        if (input.length < size)
+            input = new byte[size];
+        return input;
+    }
+
+    /**
+     * @return an array with at least the specified size, its content is undefined
+     */
+    byte[] getOutput(int size) {
+        if (output.length < size)
+            output = new byte[size];
+        return output;
+    }
+
+    /**
+     * Releases the native memory of the inflater. The instance cannot be used afterwards.
+     */
+    public void release() {
+        inflater.end();
+    }
+}
@@ -2,7 +2,8 @@
 package com.graphhopper.reader.osm.pbf;
 
 import com.carrotsearch.hppc.LongIndexedContainer;
-import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
 import com.graphhopper.reader.ReaderElement;
 import com.graphhopper.reader.ReaderNode;
 import com.graphhopper.reader.ReaderRelation;
@@ -15,6 +16,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.*;
 import java.util.zip.DataFormatException;
 import java.util.zip.Inflater;
@@ -30,8 +32,9 @@ public class PbfBlobDecoder implements Runnable {
     private static final Logger log = LoggerFactory.getLogger(PbfBlobDecoder.class);
     private final boolean checkData = false;
     private final String blobType;
-    private final byte[] rawBlob;
+    private final ByteBuffer rawBlob;
     private final PbfBlobDecoderListener listener;
+    private final ThreadLocal<PbfBlobBuffers> buffers;
     private List<ReaderElement> decodedEntities;
 
     /**
@@ -43,38 +46,69 @@ public class PbfBlobDecoder implements Runnable {
      * @param listener The listener for receiving decoding results.
      */
     public PbfBlobDecoder(String blobType, byte[] rawBlob, PbfBlobDecoderListener listener) {
+        this(blobType, ByteBuffer.wrap(rawBlob), listener, null);
+    }
+
+    /**
+     * Creates a new instance which reuses the buffers of the executing thread.
+     * <p>
+     *
+     * @param blobType The type of blob.
+     * @param rawBlob  The raw data of the blob, e.g. a slice of a memory mapped file.
+     * @param listener The listener for receiving decoding results.
+     * @param buffers  The buffers of the worker threads or null to create new ones for this blob.
+     */
+    public PbfBlobDecoder(String blobType, ByteBuffer rawBlob, PbfBlobDecoderListener listener,
+                          ThreadLocal<PbfBlobBuffers> buffers) {
         this.blobType = blobType;
         this.rawBlob = rawBlob;
         this.listener = listener;
+        this.buffers = buffers;
     }
 
-    private byte[] readBlobContent() throws IOException {
-        Fileformat.Blob blob = Fileformat.Blob.parseFrom(rawBlob);
-        byte[] blobData;
+    /**
+     * Returns the decompressed content of the blob. It is only valid until the next blob is decoded
+     * with the same buffers.
+     */
+    private CodedInputStream readBlobContent(PbfBlobBuffers blobBuffers) throws IOException {
+        // Copy a memory mapped blob into the reused array as protobuf cannot reliably read direct
+        // buffers on all JVMs.
+        CodedInputStream blobStream;
+        int size = rawBlob.remaining();
+        if (rawBlob.hasArray()) {
+            blobStream = CodedInputStream.newInstance(rawBlob.array(), rawBlob.arrayOffset() + rawBlob.position(), size);
+        } else {
+            byte[] blobBytes = blobBuffers.getBlob(size);
+            rawBlob.duplicate().get(blobBytes, 0, size);
+            blobStream = CodedInputStream.newInstance(blobBytes, 0, size);
+        }
+        Fileformat.Blob blob = Fileformat.Blob.parseFrom(blobStream);
 
         if (blob.hasRaw()) {
-            blobData = blob.getRaw().toByteArray();
+            return blob.getRaw().newCodedInput();
         } else if (blob.hasZlibData()) {
-            Inflater inflater = new Inflater();
-            inflater.setInput(blob.getZlibData().toByteArray());
-            blobData = new byte[blob.getRawSize()];
+            // the Inflater of Java 7 and 8 only supports arrays as input
+            ByteString zlibData = blob.getZlibData();
+            byte[] input = blobBuffers.getInput(zlibData.size());
+            zlibData.copyTo(input, 0);
+            Inflater inflater = blobBuffers.getInflater();
+            inflater.setInput(input, 0, zlibData.size());
+            byte[] blobData = blobBuffers.getOutput(blob.getRawSize());
             try {
-                inflater.inflate(blobData);
+                inflater.inflate(blobData, 0, blob.getRawSize());
             } catch (DataFormatException e) {
                 throw new RuntimeException("Unable to decompress PBF blob.", e);
             }
             if (!inflater.finished()) {
                 throw new RuntimeException("PBF blob contains incomplete compressed data.");
             }
-            inflater.end();
+            return CodedInputStream.newInstance(blobData, 0, blob.getRawSize());
         } else {
             throw new RuntimeException("PBF blob uses unsupported compression, only raw or zlib may be used.");
         }
-
-        return blobData;
     }
 
-    private void processOsmHeader(byte[] data) throws InvalidProtocolBufferException {
+    private void processOsmHeader(CodedInputStream data) throws IOException {
         Osmformat.HeaderBlock header = Osmformat.HeaderBlock.parseFrom(data);
 
         // Build the list of active and unsupported features in the file.
@@ -321,9 +355,10 @@ public class PbfBlobDecoder implements Runnable {
         }
     }
 
-    private void processOsmPrimitives(byte[] data) throws InvalidProtocolBufferException {
+    private void processOsmPrimitives(CodedInputStream data, PbfBlobBuffers blobBuffers) throws IOException {
         Osmformat.PrimitiveBlock block = Osmformat.PrimitiveBlock.parseFrom(data);
-        PbfFieldDecoder fieldDecoder = new PbfFieldDecoder(block);
+        PbfFieldDecoder fieldDecoder = blobBuffers.getFieldDecoder();
+        fieldDecoder.setBlock(block);
 
         for (Osmformat.PrimitiveGroup primitiveGroup : block.getPrimitivegroupList()) {
             processNodes(primitiveGroup.getDense(), fieldDecoder);
@@ -334,18 +369,22 @@ public class PbfBlobDecoder implements Runnable {
     }
 
     private void runAndTrapExceptions() {
+        PbfBlobBuffers blobBuffers = buffers == null ? new PbfBlobBuffers() : buffers.get();
         try {
             decodedEntities = new ArrayList<ReaderElement>();
             if ("OSMHeader".equals(blobType)) {
-                processOsmHeader(readBlobContent());
+                processOsmHeader(readBlobContent(blobBuffers));
 
             } else if ("OSMData".equals(blobType)) {
-                processOsmPrimitives(readBlobContent());
+                processOsmPrimitives(readBlobContent(blobBuffers), blobBuffers);
 
             } else if (log.isDebugEnabled())
                 log.debug("Skipping unrecognised blob type " + blobType);
         } catch (IOException e) {
             throw new RuntimeException("Unable to process PBF blob", e);
+        } finally {
+            if (buffers == null)
+                blobBuffers.release();
         }
     }
 
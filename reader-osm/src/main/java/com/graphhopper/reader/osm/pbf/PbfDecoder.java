@@ -4,6 +4,7 @@ package com.graphhopper.reader.osm.pbf;
 import com.graphhopper.reader.ReaderElement;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
@@ -28,6 +29,16 @@ public class PbfDecoder implements Runnable {
     private final Lock lock;
     private final Condition dataWaitCondition;
     private final Queue<PbfBlobResult> blobResults;
+    private final List<PbfBlobBuffers> allBuffers = Collections.synchronizedList(new ArrayList<PbfBlobBuffers>());
+    // every worker thread reuses its buffers for all blobs to avoid garbage
+    private final ThreadLocal<PbfBlobBuffers> buffers = new ThreadLocal<PbfBlobBuffers>() {
+        @Override
+        protected PbfBlobBuffers initialValue() {
+            PbfBlobBuffers blobBuffers = new PbfBlobBuffers();
+            allBuffers.add(blobBuffers);
+            return blobBuffers;
+        }
+    };
 
     /**
      * Creates a new instance.
@@ -142,7 +153,7 @@ public class PbfDecoder implements Runnable {
             };
 
             // Create the blob decoder itself and execute it on a worker thread.
-            PbfBlobDecoder blobDecoder = new PbfBlobDecoder(rawBlob.getType(), rawBlob.getData(), decoderListener);
+            PbfBlobDecoder blobDecoder = new PbfBlobDecoder(rawBlob.getType(), rawBlob.getBuffer(), decoderListener, buffers);
             executorService.execute(blobDecoder);
 
             // If the number of pending blobs has reached capacity we must begin
@@ -153,6 +164,14 @@ public class PbfDecoder implements Runnable {
 
         // There are no more entities available in the PBF stream, so send all remaining data to the sink.
         sendResultsToSink(0);
+
+        // all workers are idle now
+        synchronized (allBuffers) {
+            for (PbfBlobBuffers blobBuffers : allBuffers) {
+                blobBuffers.release();
+            }
+            allBuffers.clear();
+        }
     }
 
     @Override
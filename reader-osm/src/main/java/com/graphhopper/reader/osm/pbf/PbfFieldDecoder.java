@@ -1,9 +1,12 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package com.graphhopper.reader.osm.pbf;
 
+import com.google.protobuf.ByteString;
 import org.openstreetmap.osmosis.osmbinary.Osmformat;
 
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Manages decoding of the lower level PBF data structures.
@@ -14,7 +17,10 @@ import java.util.Date;
  */
 public class PbfFieldDecoder {
     private static final double COORDINATE_SCALING_FACTOR = 0.000000001;
-    private String[] strings;
+    // keys and values like 'highway' or 'yes' occur in nearly every block
+    private static final int MAX_CACHED_STRINGS = 10_000;
+    private final Map<ByteString, String> stringCache = new HashMap<>();
+    private String[] strings = new String[0];
     private int coordGranularity;
     private long coordLatitudeOffset;
     private long coordLongitudeOffset;
@@ -27,15 +33,44 @@ public class PbfFieldDecoder {
      * @param primitiveBlock The primitive block containing the fields to be decoded.
      */
     public PbfFieldDecoder(Osmformat.PrimitiveBlock primitiveBlock) {
+        setBlock(primitiveBlock);
+    }
+
+    /**
+     * Creates a new instance which has to be initialized with setBlock before decoding.
+     */
+    public PbfFieldDecoder() {
+    }
+
+    /**
+     * Prepares this instance to decode the fields of the specified block. The string table array and
+     * the strings which were already decoded for previous blocks are reused.
+     * <p>
+     *
+     * @param primitiveBlock The primitive block containing the fields to be decoded.
+     */
+    public void setBlock(Osmformat.PrimitiveBlock primitiveBlock) {
         this.coordGranularity = primitiveBlock.getGranularity();
         this.coordLatitudeOffset = primitiveBlock.getLatOffset();
         this.coordLongitudeOffset = primitiveBlock.getLonOffset();
         this.dateGranularity = primitiveBlock.getDateGranularity();
 
         Osmformat.StringTable stringTable = primitiveBlock.getStringtable();
-        strings = new String[stringTable.getSCount()];
-        for (int i = 0; i < strings.length; i++) {
-            strings[i] = stringTable.getS(i).toStringUtf8();
+        int count = stringTable.getSCount();
+        if (strings.length < count)
+            strings = new String[count];
+        if (stringCache.size() + count > MAX_CACHED_STRINGS)
+            stringCache.clear();
+
+        for (int i = 0; i < count; i++) {
+            ByteString bytes = stringTable.getS(i);
+            String str = stringCache.get(bytes);
+            if (str == null) {
+                str = bytes.toStringUtf8();
+                if (stringCache.size() < MAX_CACHED_STRINGS)
+                    stringCache.put(bytes, str);
+            }
+            strings[i] = str;
         }
     }
 
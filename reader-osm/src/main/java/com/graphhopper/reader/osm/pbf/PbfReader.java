@@ -2,7 +2,9 @@
 package com.graphhopper.reader.osm.pbf;
 
 import java.io.DataInputStream;
+import java.io.File;
 import java.io.InputStream;
+import java.io.RandomAccessFile;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -14,6 +16,7 @@ import java.util.concurrent.Executors;
  */
 public class PbfReader implements Runnable {
     private InputStream inputStream;
+    private File file;
     private Sink sink;
     private int workers;
 
@@ -30,12 +33,28 @@ public class PbfReader implements Runnable {
         this.workers = workers;
     }
 
+    /**
+     * Creates a new instance which maps the file into memory. The workers decode the blobs directly
+     * from the mapping instead of copies.
+     * <p>
+     *
+     * @param file    The file to read.
+     * @param workers The number of worker threads for decoding PBF blocks.
+     */
+    public PbfReader(File file, Sink sink, int workers) {
+        this.file = file;
+        this.sink = sink;
+        this.workers = workers;
+    }
+
     @Override
     public void run() {
         ExecutorService executorService = Executors.newFixedThreadPool(workers);
         try {
             // Create a stream splitter to break the PBF stream into blobs.
-            PbfStreamSplitter streamSplitter = new PbfStreamSplitter(new DataInputStream(inputStream));
+            PbfStreamSplitter streamSplitter = file == null
+                    ? new PbfStreamSplitter(new DataInputStream(inputStream))
+                    : new PbfStreamSplitter(new RandomAccessFile(file, "r").getChannel());
 
             // Process all blobs of data in the stream using threads from the
             // executor service. We allow the decoder to issue an extra blob
@@ -44,7 +63,12 @@ public class PbfReader implements Runnable {
             // The main thread is responsible for splitting blobs from the
             // request stream, and sending decoded entities to the sink.
             PbfDecoder pbfDecoder = new PbfDecoder(streamSplitter, executorService, workers + 1, sink);
-            pbfDecoder.run();
+            try {
+                pbfDecoder.run();
+            } finally {
+                if (file != null)
+                    streamSplitter.release();
+            }
 
         } catch (Exception e) {
             throw new RuntimeException("Unable to read PBF file.", e);
@@ -1,11 +1,14 @@
 // This software is released into the Public Domain.  See copying.txt for details.
 package com.graphhopper.reader.osm.pbf;
 
+import com.google.protobuf.CodedInputStream;
 import org.openstreetmap.osmosis.osmbinary.Fileformat;
 
 import java.io.DataInputStream;
 import java.io.EOFException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.Iterator;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -19,7 +22,17 @@ import java.util.logging.Logger;
  */
 public class PbfStreamSplitter implements Iterator<PbfRawBlob> {
     private static Logger log = Logger.getLogger(PbfStreamSplitter.class.getName());
+    // blobs are at most 32MB, so a window of 1GB leaves enough room for many of them
+    static final int MAX_MAPPING_SIZE = 1 << 30;
     private DataInputStream dis;
+    // for memory mapped files
+    private FileChannel channel;
+    private int maxMappingSize;
+    private long fileSize;
+    private long position;
+    private ByteBuffer mapping;
+    private long mappingStart;
+    private byte[] headerBuffer = new byte[64];
     private int dataBlockCount;
     private boolean eof;
     private PbfRawBlob nextBlob;
@@ -36,6 +49,62 @@ public class PbfStreamSplitter implements Iterator<PbfRawBlob> {
         eof = false;
     }
 
+    /**
+     * Creates a new instance which maps the file into memory instead of copying every blob. The
+     * blobs are slices of the mapping and stay valid as long as they are referenced.
+     * <p>
+     *
+     * @param channel The channel of the PBF file.
+     */
+    public PbfStreamSplitter(FileChannel channel) throws IOException {
+        this(channel, MAX_MAPPING_SIZE);
+    }
+
+    PbfStreamSplitter(FileChannel channel, int maxMappingSize) throws IOException {
+        this.channel = channel;
+        this.maxMappingSize = maxMappingSize;
+        fileSize = channel.size();
+        dataBlockCount = 0;
+        eof = false;
+    }
+
+    /**
+     * Returns the next bytes of the mapped file as buffer and moves the mapping forward if
+     * necessary.
+     */
+    private ByteBuffer readMapped(int length) throws IOException {
+        if (length < 0 || position + length > fileSize)
+            throw new EOFException("PBF file is truncated at " + position + ", cannot read " + length + " bytes");
+
+        if (mapping == null || position + length > mappingStart + mapping.capacity()) {
+            if (length > maxMappingSize)
+                throw new IOException("PBF blob at " + position + " is too big: " + length);
+
+            // the old mapping is released by the garbage collector when no blob references it anymore
+            mappingStart = position;
+            mapping = channel.map(FileChannel.MapMode.READ_ONLY, mappingStart, Math.min(maxMappingSize, fileSize - mappingStart));
+        }
+        ByteBuffer buffer = mapping.duplicate();
+        buffer.position((int) (position - mappingStart));
+        buffer.limit(buffer.position() + length);
+        position += length;
+        return buffer.slice();
+    }
+
+    private PbfRawBlob readMappedBlob() throws IOException {
+        if (position == fileSize) {
+            eof = true;
+            return null;
+        }
+
+        int headerLength = readMapped(4).getInt();
+        if (headerBuffer.length < headerLength)
+            headerBuffer = new byte[headerLength];
+        readMapped(headerLength).get(headerBuffer, 0, headerLength);
+        Fileformat.BlobHeader blobHeader = Fileformat.BlobHeader.parseFrom(CodedInputStream.newInstance(headerBuffer, 0, headerLength));
+        return new PbfRawBlob(blobHeader.getType(), readMapped(blobHeader.getDatasize()));
+    }
+
     private Fileformat.BlobHeader readHeader(int headerLength) throws IOException {
         byte[] headerBuffer = new byte[headerLength];
         dis.readFully(headerBuffer);
@@ -55,6 +124,11 @@ public class PbfStreamSplitter implements Iterator<PbfRawBlob> {
 
     private void getNextBlob() {
         try {
+            if (channel != null) {
+                nextBlob = readMappedBlob();
+                return;
+            }
+
             // Read the length of the next header block. This is the only time
             // we should expect to encounter an EOF exception. In all other
             // cases it indicates a corrupt or truncated file.
@@ -106,6 +180,15 @@ public class PbfStreamSplitter implements Iterator<PbfRawBlob> {
     }
 
     public void release() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.log(Level.SEVERE, "Unable to close PBF file.", e);
+            }
+            channel = null;
+            mapping = null;
+        }
         if (dis != null) {
             try {
                 dis.close();
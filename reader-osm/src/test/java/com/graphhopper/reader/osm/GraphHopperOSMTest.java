@@ -149,6 +149,78 @@ public class GraphHopperOSMTest {
         gh.close();
     }
 
+    @Test
+    public void testContinueInterruptedImport() {
+        // interrupt after the location index was created
+        GraphHopper gh = new GraphHopperOSM() {
+            @Override
+            protected void prepareCH() {
+                throw new IllegalStateException("interrupted");
+            }
+        }.setCheckpoints(true).setStoreOnFlush(true).
+                setEncodingManager(new EncodingManager("car")).
+                setGraphHopperLocation(ghLoc).
+                setDataReaderFile(testOsm);
+        try {
+            gh.importOrLoad();
+            fail();
+        } catch (IllegalStateException ex) {
+            assertEquals("interrupted", ex.getMessage());
+        }
+        gh.close();
+
+        // interrupt after the CH preparation
+        gh = new GraphHopperOSM() {
+            @Override
+            protected DataReader importData() throws IOException {
+                throw new IllegalStateException("the data should not be read again");
+            }
+
+            @Override
+            protected void prepareCH() {
+                super.prepareCH();
+                throw new IllegalStateException("interrupted");
+            }
+        }.setCheckpoints(true).setStoreOnFlush(true).
+                setEncodingManager(new EncodingManager("car")).
+                setGraphHopperLocation(ghLoc).
+                setDataReaderFile(testOsm);
+        try {
+            gh.importOrLoad();
+            fail();
+        } catch (IllegalStateException ex) {
+            assertEquals("interrupted", ex.getMessage());
+        }
+        gh.close();
+
+        gh = new GraphHopperOSM() {
+            @Override
+            protected DataReader importData() throws IOException {
+                throw new IllegalStateException("the data should not be read again");
+            }
+        }.setCheckpoints(true).setStoreOnFlush(true).
+                setEncodingManager(new EncodingManager("car")).
+                setGraphHopperLocation(ghLoc).
+                setDataReaderFile(testOsm);
+        gh.importOrLoad();
+        // the stored CH is used without a new preparation
+        PrepareContractionHierarchies pch = gh.getCHFactoryDecorator().getPreparations().get(0);
+        assertFalse(pch.isPrepared());
+        assertEquals("true", gh.getGraphHopperStorage().getProperties().get(Parameters.CH.PREPARE + "done"));
+
+        GHResponse rsp = gh.route(new GHRequest(51.2492152, 9.4317166, 51.2, 9.4));
+        assertFalse(rsp.getErrors().toString(), rsp.hasErrors());
+        assertEquals(3, rsp.getBest().getPoints().getSize());
+        gh.close();
+
+        // a finished import is loaded as before
+        gh = new GraphHopperOSM().setStoreOnFlush(true).
+                setEncodingManager(new EncodingManager("car"));
+        assertTrue(gh.load(ghLoc));
+        assertEquals(3, gh.route(new GHRequest(51.2492152, 9.4317166, 51.2, 9.4)).getBest().getPoints().getSize());
+        gh.close();
+    }
+
     @Test
     public void testLoadingWithDifferentCHConfig_issue471() {
         // with CH should not be loadable without CH configured
@@ -872,6 +944,25 @@ public class GraphHopperOSMTest {
         }
     }
 
+    @Test
+    public void testImportChangesNotAllowedWithLM() throws IOException {
+        GraphHopper tmpGH = new GraphHopperOSM().
+                setStoreOnFlush(false).
+                setCHEnabled(false).
+                setEncodingManager(new EncodingManager("car")).
+                setGraphHopperLocation(ghLoc).
+                setDataReaderFile(testOsm);
+        tmpGH.getLMFactoryDecorator().addWeighting("fastest").setEnabled(true);
+        tmpGH.importOrLoad();
+        try {
+            ((GraphHopperOSM) tmpGH).importChanges("./src/test/resources/com/graphhopper/reader/osm/none.osc");
+            fail("changed edges could become faster and make the landmarks invalid");
+        } catch (IllegalArgumentException ex) {
+            assertEquals("To import OSM changes you need to turn off LM", ex.getMessage());
+        }
+        tmpGH.close();
+    }
+
     @Test
     public void testGetWeightingForCH() {
         TestEncoder truck = new TestEncoder("truck");
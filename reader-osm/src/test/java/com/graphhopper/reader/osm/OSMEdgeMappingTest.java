@@ -0,0 +1,71 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for 
+ *  additional information regarding copyright ownership.
+ * 
+ *  GraphHopper GmbH licenses this file to you under the Apache License, 
+ *  Version 2.0 (the "License"); you may not use this file except in 
+ *  compliance with the License. You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.osm;
+
+import com.graphhopper.storage.RAMDirectory;
+import com.graphhopper.util.Helper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+
+import static com.graphhopper.util.Helper.createTList;
+import static org.junit.Assert.*;
+
+public class OSMEdgeMappingTest {
+    private final String location = "./target/tmp-osm-edge-mapping";
+
+    @Before
+    @After
+    public void cleanUp() {
+        Helper.removeDir(new File(location));
+    }
+
+    @Test
+    public void testGetEdges() {
+        OSMEdgeMapping mapping = new OSMEdgeMapping(new RAMDirectory(location, true).create()).create(100);
+        // the ways are not in the order of their ids and edge 3 has no way
+        mapping.setWay(0, 20, 1);
+        mapping.setWay(1, 20, 1);
+        mapping.setWay(2, 10, 2);
+        mapping.setWay(4, 30, 3);
+        mapping.setWay(5, 10, 2);
+        mapping.setWay(6, -5, 4);
+        assertEquals(createTList(2, 5), mapping.getEdges(10));
+        assertEquals(createTList(0, 1), mapping.getEdges(20));
+        assertEquals(createTList(4), mapping.getEdges(30));
+        assertEquals(createTList(6), mapping.getEdges(-5));
+        assertTrue(mapping.getEdges(15).isEmpty());
+        assertTrue(mapping.getEdges(40).isEmpty());
+
+        // edges added later are found too
+        mapping.setWay(7, 15, 5);
+        assertEquals(createTList(7), mapping.getEdges(15));
+        mapping.flush();
+        mapping.close();
+
+        mapping = new OSMEdgeMapping(new RAMDirectory(location, true));
+        assertTrue(mapping.loadExisting());
+        assertEquals(createTList(2, 5), mapping.getEdges(10));
+        assertEquals(createTList(7), mapping.getEdges(15));
+        assertEquals(createTList(0, 1), mapping.getEdges(20));
+        assertEquals(20, mapping.getWayOsmId(1));
+        mapping.close();
+    }
+}
@@ -26,11 +26,13 @@ import com.graphhopper.reader.DataReader;
 import com.graphhopper.reader.ReaderNode;
 import com.graphhopper.reader.ReaderRelation;
 import com.graphhopper.reader.ReaderWay;
+import com.graphhopper.reader.dem.CGIARProvider;
 import com.graphhopper.reader.dem.ElevationProvider;
 import com.graphhopper.reader.dem.SRTMProvider;
 import com.graphhopper.routing.util.*;
 import com.graphhopper.storage.*;
 import com.graphhopper.storage.index.LocationIndex;
+import com.graphhopper.storage.index.LocationIndexTree;
 import com.graphhopper.storage.index.QueryResult;
 import com.graphhopper.util.*;
 import com.graphhopper.util.shapes.GHPoint;
@@ -38,6 +40,7 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -511,6 +514,154 @@ public class OSMReaderTest {
         assertTrue(bikeEncoder.isTurnRestricted(costsFlags));
     }
 
+    @Test
+    public void testImportChanges() throws IOException {
+        final OSMEdgeMapping mapping = new OSMEdgeMapping(new RAMDirectory());
+        GraphHopper hopper = new GraphHopperFacade(file1) {
+            @Override
+            protected DataReader createReader(GraphHopperStorage tmpGraph) {
+                return initDataReader(new OSMReader(tmpGraph).setEdgeMapping(mapping.create(100)));
+            }
+        }.importOrLoad();
+        GraphHopperStorage graph = hopper.getGraphHopperStorage();
+        int n10 = AbstractGraphStorageTester.getIdOf(graph, 51.2492152);
+        int n20 = AbstractGraphStorageTester.getIdOf(graph, 52);
+        int n50 = AbstractGraphStorageTester.getIdOf(graph, 49);
+        EdgeIteratorState edge10 = GHUtility.getEdge(graph, n10, n20);
+        EdgeIteratorState edge11 = GHUtility.getEdge(graph, n20, n50);
+        assertEquals(10, mapping.getWayOsmId(edge10.getEdge()));
+        assertEquals(11, mapping.getWayOsmId(edge11.getEdge()));
+        assertTrue(edge10.isForward(carEncoder));
+        assertFalse(edge10.isForward(footEncoder));
+        assertTrue(edge11.isForward(footEncoder));
+
+        String osc = "<osmChange version=\"0.6\">\n"
+                + "<modify><way id=\"10\"><nd ref=\"10\"/><nd ref=\"20\"/><nd ref=\"30\"/>"
+                + "<tag k=\"name\" v=\"path 666\"/><tag k=\"highway\" v=\"footway\"/></way></modify>\n"
+                + "<delete><way id=\"11\"/><node id=\"40\"/></delete>\n"
+                // a new way cannot be applied
+                + "<create><way id=\"12\"><nd ref=\"10\"/><nd ref=\"30\"/><tag k=\"highway\" v=\"primary\"/></way></create>\n"
+                + "</osmChange>";
+        OSMChangeImporter.Result result = new OSMChangeImporter(graph, mapping).
+                importChanges(new ByteArrayInputStream(osc.getBytes(Helper.UTF_CS)));
+        assertEquals(2, result.getUpdatedEdges());
+        assertEquals(1, result.getBlockedEdges());
+        assertEquals(1, result.getSkippedWays());
+        assertEquals(1, result.getIgnoredNodes());
+
+        edge10 = graph.getEdgeIteratorState(edge10.getEdge(), n20);
+        assertEquals("path 666", edge10.getName());
+        assertFalse(edge10.isForward(carEncoder));
+        assertTrue(edge10.isForward(footEncoder));
+        assertTrue(edge10.isBackward(footEncoder));
+        edge11 = graph.getEdgeIteratorState(edge11.getEdge(), n50);
+        assertFalse(edge11.isForward(footEncoder));
+        assertFalse(edge11.isBackward(footEncoder));
+        assertFalse(edge11.isForward(carEncoder));
+        assertTrue(result.getBounds().contains(51.2492152, 9.4317166));
+
+        // changed nodes are detected
+        osc = "<osmChange version=\"0.6\"><modify><way id=\"10\"><nd ref=\"10\"/><nd ref=\"30\"/>"
+                + "<tag k=\"highway\" v=\"primary\"/></way></modify></osmChange>";
+        result = new OSMChangeImporter(graph, mapping).importChanges(new ByteArrayInputStream(osc.getBytes(Helper.UTF_CS)));
+        assertEquals(1, result.getSkippedWays());
+        assertFalse(result.hasChanges());
+        assertEquals("path 666", graph.getEdgeIteratorState(edge10.getEdge(), n20).getName());
+
+        // an existing way is created again e.g. from overlapping change files, the other ways are still applied
+        osc = "<osmChange version=\"0.6\">\n"
+                + "<create><way id=\"11\"><nd ref=\"20\"/><nd ref=\"50\"/><tag k=\"highway\" v=\"primary\"/></way></create>\n"
+                + "<modify><way id=\"10\"><nd ref=\"10\"/><nd ref=\"20\"/><nd ref=\"30\"/>"
+                + "<tag k=\"name\" v=\"path 667\"/><tag k=\"highway\" v=\"footway\"/></way></modify>\n"
+                + "</osmChange>";
+        result = new OSMChangeImporter(graph, mapping).importChanges(new ByteArrayInputStream(osc.getBytes(Helper.UTF_CS)));
+        assertEquals(1, result.getSkippedWays());
+        assertEquals(2, result.getUpdatedEdges());
+        assertEquals("path 667", graph.getEdgeIteratorState(edge10.getEdge(), n20).getName());
+        assertFalse(graph.getEdgeIteratorState(edge11.getEdge(), n50).isForward(carEncoder));
+    }
+
+    @Test
+    public void testImportChangesUpdatesAccessFilter() throws IOException {
+        final OSMEdgeMapping mapping = new OSMEdgeMapping(new RAMDirectory());
+        GraphHopper hopper = new GraphHopperFacade(file1) {
+            @Override
+            protected DataReader createReader(GraphHopperStorage tmpGraph) {
+                return initDataReader(new OSMReader(tmpGraph).setEdgeMapping(mapping.create(100)));
+            }
+        }.importOrLoad();
+        GraphHopperStorage graph = hopper.getGraphHopperStorage();
+        // without the only footway no node is accessible for foot
+        String osc = "<osmChange version=\"0.6\"><delete><way id=\"11\"/></delete></osmChange>";
+        new OSMChangeImporter(graph, mapping).importChanges(new ByteArrayInputStream(osc.getBytes(Helper.UTF_CS)));
+        LocationIndexTree index = new LocationIndexTree(graph, new RAMDirectory()).
+                setAccessFilterEncoders(Arrays.asList(carEncoder, footEncoder));
+        index.prepareIndex();
+        int n10 = AbstractGraphStorageTester.getIdOf(graph, 51.2492152);
+        EdgeFilter footFilter = new DefaultEdgeFilter(footEncoder);
+        assertFalse(index.findClosest(51.2492152, 9.4317166, footFilter).isValid());
+
+        // the motorway link becomes a footway
+        osc = "<osmChange version=\"0.6\">\n"
+                + "<modify><way id=\"10\"><nd ref=\"10\"/><nd ref=\"20\"/><nd ref=\"30\"/>"
+                + "<tag k=\"highway\" v=\"footway\"/></way></modify>\n"
+                + "</osmChange>";
+        new OSMChangeImporter(graph, mapping).setLocationIndex(index).
+                importChanges(new ByteArrayInputStream(osc.getBytes(Helper.UTF_CS)));
+        QueryResult qr = index.findClosest(51.2492152, 9.4317166, footFilter);
+        assertEquals(n10, qr.getClosestNode());
+        assertEquals(0, qr.getQueryDistance(), 0.1);
+    }
+
+    @Test
+    public void testSinglePass() {
+        for (String file : Arrays.asList(file1, file6, fileBarriers, fileTurnRestrictions)) {
+            boolean turnCosts = file.equals(fileTurnRestrictions);
+            String expected = toGraphString(new GraphHopperFacade(file, turnCosts).importOrLoad());
+            Helper.removeDir(new File(dir));
+
+            GraphHopper hopper = new GraphHopperFacade(file, turnCosts) {
+                @Override
+                protected DataReader createReader(GraphHopperStorage tmpGraph) {
+                    return initDataReader(new OSMReader(tmpGraph).setSinglePass(true));
+                }
+            }.importOrLoad();
+            assertEquals(file, expected, toGraphString(hopper));
+            // the temporary files are removed
+            assertFalse(hopper.getGraphHopperStorage().getDirectory().getAll().toString().contains("tmp_spill"));
+            Helper.removeDir(new File(dir));
+        }
+    }
+
+    private String toGraphString(GraphHopper hopper) {
+        GraphHopperStorage graph = hopper.getGraphHopperStorage();
+        StringBuilder sb = new StringBuilder();
+        NodeAccess na = graph.getNodeAccess();
+        for (int node = 0; node < graph.getNodes(); node++) {
+            sb.append(node).append(':').append(na.getLat(node)).append(',').append(na.getLon(node)).append('\n');
+        }
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            sb.append(iter.getBaseNode()).append('-').append(iter.getAdjNode()).append(' ').append(iter.getFlags())
+                    .append(' ').append(iter.getName()).append(' ').append(iter.getDistance())
+                    .append(' ').append(iter.fetchWayGeometry(0)).append('\n');
+        }
+        if (graph.getExtension() instanceof TurnCostExtension) {
+            TurnCostExtension tcs = (TurnCostExtension) graph.getExtension();
+            EdgeExplorer explorer = graph.createEdgeExplorer();
+            for (int node = 0; node < graph.getNodes(); node++) {
+                EdgeIterator inIter = explorer.setBaseNode(node);
+                while (inIter.next()) {
+                    EdgeIterator outIter = graph.createEdgeExplorer().setBaseNode(node);
+                    while (outIter.next()) {
+                        sb.append(tcs.getTurnCostFlags(inIter.getEdge(), node, outIter.getEdge())).append(' ');
+                    }
+                }
+            }
+        }
+        return sb.toString();
+    }
+
     @Test
     public void testRoadAttributes() {
         GraphHopper hopper = new GraphHopperFacade(fileRoadAttributes);
@@ -641,6 +792,30 @@ public class OSMReaderTest {
 
         EdgeIteratorState edge = GHUtility.getEdge(graph, n20, n50);
         assertEquals(Helper.createPointList3D(52, 9, -10, 51.25, 9.43, 100, 49, 10, -30), edge.fetchWayGeometry(3));
+        hopper.close();
+        Helper.removeDir(new File(dir));
+
+        // the overridden method is used instead of the batch lookups from the provider
+        hopper = new GraphHopperFacade("custom-osm-ele.xml") {
+            @Override
+            protected DataReader createReader(GraphHopperStorage tmpGraph) {
+                return initDataReader(new OSMReader(tmpGraph) {
+                    @Override
+                    protected double getElevation(ReaderNode node) {
+                        return node.getEle();
+                    }
+                });
+            }
+        };
+        hopper.setElevationProvider(new CGIARProvider(GraphHopperIT.DIR) {
+            @Override
+            public double getEle(double lat, double lon) {
+                return 1000;
+            }
+        });
+        graph = hopper.importOrLoad().getGraphHopperStorage();
+        edge = GHUtility.getEdge(graph, AbstractGraphStorageTester.getIdOf(graph, 52), AbstractGraphStorageTester.getIdOf(graph, 49));
+        assertEquals(Helper.createPointList3D(52, 9, -10, 51.25, 9.43, 100, 49, 10, -30), edge.fetchWayGeometry(3));
     }
 
     @Test
@@ -665,6 +840,34 @@ public class OSMReaderTest {
                 edge.fetchWayGeometry(3));
     }
 
+    @Test
+    public void testReadEleWithThreads() {
+        GraphHopper hopper = new GraphHopperFacade("test-osm5.xml");
+        hopper.setElevationProvider(new SRTMProvider(GraphHopperIT.DIR));
+        String expected = toGeometryString(hopper.importOrLoad());
+        hopper.close();
+        Helper.removeDir(new File(dir));
+
+        hopper = new GraphHopperFacade("test-osm5.xml") {
+            @Override
+            protected DataReader createReader(GraphHopperStorage tmpGraph) {
+                return initDataReader(new OSMReader(tmpGraph).setElevationThreads(3));
+            }
+        };
+        hopper.setElevationProvider(new SRTMProvider(GraphHopperIT.DIR));
+        assertEquals(expected, toGeometryString(hopper.importOrLoad()));
+        assertTrue(expected.contains("426.0"));
+    }
+
+    private String toGeometryString(GraphHopper hopper) {
+        StringBuilder sb = new StringBuilder();
+        AllEdgesIterator iter = hopper.getGraphHopperStorage().getAllEdges();
+        while (iter.next()) {
+            sb.append(iter.fetchWayGeometry(3)).append('\n');
+        }
+        return sb.toString();
+    }
+
     /**
      * Tests the combination of different turn cost flags by different encoders.
      */
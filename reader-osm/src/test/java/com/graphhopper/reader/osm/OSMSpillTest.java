@@ -0,0 +1,110 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for 
+ *  additional information regarding copyright ownership.
+ * 
+ *  GraphHopper GmbH licenses this file to you under the Apache License, 
+ *  Version 2.0 (the "License"); you may not use this file except in 
+ *  compliance with the License. You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.osm;
+
+import com.graphhopper.reader.ReaderElement;
+import com.graphhopper.reader.ReaderNode;
+import com.graphhopper.reader.ReaderRelation;
+import com.graphhopper.reader.ReaderWay;
+import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.GHDirectory;
+import com.graphhopper.util.Helper;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+public class OSMSpillTest {
+    private final String location = "./target/tmp/osm-spill";
+
+    @After
+    public void tearDown() {
+        Helper.removeDir(new File(location));
+    }
+
+    @Test
+    public void testWriteAndRead() {
+        GHDirectory dir = new GHDirectory(location, DAType.RAM_STORE);
+        OSMSpill spill = new OSMSpill(dir);
+        // enough nodes to fill more than one segment of the DataAccess
+        int nodes = 300_000;
+        for (int i = 0; i < nodes; i++) {
+            ReaderNode node = new ReaderNode(i * 3 + 1, 50 + i * 1e-5, 10.1234567 - i * 2e-5);
+            if (i % 1000 == 0) {
+                node.setTag("barrier", "gate");
+                node.setTag("name", "gate " + i);
+            }
+            spill.addNode(node);
+        }
+
+        ReaderWay way = new ReaderWay(5);
+        way.setTag("highway", "primary");
+        way.setTag("name", "Hauptstraße");
+        way.getNodes().add(4, 1, 299_998 * 3 + 1);
+        spill.addWay(way);
+        ReaderWay way2 = new ReaderWay(3);
+        way2.setTag("highway", "primary");
+        way2.getNodes().add(7, 10);
+        spill.addWay(way2);
+
+        ReaderRelation relation = new ReaderRelation(-2);
+        relation.setTag("type", "restriction");
+        relation.add(new ReaderRelation.Member(ReaderRelation.Member.WAY, 5, "from"));
+        relation.add(new ReaderRelation.Member(ReaderRelation.Member.NODE, 4, "via"));
+        relation.add(new ReaderRelation.Member(ReaderRelation.Member.WAY, 3, "to"));
+        spill.addRelation(relation);
+        spill.finishWriting();
+        assertTrue(spill.getBytes() > 1 << 20);
+        assertTrue(new File(location, "tmp_spill_nodes").exists());
+
+        for (int i = 0; i < nodes; i++) {
+            ReaderElement element = spill.getNext();
+            assertTrue(element.isType(ReaderElement.NODE));
+            ReaderNode node = (ReaderNode) element;
+            assertEquals(i * 3 + 1, node.getId());
+            assertEquals(50 + i * 1e-5, node.getLat(), 1e-7);
+            assertEquals(10.1234567 - i * 2e-5, node.getLon(), 1e-7);
+            if (i % 1000 == 0) {
+                assertEquals("gate", node.getTag("barrier"));
+                assertEquals("gate " + i, node.getTag("name"));
+            } else {
+                assertFalse(node.hasTags());
+            }
+        }
+
+        ReaderWay readWay = (ReaderWay) spill.getNext();
+        assertEquals(5, readWay.getId());
+        assertEquals("Hauptstraße", readWay.getTag("name"));
+        assertEquals("primary", readWay.getTag("highway"));
+        assertEquals(way.getNodes(), readWay.getNodes());
+        ReaderWay readWay2 = (ReaderWay) spill.getNext();
+        assertEquals(3, readWay2.getId());
+        assertEquals(way2.getNodes(), readWay2.getNodes());
+
+        ReaderRelation readRelation = (ReaderRelation) spill.getNext();
+        assertEquals(-2, readRelation.getId());
+        assertTrue(readRelation.hasTag("type", "restriction"));
+        assertEquals(relation.getMembers().toString(), readRelation.getMembers().toString());
+        assertNull(spill.getNext());
+
+        spill.close();
+        assertFalse(new File(location, "tmp_spill_nodes").exists());
+    }
+}
@@ -0,0 +1,68 @@
+// This software is released into the Public Domain.  See copying.txt for details.
+package com.graphhopper.reader.osm.pbf;
+
+import org.junit.Test;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PbfStreamSplitterTest {
+    private final File file = new File("../core/files/andorra.osm.pbf");
+
+    @Test
+    public void testMappedBlobsEqualStreamBlobs() throws IOException {
+        List<PbfRawBlob> expected = new ArrayList<>();
+        PbfStreamSplitter streamSplitter = new PbfStreamSplitter(new DataInputStream(new BufferedInputStream(new FileInputStream(file))));
+        while (streamSplitter.hasNext()) {
+            expected.add(streamSplitter.next());
+        }
+        streamSplitter.release();
+        assertTrue(expected.size() > 2);
+
+        // a small mapping forces to map the file again for most of the blobs
+        for (int mappingSize : Arrays.asList(PbfStreamSplitter.MAX_MAPPING_SIZE, 200 * 1024)) {
+            FileChannel channel = new RandomAccessFile(file, "r").getChannel();
+            PbfStreamSplitter mappedSplitter = new PbfStreamSplitter(channel, mappingSize);
+            int count = 0;
+            while (mappedSplitter.hasNext()) {
+                PbfRawBlob blob = mappedSplitter.next();
+                assertEquals(expected.get(count).getType(), blob.getType());
+                assertArrayEquals(expected.get(count).getData(), blob.getData());
+                count++;
+            }
+            mappedSplitter.release();
+            assertFalse(channel.isOpen());
+            assertEquals(expected.size(), count);
+        }
+    }
+
+    @Test
+    public void testTruncatedFile() throws IOException {
+        File truncated = new File("./target/truncated.pbf");
+        byte[] bytes = new byte[1000];
+        try (InputStream is = new FileInputStream(file)) {
+            assertEquals(bytes.length, is.read(bytes));
+        }
+        try (OutputStream os = new FileOutputStream(truncated)) {
+            os.write(bytes);
+        }
+
+        PbfStreamSplitter splitter = new PbfStreamSplitter(new RandomAccessFile(truncated, "r").getChannel());
+        try {
+            assertTrue(splitter.hasNext());
+            splitter.next();
+            splitter.hasNext();
+            fail("truncated file should fail");
+        } catch (RuntimeException ex) {
+            assertTrue(ex.getCause() instanceof EOFException);
+        } finally {
+            splitter.release();
+            truncated.delete();
+        }
+    }
+}
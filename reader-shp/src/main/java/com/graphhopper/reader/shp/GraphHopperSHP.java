@@ -23,6 +23,7 @@ import com.graphhopper.GraphHopper;
 import com.graphhopper.reader.DataReader;
 import com.graphhopper.reader.shp.OSMShapeFileReader.EdgeAddedListener;
 import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.util.CmdArgs;
 
 /**
  * This class is the main entry point to import from OpenStreetMap shape files similar to GraphHopperOSM which imports
@@ -32,6 +33,16 @@ import com.graphhopper.storage.GraphHopperStorage;
  */
 public class GraphHopperSHP extends GraphHopper {
     private final HashSet<EdgeAddedListener> edgeAddedListeners = new HashSet<>();
+    // the roads are mapped serially unless more threads are explicitly configured
+    private int workerThreads = 1;
+
+    @Override
+    public GraphHopper init(CmdArgs args) {
+        super.init(args);
+        if (args.has("datareader.worker_threads"))
+            workerThreads = args.getInt("datareader.worker_threads", workerThreads);
+        return this;
+    }
 
     @Override
     protected DataReader createReader(GraphHopperStorage ghStorage) {
@@ -39,7 +50,16 @@ public class GraphHopperSHP extends GraphHopper {
         for (EdgeAddedListener l : edgeAddedListeners) {
             reader.addListener(l);
         }
-        return initDataReader(reader);
+        return initDataReader(reader).setWorkerThreads(workerThreads);
+    }
+
+    /**
+     * Sets the number of threads used to map the roads to edges, the edges are added in the order
+     * of the shape file regardless.
+     */
+    public GraphHopperSHP setWorkerThreads(int workerThreads) {
+        this.workerThreads = workerThreads;
+        return this;
     }
 
     public void addListener(EdgeAddedListener l) {
@@ -17,7 +17,8 @@
  */
 package com.graphhopper.reader.shp;
 
-import com.graphhopper.coll.GHObjectIntHashMap;
+import com.carrotsearch.hppc.LongIntHashMap;
+import com.graphhopper.coll.GHLongHashSet;
 import com.graphhopper.reader.DataReader;
 import com.graphhopper.reader.ReaderWay;
 import com.graphhopper.reader.dem.ElevationProvider;
@@ -41,12 +42,16 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.*;
 
 import static com.graphhopper.util.Helper.*;
 
 /**
  * OSMShapeFileReader for files present at : http://download.geofabrik.de/ It
  * extracts the data as per the structure of shape files
+ * <p>
+ * The coordinates are identified by their rounded latitude and longitude stored in one long. The
+ * tags of the roads are mapped with several worker threads, only the edges are created serially.
  *
  * @author Vikas Veshishth
  * @author Philip Welch
@@ -56,13 +61,17 @@ public class OSMShapeFileReader extends ShapeFileReader {
     private static final int COORD_STATE_PILLAR = -2;
     private static final int FIRST_NODE_ID = 1;
     private static final String[] DIRECT_COPY_TAGS = new String[]{"name"};
+    // ~1cm, coordinates closer than this are considered as the same point
+    private static final double COORD_FACTOR = 1e7;
+    private static final int BATCH_SIZE = 1000;
     private File roadsFile;
-    private final GHObjectIntHashMap<Coordinate> coordState = new GHObjectIntHashMap<>(1000, 0.7f);
+    private final LongIntHashMap coordState = new LongIntHashMap(1000, 0.7f);
     private final DistanceCalc distCalc = DIST_EARTH;
     private static final Logger LOGGER = LoggerFactory.getLogger(OSMShapeFileReader.class);
     private final HashSet<EdgeAddedListener> edgeAddedListeners = new HashSet<>();
     private int nextNodeId = FIRST_NODE_ID;
     private final String encoding = "utf8";
+    private int workerThreads = 1;
 
     public OSMShapeFileReader(GraphHopperStorage ghStorage) {
         super(ghStorage);
@@ -96,7 +105,7 @@ public class OSMShapeFileReader extends ShapeFileReader {
             dataStore = openShapefileDataStore(roadsFile, encoding);
             roads = getFeatureIterator(dataStore);
 
-            HashSet<Coordinate> tmpSet = new HashSet<>();
+            GHLongHashSet tmpSet = new GHLongHashSet();
             while (roads.hasNext()) {
                 SimpleFeature road = roads.next();
 
@@ -104,16 +113,15 @@ public class OSMShapeFileReader extends ShapeFileReader {
                     tmpSet.clear();
                     for (int i = 0; i < points.length; i++) {
                         Coordinate c = points[i];
+                        long key = toKey(c);
 
                         // don't add the same coord twice for the same edge - happens with bad geometry, i.e.
                         // duplicate coords or a road which forms a circle (e.g. roundabout)
-                        if (tmpSet.contains(c))
+                        if (!tmpSet.add(key))
                             continue;
 
-                        tmpSet.add(c);
-
                         // skip if its already a node
-                        int state = coordState.get(c);
+                        int state = coordState.get(key);
                         if (state >= FIRST_NODE_ID) {
                             continue;
                         }
@@ -122,12 +130,12 @@ public class OSMShapeFileReader extends ShapeFileReader {
                             // turn into a node if its the first or last
                             // point, or already appeared in another edge
                             int nodeId = nextNodeId++;
-                            coordState.put(c, nodeId);
+                            coordState.put(key, nodeId);
                             saveTowerPosition(nodeId, c);
                         } else if (state == COORD_STATE_UNKNOWN) {
                             // mark it as a pillar (which may get upgraded
                             // to an edge later)
-                            coordState.put(c, COORD_STATE_PILLAR);
+                            coordState.put(key, COORD_STATE_PILLAR);
                         }
                     }
                 }
@@ -153,54 +161,26 @@ public class OSMShapeFileReader extends ShapeFileReader {
 
         DataStore dataStore = null;
         FeatureIterator<SimpleFeature> roads = null;
+        ExecutorService service = workerThreads > 1 ? Executors.newFixedThreadPool(workerThreads) : null;
 
         try {
             dataStore = openShapefileDataStore(roadsFile, encoding);
             roads = getFeatureIterator(dataStore);
 
+            List<SimpleFeature> batch = new ArrayList<>(BATCH_SIZE);
             while (roads.hasNext()) {
-                SimpleFeature road = roads.next();
-
-                for (Coordinate[] points : getCoords(road.getDefaultGeometry())) {
-
-                    // Parse all points in the geometry, splitting into
-                    // individual graphhopper edges
-                    // whenever we find a node in the list of points
-                    Coordinate startTowerPnt = null;
-                    List<Coordinate> pillars = new ArrayList<Coordinate>();
-                    for (Coordinate point : points) {
-                        if (startTowerPnt == null) {
-                            startTowerPnt = point;
-                        } else {
-                            int state = coordState.get(point);
-                            if (state >= FIRST_NODE_ID) {
-                                int fromTowerNodeId = coordState.get(startTowerPnt);
-                                int toTowerNodeId = state;
-
-                                // get distance and estimated centres
-                                double distance = getWayLength(startTowerPnt, pillars, point);
-                                GHPoint estmCentre = new GHPoint(
-                                        0.5 * (lat(startTowerPnt) + lat(point)),
-                                        0.5 * (lng(startTowerPnt) + lng(point)));
-                                PointList pillarNodes = new PointList(pillars.size(), false);
-
-                                for (Coordinate pillar : pillars) {
-                                    pillarNodes.add(lat(pillar), lng(pillar));
-                                }
-
-                                addEdge(fromTowerNodeId, toTowerNodeId, road, distance, estmCentre,
-                                        pillarNodes);
-                                startTowerPnt = point;
-                                pillars.clear();
-                            } else {
-                                pillars.add(point);
-                            }
-                        }
-                    }
+                batch.add(roads.next());
+                if (batch.size() == BATCH_SIZE) {
+                    addEdges(mapRoads(batch, service));
+                    batch.clear();
                 }
-
             }
+            addEdges(mapRoads(batch, service));
         } finally {
+            if (service != null) {
+                service.shutdownNow();
+            }
+
             if (roads != null) {
                 roads.close();
             }
@@ -211,6 +191,106 @@ public class OSMShapeFileReader extends ShapeFileReader {
         }
     }
 
+    /**
+     * Splits the roads into edges and maps their tags. The coordinate states are only read here so
+     * the roads can be processed in parallel.
+     */
+    private List<List<MappedEdge>> mapRoads(List<SimpleFeature> roads, ExecutorService service) {
+        List<List<MappedEdge>> result = new ArrayList<>(roads.size());
+        if (service == null) {
+            for (SimpleFeature road : roads) {
+                result.add(mapRoad(road));
+            }
+            return result;
+        }
+
+        List<Future<List<MappedEdge>>> futures = new ArrayList<>(roads.size());
+        for (final SimpleFeature road : roads) {
+            futures.add(service.submit(new Callable<List<MappedEdge>>() {
+                @Override
+                public List<MappedEdge> call() {
+                    return mapRoad(road);
+                }
+            }));
+        }
+
+        try {
+            for (Future<List<MappedEdge>> future : futures) {
+                result.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw Utils.asUnchecked(e.getCause());
+        }
+        return result;
+    }
+
+    private List<MappedEdge> mapRoad(SimpleFeature road) {
+        List<MappedEdge> edges = new ArrayList<>();
+        for (Coordinate[] points : getCoords(road.getDefaultGeometry())) {
+
+            // Parse all points in the geometry, splitting into
+            // individual graphhopper edges
+            // whenever we find a node in the list of points
+            Coordinate startTowerPnt = null;
+            List<Coordinate> pillars = new ArrayList<Coordinate>();
+            for (Coordinate point : points) {
+                if (startTowerPnt == null) {
+                    startTowerPnt = point;
+                } else {
+                    int state = coordState.get(toKey(point));
+                    if (state >= FIRST_NODE_ID) {
+                        int fromTowerNodeId = coordState.get(toKey(startTowerPnt));
+                        int toTowerNodeId = state;
+
+                        // get distance and estimated centres
+                        double distance = getWayLength(startTowerPnt, pillars, point);
+                        GHPoint estmCentre = new GHPoint(
+                                0.5 * (lat(startTowerPnt) + lat(point)),
+                                0.5 * (lng(startTowerPnt) + lng(point)));
+                        PointList pillarNodes = new PointList(pillars.size(), false);
+
+                        for (Coordinate pillar : pillars) {
+                            pillarNodes.add(lat(pillar), lng(pillar));
+                        }
+
+                        edges.add(mapEdge(fromTowerNodeId, toTowerNodeId, road, distance, estmCentre,
+                                pillarNodes));
+                        startTowerPnt = point;
+                        pillars.clear();
+                    } else {
+                        pillars.add(point);
+                    }
+                }
+            }
+        }
+        return edges;
+    }
+
+    private void addEdges(List<List<MappedEdge>> roads) {
+        for (List<MappedEdge> edges : roads) {
+            for (MappedEdge mappedEdge : edges) {
+                addEdge(mappedEdge);
+            }
+        }
+    }
+
+    /**
+     * Identifies a coordinate by its latitude and longitude rounded to ~1cm without creating an
+     * object per point.
+     */
+    static long toKey(double lat, double lon) {
+        long latInt = Math.round(lat * COORD_FACTOR);
+        long lonInt = Math.round(lon * COORD_FACTOR);
+        return (latInt << 32) | (lonInt & 0xFFFFFFFFL);
+    }
+
+    private long toKey(Coordinate coordinate) {
+        return toKey(lat(coordinate), lng(coordinate));
+    }
+
     private double getWayLength(Coordinate start, List<Coordinate> pillars, Coordinate end) {
         double distance = 0;
 
@@ -238,7 +318,7 @@ public class OSMShapeFileReader extends ShapeFileReader {
 
     @Override
     public DataReader setWorkerThreads(int workerThreads) {
-        // Its only single-threaded
+        this.workerThreads = Math.max(1, workerThreads);
         return this;
     }
 
@@ -263,10 +343,53 @@ public class OSMShapeFileReader extends ShapeFileReader {
         void edgeAdded(ReaderWay way, EdgeIteratorState edge);
     }
 
-    private void addEdge(int fromTower, int toTower, SimpleFeature road, double distance,
-                         GHPoint estmCentre, PointList pillarNodes) {
-        EdgeIteratorState edge = graph.edge(fromTower, toTower);
+    /**
+     * An edge with the flags of its road which is not yet added to the graph.
+     */
+    private static class MappedEdge {
+        final int fromTower;
+        final int toTower;
+        final double distance;
+        final PointList pillarNodes;
+        final ReaderWay way;
+        // 0 if the road is not accepted by the encoders
+        final long wayFlags;
+
+        MappedEdge(int fromTower, int toTower, double distance, PointList pillarNodes, ReaderWay way, long wayFlags) {
+            this.fromTower = fromTower;
+            this.toTower = toTower;
+            this.distance = distance;
+            this.pillarNodes = pillarNodes;
+            this.way = way;
+            this.wayFlags = wayFlags;
+        }
+    }
+
+    private void addEdge(MappedEdge mappedEdge) {
+        EdgeIteratorState edge = graph.edge(mappedEdge.fromTower, mappedEdge.toTower);
+        if (mappedEdge.wayFlags == 0)
+            return;
+
+        edge.setDistance(mappedEdge.distance);
+        edge.setFlags(mappedEdge.wayFlags);
+        edge.setWayGeometry(mappedEdge.pillarNodes);
+
+        if (edgeAddedListeners.size() > 0) {
+            // check size first so we only allocate the iterator if we have
+            // listeners
+            for (EdgeAddedListener l : edgeAddedListeners) {
+                l.edgeAdded(mappedEdge.way, edge);
+            }
+        }
+    }
 
+    /**
+     * Maps the attributes of the road to the flags of the edge. This is called from the worker
+     * threads and must only read shared state. The flag encoders are only called with the few tags
+     * read from the shapefile.
+     */
+    private MappedEdge mapEdge(int fromTower, int toTower, SimpleFeature road, double distance,
+                               GHPoint estmCentre, PointList pillarNodes) {
         // read the OSM id, should never be null
         long id = getOSMId(road);
 
@@ -328,27 +451,14 @@ public class OSMShapeFileReader extends ShapeFileReader {
         // Process the flags using the encoders
         long includeWay = encodingManager.acceptWay(way);
         if (includeWay == 0) {
-            return;
+            return new MappedEdge(fromTower, toTower, distance, pillarNodes, way, 0);
         }
 
         // TODO we're not using the relation flags
         long relationFlags = 0;
 
         long wayFlags = encodingManager.handleWayTags(way, includeWay, relationFlags);
-        if (wayFlags == 0)
-            return;
-
-        edge.setDistance(distance);
-        edge.setFlags(wayFlags);
-        edge.setWayGeometry(pillarNodes);
-
-        if (edgeAddedListeners.size() > 0) {
-            // check size first so we only allocate the iterator if we have
-            // listeners
-            for (EdgeAddedListener l : edgeAddedListeners) {
-                l.edgeAdded(way, edge);
-            }
-        }
+        return new MappedEdge(fromTower, toTower, distance, pillarNodes, way, wayFlags);
     }
 
     private long getOSMId(SimpleFeature road) {
@@ -37,9 +37,13 @@ import com.graphhopper.GHResponse;
 import com.graphhopper.GraphHopper;
 import com.graphhopper.PathWrapper;
 import com.graphhopper.reader.osm.GraphHopperOSM;
+import com.graphhopper.routing.util.AllEdgesIterator;
 import com.graphhopper.routing.util.CarFlagEncoder;
 import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.NodeAccess;
 import com.graphhopper.util.DistanceCalc;
+import com.graphhopper.util.EdgeIteratorState;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.PointList;
 import com.graphhopper.util.shapes.GHPoint;
@@ -303,6 +307,38 @@ public class ShapeFileReaderTest {
 
     }
 
+    @Test
+    public void testParallelMappingCreatesSameGraph() {
+        String tempOutputDirParallel = "target/test-db-shp-parallel";
+        GraphHopper hopperParallel = initHopper(new GraphHopperSHP().setWorkerThreads(4), shapefile, tempOutputDirParallel);
+        try {
+            Graph serial = hopperShp.getGraphHopperStorage();
+            Graph parallel = hopperParallel.getGraphHopperStorage();
+            assertEquals(serial.getNodes(), parallel.getNodes());
+            assertEquals(serial.getAllEdges().length(), parallel.getAllEdges().length());
+
+            NodeAccess serialNA = serial.getNodeAccess();
+            NodeAccess parallelNA = parallel.getNodeAccess();
+            for (int node = 0; node < serial.getNodes(); node++) {
+                assertEquals(serialNA.getLat(node), parallelNA.getLat(node), 0);
+                assertEquals(serialNA.getLon(node), parallelNA.getLon(node), 0);
+            }
+
+            AllEdgesIterator serialIter = serial.getAllEdges();
+            while (serialIter.next()) {
+                EdgeIteratorState parallelEdge = parallel.getEdgeIteratorState(serialIter.getEdge(), serialIter.getAdjNode());
+                assertEquals(serialIter.getBaseNode(), parallelEdge.getBaseNode());
+                assertEquals(serialIter.getFlags(), parallelEdge.getFlags());
+                assertEquals(serialIter.getDistance(), parallelEdge.getDistance(), 0);
+                assertEquals(serialIter.getName(), parallelEdge.getName());
+                assertEquals(serialIter.fetchWayGeometry(3), parallelEdge.fetchWayGeometry(3));
+            }
+        } finally {
+            hopperParallel.close();
+            hopperParallel.clean();
+        }
+    }
+
     private static double getSecondsTravel(PathWrapper pw) {
         long millis = pw.getTime();
         double secs = 0.001 * millis;
@@ -18,7 +18,7 @@
 
 package com.graphhopper.http;
 
-import com.fasterxml.jackson.core.JsonGenerationException;
+import com.codahale.metrics.Gauge;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonParser;
@@ -33,9 +33,11 @@ import com.graphhopper.reader.gtfs.GraphHopperGtfs;
 import com.graphhopper.reader.gtfs.GtfsStorage;
 import com.graphhopper.reader.gtfs.PtFlagEncoder;
 import com.graphhopper.reader.gtfs.RealtimeFeed;
+import com.graphhopper.routing.RouteCache;
 import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.storage.GHDirectory;
 import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.index.CachingLocationIndex;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.util.CmdArgs;
 import com.graphhopper.util.TranslationMap;
@@ -53,6 +55,8 @@ import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
 
 public class GraphHopperBundle implements ConfiguredBundle<HasGraphHopperConfiguration> {
 
@@ -167,6 +171,7 @@ public class GraphHopperBundle implements ConfiguredBundle<HasGraphHopperConfigu
             @Override
             protected void configure() {
                 bind(configuration).to(CmdArgs.class);
+                bind(environment.getObjectMapper()).to(ObjectMapper.class);
                 bind(graphHopper).to(GraphHopperAPI.class);
                 bind(false).to(Boolean.class).named("hasElevation");
                 bind(locationIndex).to(LocationIndex.class);
@@ -195,10 +200,15 @@ public class GraphHopperBundle implements ConfiguredBundle<HasGraphHopperConfigu
     private void runRegularGraphHopper(CmdArgs configuration, Environment environment) {
         final GraphHopperManaged graphHopperManaged = new GraphHopperManaged(configuration);
         environment.lifecycle().manage(graphHopperManaged);
+        int batchThreads = configuration.getInt(RouteBatchResource.THREADS, Runtime.getRuntime().availableProcessors());
+        final ExecutorService routeBatchExecutor = environment.lifecycle().executorService("route-batch-%d").
+                minThreads(batchThreads).maxThreads(batchThreads).build();
         environment.jersey().register(new AbstractBinder() {
             @Override
             protected void configure() {
                 bind(configuration).to(CmdArgs.class);
+                bind(environment.getObjectMapper()).to(ObjectMapper.class);
+                bind(routeBatchExecutor).to(ExecutorService.class).named("routeBatchExecutor");
                 bind(graphHopperManaged).to(GraphHopperManaged.class);
                 bind(graphHopperManaged.getGraphHopper()).to(GraphHopper.class);
                 bind(graphHopperManaged.getGraphHopper()).to(GraphHopperAPI.class);
@@ -216,6 +226,9 @@ public class GraphHopperBundle implements ConfiguredBundle<HasGraphHopperConfigu
         }
         environment.jersey().register(NearestResource.class);
         environment.jersey().register(RouteResource.class);
+        environment.jersey().register(RouteBatchResource.class);
+        if (!configuration.get(FacilityResource.FILE, "").isEmpty())
+            environment.jersey().register(FacilityResource.class);
         environment.jersey().register(I18NResource.class);
         environment.jersey().register(InfoResource.class);
 
@@ -224,31 +237,38 @@ public class GraphHopperBundle implements ConfiguredBundle<HasGraphHopperConfigu
         pathDetailModule.addDeserializer(PathDetail.class, new PathDetailDeserializer());
         environment.getObjectMapper().registerModule(pathDetailModule);
         environment.healthChecks().register("graphhopper", new GraphHopperHealthCheck(graphHopperManaged.getGraphHopper()));
+
+        final RouteCache routeCache = graphHopperManaged.getGraphHopper().getRouteCache();
+        if (routeCache != null) {
+            environment.metrics().register("route_cache.hits", (Gauge<Long>) routeCache::getHits);
+            environment.metrics().register("route_cache.misses", (Gauge<Long>) routeCache::getMisses);
+            environment.metrics().register("route_cache.evictions", (Gauge<Long>) routeCache::getEvictions);
+            environment.metrics().register("route_cache.size", (Gauge<Integer>) routeCache::getSize);
+        }
+
+        // the snap cache is created when the graph is loaded, i.e. after this method
+        final GraphHopper hopper = graphHopperManaged.getGraphHopper();
+        if (configuration.getInt("index.snap_cache.size", 0) > 0) {
+            environment.metrics().register("snap_cache.hits", snapCacheGauge(hopper, CachingLocationIndex::getHits, 0L));
+            environment.metrics().register("snap_cache.misses", snapCacheGauge(hopper, CachingLocationIndex::getMisses, 0L));
+            environment.metrics().register("snap_cache.evictions", snapCacheGauge(hopper, CachingLocationIndex::getEvictions, 0L));
+            environment.metrics().register("snap_cache.hit_rate", snapCacheGauge(hopper, CachingLocationIndex::getHitRate, 0.0));
+            environment.metrics().register("snap_cache.size", snapCacheGauge(hopper, CachingLocationIndex::getSize, 0));
+        }
+    }
+
+    private static <T> Gauge<T> snapCacheGauge(GraphHopper hopper, Function<CachingLocationIndex, T> getter, T defaultValue) {
+        return () -> {
+            CachingLocationIndex snapCache = hopper.getSnapCache();
+            return snapCache == null ? defaultValue : getter.apply(snapCache);
+        };
     }
 
     public static class PathDetailSerializer extends JsonSerializer<PathDetail> {
 
         @Override
         public void serialize(PathDetail value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
-            gen.writeStartArray();
-
-            gen.writeNumber(value.getFirst());
-            gen.writeNumber(value.getLast());
-
-            if (value.getValue() instanceof Double)
-                gen.writeNumber((Double) value.getValue());
-            else if (value.getValue() instanceof Long)
-                gen.writeNumber((Long) value.getValue());
-            else if (value.getValue() instanceof Integer)
-                gen.writeNumber((Integer) value.getValue());
-            else if (value.getValue() instanceof Boolean)
-                gen.writeBoolean((Boolean) value.getValue());
-            else if (value.getValue() instanceof String)
-                gen.writeString((String) value.getValue());
-            else
-                throw new JsonGenerationException("Unsupported type for PathDetail.value" + value.getValue().getClass(), gen);
-
-            gen.writeEndArray();
+            RouteResponseWriter.writePathDetail(gen, value);
         }
     }
 
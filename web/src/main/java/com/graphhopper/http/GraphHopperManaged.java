@@ -19,9 +19,12 @@
 package com.graphhopper.http;
 
 import com.graphhopper.GraphHopper;
+import com.graphhopper.http.resources.FacilityResource;
 import com.graphhopper.reader.osm.GraphHopperOSM;
+import com.graphhopper.routing.FacilityIndex;
 import com.graphhopper.spatialrules.SpatialRuleLookupHelper;
 import com.graphhopper.util.CmdArgs;
+import com.graphhopper.util.Helper;
 import com.graphhopper.util.Parameters;
 import io.dropwizard.lifecycle.Managed;
 import org.slf4j.Logger;
@@ -29,15 +32,22 @@ import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
 
 @Singleton
 public class GraphHopperManaged implements Managed {
 
     private final Logger logger = LoggerFactory.getLogger(getClass());
     private final GraphHopper graphHopper;
+    private final String facilitiesFile;
+    private FacilityIndex facilityIndex;
 
     @Inject
     public GraphHopperManaged(CmdArgs configuration) {
+        facilitiesFile = configuration.get(FacilityResource.FILE, "");
         graphHopper = new GraphHopperOSM(
                 SpatialRuleLookupHelper.createLandmarkSplittingFeatureCollection(configuration.get(Parameters.Landmark.PREPARE + "split_area_location", ""))
         ).forServer();
@@ -52,12 +62,62 @@ public class GraphHopperManaged implements Managed {
                 + ", data_reader_file:" + graphHopper.getDataReaderFile()
                 + ", flag_encoders:" + graphHopper.getEncodingManager()
                 + ", " + graphHopper.getGraphHopperStorage().toDetailsString());
+        if (!facilitiesFile.isEmpty())
+            facilityIndex = loadFacilities(facilitiesFile);
+    }
+
+    /**
+     * Reads facilities from a file with one 'id,lat,lon' entry per line and snaps them to the
+     * closest node. Empty lines and lines starting with '#' are skipped.
+     */
+    private FacilityIndex loadFacilities(String file) {
+        FacilityIndex index = new FacilityIndex(graphHopper.getGraphHopperStorage());
+        int lineNumber = 0;
+        int notSnapped = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), Helper.UTF_CS))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#"))
+                    continue;
+
+                String[] columns = line.split(",");
+                if (columns.length != 3)
+                    throw new IllegalArgumentException("Facility in line " + lineNumber + " of " + file + " has to be 'id,lat,lon' but was " + line);
+
+                String id = columns[0].trim();
+                double lat, lon;
+                try {
+                    lat = Double.parseDouble(columns[1].trim());
+                    lon = Double.parseDouble(columns[2].trim());
+                } catch (NumberFormatException ex) {
+                    throw new IllegalArgumentException("Facility in line " + lineNumber + " of " + file + " has an invalid coordinate: " + line, ex);
+                }
+                if (!index.add(id, lat, lon, graphHopper.getLocationIndex(),
+                        graphHopper.getEncodingManager().fetchEdgeEncoders())) {
+                    notSnapped++;
+                    logger.warn("cannot find a road for facility " + id + " at " + lat + "," + lon);
+                }
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException("Cannot read facilities from " + file, ex);
+        }
+        logger.info("loaded " + index.getSize() + " facilities from " + file + ", not snapped: " + notSnapped);
+        return index;
     }
 
     GraphHopper getGraphHopper() {
         return graphHopper;
     }
 
+    /**
+     * @return the facilities configured via web.facilities.file or null if not configured
+     */
+    public FacilityIndex getFacilityIndex() {
+        return facilityIndex;
+    }
+
     @Override
     public void stop() throws Exception {
         graphHopper.close();
@@ -0,0 +1,243 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.graphhopper.GHResponse;
+import com.graphhopper.PathWrapper;
+import com.graphhopper.util.*;
+import com.graphhopper.util.details.PathDetail;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the route response in the compact binary format 'application/x-gh-route'. Compared to
+ * JSON the coordinates are delta encoded as variable length integers and every string is written
+ * only once and referenced afterwards. The counterpart is the RouteBinaryReader of the Java client.
+ * See docs/web/api-doc.md for the format.
+ * <p>
+ * Instances must not be shared between threads as they hold the table of already written strings.
+ */
+public class RouteBinaryWriter {
+    public static final String MEDIA_TYPE = "application/x-gh-route";
+    static final byte[] MAGIC = {'G', 'H', 'R'};
+    static final int VERSION = 2;
+
+    static final int FLAG_INSTRUCTIONS = 1;
+    static final int FLAG_CALC_POINTS = 2;
+    static final int FLAG_ELEVATION = 4;
+
+    static final int TYPE_BOOLEAN = 0;
+    static final int TYPE_INT = 1;
+    static final int TYPE_LONG = 2;
+    static final int TYPE_DOUBLE = 3;
+    static final int TYPE_STRING = 4;
+
+    private final boolean enableInstructions;
+    private final boolean calcPoints;
+    private final boolean enableElevation;
+    private final Map<String, Integer> stringTable = new HashMap<>();
+    private DataOutputStream out;
+
+    public RouteBinaryWriter(boolean enableInstructions, boolean calcPoints, boolean enableElevation) {
+        this.enableInstructions = enableInstructions;
+        this.calcPoints = calcPoints;
+        this.enableElevation = enableElevation;
+    }
+
+    public void write(OutputStream outputStream, GHResponse ghRsp, float took) throws IOException {
+        out = new DataOutputStream(outputStream);
+        stringTable.clear();
+        out.write(MAGIC);
+        out.writeByte(VERSION);
+        out.writeByte((enableInstructions ? FLAG_INSTRUCTIONS : 0) | (calcPoints ? FLAG_CALC_POINTS : 0)
+                | (enableElevation ? FLAG_ELEVATION : 0));
+
+        Map<String, String> hints = ghRsp.getHints().toMap();
+        writeVarLong(hints.size());
+        for (Map.Entry<String, String> e : hints.entrySet()) {
+            writeString(e.getKey());
+            writeString(e.getValue());
+        }
+        writeVarLong(Math.round(took * 1000));
+
+        writeVarLong(ghRsp.getAll().size());
+        for (PathWrapper ar : ghRsp.getAll()) {
+            writePath(ar);
+        }
+        out.flush();
+    }
+
+    private void writePath(PathWrapper ar) throws IOException {
+        out.writeDouble(ar.getDistance());
+        out.writeDouble(ar.getRouteWeight());
+        writeVarLong(ar.getTime());
+        writeVarLong(ar.getNumChanges());
+        writeVarLong(ar.getDescription().size());
+        for (String str : ar.getDescription()) {
+            writeString(str);
+        }
+        out.writeDouble(ar.getAscend());
+        out.writeDouble(ar.getDescend());
+        if (calcPoints) {
+            writePoints(ar.getPoints());
+            if (enableInstructions)
+                writeInstructions(ar.getInstructions());
+            writePathDetails(ar.getPathDetails());
+        }
+        writePoints(ar.getWaypoints());
+        writeString(ar.getFare() == null ? "" : ar.getFare().toPlainString());
+    }
+
+    /**
+     * Writes the coordinates with 6 decimal places and the elevation with 2 decimal places, i.e.
+     * with the same precision as the unencoded JSON points. A missing elevation is written as 0
+     * and every other as its zig zag difference plus 1.
+     */
+    private void writePoints(PointList points) throws IOException {
+        int size = points.getSize();
+        writeVarLong(size);
+        long prevLat = 0, prevLon = 0, prevEle = 0;
+        for (int i = 0; i < size; i++) {
+            long lat = Math.round(points.getLatitude(i) * 1e6);
+            writeSignedVarLong(lat - prevLat);
+            prevLat = lat;
+            long lon = Math.round(points.getLongitude(i) * 1e6);
+            writeSignedVarLong(lon - prevLon);
+            prevLon = lon;
+            if (enableElevation) {
+                double tmpEle = points.getElevation(i);
+                if (Double.isNaN(tmpEle)) {
+                    // like the JSON which omits the elevation
+                    writeVarLong(0);
+                } else {
+                    long ele = Math.round(tmpEle * 100);
+                    writeVarLong(zigZag(ele - prevEle) + 1);
+                    prevEle = ele;
+                }
+            }
+        }
+    }
+
+    private void writeInstructions(InstructionList instructions) throws IOException {
+        writeVarLong(instructions.size());
+        for (Instruction instruction : instructions) {
+            writeSignedVarLong(instruction.getSign());
+            writeString(instructions.createText(instruction));
+            writeString(instruction.getName());
+            InstructionAnnotation ia = instruction.getAnnotation();
+            if (ia.isEmpty()) {
+                out.writeBoolean(false);
+            } else {
+                out.writeBoolean(true);
+                writeSignedVarLong(ia.getImportance());
+                writeString(ia.getMessage());
+            }
+            writeVarLong(instruction.getTime());
+            out.writeDouble(instruction.getDistance());
+            // the interval of an instruction starts where the previous one ended
+            writeVarLong(instruction.getLength());
+
+            Map<String, Object> extraInfo = instruction.getExtraInfoJSON();
+            writeVarLong(extraInfo.size());
+            for (Map.Entry<String, Object> e : extraInfo.entrySet()) {
+                writeString(e.getKey());
+                writeValue(e.getValue());
+            }
+        }
+    }
+
+    private void writePathDetails(Map<String, List<PathDetail>> details) throws IOException {
+        writeVarLong(details.size());
+        for (Map.Entry<String, List<PathDetail>> e : details.entrySet()) {
+            writeString(e.getKey());
+            writeVarLong(e.getValue().size());
+            int prevLast = 0;
+            for (PathDetail detail : e.getValue()) {
+                writeSignedVarLong(detail.getFirst() - prevLast);
+                writeVarLong(detail.getLast() - detail.getFirst());
+                prevLast = detail.getLast();
+                writeValue(detail.getValue());
+            }
+        }
+    }
+
+    private void writeValue(Object value) throws IOException {
+        if (value instanceof Boolean) {
+            out.writeByte(TYPE_BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(TYPE_INT);
+            writeSignedVarLong((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(TYPE_LONG);
+            writeSignedVarLong((Long) value);
+        } else if (value instanceof Double) {
+            out.writeByte(TYPE_DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof String) {
+            out.writeByte(TYPE_STRING);
+            writeString((String) value);
+        } else {
+            throw new IllegalArgumentException("Unsupported type for binary format " + (value == null ? null : value.getClass()));
+        }
+    }
+
+    /**
+     * Strings are interned: a string is written as 0 followed by its UTF-8 bytes the first time
+     * and afterwards only as its position in the table plus 1.
+     */
+    private void writeString(String str) throws IOException {
+        if (str == null)
+            str = "";
+
+        Integer index = stringTable.get(str);
+        if (index != null) {
+            writeVarLong(index + 1);
+            return;
+        }
+
+        stringTable.put(str, stringTable.size());
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(0);
+        writeVarLong(bytes.length);
+        out.write(bytes);
+    }
+
+    private void writeSignedVarLong(long value) throws IOException {
+        writeVarLong(zigZag(value));
+    }
+
+    private static long zigZag(long value) {
+        // so that small negative values need only a few bytes too
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private void writeVarLong(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.fasterxml.jackson.core.JsonGenerationException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.graphhopper.GHResponse;
+import com.graphhopper.PathWrapper;
+import com.graphhopper.util.*;
+import com.graphhopper.util.details.PathDetail;
+
+import java.io.IOException;
+import java.text.NumberFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Writes the JSON response of the route endpoint directly to a JsonGenerator. Unlike building an
+ * ObjectNode tree first, the points, instructions and path details are not copied into intermediate
+ * objects. See docs/web/api-doc.md for the format.
+ */
+public class RouteResponseWriter {
+    private final boolean enableInstructions;
+    private final boolean calcPoints;
+    private final boolean enableElevation;
+    private final boolean pointsEncoded;
+
+    public RouteResponseWriter(boolean enableInstructions, boolean calcPoints, boolean enableElevation, boolean pointsEncoded) {
+        this.enableInstructions = enableInstructions;
+        this.calcPoints = calcPoints;
+        this.enableElevation = enableElevation;
+        this.pointsEncoded = pointsEncoded;
+    }
+
+    /**
+     * Writes the complete response as JSON object.
+     */
+    public void write(JsonGenerator gen, GHResponse ghRsp, float took) throws IOException {
+        gen.writeStartObject();
+        writeFields(gen, ghRsp, took);
+        gen.writeEndObject();
+    }
+
+    /**
+     * Writes the fields of the response into an already started JSON object. This makes it possible
+     * to add further fields to the object.
+     */
+    public void writeFields(JsonGenerator gen, GHResponse ghRsp, float took) throws IOException {
+        gen.writeObjectFieldStart("hints");
+        for (Map.Entry<String, String> e : ghRsp.getHints().toMap().entrySet()) {
+            gen.writeStringField(e.getKey(), e.getValue());
+        }
+        gen.writeEndObject();
+
+        // If you replace GraphHopper with your own brand name, this is fine.
+        // Still it would be highly appreciated if you mention us in your about page!
+        gen.writeObjectFieldStart("info");
+        gen.writeArrayFieldStart("copyrights");
+        gen.writeString("GraphHopper");
+        gen.writeString("OpenStreetMap contributors");
+        gen.writeEndArray();
+        gen.writeNumberField("took", Math.round(took * 1000));
+        gen.writeEndObject();
+
+        gen.writeArrayFieldStart("paths");
+        for (PathWrapper ar : ghRsp.getAll()) {
+            writePath(gen, ar);
+        }
+        gen.writeEndArray();
+    }
+
+    private void writePath(JsonGenerator gen, PathWrapper ar) throws IOException {
+        gen.writeStartObject();
+        gen.writeNumberField("distance", Helper.round(ar.getDistance(), 3));
+        gen.writeNumberField("weight", Helper.round6(ar.getRouteWeight()));
+        gen.writeNumberField("time", ar.getTime());
+        gen.writeNumberField("transfers", ar.getNumChanges());
+        if (!ar.getDescription().isEmpty()) {
+            gen.writeArrayFieldStart("description");
+            for (String str : ar.getDescription()) {
+                gen.writeString(str);
+            }
+            gen.writeEndArray();
+        }
+        if (calcPoints) {
+            gen.writeBooleanField("points_encoded", pointsEncoded);
+            if (ar.getPoints().getSize() >= 2) {
+                gen.writeFieldName("bbox");
+                writeDoubles(gen, ar.calcBBox2D().toGeoJson());
+            }
+            gen.writeFieldName("points");
+            writePoints(gen, ar.getPoints());
+            if (enableInstructions) {
+                gen.writeFieldName("instructions");
+                writeInstructions(gen, ar.getInstructions());
+            }
+            gen.writeFieldName("legs");
+            gen.writeObject(ar.getLegs());
+            gen.writeFieldName("details");
+            writePathDetails(gen, ar.getPathDetails());
+            gen.writeNumberField("ascend", ar.getAscend());
+            gen.writeNumberField("descend", ar.getDescend());
+        }
+        gen.writeFieldName("snapped_waypoints");
+        writePoints(gen, ar.getWaypoints());
+        if (ar.getFare() != null) {
+            gen.writeStringField("fare", NumberFormat.getCurrencyInstance(Locale.ROOT).format(ar.getFare()));
+        }
+        gen.writeEndObject();
+    }
+
+    private void writePoints(JsonGenerator gen, PointList points) throws IOException {
+        if (pointsEncoded) {
+            gen.writeString(WebHelper.encodePolyline(points, enableElevation));
+            return;
+        }
+
+        // same format as the GeoJSON LineString created via PointList.toLineString
+        gen.writeStartObject();
+        gen.writeStringField("type", "LineString");
+        gen.writeArrayFieldStart("coordinates");
+        for (int i = 0; i < points.getSize(); i++) {
+            gen.writeStartArray();
+            gen.writeNumber(Helper.round6(points.getLongitude(i)));
+            gen.writeNumber(Helper.round6(points.getLatitude(i)));
+            if (enableElevation) {
+                double ele = points.getElevation(i);
+                if (!Double.isNaN(ele))
+                    gen.writeNumber(Helper.round2(ele));
+            }
+            gen.writeEndArray();
+        }
+        gen.writeEndArray();
+        gen.writeEndObject();
+    }
+
+    private static void writeInstructions(JsonGenerator gen, InstructionList instructions) throws IOException {
+        gen.writeStartArray();
+        int pointsIndex = 0;
+        for (Instruction instruction : instructions) {
+            gen.writeStartObject();
+            gen.writeStringField("text", instructions.createText(instruction));
+            InstructionAnnotation ia = instruction.getAnnotation();
+            if (!ia.isEmpty()) {
+                gen.writeStringField("annotation_text", ia.getMessage());
+                gen.writeNumberField("annotation_importance", ia.getImportance());
+            }
+            gen.writeStringField("street_name", instruction.getName());
+            gen.writeNumberField("time", instruction.getTime());
+            gen.writeNumberField("distance", Helper.round(instruction.getDistance(), 3));
+            gen.writeNumberField("sign", instruction.getSign());
+            for (Map.Entry<String, Object> e : instruction.getExtraInfoJSON().entrySet()) {
+                gen.writeObjectField(e.getKey(), e.getValue());
+            }
+
+            int tmpIndex = pointsIndex + instruction.getLength();
+            gen.writeArrayFieldStart("interval");
+            gen.writeNumber(pointsIndex);
+            gen.writeNumber(tmpIndex);
+            gen.writeEndArray();
+            pointsIndex = tmpIndex;
+            gen.writeEndObject();
+        }
+        gen.writeEndArray();
+    }
+
+    private static void writePathDetails(JsonGenerator gen, Map<String, List<PathDetail>> details) throws IOException {
+        gen.writeStartObject();
+        for (Map.Entry<String, List<PathDetail>> e : details.entrySet()) {
+            gen.writeArrayFieldStart(e.getKey());
+            for (PathDetail detail : e.getValue()) {
+                writePathDetail(gen, detail);
+            }
+            gen.writeEndArray();
+        }
+        gen.writeEndObject();
+    }
+
+    /**
+     * Writes the path detail in the format [first, last, value]
+     */
+    public static void writePathDetail(JsonGenerator gen, PathDetail value) throws IOException {
+        gen.writeStartArray();
+
+        gen.writeNumber(value.getFirst());
+        gen.writeNumber(value.getLast());
+
+        if (value.getValue() instanceof Double)
+            gen.writeNumber((Double) value.getValue());
+        else if (value.getValue() instanceof Long)
+            gen.writeNumber((Long) value.getValue());
+        else if (value.getValue() instanceof Integer)
+            gen.writeNumber((Integer) value.getValue());
+        else if (value.getValue() instanceof Boolean)
+            gen.writeBoolean((Boolean) value.getValue());
+        else if (value.getValue() instanceof String)
+            gen.writeString((String) value.getValue());
+        else
+            throw new JsonGenerationException("Unsupported type for PathDetail.value" + value.getValue().getClass(), gen);
+
+        gen.writeEndArray();
+    }
+
+    private static void writeDoubles(JsonGenerator gen, List<Double> values) throws IOException {
+        gen.writeStartArray();
+        for (Double d : values) {
+            gen.writeNumber(d);
+        }
+        gen.writeEndArray();
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http.resources;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.http.GraphHopperManaged;
+import com.graphhopper.routing.FacilityIndex;
+import com.graphhopper.routing.util.DefaultEdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.FlagEncoder;
+import com.graphhopper.routing.util.HintsMap;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.storage.index.QueryResult;
+import com.graphhopper.util.CmdArgs;
+import com.graphhopper.util.StopWatch;
+import com.graphhopper.util.shapes.GHPoint;
+
+import javax.inject.Inject;
+import javax.ws.rs.*;
+import javax.ws.rs.core.MediaType;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+
+import static javax.servlet.http.HttpServletResponse.SC_BAD_REQUEST;
+
+/**
+ * Returns the k facilities with the lowest weight from a point, e.g. the closest warehouses by
+ * drive time. The facilities are loaded from the file configured via web.facilities.file at
+ * startup.
+ */
+@Path("facilities")
+@Produces(MediaType.APPLICATION_JSON)
+public class FacilityResource {
+
+    public static final String FILE = "web.facilities.file";
+    public static final String MAX_K = "web.facilities.max_k";
+    public static final String MAX_VISITED_NODES = "web.facilities.max_visited_nodes";
+
+    private final GraphHopper hopper;
+    private final GraphHopperManaged graphHopperManaged;
+    private final int maxK;
+    private final int maxVisitedNodes;
+
+    @Inject
+    FacilityResource(GraphHopper hopper, GraphHopperManaged graphHopperManaged, CmdArgs configuration) {
+        this.hopper = hopper;
+        this.graphHopperManaged = graphHopperManaged;
+        this.maxK = configuration.getInt(MAX_K, 100);
+        this.maxVisitedNodes = configuration.getInt(MAX_VISITED_NODES, 1_000_000);
+    }
+
+    public static class Facility {
+        public final String id;
+        public final double[] coordinates;
+        public final double distance; // meters
+        public final long time; // milliseconds
+
+        @JsonCreator
+        Facility(@JsonProperty("id") String id, @JsonProperty("coordinates") double[] coordinates,
+                 @JsonProperty("distance") double distance, @JsonProperty("time") long time) {
+            this.id = id;
+            this.coordinates = coordinates;
+            this.distance = distance;
+            this.time = time;
+        }
+    }
+
+    public static class Response {
+        // sorted by the weight of the route from the point
+        public final List<Facility> facilities;
+        public final float took;
+
+        @JsonCreator
+        Response(@JsonProperty("facilities") List<Facility> facilities, @JsonProperty("took") float took) {
+            this.facilities = facilities;
+            this.took = took;
+        }
+    }
+
+    @GET
+    public Response doGet(@QueryParam("point") GHPoint point,
+                          @QueryParam("k") @DefaultValue("5") int k,
+                          @QueryParam("vehicle") @DefaultValue("") String vehicle,
+                          @QueryParam("weighting") @DefaultValue("fastest") String weightingName) {
+        StopWatch sw = new StopWatch().start();
+        if (point == null)
+            throw new WebApplicationException(errorResponse("The parameter 'point' is missing"));
+        if (k < 1 || k > maxK)
+            throw new WebApplicationException(errorResponse("The parameter 'k' has to be between 1 and " + maxK + " but was " + k));
+
+        EncodingManager encodingManager = hopper.getEncodingManager();
+        if (vehicle.isEmpty())
+            vehicle = encodingManager.fetchEdgeEncoders().get(0).toString();
+        if (!encodingManager.supports(vehicle))
+            throw new WebApplicationException(errorResponse("Vehicle not supported: " + vehicle));
+
+        FlagEncoder encoder = encodingManager.getEncoder(vehicle);
+        // like route requests do not read the graph while it is changed
+        Lock readLock = hopper.getGraphReadLock();
+        readLock.lock();
+        try {
+            QueryResult qr = hopper.getLocationIndex().findClosest(point.lat, point.lon, new DefaultEdgeFilter(encoder));
+            if (!qr.isValid())
+                throw new WebApplicationException(errorResponse("Cannot find point: " + point));
+
+            Weighting weighting = hopper.createWeighting(new HintsMap(weightingName).setVehicle(vehicle), encoder,
+                    hopper.getGraphHopperStorage());
+            FacilityIndex facilityIndex = graphHopperManaged.getFacilityIndex();
+            NodeAccess nodeAccess = hopper.getGraphHopperStorage().getNodeAccess();
+            List<Facility> facilities = new ArrayList<>(k);
+            for (FacilityIndex.Facility facility : facilityIndex.findNearest(qr, weighting, k, maxVisitedNodes)) {
+                int node = facility.getNode();
+                facilities.add(new Facility(facility.getId(), new double[]{nodeAccess.getLon(node), nodeAccess.getLat(node)},
+                        facility.getDistance(), facility.getTime()));
+            }
+            return new Response(facilities, sw.stop().getSeconds());
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    private static javax.ws.rs.core.Response errorResponse(String message) {
+        return javax.ws.rs.core.Response.status(SC_BAD_REQUEST).
+                entity(RouteResource.jsonErrorObject(Collections.<Throwable>singletonList(new IllegalArgumentException(message)))).
+                type(MediaType.APPLICATION_JSON).build();
+    }
+}
@@ -19,9 +19,11 @@ package com.graphhopper.http.resources;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.graphhopper.routing.util.EdgeFilter;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.QueryResult;
+import com.graphhopper.util.CmdArgs;
 import com.graphhopper.util.DistanceCalc;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.shapes.GHPoint;
@@ -31,6 +33,11 @@ import javax.inject.Inject;
 import javax.inject.Named;
 import javax.ws.rs.*;
 import javax.ws.rs.core.MediaType;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static javax.servlet.http.HttpServletResponse.SC_BAD_REQUEST;
 
 /**
  * @author svantulden
@@ -40,14 +47,18 @@ import javax.ws.rs.core.MediaType;
 @Produces(MediaType.APPLICATION_JSON)
 public class NearestResource {
 
+    public static final String MAX_POINTS = "web.nearest.max_points";
+
     private final DistanceCalc calc = Helper.DIST_EARTH;
     private final LocationIndex index;
     private final boolean hasElevation;
+    private final int maxPoints;
 
     @Inject
-    NearestResource(LocationIndex index, @Named("hasElevation") Boolean hasElevation) {
+    NearestResource(LocationIndex index, CmdArgs configuration, @Named("hasElevation") Boolean hasElevation) {
         this.index = index;
         this.hasElevation = hasElevation;
+        this.maxPoints = configuration.getInt(MAX_POINTS, 10_000);
     }
 
     public static class Response {
@@ -62,16 +73,69 @@ public class NearestResource {
         }
     }
 
+    public static class BatchResponse {
+        // null for every point where no nearest point was found
+        public final List<Response> results;
+
+        @JsonCreator
+        BatchResponse(@JsonProperty("results") List<Response> results) {
+            this.results = results;
+        }
+    }
+
     @GET
     public Response doGet(@QueryParam("point") GHPoint point, @QueryParam("elevation") @DefaultValue("false") boolean elevation) {
         QueryResult qr = index.findClosest(point.lat, point.lon, EdgeFilter.ALL_EDGES);
         if (qr.isValid()) {
-            GHPoint3D snappedPoint = qr.getSnappedPoint();
-            double[] coordinates = hasElevation && elevation ? new double[]{snappedPoint.lon, snappedPoint.lat, snappedPoint.ele} : new double[]{snappedPoint.lon, snappedPoint.lat};
-            return new Response(coordinates, calc.calcDist(point.lat, point.lon, snappedPoint.lat, snappedPoint.lon));
+            return createResponse(point.lat, point.lon, qr, elevation);
         } else {
             throw new WebApplicationException("Nearest point cannot be found!");
         }
     }
 
+    /**
+     * Finds the nearest point for many points with one call. The body has the format
+     * {"points": [[lon,lat], [lon,lat]], "elevation": false} where the points are in GeoJSON order.
+     */
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    public BatchResponse doPost(JsonNode body) {
+        JsonNode pointsNode = body == null ? null : body.get("points");
+        if (pointsNode == null || !pointsNode.isArray())
+            throw new WebApplicationException(errorResponse("The body has to contain a 'points' array"));
+        if (pointsNode.size() > maxPoints)
+            throw new WebApplicationException(errorResponse("Too many points: " + pointsNode.size() + ", allowed are " + maxPoints));
+
+        double[] lats = new double[pointsNode.size()];
+        double[] lons = new double[pointsNode.size()];
+        for (int i = 0; i < lats.length; i++) {
+            JsonNode p = pointsNode.get(i);
+            if (!p.isArray() || p.size() < 2)
+                throw new WebApplicationException(errorResponse("Points have to be specified as [lon,lat] but was " + p));
+            lons[i] = p.get(0).asDouble();
+            lats[i] = p.get(1).asDouble();
+        }
+
+        boolean elevation = body.path("elevation").asBoolean(false);
+        List<QueryResult> queryResults = index.findClosest(lats, lons, EdgeFilter.ALL_EDGES);
+        List<Response> results = new ArrayList<>(queryResults.size());
+        for (int i = 0; i < lats.length; i++) {
+            QueryResult qr = queryResults.get(i);
+            results.add(qr.isValid() ? createResponse(lats[i], lons[i], qr, elevation) : null);
+        }
+        return new BatchResponse(results);
+    }
+
+    private Response createResponse(double lat, double lon, QueryResult qr, boolean elevation) {
+        GHPoint3D snappedPoint = qr.getSnappedPoint();
+        double[] coordinates = hasElevation && elevation ? new double[]{snappedPoint.lon, snappedPoint.lat, snappedPoint.ele} : new double[]{snappedPoint.lon, snappedPoint.lat};
+        return new Response(coordinates, calc.calcDist(lat, lon, snappedPoint.lat, snappedPoint.lon));
+    }
+
+    private static javax.ws.rs.core.Response errorResponse(String message) {
+        return javax.ws.rs.core.Response.status(SC_BAD_REQUEST).
+                entity(RouteResource.jsonErrorObject(Collections.<Throwable>singletonList(new IllegalArgumentException(message)))).
+                type(MediaType.APPLICATION_JSON).build();
+    }
+
 }
@@ -0,0 +1,309 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http.resources;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.graphhopper.GHRequest;
+import com.graphhopper.GHResponse;
+import com.graphhopper.GraphHopperAPI;
+import com.graphhopper.http.RouteResponseWriter;
+import com.graphhopper.util.CmdArgs;
+import com.graphhopper.util.StopWatch;
+import com.graphhopper.util.shapes.GHPoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.ws.rs.*;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static com.graphhopper.util.Parameters.Routing.*;
+import static javax.servlet.http.HttpServletResponse.SC_BAD_REQUEST;
+
+/**
+ * Calculates many routes with one HTTP call. The routes are calculated in parallel on a shared and
+ * bounded thread pool where every batch can use at most web.route_batch.max_concurrency threads.
+ * Every response is written to the output stream as soon as it is finished. So the order of the
+ * results is not the order of the requests and every result contains the index of its request.
+ * <p>
+ * The body has the format {"requests": [{"points": [[lon,lat], [lon,lat]], "vehicle": "car", ...}]}
+ * where every request accepts the same parameters as the GET route endpoint. Points are in GeoJSON
+ * order. All parameters with a single value are passed as hints to the route calculation like for
+ * the GET endpoint, the values of an optional "hints" object overwrite them.
+ * <p>
+ * If the batch is aborted, e.g. as the client disconnected, the routes which are still calculated
+ * are cancelled: queued routes are not calculated and the search of running routes is interrupted,
+ * see AbstractRoutingAlgorithm.isMaxVisitedNodesExceeded.
+ */
+@Path("route/batch")
+@Produces(MediaType.APPLICATION_JSON)
+@Consumes(MediaType.APPLICATION_JSON)
+public class RouteBatchResource {
+    public static final String MAX_REQUESTS = "web.route_batch.max_requests";
+    public static final String MAX_CONCURRENCY = "web.route_batch.max_concurrency";
+    public static final String THREADS = "web.route_batch.threads";
+
+    private static final Logger logger = LoggerFactory.getLogger(RouteBatchResource.class);
+
+    private final GraphHopperAPI graphHopper;
+    private final ObjectMapper objectMapper;
+    private final ExecutorService executorService;
+    private final boolean hasElevation;
+    private final int maxRequests;
+    private final int maxConcurrency;
+
+    @Inject
+    public RouteBatchResource(GraphHopperAPI graphHopper, ObjectMapper objectMapper, CmdArgs configuration,
+                              @Named("routeBatchExecutor") ExecutorService executorService,
+                              @Named("hasElevation") Boolean hasElevation) {
+        this.graphHopper = graphHopper;
+        this.objectMapper = objectMapper;
+        this.executorService = executorService;
+        this.hasElevation = hasElevation;
+        this.maxRequests = configuration.getInt(MAX_REQUESTS, 10_000);
+        this.maxConcurrency = Math.max(1, configuration.getInt(MAX_CONCURRENCY, 4));
+    }
+
+    @POST
+    public Response doPost(JsonNode body) {
+        if (body == null || !body.has("requests") || !body.get("requests").isArray())
+            throw new WebApplicationException(errorResponse(new IllegalArgumentException("The body has to contain a 'requests' array")));
+
+        JsonNode requestsNode = body.get("requests");
+        if (requestsNode.size() > maxRequests)
+            throw new WebApplicationException(errorResponse(new IllegalArgumentException("Too many requests in batch: "
+                    + requestsNode.size() + ", allowed are " + maxRequests)));
+
+        final List<BatchEntry> entries = new ArrayList<>(requestsNode.size());
+        for (int i = 0; i < requestsNode.size(); i++) {
+            try {
+                entries.add(createEntry(requestsNode.get(i)));
+            } catch (IllegalArgumentException ex) {
+                throw new WebApplicationException(errorResponse(new IllegalArgumentException("Request " + i + ": " + ex.getMessage(), ex)));
+            }
+        }
+
+        StreamingOutput output = new StreamingOutput() {
+            @Override
+            public void write(OutputStream outputStream) throws IOException {
+                writeResults(entries, outputStream);
+            }
+        };
+        return Response.ok(output).build();
+    }
+
+    private void writeResults(List<BatchEntry> entries, OutputStream outputStream) throws IOException {
+        StopWatch sw = new StopWatch().start();
+        CompletionService<Result> completionService = new ExecutorCompletionService<>(executorService);
+        List<Future<Result>> futures = new ArrayList<>(Math.min(maxConcurrency, entries.size()));
+        // the generator is not thread safe, so only this thread writes and the workers calculate
+        try (JsonGenerator gen = objectMapper.getFactory().createGenerator(outputStream)) {
+            gen.writeStartObject();
+            gen.writeArrayFieldStart("results");
+            int submitted = 0;
+            int finished = 0;
+            try {
+                for (; submitted < Math.min(maxConcurrency, entries.size()); submitted++) {
+                    futures.add(submit(completionService, entries, submitted));
+                }
+
+                while (finished < entries.size()) {
+                    Future<Result> future = completionService.take();
+                    // only the running routes are kept, so there are at most maxConcurrency
+                    futures.remove(future);
+                    Result result = future.get();
+                    finished++;
+                    if (submitted < entries.size()) {
+                        futures.add(submit(completionService, entries, submitted));
+                        submitted++;
+                    }
+                    writeResult(gen, entries.get(result.index), result);
+                    gen.flush();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Batch was interrupted", ex);
+            } catch (ExecutionException ex) {
+                throw new IOException("Batch failed", ex.getCause());
+            } finally {
+                // if the batch was aborted, e.g. as the client disconnected, the queued routes are
+                // dropped and the running ones are interrupted, the algorithms check this regularly
+                for (Future<Result> future : futures) {
+                    future.cancel(true);
+                }
+            }
+            gen.writeEndArray();
+            gen.writeNumberField("took", Math.round(sw.stop().getSeconds() * 1000));
+            gen.writeEndObject();
+        }
+        logger.info("batch with " + entries.size() + " requests took " + sw.getSeconds());
+    }
+
+    private Future<Result> submit(CompletionService<Result> completionService, List<BatchEntry> entries, final int index) {
+        final GHRequest request = entries.get(index).request;
+        return completionService.submit(new Callable<Result>() {
+            @Override
+            public Result call() {
+                StopWatch sw = new StopWatch().start();
+                GHResponse rsp;
+                try {
+                    rsp = graphHopper.route(request);
+                } catch (RuntimeException ex) {
+                    rsp = new GHResponse().addError(ex);
+                }
+                return new Result(index, rsp, sw.stop().getSeconds());
+            }
+        });
+    }
+
+    private void writeResult(JsonGenerator gen, BatchEntry entry, Result result) throws IOException {
+        if (result.response.hasErrors()) {
+            ObjectNode json = RouteResource.jsonErrorObject(result.response.getErrors());
+            json.put("index", result.index);
+            if (entry.id != null)
+                json.put("id", entry.id);
+            objectMapper.writeTree(gen, json);
+            return;
+        }
+
+        gen.writeStartObject();
+        gen.writeNumberField("index", result.index);
+        if (entry.id != null)
+            gen.writeStringField("id", entry.id);
+        new RouteResponseWriter(entry.instructions, entry.calcPoints, entry.enableElevation, entry.pointsEncoded).
+                writeFields(gen, result.response, result.took);
+        gen.writeEndObject();
+    }
+
+    private BatchEntry createEntry(JsonNode node) {
+        if (node == null || !node.isObject())
+            throw new IllegalArgumentException("Request has to be an object");
+
+        JsonNode pointsNode = node.get("points");
+        if (pointsNode == null || !pointsNode.isArray() || pointsNode.size() < 2)
+            throw new IllegalArgumentException("You have to pass at least two points");
+
+        List<GHPoint> points = new ArrayList<>(pointsNode.size());
+        for (JsonNode p : pointsNode) {
+            if (!p.isArray() || p.size() < 2)
+                throw new IllegalArgumentException("Points have to be specified as [lon,lat] but was " + p);
+            points.add(new GHPoint(p.get(1).asDouble(), p.get(0).asDouble()));
+        }
+
+        GHRequest request;
+        JsonNode headingsNode = node.get("headings");
+        if (headingsNode != null && headingsNode.isArray() && headingsNode.size() > 0) {
+            if (headingsNode.size() != points.size())
+                throw new IllegalArgumentException("The number of 'headings' must be equal to the number of points (" + points.size() + ")");
+            List<Double> headings = new ArrayList<>(headingsNode.size());
+            for (JsonNode h : headingsNode) {
+                headings.add(h.isNull() ? Double.NaN : h.asDouble());
+            }
+            request = new GHRequest(points, headings);
+        } else {
+            request = new GHRequest(points);
+        }
+
+        BatchEntry entry = new BatchEntry(request);
+        entry.id = node.has("id") ? node.get("id").asText() : null;
+        entry.instructions = node.path(INSTRUCTIONS).asBoolean(true);
+        entry.calcPoints = node.path(CALC_POINTS).asBoolean(true);
+        entry.pointsEncoded = node.path("points_encoded").asBoolean(true);
+        entry.enableElevation = node.path("elevation").asBoolean(false);
+        if (entry.enableElevation && !hasElevation)
+            throw new IllegalArgumentException("Elevation not supported!");
+
+        // like for the GET endpoint every parameter is a hint too, e.g. ch.disable or heading_penalty
+        Iterator<Map.Entry<String, JsonNode>> paramIter = node.fields();
+        while (paramIter.hasNext()) {
+            Map.Entry<String, JsonNode> e = paramIter.next();
+            if (e.getValue().isValueNode())
+                request.getHints().put(e.getKey(), e.getValue().asText());
+        }
+        JsonNode hintsNode = node.get("hints");
+        if (hintsNode != null && hintsNode.isObject()) {
+            Iterator<Map.Entry<String, JsonNode>> iter = hintsNode.fields();
+            while (iter.hasNext()) {
+                Map.Entry<String, JsonNode> e = iter.next();
+                request.getHints().put(e.getKey(), e.getValue().asText());
+            }
+        }
+
+        request.setVehicle(node.path("vehicle").asText("car")).
+                setWeighting(node.path("weighting").asText("fastest")).
+                setAlgorithm(node.path("algorithm").asText("")).
+                setLocale(node.path("locale").asText("en")).
+                setPathDetails(toStringList(node.get("details"))).
+                setPointHints(toStringList(node.get(POINT_HINT))).
+                getHints().
+                put(CALC_POINTS, entry.calcPoints).
+                put(INSTRUCTIONS, entry.instructions).
+                put(WAY_POINT_MAX_DISTANCE, node.path(WAY_POINT_MAX_DISTANCE).asDouble(1));
+        return entry;
+    }
+
+    private static List<String> toStringList(JsonNode node) {
+        if (node == null || !node.isArray())
+            return new ArrayList<>();
+
+        List<String> list = new ArrayList<>(node.size());
+        for (JsonNode n : node) {
+            list.add(n.asText());
+        }
+        return list;
+    }
+
+    private static Response errorResponse(Throwable t) {
+        return Response.status(SC_BAD_REQUEST).entity(RouteResource.jsonErrorObject(Collections.singletonList(t))).build();
+    }
+
+    private static class BatchEntry {
+        final GHRequest request;
+        String id;
+        boolean instructions;
+        boolean calcPoints;
+        boolean pointsEncoded;
+        boolean enableElevation;
+
+        BatchEntry(GHRequest request) {
+            this.request = request;
+        }
+    }
+
+    private static class Result {
+        final int index;
+        final GHResponse response;
+        final float took;
+
+        Result(int index, GHResponse response, float took) {
+            this.index = index;
+            this.response = response;
+            this.took = took;
+        }
+    }
+}
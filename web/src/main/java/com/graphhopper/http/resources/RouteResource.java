@@ -17,17 +17,18 @@
  */
 package com.graphhopper.http.resources;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.graphhopper.GHRequest;
 import com.graphhopper.GHResponse;
 import com.graphhopper.GraphHopperAPI;
-import com.graphhopper.PathWrapper;
-import com.graphhopper.http.WebHelper;
+import com.graphhopper.http.RouteBinaryWriter;
+import com.graphhopper.http.RouteResponseWriter;
 import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.routing.util.HintsMap;
-import com.graphhopper.util.Helper;
 import com.graphhopper.util.Parameters;
 import com.graphhopper.util.StopWatch;
 import com.graphhopper.util.exceptions.GHException;
@@ -45,7 +46,6 @@ import javax.ws.rs.core.*;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
-import java.text.NumberFormat;
 import java.util.*;
 
 import static com.graphhopper.util.Parameters.Routing.*;
@@ -54,7 +54,8 @@ import static javax.servlet.http.HttpServletResponse.SC_BAD_REQUEST;
 /**
  * Servlet to use GraphHopper in a remote client application like mobile or browser. Note: If type
  * is json it returns the points in GeoJson format (longitude,latitude) unlike the format "lat,lon"
- * used otherwise. See the full API response format in docs/web/api-doc.md
+ * used otherwise. Clients that accept the media type application/x-gh-route get the compact binary
+ * format written by RouteBinaryWriter instead. See the full API response format in docs/web/api-doc.md
  * <p>
  *
  * @author Peter Karich
@@ -67,19 +68,23 @@ public class RouteResource {
     private final GraphHopperAPI graphHopper;
     private final EncodingManager encodingManager;
     private final Boolean hasElevation;
+    private final ObjectMapper objectMapper;
 
     @Inject
-    public RouteResource(GraphHopperAPI graphHopper, EncodingManager encodingManager, @Named("hasElevation") Boolean hasElevation) {
+    public RouteResource(GraphHopperAPI graphHopper, EncodingManager encodingManager, ObjectMapper objectMapper,
+                         @Named("hasElevation") Boolean hasElevation) {
         this.graphHopper = graphHopper;
         this.encodingManager = encodingManager;
+        this.objectMapper = objectMapper;
         this.hasElevation = hasElevation;
     }
 
     @GET
-    @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, "application/gpx+xml"})
+    @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, "application/gpx+xml", RouteBinaryWriter.MEDIA_TYPE})
     public Response doGet(
             @Context HttpServletRequest httpReq,
             @Context UriInfo uriInfo,
+            @Context HttpHeaders httpHeaders,
             @QueryParam(WAY_POINT_MAX_DISTANCE) @DefaultValue("1") double minPathPrecision,
             @QueryParam("point") List<GHPoint> requestPoints,
             @QueryParam("type") @DefaultValue("json") String type,
@@ -164,9 +169,14 @@ public class RouteResource {
                     + ", time0: " + Math.round(ghResponse.getBest().getTime() / 60000f) + "min"
                     + ", points0: " + ghResponse.getBest().getPoints().getSize()
                     + ", debugInfo: " + ghResponse.getDebugInfo());
-            return Response.fromResponse(writeGPX ?
-                    gpxSuccessResponse(ghResponse, timeString, trackName, enableElevation, withRoute, withTrack, withWayPoints) :
-                    jsonSuccessResponse(ghResponse, instructions, calcPoints, enableElevation, pointsEncoded, took))
+            Response rsp;
+            if (writeGPX)
+                rsp = gpxSuccessResponse(ghResponse, timeString, trackName, enableElevation, withRoute, withTrack, withWayPoints);
+            else if (acceptsBinary(httpHeaders))
+                rsp = binarySuccessResponse(ghResponse, instructions, calcPoints, enableElevation, took);
+            else
+                rsp = jsonSuccessResponse(ghResponse, instructions, calcPoints, enableElevation, pointsEncoded, took);
+            return Response.fromResponse(rsp)
                     .header("X-GH-Took", "" + Math.round(took * 1000))
                     .build();
         }
@@ -240,46 +250,29 @@ public class RouteResource {
         }
     }
 
-    private Response jsonSuccessResponse(GHResponse ghRsp, boolean enableInstructions, boolean calcPoints, boolean enableElevation, boolean pointsEncoded, float took) {
-        ObjectNode json = JsonNodeFactory.instance.objectNode();
-        json.putPOJO("hints", ghRsp.getHints().toMap());
-        // If you replace GraphHopper with your own brand name, this is fine.
-        // Still it would be highly appreciated if you mention us in your about page!
-        final ObjectNode info = json.putObject("info");
-        info.putArray("copyrights")
-                .add("GraphHopper")
-                .add("OpenStreetMap contributors");
-        info.put("took", Math.round(took * 1000));
-        ArrayNode jsonPathList = json.putArray("paths");
-        for (PathWrapper ar : ghRsp.getAll()) {
-            ObjectNode jsonPath = jsonPathList.addObject();
-            jsonPath.put("distance", Helper.round(ar.getDistance(), 3));
-            jsonPath.put("weight", Helper.round6(ar.getRouteWeight()));
-            jsonPath.put("time", ar.getTime());
-            jsonPath.put("transfers", ar.getNumChanges());
-            if (!ar.getDescription().isEmpty()) {
-                jsonPath.putPOJO("description", ar.getDescription());
-            }
-            if (calcPoints) {
-                jsonPath.put("points_encoded", pointsEncoded);
-                if (ar.getPoints().getSize() >= 2) {
-                    jsonPath.putPOJO("bbox", ar.calcBBox2D());
-                }
-                jsonPath.putPOJO("points", pointsEncoded ? WebHelper.encodePolyline(ar.getPoints(), enableElevation) : ar.getPoints().toLineString(enableElevation));
-                if (enableInstructions) {
-                    jsonPath.putPOJO("instructions", ar.getInstructions());
-                }
-                jsonPath.putPOJO("legs", ar.getLegs());
-                jsonPath.putPOJO("details", ar.getPathDetails());
-                jsonPath.put("ascend", ar.getAscend());
-                jsonPath.put("descend", ar.getDescend());
-            }
-            jsonPath.putPOJO("snapped_waypoints", pointsEncoded ? WebHelper.encodePolyline(ar.getWaypoints(), enableElevation) : ar.getWaypoints().toLineString(enableElevation));
-            if (ar.getFare() != null) {
-                jsonPath.put("fare", NumberFormat.getCurrencyInstance(Locale.ROOT).format(ar.getFare()));
+    private Response jsonSuccessResponse(final GHResponse ghRsp, boolean enableInstructions, boolean calcPoints, boolean enableElevation, boolean pointsEncoded, final float took) {
+        final RouteResponseWriter writer = new RouteResponseWriter(enableInstructions, calcPoints, enableElevation, pointsEncoded);
+        StreamingOutput output = outputStream -> {
+            try (JsonGenerator gen = objectMapper.getFactory().createGenerator(outputStream)) {
+                writer.write(gen, ghRsp, took);
             }
-        }
-        return Response.ok(json).build();
+        };
+        return Response.ok(output, MediaType.APPLICATION_JSON).build();
+    }
+
+    /**
+     * The binary format is only returned if the client prefers it, a wildcard is not sufficient.
+     */
+    private static boolean acceptsBinary(HttpHeaders httpHeaders) {
+        List<MediaType> acceptable = httpHeaders.getAcceptableMediaTypes();
+        return !acceptable.isEmpty() && !acceptable.get(0).isWildcardSubtype()
+                && acceptable.get(0).isCompatible(MediaType.valueOf(RouteBinaryWriter.MEDIA_TYPE));
+    }
+
+    private Response binarySuccessResponse(final GHResponse ghRsp, boolean enableInstructions, boolean calcPoints, boolean enableElevation, final float took) {
+        final RouteBinaryWriter writer = new RouteBinaryWriter(enableInstructions, calcPoints, enableElevation);
+        StreamingOutput output = outputStream -> writer.write(outputStream, ghRsp, took);
+        return Response.ok(output, RouteBinaryWriter.MEDIA_TYPE).build();
     }
 
     private Response errorResponse(List<Throwable> t, boolean writeGPX) {
@@ -295,6 +288,14 @@ public class RouteResource {
     }
 
     private Response jsonErrorResponse(List<Throwable> errors) {
+        // errors are always JSON, also if the binary format was requested
+        return Response.status(SC_BAD_REQUEST).entity(jsonErrorObject(errors)).type(MediaType.APPLICATION_JSON).build();
+    }
+
+    /**
+     * Creates the JSON representation of the specified errors as returned from the route endpoint.
+     */
+    static ObjectNode jsonErrorObject(List<Throwable> errors) {
         ObjectNode json = JsonNodeFactory.instance.objectNode();
         json.put("message", getMessage(errors.get(0)));
         ArrayNode errorHintList = json.putArray("hints");
@@ -306,10 +307,10 @@ public class RouteResource {
                 ((GHException) t).getDetails().forEach(error::putPOJO);
             }
         }
-        return Response.status(SC_BAD_REQUEST).entity(json).build();
+        return json;
     }
 
-    private String getMessage(Throwable t) {
+    private static String getMessage(Throwable t) {
         if (t.getMessage() == null)
             return t.getClass().getSimpleName();
         else
@@ -0,0 +1,90 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for 
+ *  additional information regarding copyright ownership.
+ * 
+ *  GraphHopper GmbH licenses this file to you under the Apache License, 
+ *  Version 2.0 (the "License"); you may not use this file except in 
+ *  compliance with the License. You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.graphhopper.http.resources.FacilityResource;
+import com.graphhopper.util.CmdArgs;
+import com.graphhopper.util.Helper;
+import io.dropwizard.testing.junit.DropwizardAppRule;
+import org.junit.AfterClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import javax.ws.rs.core.Response;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FacilityResourceIT {
+    private static final String dir = "./target/andorra-facilities-gh/";
+    private static final String facilitiesFile = "./target/andorra-facilities.csv";
+
+    private static final GraphHopperServerConfiguration config = new GraphHopperServerConfiguration();
+
+    static {
+        try (FileWriter writer = new FileWriter(facilitiesFile)) {
+            writer.write("# id,lat,lon\n"
+                    + "north,42.554851,1.536198\n"
+                    + "south,42.510071,1.548128\n"
+                    + "\n"
+                    + "center,42.532,1.53\n");
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+        config.graphhopper.merge(new CmdArgs().
+                put("graph.flag_encoders", "car").
+                put("prepare.ch.weightings", "fastest").
+                put("datareader.file", "../core/files/andorra.osm.pbf").
+                put("graph.location", dir).
+                put(FacilityResource.FILE, facilitiesFile).
+                put(FacilityResource.MAX_K, "2"));
+    }
+
+    @ClassRule
+    public static final DropwizardAppRule<GraphHopperServerConfiguration> app = new DropwizardAppRule(
+            GraphHopperApplication.class, config);
+
+    @AfterClass
+    public static void cleanUp() {
+        Helper.removeDir(new File(dir));
+        new File(facilitiesFile).delete();
+    }
+
+    @Test
+    public void testNearestFacilities() {
+        Response response = app.client().target("http://localhost:8080/facilities?point=42.554,1.535&k=2").request().buildGet().invoke();
+        assertEquals(200, response.getStatus());
+        FacilityResource.Response json = response.readEntity(FacilityResource.Response.class);
+        assertEquals(2, json.facilities.size());
+        assertEquals("north", json.facilities.get(0).id);
+        assertEquals("center", json.facilities.get(1).id);
+        assertTrue(json.facilities.get(0).distance < json.facilities.get(1).distance);
+        assertTrue(json.facilities.get(1).time > 0);
+        assertEquals(2, json.facilities.get(0).coordinates.length);
+    }
+
+    @Test
+    public void testInvalidK() {
+        Response response = app.client().target("http://localhost:8080/facilities?point=42.554,1.535&k=3").request().buildGet().invoke();
+        assertEquals(400, response.getStatus());
+        assertTrue(response.readEntity(String.class).contains("between 1 and 2"));
+    }
+}
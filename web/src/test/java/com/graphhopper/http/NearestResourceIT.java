@@ -25,10 +25,12 @@ import org.junit.AfterClass;
 import org.junit.ClassRule;
 import org.junit.Test;
 
+import javax.ws.rs.client.Entity;
 import javax.ws.rs.core.Response;
 import java.io.File;
 
 import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
 import static org.junit.Assert.assertThat;
 
 /**
@@ -64,4 +66,24 @@ public class NearestResourceIT {
         NearestResource.Response json = response.readEntity(NearestResource.Response.class);
         assertThat("nearest point", json.coordinates, is(new double[]{1.5363742288086868, 42.55483907636756}));
     }
+
+    @Test
+    public void testBatchNearestQuery() throws Exception {
+        String body = "{\"points\": [[1.536198,42.554851], [1.548128,42.510071], [20.0,10.0]]}";
+        final Response response = app.client().target("http://localhost:8080/nearest").request().
+                post(Entity.json(body));
+        assertThat("HTTP status", response.getStatus(), is(200));
+        NearestResource.BatchResponse json = response.readEntity(NearestResource.BatchResponse.class);
+        assertThat("results", json.results.size(), is(3));
+        assertThat("nearest point", json.results.get(0).coordinates, is(new double[]{1.5363742288086868, 42.55483907636756}));
+        assertThat("nearest point", json.results.get(1).coordinates.length, is(2));
+        assertThat("far away point", json.results.get(2), is(nullValue()));
+    }
+
+    @Test
+    public void testBatchNearestQueryWithoutPoints() throws Exception {
+        final Response response = app.client().target("http://localhost:8080/nearest").request().
+                post(Entity.json("{}"));
+        assertThat("HTTP status", response.getStatus(), is(400));
+    }
 }
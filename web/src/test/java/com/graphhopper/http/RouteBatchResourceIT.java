@@ -0,0 +1,118 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.graphhopper.util.CmdArgs;
+import com.graphhopper.util.Helper;
+import io.dropwizard.testing.junit.DropwizardAppRule;
+import org.junit.AfterClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.Response;
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+public class RouteBatchResourceIT {
+    private static final String DIR = "./target/andorra-gh/";
+
+    private static final GraphHopperServerConfiguration config = new GraphHopperServerConfiguration();
+
+    static {
+        config.graphhopper.merge(new CmdArgs().
+                put("graph.flag_encoders", "car").
+                put("prepare.ch.weightings", "fastest").
+                put("web.route_batch.max_requests", "3").
+                put("web.route_batch.max_concurrency", "2").
+                put("datareader.file", "../core/files/andorra.osm.pbf").
+                put("graph.location", DIR));
+    }
+
+    @ClassRule
+    public static final DropwizardAppRule<GraphHopperServerConfiguration> app = new DropwizardAppRule(
+            GraphHopperApplication.class, config);
+
+    @AfterClass
+    public static void cleanUp() {
+        Helper.removeDir(new File(DIR));
+    }
+
+    @Test
+    public void testBatch() {
+        String body = "{\"requests\": ["
+                + "{\"id\": \"a\", \"points\": [[1.518946,42.531453],[1.54006,42.511178]], \"instructions\": false},"
+                + "{\"points\": [[1.54006,42.511178],[1.518946,42.531453]], \"points_encoded\": false},"
+                + "{\"points\": [[1.518946,42.531453],[1.54006,42.511178]], \"vehicle\": \"unknown\"}"
+                + "]}";
+        Response response = app.client().target("http://localhost:8080/route/batch").request().post(Entity.json(body));
+        assertEquals(200, response.getStatus());
+        JsonNode json = response.readEntity(JsonNode.class);
+        JsonNode results = json.get("results");
+        assertEquals(3, results.size());
+
+        boolean[] found = new boolean[3];
+        for (JsonNode result : results) {
+            int index = result.get("index").asInt();
+            found[index] = true;
+            if (index == 2) {
+                assertTrue(result.get("message").asText().contains("unsupported"));
+                continue;
+            }
+
+            double distance = result.get("paths").get(0).get("distance").asDouble();
+            if (index == 0) {
+                assertTrue("distance wasn't correct:" + distance, distance > 3000);
+                assertTrue("distance wasn't correct:" + distance, distance < 3500);
+                assertEquals("a", result.get("id").asText());
+                assertFalse(result.get("paths").get(0).has("instructions"));
+            } else {
+                // the reverse direction is longer due to oneways
+                assertTrue("distance wasn't correct:" + distance, distance > 5500);
+                assertTrue("distance wasn't correct:" + distance, distance < 6000);
+                assertTrue(result.get("paths").get(0).get("points").isObject());
+            }
+        }
+        assertTrue(found[0] && found[1] && found[2]);
+    }
+
+    @Test
+    public void testParametersAreHints() {
+        String body = "{\"requests\": ["
+                + "{\"points\": [[1.518946,42.531453],[1.54006,42.511178]], \"ch.disable\": true}"
+                + "]}";
+        Response response = app.client().target("http://localhost:8080/route/batch").request().post(Entity.json(body));
+        assertEquals(200, response.getStatus());
+        JsonNode results = response.readEntity(JsonNode.class).get("results");
+        assertEquals(1, results.size());
+        // like for the GET request the parameter is passed to the route calculation
+        assertEquals("Disabling CH not allowed on the server-side", results.get(0).get("message").asText());
+    }
+
+    @Test
+    public void testTooManyRequests() {
+        String request = "{\"points\": [[1.518946,42.531453],[1.54006,42.511178]]}";
+        String body = "{\"requests\": [" + request + "," + request + "," + request + "," + request + "]}";
+        Response response = app.client().target("http://localhost:8080/route/batch").request().post(Entity.json(body));
+        assertEquals(400, response.getStatus());
+        JsonNode json = response.readEntity(JsonNode.class);
+        assertTrue(json.get("message").asText().contains("Too many requests"));
+    }
+}
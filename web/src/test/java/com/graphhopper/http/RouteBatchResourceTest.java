@@ -0,0 +1,121 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.graphhopper.GHRequest;
+import com.graphhopper.GHResponse;
+import com.graphhopper.GraphHopperAPI;
+import com.graphhopper.http.resources.RouteBatchResource;
+import com.graphhopper.routing.Dijkstra;
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.FlagEncoder;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.FastestWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.GraphBuilder;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.util.CmdArgs;
+import org.junit.Test;
+
+import javax.ws.rs.core.StreamingOutput;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class RouteBatchResourceTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void testCancelRoutesOfAbortedBatch() throws Exception {
+        FlagEncoder encoder = new CarFlagEncoder();
+        final GraphHopperStorage graph = new GraphBuilder(new EncodingManager(encoder)).create();
+        graph.edge(0, 1, 100, true);
+        graph.edge(1, 2, 100, true);
+        final Weighting weighting = new FastestWeighting(encoder);
+        final AtomicInteger calls = new AtomicInteger();
+        final AtomicInteger running = new AtomicInteger();
+        GraphHopperAPI graphHopper = new GraphHopperAPI() {
+            @Override
+            public boolean load(String urlOrFile) {
+                return true;
+            }
+
+            @Override
+            public GHResponse route(GHRequest request) {
+                calls.incrementAndGet();
+                // the first route finishes at once, all others run until they are cancelled
+                if (request.getPoints().get(0).lat == 0)
+                    return new GHResponse().addError(new IllegalArgumentException("Cannot find point 0"));
+
+                // busy without sleeping, so only the interrupt check of the algorithm can stop it
+                running.incrementAndGet();
+                try {
+                    while (true) {
+                        new Dijkstra(graph, weighting, TraversalMode.NODE_BASED).calcPath(0, 2);
+                    }
+                } finally {
+                    running.decrementAndGet();
+                }
+            }
+        };
+
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        try {
+            CmdArgs args = new CmdArgs().put(RouteBatchResource.MAX_CONCURRENCY, 3);
+            RouteBatchResource resource = new RouteBatchResource(graphHopper, objectMapper, args, executorService, false);
+            StringBuilder body = new StringBuilder("{\"requests\": [");
+            for (int i = 0; i < 10; i++) {
+                if (i > 0)
+                    body.append(",");
+                body.append("{\"points\": [[0, ").append(i).append("], [1, 1]]}");
+            }
+            body.append("]}");
+            StreamingOutput output = (StreamingOutput) resource.doPost(objectMapper.readTree(body.toString())).getEntity();
+
+            // the client disconnects
+            OutputStream disconnected = new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    throw new IOException("Broken pipe");
+                }
+            };
+            try {
+                output.write(disconnected);
+                fail("writing the first result has to fail");
+            } catch (IOException ex) {
+                // expected
+            }
+
+            // the routes still running when the batch was aborted are interrupted and stop
+            for (int i = 0; i < 100 && running.get() > 0; i++) {
+                Thread.sleep(50);
+            }
+            assertEquals(0, running.get());
+            // and no further routes are started
+            assertTrue("routes: " + calls.get(), calls.get() <= 4);
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+}
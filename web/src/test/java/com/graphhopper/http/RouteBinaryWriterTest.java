@@ -0,0 +1,62 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.graphhopper.GHResponse;
+import com.graphhopper.PathWrapper;
+import com.graphhopper.api.RouteBinaryReader;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.PointList;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class RouteBinaryWriterTest {
+
+    @Test
+    public void testMissingElevation() throws IOException {
+        PointList points = Helper.createPointList3D(42.5, 1.5, 1000, 42.51, 1.51, Double.NaN, 42.52, 1.515, 1005.25,
+                42.53, 1.52, Double.NaN);
+        PathWrapper pw = new PathWrapper().setPoints(points).setDistance(1500).setTime(60000).setRouteWeight(60);
+        pw.setWaypoints(Helper.createPointList3D(42.5, 1.5, Double.NaN, 42.53, 1.52, 1010));
+        GHResponse rsp = new GHResponse();
+        rsp.add(pw);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new RouteBinaryWriter(false, true, true).write(out, rsp, 0.1f);
+        PathWrapper result = new RouteBinaryReader(false).read(new ByteArrayInputStream(out.toByteArray())).getBest();
+
+        PointList resultPoints = result.getPoints();
+        assertEquals(4, resultPoints.getSize());
+        assertTrue(resultPoints.is3D());
+        assertEquals(1000, resultPoints.getElevation(0), 1e-6);
+        assertTrue(Double.isNaN(resultPoints.getElevation(1)));
+        // the difference is to the last known elevation
+        assertEquals(1005.25, resultPoints.getElevation(2), 1e-6);
+        assertTrue(Double.isNaN(resultPoints.getElevation(3)));
+        assertEquals(42.51, resultPoints.getLatitude(1), 1e-6);
+        assertEquals(1.52, resultPoints.getLongitude(3), 1e-6);
+
+        assertTrue(Double.isNaN(result.getWaypoints().getElevation(0)));
+        assertEquals(1010, result.getWaypoints().getElevation(1), 1e-6);
+    }
+}
@@ -156,6 +156,86 @@ public class RouteResourceIT {
         assertEquals(false, instructions.get(24).get("exited"));
     }
 
+    @Test
+    public void testGraphHopperWebBinary() throws Exception {
+        GraphHopperWeb jsonHopper = new GraphHopperWeb();
+        assertTrue(jsonHopper.load("http://localhost:8080/route"));
+        GraphHopperWeb binaryHopper = new GraphHopperWeb().setBinary(true);
+        assertTrue(binaryHopper.load("http://localhost:8080/route"));
+
+        GHRequest request = new GHRequest().
+                addPoint(new GHPoint(42.554851, 1.536198)).
+                addPoint(new GHPoint(42.531896, 1.553278)).
+                addPoint(new GHPoint(42.510071, 1.548128));
+        request.setPathDetails(Arrays.asList("average_speed", "edge_id", "street_name"));
+        GHResponse jsonRsp = jsonHopper.route(request);
+        GHResponse binaryRsp = binaryHopper.route(request);
+        assertFalse(binaryRsp.getErrors().toString(), binaryRsp.hasErrors());
+
+        PathWrapper jsonPath = jsonRsp.getBest();
+        PathWrapper binaryPath = binaryRsp.getBest();
+        assertEquals(jsonPath.getDistance(), binaryPath.getDistance(), 1e-3);
+        assertEquals(jsonPath.getTime(), binaryPath.getTime());
+        assertEquals(jsonPath.getRouteWeight(), binaryPath.getRouteWeight(), 1e-6);
+
+        // the encoded polyline of the JSON response has only 5 decimal places
+        assertEquals(jsonPath.getPoints().getSize(), binaryPath.getPoints().getSize());
+        for (int i = 0; i < jsonPath.getPoints().getSize(); i++) {
+            assertEquals(jsonPath.getPoints().getLatitude(i), binaryPath.getPoints().getLatitude(i), 2e-5);
+            assertEquals(jsonPath.getPoints().getLongitude(i), binaryPath.getPoints().getLongitude(i), 2e-5);
+        }
+        assertEquals(jsonPath.getWaypoints().getSize(), binaryPath.getWaypoints().getSize());
+
+        List<Map<String, Object>> jsonInstructions = jsonPath.getInstructions().createJson();
+        List<Map<String, Object>> binaryInstructions = binaryPath.getInstructions().createJson();
+        assertEquals(26, binaryInstructions.size());
+        assertEquals(jsonInstructions.size(), binaryInstructions.size());
+        for (int i = 0; i < jsonInstructions.size(); i++) {
+            Map<String, Object> jsonInstr = jsonInstructions.get(i);
+            Map<String, Object> binaryInstr = binaryInstructions.get(i);
+            assertEquals(jsonInstr.keySet(), binaryInstr.keySet());
+            for (String key : jsonInstr.keySet()) {
+                if (key.equals("distance"))
+                    assertEquals((Double) jsonInstr.get(key), (Double) binaryInstr.get(key), 1e-3);
+                else
+                    assertEquals("instruction " + i + ", " + key, jsonInstr.get(key), binaryInstr.get(key));
+            }
+        }
+        assertEquals("At roundabout, take exit 2", binaryInstructions.get(4).get("text"));
+
+        Map<String, List<PathDetail>> jsonDetails = jsonPath.getPathDetails();
+        Map<String, List<PathDetail>> binaryDetails = binaryPath.getPathDetails();
+        assertEquals(jsonDetails.keySet(), binaryDetails.keySet());
+        for (String key : jsonDetails.keySet()) {
+            List<PathDetail> jsonList = jsonDetails.get(key);
+            List<PathDetail> binaryList = binaryDetails.get(key);
+            assertEquals(jsonList.size(), binaryList.size());
+            for (int i = 0; i < jsonList.size(); i++) {
+                assertEquals(jsonList.get(i).getFirst(), binaryList.get(i).getFirst());
+                assertEquals(jsonList.get(i).getLast(), binaryList.get(i).getLast());
+                assertEquals(jsonList.get(i).getValue().toString(), binaryList.get(i).getValue().toString());
+            }
+        }
+
+        // errors are still returned as JSON
+        GHResponse errorRsp = binaryHopper.route(new GHRequest(42.542078, 1.45586, 42.537841, 1.439981).
+                setPathDetails(Arrays.asList("average_speed")));
+        assertTrue(errorRsp.getErrors().toString(), errorRsp.hasErrors());
+    }
+
+    @Test
+    public void testBinaryFormatRequiresAcceptHeader() throws Exception {
+        Response response = app.client().target("http://localhost:8080/route?point=42.554851,1.536198&point=42.510071,1.548128").
+                request(RouteBinaryWriter.MEDIA_TYPE).buildGet().invoke();
+        assertEquals(200, response.getStatus());
+        assertEquals(RouteBinaryWriter.MEDIA_TYPE, response.getMediaType().toString());
+
+        response = app.client().target("http://localhost:8080/route?point=42.554851,1.536198&point=42.510071,1.548128").
+                request().buildGet().invoke();
+        assertEquals(200, response.getStatus());
+        assertEquals("application/json", response.getMediaType().toString());
+    }
+
     @Test
     public void testPathDetails() throws Exception {
         GraphHopperAPI hopper = new com.graphhopper.api.GraphHopperWeb();
@@ -0,0 +1,106 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.bedatadriven.jackson.datatype.jts.JtsModule;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.graphhopper.GHResponse;
+import com.graphhopper.PathWrapper;
+import com.graphhopper.util.*;
+import com.graphhopper.util.details.PathDetail;
+
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class RouteResponseWriterTest {
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JtsModule());
+
+    private GHResponse createResponse() {
+        PointList points = Helper.createPointList3D(42.5, 1.5, 1000, 42.51, 1.51, 1010.5, 42.52, 1.515, 1005);
+        Translation tr = new TranslationMap().doImport().getWithFallBack(Locale.US);
+        InstructionList instructions = new InstructionList(tr);
+        PointList pl = Helper.createPointList3D(42.5, 1.5, 1000, 42.51, 1.51, 1010.5);
+        instructions.add(new Instruction(Instruction.CONTINUE_ON_STREET, "main street", InstructionAnnotation.EMPTY, pl).
+                setDistance(1500.1234).setTime(60000));
+        instructions.add(new FinishInstruction(42.52, 1.515, 1005));
+
+        PathDetail detail = new PathDetail("main street");
+        detail.setFirst(0);
+        detail.setLast(2);
+        Map<String, List<PathDetail>> details = new HashMap<>();
+        details.put("street_name", Collections.singletonList(detail));
+
+        PathWrapper pw = new PathWrapper().setPoints(points).setDistance(1500.1234).setTime(60000).setRouteWeight(60.1);
+        pw.setInstructions(instructions);
+        pw.addPathDetails(details);
+        pw.setWaypoints(Helper.createPointList3D(42.5, 1.5, 1000, 42.52, 1.515, 1005));
+        GHResponse rsp = new GHResponse();
+        rsp.add(pw);
+        rsp.getHints().put("visited_nodes.sum", 10);
+        return rsp;
+    }
+
+    private JsonNode write(GHResponse rsp, boolean pointsEncoded, boolean elevation) throws Exception {
+        StringWriter sw = new StringWriter();
+        try (JsonGenerator gen = objectMapper.getFactory().createGenerator(sw)) {
+            new RouteResponseWriter(true, true, elevation, pointsEncoded).write(gen, rsp, 0.1f);
+        }
+        return objectMapper.readTree(sw.toString());
+    }
+
+    private JsonNode toTree(Object o) throws Exception {
+        // serialize and parse to get the same node types as for the parsed output
+        return objectMapper.readTree(objectMapper.writeValueAsString(o));
+    }
+
+    @Test
+    public void testWrite() throws Exception {
+        GHResponse rsp = createResponse();
+        PathWrapper pw = rsp.getBest();
+        JsonNode json = write(rsp, true, false);
+        assertEquals("10", json.get("hints").get("visited_nodes.sum").asText());
+        assertEquals(100, json.get("info").get("took").asLong());
+
+        JsonNode path = json.get("paths").get(0);
+        assertEquals(1500.123, path.get("distance").asDouble(), 1e-6);
+        assertEquals(60000, path.get("time").asLong());
+        assertEquals(4, path.get("bbox").size());
+        assertEquals(WebHelper.encodePolyline(pw.getPoints(), false), path.get("points").asText());
+        assertEquals(WebHelper.encodePolyline(pw.getWaypoints(), false), path.get("snapped_waypoints").asText());
+        assertEquals(toTree(pw.getInstructions()), path.get("instructions"));
+        assertEquals("[[0,2,\"main street\"]]", path.get("details").get("street_name").toString());
+    }
+
+    @Test
+    public void testWriteUnencodedPoints() throws Exception {
+        GHResponse rsp = createResponse();
+        PathWrapper pw = rsp.getBest();
+        JsonNode path = write(rsp, false, true).get("paths").get(0);
+        assertEquals(toTree(pw.getPoints().toLineString(true)), path.get("points"));
+        assertEquals(toTree(pw.getWaypoints().toLineString(true)), path.get("snapped_waypoints"));
+
+        path = write(rsp, false, false).get("paths").get(0);
+        assertEquals(toTree(pw.getPoints().toLineString(false)), path.get("points"));
+    }
+}